@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db;
+
+
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+
+import org.apache.log4j.Logger;
+
+
+/**
+ * Read integer settings from the com.poesys.db.database properties file, the
+ * file that configures the subsystems (batch thresholds, adaptive batch sizes,
+ * sequence blocks, cache settings, and so on). A missing file or property
+ * yields the caller's default, as does a value that is not an integer or is
+ * below the caller's minimum; the latter two cases log a warning.
+ * 
+ * @author Robert J. Muller
+ */
+public final class DatabaseProperties {
+  /** Logger for this class */
+  private static final Logger logger =
+    Logger.getLogger(DatabaseProperties.class);
+  /** Name of the database properties resource bundle */
+  public static final String BUNDLE = "com.poesys.db.database";
+
+  /**
+   * Private constructor for static class
+   */
+  private DatabaseProperties() {
+  }
+
+  /**
+   * Get an integer property from the database properties file.
+   * 
+   * @param key the property key
+   * @param defaultValue the value if there is no valid property
+   * @param min the smallest valid value
+   * @return the value
+   */
+  public static int getInt(String key, int defaultValue, int min) {
+    int value = defaultValue;
+    try {
+      value = Integer.parseInt(ResourceBundle.getBundle(BUNDLE).getString(key));
+      if (value < min) {
+        logger.warn("Value " + value + " for " + key + " is less than " + min
+                    + ", using default " + defaultValue);
+        value = defaultValue;
+      }
+    } catch (MissingResourceException e) {
+      // No file or property, use the default.
+    } catch (NumberFormatException e) {
+      logger.warn("Non-integer value for " + key + ", using default "
+                  + defaultValue);
+    }
+    return value;
+  }
+}
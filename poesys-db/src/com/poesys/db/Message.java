@@ -147,7 +147,9 @@ public abstract class Message {
       }
       if (args != null && args.length > 0) {
         MessageFormat formatter = new MessageFormat("");
-        formatter.setLocale(locale);
+        // Use the default locale if there is none; MessageFormat needs one to
+        // format numbers.
+        formatter.setLocale(locale == null ? Locale.getDefault() : locale);
         formatter.applyPattern(pattern);
         message = formatter.format(args);
       } else {
@@ -101,7 +101,7 @@ public class BigDecimalColumnValue extends AbstractColumnValue {
    * 
    * @return the value
    */
-  BigDecimal getValue() {
+  public BigDecimal getValue() {
     return value;
   }
 
@@ -104,7 +104,7 @@ public class DateColumnValue extends AbstractColumnValue {
    *
    * @return the value
    */
-  Date getValue() {
+  public Date getValue() {
     return value;
   }
 
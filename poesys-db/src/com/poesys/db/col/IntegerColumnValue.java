@@ -103,7 +103,7 @@ public class IntegerColumnValue extends AbstractColumnValue {
    * 
    * @return the value
    */
-  Integer getValue() {
+  public Integer getValue() {
     return value;
   }
 
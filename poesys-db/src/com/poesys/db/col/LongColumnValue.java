@@ -99,7 +99,7 @@ public class LongColumnValue extends AbstractColumnValue {
    * 
    * @return the value
    */
-  Long getValue() {
+  public Long getValue() {
     return value;
   }
 
@@ -89,6 +89,15 @@ public class NullColumnValue extends AbstractColumnValue {
     return false;
   }
 
+  /**
+   * Get the JDBC type of the null value; used by visitor for encoding.
+   *
+   * @return the JDBC type (java.sql.Types)
+   */
+  public int getJdbcType() {
+    return jdbcType;
+  }
+
   @Override
   public void accept(IColumnVisitor visitor) {
     visitor.visit(this);
@@ -102,7 +102,7 @@ public class StringColumnValue extends AbstractColumnValue {
    * 
    * @return the value
    */
-  String getValue() {
+  public String getValue() {
     return value;
   }
 
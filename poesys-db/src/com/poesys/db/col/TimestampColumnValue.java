@@ -127,7 +127,7 @@ public class TimestampColumnValue extends AbstractColumnValue {
    *
    * @return the value
    */
-  Timestamp getValue() {
+  public Timestamp getValue() {
     return value;
   }
 
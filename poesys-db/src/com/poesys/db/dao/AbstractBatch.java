@@ -52,4 +52,34 @@ public abstract class AbstractBatch<T extends IDbDto> {
     }
     this.subsystem = subsystem;
   }
+
+  /**
+   * Get the batch size to use for a DTO, which is the requested size unless
+   * the request is AdaptiveBatchSize.ADAPTIVE, in which case it is the current
+   * adaptive size for the DTO class.
+   * 
+   * @param size the requested batch size
+   * @param dto the DTO being added to a batch
+   * @return the batch size
+   */
+  protected int getBatchSize(int size, IDbDto dto) {
+    return AdaptiveBatchSize.getSize(size, subsystem, dto.getClass().getName());
+  }
+
+  /**
+   * Report the latency of a full batch to the adaptive batch size for the DTO
+   * class if the requested size is AdaptiveBatchSize.ADAPTIVE.
+   * 
+   * @param size the requested batch size
+   * @param dto a DTO in the batch
+   * @param rows the number of rows in the batch
+   * @param start the System.nanoTime() value before executing the batch
+   */
+  protected void recordBatch(int size, IDbDto dto, int rows, long start) {
+    if (size == AdaptiveBatchSize.ADAPTIVE) {
+      AdaptiveBatchSize tuner =
+        AdaptiveBatchSize.getInstance(subsystem, dto.getClass().getName());
+      tuner.record(rows, System.nanoTime() - start);
+    }
+  }
 }
@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao;
+
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.log4j.Logger;
+
+import com.poesys.db.DatabaseProperties;
+
+
+/**
+ * <p>
+ * An adaptive batch size for one DTO class. When you pass ADAPTIVE as the
+ * batch size to InsertBatch, UpdateBatchByKey, or DeleteBatchByKey, the DAO
+ * gets the batch size for the DTO class from this class and reports the
+ * latency of each full batch it executes. After a few batches at one size, the
+ * tuner compares the rows per second with the rate at the previous size and
+ * keeps moving the size in the same direction while the rate improves,
+ * reversing when it drops. The size always stays within the bounds. When a
+ * batch takes longer than the latency limit, the tuner shrinks the size and
+ * from then on keeps it below the size of that batch.
+ * </p>
+ * <p>
+ * The bounds and the latency limit for each subsystem come from the
+ * com.poesys.db.database properties file; the first size is the subsystem
+ * batch size from BatchThreshold:
+ * </p>
+ * 
+ * <pre>
+ * com.poesys.test.mysql.adaptive_min=10
+ * com.poesys.test.mysql.adaptive_max=5000
+ * com.poesys.test.mysql.adaptive_latency=1000
+ * </pre>
+ * 
+ * <p>
+ * Call getSizes() to see the size chosen for each DTO class.
+ * </p>
+ * <p>
+ * A requested size of zero or less other than ADAPTIVE keeps its original
+ * meaning: the DAO sends all the DTOs in a single batch. ADAPTIVE is
+ * Integer.MIN_VALUE, a size that no caller passes for any other purpose.
+ * </p>
+ * 
+ * @see BatchThreshold
+ * 
+ * @author Robert J. Muller
+ */
+public class AdaptiveBatchSize {
+  /** Logger for this class */
+  private static final Logger logger =
+    Logger.getLogger(AdaptiveBatchSize.class);
+
+  /** Batch size that asks a batch DAO to use the adaptive size */
+  public static final int ADAPTIVE = Integer.MIN_VALUE;
+  /** Default lower bound */
+  public static final int DEFAULT_MIN = 10;
+  /** Default upper bound */
+  public static final int DEFAULT_MAX = 5000;
+  /** Default latency limit in milliseconds */
+  public static final int DEFAULT_LATENCY = 1000;
+  /** Number of batches to measure at each size */
+  private static final int SAMPLES = 3;
+  /** Factor by which to change the size at each step */
+  private static final double STEP = 1.5;
+  /** Fractional drop in rate that counts as worse rather than noise */
+  private static final double TOLERANCE = 0.05;
+
+  /** Tuners by DTO class name */
+  private static final ConcurrentMap<String, AdaptiveBatchSize> tuners =
+    new ConcurrentHashMap<String, AdaptiveBatchSize>();
+
+  /** the DTO class name */
+  private final String className;
+  /** the lower bound */
+  private final int min;
+  /** the upper bound */
+  private final int max;
+  /** the latency limit in nanoseconds */
+  private final long latency;
+
+  /** the largest size allowed after a batch exceeded the latency limit */
+  private int cap;
+  /** the current batch size */
+  private volatile int size;
+  /** +1 to grow the size at the next step, -1 to shrink it */
+  private int direction = 1;
+  /** batches measured at the current size */
+  private int samples = 0;
+  /** rows in the measured batches */
+  private long rows = 0L;
+  /** elapsed nanoseconds of the measured batches */
+  private long nanos = 0L;
+  /** rows per second at the previous size, 0 if none */
+  private double lastRate = 0.0;
+  /** rows per second at the last completed step */
+  private volatile double rate = 0.0;
+
+  /**
+   * Create an AdaptiveBatchSize object.
+   * 
+   * @param className the DTO class name
+   * @param initial the first batch size
+   * @param min the lower bound
+   * @param max the upper bound
+   * @param latencyMillis the latency limit in milliseconds
+   */
+  AdaptiveBatchSize(String className,
+                    int initial,
+                    int min,
+                    int max,
+                    long latencyMillis) {
+    this.className = className;
+    this.min = min;
+    this.max = Math.max(min, max);
+    this.latency = latencyMillis * 1000000L;
+    this.cap = this.max;
+    this.size = clamp(initial);
+  }
+
+  /**
+   * Get the tuner for a DTO class, creating it with the subsystem settings if
+   * it does not yet exist.
+   * 
+   * @param subsystem the subsystem of the DTO class
+   * @param className the DTO class name
+   * @return the tuner
+   */
+  public static AdaptiveBatchSize getInstance(String subsystem,
+                                              String className) {
+    AdaptiveBatchSize tuner = tuners.get(className);
+    if (tuner == null) {
+      tuner =
+        new AdaptiveBatchSize(className,
+                              BatchThreshold.getBatchSize(subsystem),
+                              getSetting(subsystem, ".adaptive_min",
+                                         DEFAULT_MIN),
+                              getSetting(subsystem, ".adaptive_max",
+                                         DEFAULT_MAX),
+                              getSetting(subsystem, ".adaptive_latency",
+                                         DEFAULT_LATENCY));
+      AdaptiveBatchSize existing = tuners.putIfAbsent(className, tuner);
+      tuner = existing == null ? tuner : existing;
+    }
+    return tuner;
+  }
+
+  /**
+   * Get the batch size to use for a DTO class, which is the requested size
+   * unless the request is ADAPTIVE. Any other size less than one means a
+   * single batch, so the method returns Integer.MAX_VALUE for it.
+   * 
+   * @param size the requested size or ADAPTIVE
+   * @param subsystem the subsystem of the DTO class
+   * @param className the DTO class name
+   * @return the batch size
+   */
+  public static int getSize(int size, String subsystem, String className) {
+    if (size == ADAPTIVE) {
+      return getInstance(subsystem, className).getSize();
+    }
+    return size < 1 ? Integer.MAX_VALUE : size;
+  }
+
+  /**
+   * Get the batch sizes chosen so far for each DTO class.
+   * 
+   * @return a map of batch size by DTO class name, sorted by name
+   */
+  public static Map<String, Integer> getSizes() {
+    Map<String, Integer> sizes = new TreeMap<String, Integer>();
+    for (AdaptiveBatchSize tuner : tuners.values()) {
+      sizes.put(tuner.className, tuner.size);
+    }
+    return sizes;
+  }
+
+  /**
+   * Discard all the tuners so that tuning starts over.
+   */
+  public static void clear() {
+    tuners.clear();
+  }
+
+  /**
+   * Get the current batch size.
+   * 
+   * @return the batch size
+   */
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * Get the rows per second measured at the last completed step.
+   * 
+   * @return the rate, 0 if no step has completed
+   */
+  public double getRowsPerSecond() {
+    return rate;
+  }
+
+  /**
+   * Record the execution of a full batch and adjust the size once enough
+   * batches have run at the current size.
+   * 
+   * @param batchRows the number of rows in the batch
+   * @param elapsed the elapsed nanoseconds of the executeBatch call
+   */
+  public synchronized void record(int batchRows, long elapsed) {
+    rows += batchRows;
+    nanos += Math.max(elapsed, 1L);
+    samples++;
+    if (elapsed > latency && size > min) {
+      // Too slow for the caller regardless of throughput; back off now and
+      // never grow to this size again.
+      cap = size - 1;
+      direction = -1;
+      step(0.0);
+      direction = 1;
+    } else if (samples >= SAMPLES) {
+      double current = rows * 1.0e9 / nanos;
+      if (lastRate > 0.0 && current < lastRate * (1.0 - TOLERANCE)) {
+        direction = -direction;
+      }
+      step(current);
+    }
+  }
+
+  /**
+   * Move the size one step in the current direction and start measuring the
+   * new size.
+   * 
+   * @param current the rate at the size being left, or 0 to forget the rate
+   */
+  private void step(double current) {
+    int old = size;
+    int next =
+      direction > 0 ? (int)Math.ceil(size * STEP) : (int)Math.floor(size / STEP);
+    size = clamp(next);
+    if (size == old) {
+      // At a bound; turn around for the next step.
+      direction = -direction;
+    }
+    lastRate = current;
+    rate = current;
+    samples = 0;
+    rows = 0L;
+    nanos = 0L;
+    if (logger.isDebugEnabled() && size != old) {
+      logger.debug("Adaptive batch size for " + className + " changed from "
+                   + old + " to " + size + " at " + (long)current
+                   + " rows/sec");
+    }
+  }
+
+  /**
+   * Keep a size within the bounds.
+   * 
+   * @param value the size
+   * @return the bounded size
+   */
+  private int clamp(int value) {
+    return Math.max(min, Math.min(cap, value));
+  }
+
+  /**
+   * Get a positive setting for a subsystem from the database properties file.
+   * 
+   * @param subsystem the subsystem
+   * @param suffix the property suffix
+   * @param defaultValue the value if there is no valid property
+   * @return the value
+   */
+  private static int getSetting(String subsystem, String suffix,
+                                int defaultValue) {
+    return DatabaseProperties.getInt(subsystem + suffix, defaultValue, 1);
+  }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao;
+
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.poesys.db.DatabaseProperties;
+
+
+/**
+ * <p>
+ * The collection size above which the collection DAOs (InsertCollection,
+ * UpdateCollectionByKey, and DeleteCollectionByKey) switch from a series of
+ * single-object operations to the matching batch DAO, and the batch size they
+ * then use. Each subsystem has its own settings, which come from the
+ * com.poesys.db.database properties file:
+ * </p>
+ * 
+ * <pre>
+ * com.poesys.test.mysql.batch_threshold=50
+ * com.poesys.test.mysql.batch_size=100
+ * </pre>
+ * 
+ * <p>
+ * If the file doesn't set a property, the subsystem uses the default threshold
+ * of 50 objects and the default batch size of 100 objects. You can also set
+ * the values for a subsystem programmatically, which overrides the file. A
+ * threshold of Integer.MAX_VALUE effectively turns off batching.
+ * </p>
+ * 
+ * @author Robert J. Muller
+ */
+public final class BatchThreshold {
+  /** Property suffix for the threshold */
+  private static final String THRESHOLD = ".batch_threshold";
+  /** Property suffix for the batch size */
+  private static final String SIZE = ".batch_size";
+  /** Default threshold */
+  public static final int DEFAULT_THRESHOLD = 50;
+  /** Default batch size */
+  public static final int DEFAULT_SIZE = 100;
+
+  /** Thresholds by subsystem */
+  private static final Map<String, Integer> thresholds =
+    new ConcurrentHashMap<String, Integer>();
+  /** Batch sizes by subsystem */
+  private static final Map<String, Integer> sizes =
+    new ConcurrentHashMap<String, Integer>();
+
+  /**
+   * Private constructor for static class
+   */
+  private BatchThreshold() {
+  }
+
+  /**
+   * Get the collection size above which the collection DAOs of a subsystem
+   * use a batch DAO.
+   * 
+   * @param subsystem the subsystem
+   * @return the threshold
+   */
+  public static int getThreshold(String subsystem) {
+    Integer threshold = thresholds.get(subsystem);
+    if (threshold == null) {
+      threshold =
+        DatabaseProperties.getInt(subsystem + THRESHOLD, DEFAULT_THRESHOLD, 1);
+      thresholds.put(subsystem, threshold);
+    }
+    return threshold;
+  }
+
+  /**
+   * Get the batch size the collection DAOs of a subsystem use when they
+   * switch to a batch DAO.
+   * 
+   * @param subsystem the subsystem
+   * @return the batch size
+   */
+  public static int getBatchSize(String subsystem) {
+    Integer size = sizes.get(subsystem);
+    if (size == null) {
+      size = DatabaseProperties.getInt(subsystem + SIZE, DEFAULT_SIZE, 1);
+      sizes.put(subsystem, size);
+    }
+    return size;
+  }
+
+  /**
+   * Set the threshold and batch size for a subsystem, overriding any
+   * properties.
+   * 
+   * @param subsystem the subsystem
+   * @param threshold the collection size above which to use a batch DAO
+   * @param size the batch size
+   */
+  public static void set(String subsystem, int threshold, int size) {
+    thresholds.put(subsystem, threshold);
+    sizes.put(subsystem, size);
+  }
+
+  /**
+   * Should a collection DAO of a subsystem use a batch DAO for a collection of
+   * a given size?
+   * 
+   * @param subsystem the subsystem
+   * @param size the size of the collection
+   * @return true if the collection is larger than the threshold
+   */
+  public static boolean isBatch(String subsystem, int size) {
+    return size > getThreshold(subsystem);
+  }
+
+}
@@ -19,14 +19,19 @@ package com.poesys.db.dao;
 
 
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
 
 import org.apache.log4j.Logger;
 
+import com.poesys.db.dto.BoundedDtoCache;
 import com.poesys.db.dto.DtoCache;
 import com.poesys.db.dto.IDbDto;
 import com.poesys.db.dto.IDtoCache;
+import com.poesys.db.dto.OffHeapDtoCache;
 import com.poesys.db.pk.IPrimaryKey;
 
 
@@ -34,7 +39,17 @@ import com.poesys.db.pk.IPrimaryKey;
  * A singleton object that manages data access objects in the system. The
  * manager maintains a singleton map of caches which is available on demand. The
  * caching scheme is a two-level one that maintains a singleton cache of caches,
- * each holding objects of a certain IDbDto type.
+ * each holding objects of a certain IDbDto type. A cache with a maximum number
+ * of entries in CacheSettings is a BoundedDtoCache that evicts its
+ * least-recently-used objects; other caches are unbounded.
+ * <p>
+ * The manager takes no locks: it gets and creates the caches with the atomic
+ * operations of a concurrent map, and each cache handles its own
+ * concurrency, so threads reading objects of different classes, or of the
+ * same class, don't wait for one another.
+ * </p>
+ * 
+ * @see CacheSettings
  * 
  * @author Robert J. Muller
  */
@@ -43,10 +58,11 @@ public class CacheDaoManager implements IDaoManager {
   private static final Logger logger = Logger.getLogger(CacheDaoManager.class);
 
   /** The singleton manager */
-  protected static CacheDaoManager manager = null;
+  protected static volatile CacheDaoManager manager = null;
 
   /** The thread-safe singleton cache map */
-  protected static Map<String, IDtoCache<IDbDto>> map = null;
+  protected static volatile ConcurrentMap<String, IDtoCache<IDbDto>> map =
+    null;
 
   /** The database subsystem for the DTO */
   protected final String subsystem;
@@ -70,8 +86,14 @@ public class CacheDaoManager implements IDaoManager {
    */
   public static IDaoManager getInstance(String subsystem) {
     if (manager == null) {
-      manager = new CacheDaoManager(subsystem);
-      map = new ConcurrentHashMap<>();
+      synchronized (CacheDaoManager.class) {
+        if (manager == null) {
+          // Create the map first so that a thread that sees the manager sees
+          // the map.
+          map = new ConcurrentHashMap<>();
+          manager = new CacheDaoManager(subsystem);
+        }
+      }
     }
     return manager;
   }
@@ -80,14 +102,26 @@ public class CacheDaoManager implements IDaoManager {
   public <T extends IDbDto, C extends Collection<T>> IDaoFactory<T> getFactory(String name,
                                                                                String subsystem,
                                                                                Integer expiration) {
-    return new DaoCacheFactory<>(name, manager, subsystem);
+    return new DaoCacheFactory<>(name,
+                                 manager,
+                                 subsystem,
+                                 expiration == null ? 0 : expiration);
   }
 
   @Override
   public void logMetaData() {
     logger.debug("Logging map of caches with " + map.size() + " caches:");
     for (String cacheName : map.keySet()) {
-      logger.debug("Cache: " + cacheName);
+      IDtoCache<IDbDto> cache = map.get(cacheName);
+      if (cache instanceof BoundedDtoCache) {
+        logger.debug("Cache: "
+                     + ((BoundedDtoCache<IDbDto>)cache).getStatistics());
+      } else if (cache instanceof OffHeapDtoCache) {
+        logger.debug("Cache: "
+                     + ((OffHeapDtoCache<IDbDto>)cache).getStatistics());
+      } else {
+        logger.debug("Cache: " + cacheName);
+      }
     }
   }
 
@@ -98,13 +132,70 @@ public class CacheDaoManager implements IDaoManager {
 
   @Override
   public IDtoCache<IDbDto> createCache(String name) {
+    return createCache(name, 0);
+  }
+
+  /**
+   * Create a cache with an expire-after-write time for use when the
+   * CacheSettings for the cache don't set one. If another thread has already
+   * created the cache, return that cache; only one cache ever exists for a
+   * name until clearAllCaches().
+   * 
+   * @param name the name of the cache
+   * @param expiration the milliseconds an object lives after caching, 0 for
+   *          no limit
+   * @return the cache
+   */
+  public IDtoCache<IDbDto> createCache(final String name, final int expiration) {
     IDtoCache<IDbDto> cache = null;
-    if (map != null) {
-      cache = new DtoCache<IDbDto>(name);
-      map.put(name, cache);
-      logger.debug("Created Java map cache " + name);
+    if (map != null && name != null) {
+      cache = map.get(name);
+      if (cache == null) {
+        cache =
+          map.computeIfAbsent(name,
+                              new Function<String, IDtoCache<IDbDto>>() {
+                                @Override
+                                public IDtoCache<IDbDto> apply(String key) {
+                                  return newCache(key, expiration);
+                                }
+                              });
+      }
     }
+    return cache;
+  }
 
+  /**
+   * Build a new cache with the CacheSettings for the cache name.
+   * 
+   * @param name the name of the cache
+   * @param expiration the milliseconds an object lives after caching if the
+   *          settings don't set a time, 0 for no limit
+   * @return the new cache
+   */
+  private IDtoCache<IDbDto> newCache(String name, int expiration) {
+    IDtoCache<IDbDto> cache = null;
+    int max = CacheSettings.getMaxEntries(subsystem, name);
+    int afterWrite = CacheSettings.getExpireAfterWrite(subsystem, name);
+    if (afterWrite == CacheSettings.NEVER) {
+      afterWrite = expiration;
+    }
+    int afterAccess = CacheSettings.getExpireAfterAccess(subsystem, name);
+    int offHeap = CacheSettings.getOffHeapMegabytes(subsystem, name);
+    if (offHeap > CacheSettings.ON_HEAP) {
+      cache =
+        new OffHeapDtoCache<IDbDto>(name, offHeap * 1024L * 1024L, afterWrite,
+                                    afterAccess);
+      logger.debug("Created off-heap cache " + name + " with maximum size "
+                   + offHeap + " MB");
+    } else if (max > CacheSettings.UNBOUNDED) {
+      cache =
+        new BoundedDtoCache<IDbDto>(name, max, afterWrite, afterAccess);
+      logger.debug("Created Java map cache " + name + " with maximum size "
+                   + max);
+    } else {
+      cache = new DtoCache<IDbDto>(name, afterWrite, afterAccess);
+      logger.debug("Created Java map cache " + name);
+    }
     return cache;
   }
 
@@ -125,58 +216,113 @@ public class CacheDaoManager implements IDaoManager {
     }
   }
 
+  @Override
+  public <T extends IDbDto> T getCachedObject(IPrimaryKey key, String subsystem) {
+    return getCachedObject(key, 0, subsystem);
+  }
+
   @SuppressWarnings("unchecked")
   @Override
-  public synchronized <T extends IDbDto> T getCachedObject(IPrimaryKey key,
-                                                           String subsystem) {
+  public <T extends IDbDto> T getCachedObject(IPrimaryKey key,
+                                              int expireTime,
+                                              String subsystem) {
     T object = null;
     // Only proceed if cache name and key are not null
-    if (key.getCacheName() != null && key != null) {
-      IDtoCache<IDbDto> cache = (IDtoCache<IDbDto>)getCache(key.getCacheName());
-      if (cache == null) {
-        // No cache yet, create it.
-        cache = createCache(key.getCacheName());
+    if (key != null && key.getCacheName() != null) {
+      // Get the cache, creating it if necessary.
+      IDtoCache<IDbDto> cache = createCache(key.getCacheName(), 0);
+      if (cache != null) {
+        // Reset the expiration of the object as a memcached touch does.
+        object = (T)cache.get(key, expireTime);
       }
-      object = (T)cache.get(key);
     }
     return object;
   }
 
   @Override
-  public <T extends IDbDto> T getCachedObject(IPrimaryKey key, int expireTime,
-                                              String subsystem) {
-    // expire time ignored for Java cache
-    return getCachedObject(key, subsystem);
-  }
-
-  @Override
-  public synchronized <T extends IDbDto> void putObjectInCache(String cacheName,
-                                                               int expireTime,
-                                                               T object) {
-    // expire time ignored for Java cache
-
+  public <T extends IDbDto> void putObjectInCache(String cacheName,
+                                                  int expireTime,
+                                                  T object) {
     // Only proceed if cache name and object are not null
     if (cacheName != null && object != null) {
-      IDtoCache<IDbDto> cache = getCache(cacheName);
-      if (cache == null) {
-        // No cache yet, create it.
-        cache = createCache(cacheName);
+      // Get the cache, creating it if necessary.
+      IDtoCache<IDbDto> cache = createCache(cacheName, 0);
+      if (cache != null) {
+        cache.cache(object, expireTime);
+        logger.debug("Cached " + object.getPrimaryKey().getStringKey()
+                     + " in Java cache " + cacheName);
       }
-      cache.cache(object);
-      logger.debug("Cached " + object.getPrimaryKey().getStringKey()
-                   + " in Java cache " + cacheName);
     }
   }
 
   @Override
-  public synchronized void removeObjectFromCache(String cacheName,
-                                                 IPrimaryKey key) {
+  public void removeObjectFromCache(String cacheName, IPrimaryKey key) {
     // Only proceed if cache name and key are not null
     if (cacheName != null && key != null) {
       IDtoCache<IDbDto> cache = getCache(cacheName);
-      cache.remove(key);
-      logger.debug("Removed object from " + cacheName + " cache: "
-                   + key.getStringKey());
+      if (cache != null) {
+        cache.remove(key);
+        logger.debug("Removed object from " + cacheName + " cache: "
+                     + key.getStringKey());
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public <T extends IDbDto> Map<IPrimaryKey, T> getCachedObjects(Collection<IPrimaryKey> keys,
+                                                                 String subsystem) {
+    Map<IPrimaryKey, T> objects = new LinkedHashMap<IPrimaryKey, T>();
+    if (keys != null) {
+      // Look up each cache once for a run of keys with the same cache name.
+      String cacheName = null;
+      IDtoCache<IDbDto> cache = null;
+      for (IPrimaryKey key : keys) {
+        if (key != null && key.getCacheName() != null) {
+          if (!key.getCacheName().equals(cacheName)) {
+            cacheName = key.getCacheName();
+            cache = createCache(cacheName, 0);
+          }
+          T object = cache == null ? null : (T)cache.get(key);
+          if (object != null) {
+            objects.put(key, object);
+          }
+        }
+      }
+    }
+    return objects;
+  }
+
+  @Override
+  public <T extends IDbDto> void putObjectsInCache(int expireTime,
+                                                   Collection<T> objects) {
+    if (objects != null) {
+      String cacheName = null;
+      IDtoCache<IDbDto> cache = null;
+      for (T object : objects) {
+        if (object != null && object.getPrimaryKey() != null
+            && object.getPrimaryKey().getCacheName() != null) {
+          if (!object.getPrimaryKey().getCacheName().equals(cacheName)) {
+            cacheName = object.getPrimaryKey().getCacheName();
+            cache = createCache(cacheName, 0);
+          }
+          if (cache != null) {
+            cache.cache(object, expireTime);
+          }
+        }
+      }
+      logger.debug("Cached " + objects.size() + " objects in Java cache");
+    }
+  }
+
+  @Override
+  public void removeObjectsFromCache(Collection<IPrimaryKey> keys) {
+    if (keys != null) {
+      for (IPrimaryKey key : keys) {
+        if (key != null) {
+          removeObjectFromCache(key.getCacheName(), key);
+        }
+      }
     }
   }
 
@@ -72,6 +72,8 @@ public class CacheMessageListener implements Runnable, MessageListener {
   private MessageConsumer consumer;
   
   private final String subsystem;
+  /** The manager that owns the local caches, null for CacheDaoManager */
+  private final IDaoManager manager;
 
   /**
    * Create a CacheMessageListener object.
@@ -79,7 +81,20 @@ public class CacheMessageListener implements Runnable, MessageListener {
    * @param subsystem the subsystem of the DTO class
    */
   public CacheMessageListener(String subsystem) {
+    this(subsystem, null);
+  }
+
+  /**
+   * Create a CacheMessageListener object that removes objects from the local
+   * caches of a specific DAO manager.
+   * 
+   * @param subsystem the subsystem of the DTO class
+   * @param manager the manager whose getCache() supplies the local caches,
+   *          or null for the CacheDaoManager singleton
+   */
+  public CacheMessageListener(String subsystem, IDaoManager manager) {
     this.subsystem = subsystem;
+    this.manager = manager;
   }
 
   /**
@@ -154,8 +169,10 @@ public class CacheMessageListener implements Runnable, MessageListener {
             cacheName = objectMessage.getStringProperty(CACHE_NAME_PROPERTY);
             // Make sure the singleton manager is instantiated.
 
+            IDaoManager cacheManager =
+              manager != null ? manager : CacheDaoManager.getInstance(subsystem);
             IDtoCache<? extends IDbDto> cache =
-              CacheDaoManager.getInstance(subsystem).getCache(cacheName);
+              cacheManager.getCache(cacheName);
             // Remove the object from the local cache only if it's there; if
             // it's not there, move on since there's nothing to do.
             if (cache != null) {
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao;
+
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.MessageProducer;
+import javax.jms.ObjectMessage;
+import javax.jms.Session;
+import javax.naming.Context;
+import javax.naming.InitialContext;
+
+import org.apache.log4j.Logger;
+
+import com.poesys.db.pk.IPrimaryKey;
+
+
+/**
+ * Publishes cache removal requests to the Poesys/DB delete topic, which the
+ * CacheMessageListener of each JVM receives and applies to its local cache.
+ * The publisher logs and ignores messaging problems, as a missed removal
+ * leaves a stale object in a remote cache rather than failing the caller.
+ * 
+ * @see CacheMessageListener
+ * 
+ * @author Robert J. Muller
+ */
+public final class CacheMessagePublisher {
+  /** Log4j logger for this class */
+  private static final Logger logger =
+    Logger.getLogger(CacheMessagePublisher.class);
+
+  private static final String PRODUCER_MSG =
+    "com.poesys.db.dto.msg.producer_problem";
+
+  /**
+   * Private constructor for static class
+   */
+  private CacheMessagePublisher() {
+  }
+
+  /**
+   * Send a message to the listeners asking them to remove an object from the
+   * cache with a given name. This removes the object from all listening
+   * caches with the cache name, including the one in this JVM.
+   * 
+   * @param cacheName the name of the cache
+   * @param key the primary key of the object to remove
+   */
+  public static void publishRemove(String cacheName, IPrimaryKey key) {
+    Connection connection = null;
+    try {
+      Context initial = new InitialContext();
+      ConnectionFactory cf =
+        (ConnectionFactory)initial.lookup(CacheMessageListener.CONNECTION_FACTORY);
+      Destination deleteTopic =
+        (Destination)initial.lookup(CacheMessageListener.DELETE_TOPIC);
+      connection = cf.createConnection();
+      Session session =
+        connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+      logger.debug("Created auto-acknowledged messaging session");
+      MessageProducer producer = session.createProducer(deleteTopic);
+      connection.start();
+      ObjectMessage om = session.createObjectMessage(key.getMessageObject());
+      om.setStringProperty(CacheMessageListener.CACHE_NAME_PROPERTY, cacheName);
+      producer.send(om);
+      logger.debug("Sent message to remove " + key.getValueList()
+                   + " from cache " + cacheName + " with message id "
+                   + om.getJMSMessageID());
+    } catch (Exception e) {
+      Object[] objects = { cacheName };
+      String message = com.poesys.db.Message.getMessage(PRODUCER_MSG, objects);
+      logger.error(message, e);
+    } finally {
+      if (connection != null) {
+        try {
+          int connectionId = connection.hashCode();
+          connection.close();
+          logger.debug("Closed connection " + connectionId);
+        } catch (JMSException e) {
+          Object[] objects = { cacheName };
+          String message =
+            com.poesys.db.Message.getMessage(PRODUCER_MSG, objects);
+          logger.error(message, e);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,323 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao;
+
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.poesys.db.DatabaseProperties;
+
+
+/**
+ * <p>
+ * The settings for the in-memory DTO caches that CacheDaoManager creates. Each
+ * cache gets its settings from the com.poesys.db.database properties file,
+ * first using a property for the cache name (the fully-qualified class name of
+ * the cached DTO), then a property for the subsystem:
+ * </p>
+ * 
+ * <pre>
+ * com.poesys.test.mysql.cache_max=10000
+ * com.poesys.test.mysql.cache_max.com.poesys.db.dto.TestNatural=500
+ * com.poesys.test.mysql.cache_expire_write=600000
+ * com.poesys.test.mysql.cache_expire_access.com.poesys.db.dto.TestNatural=60000
+ * </pre>
+ * 
+ * <p>
+ * The maximum number of entries is 0 by default, which makes the cache
+ * unbounded. A cache with a positive maximum evicts its least-recently-used
+ * objects to stay at the maximum. The expire-after-write and
+ * expire-after-access times are in milliseconds and are also 0 by default,
+ * which means objects don't expire. If there is no expire-after-write
+ * property, the cache uses the expiration the DAO factory passes when it
+ * creates the cache. You can also set the values for a cache programmatically
+ * before CacheDaoManager creates the cache, which overrides the file.
+ * </p>
+ * <p>
+ * A cache with a positive off-heap size in megabytes keeps its objects
+ * serialized in direct memory outside the Java heap, evicting its
+ * least-recently-used objects to stay within the size, and ignores the
+ * maximum number of entries. Use this for large sets of reference data. The
+ * off-heap sizes of all the caches count against the JVM's direct memory
+ * limit, so start the JVM with -XX:MaxDirectMemorySize above their total; a
+ * cache that grows past the limit fails with an OutOfMemoryError:
+ * </p>
+ * 
+ * <pre>
+ * com.poesys.test.mysql.cache_off_heap_mb.com.poesys.db.dto.TestNatural=256
+ * </pre>
+ * <p>
+ * The near caches of NearCacheDaoManager are always bounded and short-lived;
+ * they have their own maximum number of entries (default 1000) and
+ * expire-after-write time in milliseconds (default 5000), with the same
+ * cache and subsystem lookup:
+ * </p>
+ * 
+ * <pre>
+ * com.poesys.test.mysql.near_cache_max=2000
+ * com.poesys.test.mysql.near_cache_ttl.com.poesys.db.dto.TestNatural=30000
+ * </pre>
+ * <p>
+ * A cache with a positive absent time in milliseconds records the primary
+ * keys that a query by key finds no object for, so that repeated misses skip
+ * the database for that time (negative caching). The insert DAOs remove the
+ * record for the keys they insert, but only for caches with the setting:
+ * </p>
+ * 
+ * <pre>
+ * com.poesys.test.mysql.cache_absent_ttl.com.poesys.db.dto.TestNatural=2000
+ * </pre>
+ * 
+ * @see com.poesys.db.dto.BoundedDtoCache
+ * @see com.poesys.db.dto.OffHeapDtoCache
+ * @see NearCacheDaoManager
+ * 
+ * @author Robert J. Muller
+ */
+public final class CacheSettings {
+  /** Property suffix for the maximum number of entries */
+  private static final String MAX = ".cache_max";
+  /** Property suffix for the expire-after-write time */
+  private static final String EXPIRE_WRITE = ".cache_expire_write";
+  /** Property suffix for the expire-after-access time */
+  private static final String EXPIRE_ACCESS = ".cache_expire_access";
+  /** Property suffix for the off-heap size in megabytes */
+  private static final String OFF_HEAP = ".cache_off_heap_mb";
+  /** Property suffix for the near cache maximum number of entries */
+  private static final String NEAR_MAX = ".near_cache_max";
+  /** Property suffix for the near cache expire-after-write time */
+  private static final String NEAR_TTL = ".near_cache_ttl";
+  /** Property suffix for the absent-key expiration time */
+  private static final String ABSENT_TTL = ".cache_absent_ttl";
+  /** Default near cache maximum number of entries */
+  public static final int DEFAULT_NEAR_MAX = 1000;
+  /** Default near cache expire-after-write time in milliseconds */
+  public static final int DEFAULT_NEAR_TTL = 5000;
+  /** Default maximum number of entries, which makes the cache unbounded */
+  public static final int UNBOUNDED = 0;
+  /** Default off-heap size, which keeps the objects on the heap */
+  public static final int ON_HEAP = 0;
+  /** Default expiration time, which means objects never expire */
+  public static final int NEVER = 0;
+
+  /** Settings by property, subsystem, and cache name */
+  private static final Map<String, Integer> settings =
+    new ConcurrentHashMap<String, Integer>();
+
+  /**
+   * Private constructor for static class
+   */
+  private CacheSettings() {
+  }
+
+  /**
+   * Get the maximum number of entries for a cache in a subsystem.
+   * 
+   * @param subsystem the subsystem
+   * @param cacheName the name of the cache
+   * @return the maximum number of entries; 0 means unbounded
+   */
+  public static int getMaxEntries(String subsystem, String cacheName) {
+    return getSetting(subsystem, MAX, cacheName, UNBOUNDED);
+  }
+
+  /**
+   * Set the maximum number of entries for a cache in a subsystem, overriding
+   * any properties. The maximum applies when CacheDaoManager next creates the
+   * cache.
+   * 
+   * @param subsystem the subsystem
+   * @param cacheName the name of the cache
+   * @param max the maximum number of entries; 0 makes the cache unbounded
+   */
+  public static void setMaxEntries(String subsystem, String cacheName, int max) {
+    settings.put(subsystem + MAX + "." + cacheName, max < 0 ? UNBOUNDED : max);
+  }
+
+  /**
+   * Get the off-heap size in megabytes for a cache in a subsystem.
+   * 
+   * @param subsystem the subsystem
+   * @param cacheName the name of the cache
+   * @return the megabytes of direct memory for the cache; 0 means the cache
+   *         keeps its objects on the heap
+   */
+  public static int getOffHeapMegabytes(String subsystem, String cacheName) {
+    return getSetting(subsystem, OFF_HEAP, cacheName, ON_HEAP);
+  }
+
+  /**
+   * Set the off-heap size in megabytes for a cache in a subsystem, overriding
+   * any properties. The size applies when CacheDaoManager next creates the
+   * cache.
+   * 
+   * @param subsystem the subsystem
+   * @param cacheName the name of the cache
+   * @param megabytes the megabytes of direct memory for the cache; 0 keeps
+   *          the objects on the heap
+   */
+  public static void setOffHeapMegabytes(String subsystem, String cacheName,
+                                         int megabytes) {
+    settings.put(subsystem + OFF_HEAP + "." + cacheName,
+                 megabytes < 0 ? ON_HEAP : megabytes);
+  }
+
+  /**
+   * Get the expire-after-write time for a cache in a subsystem.
+   * 
+   * @param subsystem the subsystem
+   * @param cacheName the name of the cache
+   * @return the milliseconds an object lives after caching; 0 means no
+   *         setting
+   */
+  public static int getExpireAfterWrite(String subsystem, String cacheName) {
+    return getSetting(subsystem, EXPIRE_WRITE, cacheName, NEVER);
+  }
+
+  /**
+   * Get the expire-after-access time for a cache in a subsystem.
+   * 
+   * @param subsystem the subsystem
+   * @param cacheName the name of the cache
+   * @return the milliseconds an object lives after each get; 0 means never
+   *         expire
+   */
+  public static int getExpireAfterAccess(String subsystem, String cacheName) {
+    return getSetting(subsystem, EXPIRE_ACCESS, cacheName, NEVER);
+  }
+
+  /**
+   * Set the expiration times for a cache in a subsystem, overriding any
+   * properties. The times apply when CacheDaoManager next creates the cache.
+   * 
+   * @param subsystem the subsystem
+   * @param cacheName the name of the cache
+   * @param afterWrite the milliseconds an object lives after caching; 0 means
+   *          no setting
+   * @param afterAccess the milliseconds an object lives after each get; 0
+   *          means never expire
+   */
+  public static void setExpiration(String subsystem, String cacheName,
+                                   int afterWrite, int afterAccess) {
+    settings.put(subsystem + EXPIRE_WRITE + "." + cacheName,
+                 afterWrite < 0 ? NEVER : afterWrite);
+    settings.put(subsystem + EXPIRE_ACCESS + "." + cacheName,
+                 afterAccess < 0 ? NEVER : afterAccess);
+  }
+
+  /**
+   * Get the maximum number of entries for a near cache in a subsystem.
+   * 
+   * @param subsystem the subsystem
+   * @param cacheName the name of the cache
+   * @return the maximum number of entries, at least 1
+   */
+  public static int getNearMaxEntries(String subsystem, String cacheName) {
+    int max = getSetting(subsystem, NEAR_MAX, cacheName, DEFAULT_NEAR_MAX);
+    return max < 1 ? DEFAULT_NEAR_MAX : max;
+  }
+
+  /**
+   * Get the expire-after-write time for a near cache in a subsystem.
+   * 
+   * @param subsystem the subsystem
+   * @param cacheName the name of the cache
+   * @return the milliseconds an object lives in the near cache, at least 1
+   */
+  public static int getNearTtl(String subsystem, String cacheName) {
+    int ttl = getSetting(subsystem, NEAR_TTL, cacheName, DEFAULT_NEAR_TTL);
+    return ttl < 1 ? DEFAULT_NEAR_TTL : ttl;
+  }
+
+  /**
+   * Set the maximum number of entries and the expire-after-write time for a
+   * near cache in a subsystem, overriding any properties. The values apply
+   * when NearCacheDaoManager next creates the cache.
+   * 
+   * @param subsystem the subsystem
+   * @param cacheName the name of the cache
+   * @param max the maximum number of entries
+   * @param ttl the milliseconds an object lives in the near cache
+   */
+  public static void setNearCache(String subsystem, String cacheName, int max,
+                                  int ttl) {
+    settings.put(subsystem + NEAR_MAX + "." + cacheName, max);
+    settings.put(subsystem + NEAR_TTL + "." + cacheName, ttl);
+  }
+
+  /**
+   * Get the expiration time for records of absent primary keys for a cache in
+   * a subsystem.
+   * 
+   * @param subsystem the subsystem
+   * @param cacheName the name of the cache
+   * @return the milliseconds a record that a key has no object lives; 0 means
+   *         the cache doesn't record absent keys
+   */
+  public static int getAbsentTtl(String subsystem, String cacheName) {
+    return getSetting(subsystem, ABSENT_TTL, cacheName, NEVER);
+  }
+
+  /**
+   * Set the expiration time for records of absent primary keys for a cache in
+   * a subsystem, overriding any properties. The time applies to the query and
+   * insert DAOs that the DAO factories create after the call.
+   * 
+   * @param subsystem the subsystem
+   * @param cacheName the name of the cache
+   * @param ttl the milliseconds a record that a key has no object lives; 0
+   *          turns off the records
+   */
+  public static void setAbsentTtl(String subsystem, String cacheName, int ttl) {
+    settings.put(subsystem + ABSENT_TTL + "." + cacheName,
+                 ttl < 0 ? NEVER : ttl);
+  }
+
+  /**
+   * Discard the settings read from the properties file or set
+   * programmatically, so that the next request reads the file again.
+   */
+  public static void clear() {
+    settings.clear();
+  }
+
+  /**
+   * Get a setting for a cache, looking first for the cache property, then for
+   * the subsystem property.
+   * 
+   * @param subsystem the subsystem
+   * @param suffix the property suffix
+   * @param cacheName the name of the cache
+   * @param defaultValue the value if there is no property
+   * @return the value
+   */
+  private static int getSetting(String subsystem, String suffix,
+                                String cacheName, int defaultValue) {
+    String key = subsystem + suffix + "." + cacheName;
+    Integer value = settings.get(key);
+    if (value == null) {
+      int subsystemValue =
+        DatabaseProperties.getInt(subsystem + suffix, defaultValue, 0);
+      value = DatabaseProperties.getInt(key, subsystemValue, 0);
+      settings.put(key, value);
+    }
+    return value;
+  }
+
+}
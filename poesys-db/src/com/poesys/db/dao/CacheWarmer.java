@@ -0,0 +1,463 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao;
+
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import com.poesys.db.DbErrorException;
+import com.poesys.db.InvalidParametersException;
+import com.poesys.db.Message;
+import com.poesys.db.dao.query.IKeyListQuerySql;
+import com.poesys.db.dao.query.IKeysFirstQuerySql;
+import com.poesys.db.dao.query.IQuerySql;
+import com.poesys.db.dao.query.QueryList;
+import com.poesys.db.dao.query.QueryListWithKeyList;
+import com.poesys.db.dto.IDbDto;
+import com.poesys.db.pk.IPrimaryKey;
+
+
+/**
+ * <p>
+ * A warm-up facility that fills the cache of a subsystem before traffic
+ * arrives, for example after a deployment or a memcached restart. You add the
+ * queries that select the objects to cache, then call warm(), which queries
+ * the objects in parallel and puts them into the cache in bulk through the
+ * IDaoManager of the subsystem, so the objects go to the Java cache, memcached,
+ * or both, depending on the manager that DaoManagerFactory has for the
+ * subsystem. Initialize the manager before warming up.
+ * </p>
+ * <p>
+ * A query that implements IKeysFirstQuerySql is a partitioned scan: the
+ * warmer queries its keys, splits the keys into partitions, and queries the
+ * full rows of each partition with a key-list query, so several threads share
+ * the scan. The warmer runs any other query as a single partition. Each
+ * partition runs in its own tracking thread on its own pooled connection.
+ * </p>
+ * <p>
+ * A rate limit on the objects queried per second across all the threads keeps
+ * the warm-up from flattening the database; the warmer acquires the objects
+ * of a keyed partition before querying it, and those of an unkeyed query
+ * after, so later partitions wait for it. The warmer logs its progress and
+ * reports each partition to an optional ICacheWarmListener. A failed
+ * partition does not stop the warm-up: the warmer logs it and goes on, as an
+ * object missing from the cache just means a query goes to the database.
+ * </p>
+ * 
+ * @see ICacheWarmListener
+ * 
+ * @author Robert J. Muller
+ */
+public class CacheWarmer {
+  /** Logger for this class */
+  private static final Logger logger = Logger.getLogger(CacheWarmer.class);
+
+  /** The default number of keys in a partition */
+  public static final int DEFAULT_PARTITION_SIZE = 500;
+  /** The number of rows to fetch at once */
+  private static final int FETCH_ROWS = 500;
+
+  /** the subsystem that owns the objects to cache */
+  private final String subsystem;
+  /** the number of threads that query partitions at the same time */
+  private final int threads;
+  /** the maximum number of objects to query per second, 0 for no limit */
+  private final int objectsPerSecond;
+  /** the cache expiration time in milliseconds for the objects */
+  private final int expiration;
+  /** the maximum time in milliseconds to wait for the warm-up */
+  private final long timeout;
+  /** the number of keys in a partition */
+  private int partitionSize = DEFAULT_PARTITION_SIZE;
+  /** the queries that select the objects to cache */
+  private final List<IQuerySql<? extends IDbDto>> queries =
+    new ArrayList<IQuerySql<? extends IDbDto>>();
+  /** Optional listener for progress reports */
+  private ICacheWarmListener listener = null;
+
+  /** the number of partitions that failed in the last warm-up */
+  private final AtomicInteger failures = new AtomicInteger();
+
+  /** Error message when the warmer settings are not valid */
+  private static final String PARAMETERS_ERROR =
+    "com.poesys.db.dao.msg.warm_parameters";
+  /** Error message when a partition fails */
+  private static final String PARTITION_ERROR =
+    "com.poesys.db.dao.msg.warm_partition_failed";
+  /** Error message when the warm-up does not finish in time */
+  private static final String TIMEOUT_ERROR =
+    "com.poesys.db.dao.msg.warm_timeout";
+  /** Error message when a key query fails */
+  private static final String SQL_ERROR = "com.poesys.db.dao.msg.warm_keys";
+  /** Error message when a key query does not finish in time */
+  private static final String KEYS_TIMEOUT_ERROR =
+    "com.poesys.db.dao.msg.warm_keys_timeout";
+
+  /**
+   * Create a CacheWarmer object.
+   * 
+   * @param subsystem the subsystem that owns the objects to cache
+   * @param threads the number of threads, and connections, that query
+   *          partitions at the same time
+   * @param objectsPerSecond the maximum number of objects to query per second
+   *          across all the threads, 0 for no limit
+   * @param expiration the cache expiration time in milliseconds for the
+   *          objects
+   * @param timeout the maximum time in milliseconds to wait for the warm-up
+   */
+  public CacheWarmer(String subsystem,
+                     int threads,
+                     int objectsPerSecond,
+                     int expiration,
+                     long timeout) {
+    if (subsystem == null || threads < 1 || objectsPerSecond < 0
+        || timeout < 1) {
+      throw new InvalidParametersException(Message.getMessage(PARAMETERS_ERROR,
+                                                              null));
+    }
+    this.subsystem = subsystem;
+    this.threads = threads;
+    this.objectsPerSecond = objectsPerSecond;
+    this.expiration = expiration;
+    this.timeout = timeout;
+  }
+
+  /**
+   * Add a query that selects objects to cache.
+   * 
+   * @param sql the query; an IKeysFirstQuerySql query runs as a partitioned
+   *          scan
+   * @param <T> the type of IDbDto that the query selects
+   */
+  public <T extends IDbDto> void add(IQuerySql<T> sql) {
+    if (sql == null) {
+      throw new InvalidParametersException(Message.getMessage(PARAMETERS_ERROR,
+                                                              null));
+    }
+    queries.add(sql);
+  }
+
+  /**
+   * Set the number of keys in each partition of a partitioned scan.
+   * 
+   * @param partitionSize the number of keys, greater than 0
+   */
+  public void setPartitionSize(int partitionSize) {
+    if (partitionSize < 1) {
+      throw new InvalidParametersException(Message.getMessage(PARAMETERS_ERROR,
+                                                              null));
+    }
+    this.partitionSize = partitionSize;
+  }
+
+  /**
+   * Set the listener that gets a progress report for each partition.
+   * 
+   * @param listener the listener, or null for no progress reports
+   */
+  public void setListener(ICacheWarmListener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Get the number of partitions that failed or did not finish in the last
+   * warm-up.
+   * 
+   * @return the number of partitions
+   */
+  public int getFailureCount() {
+    return failures.get();
+  }
+
+  /**
+   * Query the objects of all the queries and cache them, blocking until all
+   * the partitions finish or the timeout expires.
+   * 
+   * @return the number of objects cached
+   */
+  public long warm() {
+    long start = System.currentTimeMillis();
+    long deadline = start + timeout;
+    failures.set(0);
+    RateLimiter limiter = new RateLimiter(objectsPerSecond);
+    AtomicLong total = new AtomicLong();
+    AtomicInteger done = new AtomicInteger();
+
+    // Plan the partitions, querying the keys of the partitioned scans.
+    List<Partition<? extends IDbDto>> partitions =
+      new ArrayList<Partition<? extends IDbDto>>();
+    for (IQuerySql<? extends IDbDto> sql : queries) {
+      try {
+        plan(sql, partitions);
+      } catch (RuntimeException e) {
+        // Skip the query but warm the others.
+        failures.incrementAndGet();
+        logger.error(e.getMessage(), e);
+      }
+    }
+    logger.info("Warming " + subsystem + " cache with " + queries.size()
+                + " queries in " + partitions.size() + " partitions on "
+                + threads + " threads");
+
+    ExecutorService executor =
+      Executors.newFixedThreadPool(threads, new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread thread =
+            new Thread(r, "Poesys cache warmer " + subsystem + " "
+                          + count.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    for (Partition<? extends IDbDto> partition : partitions) {
+      partition.setProgress(limiter, total, done, partitions.size(), deadline);
+      executor.execute(partition);
+    }
+    executor.shutdown();
+    try {
+      long remaining = deadline - System.currentTimeMillis();
+      if (remaining <= 0
+          || !executor.awaitTermination(remaining, TimeUnit.MILLISECONDS)) {
+        Object[] args = { subsystem, timeout };
+        logger.error(Message.getMessage(TIMEOUT_ERROR, args));
+        executor.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      executor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+    failures.addAndGet(partitions.size() - done.get());
+    logger.info("Warmed " + subsystem + " cache with " + total.get()
+                + " objects in " + (System.currentTimeMillis() - start)
+                + " ms, " + failures.get() + " partitions failed");
+    return total.get();
+  }
+
+  /**
+   * Plan the partitions of a query.
+   * 
+   * @param sql the query
+   * @param partitions the list to which to add the partitions
+   * @param <T> the type of IDbDto that the query selects
+   */
+  private <T extends IDbDto> void plan(IQuerySql<T> sql,
+                                       List<Partition<? extends IDbDto>> partitions) {
+    if (sql instanceof IKeysFirstQuerySql) {
+      IKeysFirstQuerySql<T> keySql = (IKeysFirstQuerySql<T>)sql;
+      List<IPrimaryKey> keys = queryKeys(keySql);
+      int count = (keys.size() + partitionSize - 1) / partitionSize;
+      for (int i = 0; i < keys.size(); i += partitionSize) {
+        List<IPrimaryKey> partition =
+          new ArrayList<IPrimaryKey>(keys.subList(i,
+                                                  Math.min(i + partitionSize,
+                                                           keys.size())));
+        partitions.add(new Partition<T>(sql,
+                                        partition,
+                                        i / partitionSize + 1,
+                                        count));
+      }
+    } else {
+      partitions.add(new Partition<T>(sql, null, 1, 1));
+    }
+  }
+
+  /**
+   * Query the keys of a partitioned scan in a tracking thread. A query that
+   * does not finish within the timeout fails, so that the caller never gets
+   * a partial key list that the thread is still filling.
+   * 
+   * @param keySql the query
+   * @return the primary keys
+   */
+  private List<IPrimaryKey> queryKeys(final IKeysFirstQuerySql<? extends IDbDto> keySql) {
+    final List<IPrimaryKey> keys = new ArrayList<IPrimaryKey>();
+    Runnable query = new Runnable() {
+      @Override
+      public void run() {
+        PoesysTrackingThread thread =
+          (PoesysTrackingThread)Thread.currentThread();
+        PreparedStatement stmt = null;
+        try {
+          stmt = thread.getConnection().prepareStatement(keySql.getKeySql());
+          stmt.setFetchSize(FETCH_ROWS);
+          ResultSet rs = stmt.executeQuery();
+          while (rs.next()) {
+            keys.add(keySql.getPrimaryKey(rs));
+          }
+        } catch (SQLException e) {
+          Object[] args = { keySql.getKeySql() };
+          thread.setThrowable(new DbErrorException(Message.getMessage(SQL_ERROR,
+                                                                      args),
+                                                   e));
+        } catch (RuntimeException e) {
+          thread.setThrowable(e);
+        } finally {
+          if (stmt != null) {
+            try {
+              stmt.close();
+            } catch (SQLException e) {
+              // ignore
+            }
+          }
+          thread.closeConnection();
+        }
+      }
+    };
+    PoesysTrackingThread thread = new PoesysTrackingThread(query, subsystem);
+    thread.start();
+    try {
+      thread.join(timeout);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (thread.isAlive()) {
+      thread.interrupt();
+      Object[] args = { keySql.getKeySql(), timeout };
+      throw new DbErrorException(Message.getMessage(KEYS_TIMEOUT_ERROR, args));
+    }
+    if (thread.getThrowable() != null) {
+      throw new DbErrorException(thread.getThrowable().getMessage(),
+                                 thread.getThrowable());
+    }
+    return keys;
+  }
+
+  /**
+   * A partition of a query: a list of keys to query with the key-list query
+   * of a partitioned scan, or the whole of an unkeyed query
+   * 
+   * @param <T> the type of IDbDto that the query selects
+   */
+  private class Partition<T extends IDbDto> implements Runnable {
+    /** the query */
+    private final IQuerySql<T> sql;
+    /** the keys of the partition, or null for an unkeyed query */
+    private final List<IPrimaryKey> keys;
+    /** the number of the partition within its query, starting with 1 */
+    private final int index;
+    /** the number of partitions of the query */
+    private final int count;
+    /** the rate limiter */
+    private RateLimiter limiter;
+    /** the total number of objects cached */
+    private AtomicLong total;
+    /** the number of partitions finished */
+    private AtomicInteger done;
+    /** the total number of partitions */
+    private int partitions;
+    /** the time at which the warm-up times out */
+    private long deadline;
+
+    /**
+     * Create a Partition object.
+     * 
+     * @param sql the query
+     * @param keys the keys of the partition, or null for an unkeyed query
+     * @param index the number of the partition within its query
+     * @param count the number of partitions of the query
+     */
+    Partition(IQuerySql<T> sql, List<IPrimaryKey> keys, int index, int count) {
+      this.sql = sql;
+      this.keys = keys;
+      this.index = index;
+      this.count = count;
+    }
+
+    /**
+     * Set the shared progress of the warm-up.
+     * 
+     * @param limiter the rate limiter
+     * @param total the total number of objects cached
+     * @param done the number of partitions finished
+     * @param partitions the total number of partitions
+     * @param deadline the time at which the warm-up times out
+     */
+    void setProgress(RateLimiter limiter,
+                     AtomicLong total,
+                     AtomicInteger done,
+                     int partitions,
+                     long deadline) {
+      this.limiter = limiter;
+      this.total = total;
+      this.done = done;
+      this.partitions = partitions;
+      this.deadline = deadline;
+    }
+
+    @Override
+    public void run() {
+      if (System.currentTimeMillis() >= deadline) {
+        // Out of time, count as failed.
+        return;
+      }
+      long start = System.currentTimeMillis();
+      String name = sql.getClass().getName();
+      try {
+        List<T> objects = null;
+        if (keys != null) {
+          limiter.acquire(keys.size());
+          IKeyListQuerySql<T> listSql =
+            ((IKeysFirstQuerySql<T>)sql).getKeyListSql();
+          listSql.setKeys(keys);
+          objects =
+            new QueryListWithKeyList<T>(listSql, subsystem, FETCH_ROWS).query();
+        } else {
+          objects = new QueryList<T>(sql, subsystem, FETCH_ROWS).query();
+          limiter.acquire(objects.size());
+        }
+        IDaoManager manager = DaoManagerFactory.getManager(subsystem);
+        manager.putObjectsInCache(expiration, objects);
+        long sum = total.addAndGet(objects.size());
+        int finished = done.incrementAndGet();
+        long millis = System.currentTimeMillis() - start;
+        logger.info("Warmed partition " + index + " of " + count + " of "
+                    + name + ": " + objects.size() + " objects in " + millis
+                    + " ms (" + finished + " of " + partitions
+                    + " partitions, " + sum + " objects)");
+        if (listener != null) {
+          listener.partitionWarmed(name,
+                                   finished,
+                                   partitions,
+                                   objects.size(),
+                                   sum,
+                                   millis);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (RuntimeException e) {
+        Object[] args = { name, index, count };
+        logger.error(Message.getMessage(PARTITION_ERROR, args), e);
+      }
+    }
+  }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao;
+
+
+import java.io.IOException;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import net.spy.memcached.CachedData;
+import net.spy.memcached.transcoders.SerializingTranscoder;
+import net.spy.memcached.transcoders.Transcoder;
+
+import org.apache.log4j.Logger;
+
+import com.poesys.db.DbErrorException;
+import com.poesys.db.Message;
+import com.poesys.db.dto.CompactInput;
+import com.poesys.db.dto.CompactOutput;
+import com.poesys.db.dto.IDbDto;
+import com.poesys.db.dto.IDtoCodec;
+
+
+/**
+ * <p>
+ * A memcached transcoder that stores IDbDto objects in the compact binary
+ * encoding of CompactOutput rather than with Java serialization. Each DTO
+ * class that uses the encoding registers an IDtoCodec, the schema for the
+ * class; the transcoder serializes objects of classes without a codec, and
+ * objects whose codec cannot encode them, with the standard
+ * SerializingTranscoder. Both formats can be in the cache at once, as a flag
+ * on the cached value identifies the compact encoding.
+ * </p>
+ * <p>
+ * The compact value starts with the version of the format, the class name,
+ * and the version of the codec. If a server does not know the format, has no
+ * codec for the class, or has a codec with a different version, it treats the
+ * value as a cache miss, so servers with different DTO layouts can share the
+ * cache during a rolling deployment.
+ * </p>
+ * <p>
+ * Set the memcached property transcoder to compact to use this transcoder in
+ * MemcachedDaoManager and MemcachedService; the default is serializing.
+ * </p>
+ * 
+ * @author Robert J. Muller
+ */
+public final class CompactTranscoder implements Transcoder<Object> {
+  /** Logger for debugging */
+  private static final Logger logger =
+    Logger.getLogger(CompactTranscoder.class);
+
+  /** Memcached flag for a value in the compact encoding */
+  static final int COMPACT = 0x10;
+  /** The version of the compact format */
+  static final int FORMAT_VERSION = 1;
+
+  /** Memcached configuration property for the transcoder */
+  static final String PROP_TRANSCODER = "transcoder";
+  /** Memcached configuration value for the compact transcoder */
+  static final String COMPACT_TRANSCODER = "compact";
+  /** Memcached configuration value for the serializing transcoder */
+  static final String SERIALIZING_TRANSCODER = "serializing";
+
+  /** Error message for an unknown transcoder */
+  private static final String UNKNOWN_TRANSCODER =
+    "com.poesys.db.dao.query.msg.memcached_unknown_transcoder";
+
+  /** The codecs by fully qualified DTO class name */
+  private static final ConcurrentMap<String, IDtoCodec<? extends IDbDto>> codecs =
+    new ConcurrentHashMap<String, IDtoCodec<? extends IDbDto>>();
+
+  /** The transcoder for objects without a codec */
+  private final SerializingTranscoder serializer = new SerializingTranscoder();
+
+  /**
+   * Create a CompactTranscoder object.
+   */
+  public CompactTranscoder() {
+  }
+
+  /**
+   * Register the codec for a class of DTO, replacing any codec already
+   * registered for the class. The codec applies only to objects of exactly
+   * the class, not to subclasses.
+   * 
+   * @param type the DTO class
+   * @param codec the codec
+   * @param <T> the type of DTO
+   */
+  public static <T extends IDbDto> void register(Class<T> type,
+                                                 IDtoCodec<T> codec) {
+    codecs.put(type.getName(), codec);
+  }
+
+  /**
+   * Remove the codec for a class of DTO, if there is one; the transcoder then
+   * serializes the objects of the class.
+   * 
+   * @param type the DTO class
+   */
+  public static void unregister(Class<? extends IDbDto> type) {
+    codecs.remove(type.getName());
+  }
+
+  /**
+   * Set the size at which the SerializingTranscoder for objects without a
+   * codec compresses the serialized object.
+   * @param threshold the size in bytes
+   */
+  void setCompressionThreshold(int threshold) {
+    serializer.setCompressionThreshold(threshold);
+  }
+
+  /**
+   * Create the transcoder configured by the memcached properties.
+   * 
+   * @param properties the memcached properties
+   * @return the transcoder
+   */
+  static Transcoder<Object> create(ResourceBundle properties) {
+    String name = SERIALIZING_TRANSCODER;
+    try {
+      name = properties.getString(PROP_TRANSCODER).trim();
+    } catch (MissingResourceException e) {
+      // Use the default.
+    }
+    Transcoder<Object> transcoder = null;
+    if (COMPACT_TRANSCODER.equalsIgnoreCase(name)) {
+      transcoder = new CompactTranscoder();
+    } else if (SERIALIZING_TRANSCODER.equalsIgnoreCase(name)) {
+      transcoder = new SerializingTranscoder();
+    } else {
+      Object[] args = { name };
+      throw new DbErrorException(Message.getMessage(UNKNOWN_TRANSCODER, args));
+    }
+    return transcoder;
+  }
+
+  @Override
+  public boolean asyncDecode(CachedData data) {
+    return false;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public CachedData encode(Object object) {
+    if (object instanceof IDbDto) {
+      IDtoCodec<IDbDto> codec =
+        (IDtoCodec<IDbDto>)codecs.get(object.getClass().getName());
+      if (codec != null) {
+        try {
+          CompactOutput out = new CompactOutput();
+          out.writeByte(FORMAT_VERSION);
+          out.writeString(object.getClass().getName());
+          out.writeInt(codec.getVersion());
+          codec.write((IDbDto)object, out);
+          return new CachedData(COMPACT, out.toByteArray(), getMaxSize());
+        } catch (IOException e) {
+          // Fall back to serialization for this object.
+          logger.debug("Serializing " + object.getClass().getName()
+                       + " object: " + e.getMessage());
+        }
+      }
+    }
+    return serializer.encode(object);
+  }
+
+  @Override
+  public Object decode(CachedData data) {
+    Object object = null;
+    if ((data.getFlags() & COMPACT) != 0) {
+      object = decodeCompact(data.getData());
+    } else {
+      object = serializer.decode(data);
+    }
+    return object;
+  }
+
+  /**
+   * Decode a value in the compact encoding.
+   * 
+   * @param bytes the encoded value
+   * @return the DTO, or null if this server cannot decode the value
+   */
+  private IDbDto decodeCompact(byte[] bytes) {
+    IDbDto dto = null;
+    CompactInput in = new CompactInput(bytes);
+    try {
+      int format = in.readByte();
+      if (format != FORMAT_VERSION) {
+        logger.debug("Ignoring cached object with compact format " + format);
+        return null;
+      }
+      String className = in.readString();
+      IDtoCodec<? extends IDbDto> codec = codecs.get(className);
+      int version = in.readInt();
+      if (codec == null || codec.getVersion() != version) {
+        logger.debug("Ignoring cached " + className
+                     + " object with codec version " + version);
+        return null;
+      }
+      dto = codec.read(in);
+      dto.setExisting();
+    } catch (IOException e) {
+      // Treat as a cache miss.
+      logger.warn("Ignoring cached object with invalid compact encoding: "
+                  + e.getMessage());
+      dto = null;
+    }
+    return dto;
+  }
+
+  @Override
+  public int getMaxSize() {
+    return CachedData.MAX_SIZE;
+  }
+}
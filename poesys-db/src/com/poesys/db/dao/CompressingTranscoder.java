@@ -0,0 +1,416 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao;
+
+
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import net.spy.memcached.CachedData;
+import net.spy.memcached.transcoders.SerializingTranscoder;
+import net.spy.memcached.transcoders.Transcoder;
+
+import org.apache.log4j.Logger;
+
+import com.poesys.db.Message;
+import com.poesys.db.dto.IDbDto;
+
+
+/**
+ * <p>
+ * A memcached transcoder that compresses the values that another transcoder
+ * encodes when they reach a size threshold. The transcoder compresses with
+ * the raw deflate format at its fastest level, which trades some compression
+ * ratio for speed, and keeps the compressed value only if it is smaller than
+ * the original. A flag on the cached value marks the compressed values, so
+ * compressed and uncompressed values can be in the cache at once and a
+ * change of threshold needs no cache flush.
+ * </p>
+ * <p>
+ * The transcoder keeps statistics on the values it compresses and
+ * decompresses by cache name: the number of values, the bytes before and
+ * after compression, and the time spent. The memcached managers log the
+ * statistics with their metadata.
+ * </p>
+ * <p>
+ * The memcached property compression_threshold sets the threshold in bytes;
+ * the default is 16384, and 0 turns off compression. The transcoder replaces
+ * the GZIP compression of the SerializingTranscoder, which is slower; it
+ * still decodes values that the SerializingTranscoder compressed.
+ * </p>
+ * 
+ * @author Robert J. Muller
+ */
+final class CompressingTranscoder implements Transcoder<Object> {
+  /** Logger for debugging */
+  private static final Logger logger =
+    Logger.getLogger(CompressingTranscoder.class);
+
+  /** Memcached flag for a compressed value */
+  static final int DEFLATED = 0x20;
+  /** Memcached configuration property for the compression threshold */
+  static final String PROP_THRESHOLD = "compression_threshold";
+  /** Default compression threshold in bytes */
+  static final int DEFAULT_THRESHOLD = 16384;
+
+  /** Error message for an invalid compression_threshold property */
+  private static final String INVALID_THRESHOLD =
+    "com.poesys.db.dao.query.msg.memcached_invalid_compression_threshold";
+
+  /** The number of bytes in the original length prefix */
+  private static final int LENGTH_BYTES = 4;
+
+  /** The transcoder that encodes the uncompressed values */
+  private final Transcoder<Object> delegate;
+  /** The size in bytes at which to compress a value, 0 for no compression */
+  private final int threshold;
+  /** The statistics by cache name */
+  private final ConcurrentMap<String, Statistics> statistics =
+    new ConcurrentHashMap<String, Statistics>();
+
+  /**
+   * Create a CompressingTranscoder object.
+   * 
+   * @param delegate the transcoder that encodes the uncompressed values
+   * @param threshold the size in bytes at which to compress a value, 0 for no
+   *          compression
+   */
+  CompressingTranscoder(Transcoder<Object> delegate, int threshold) {
+    if (threshold < 0) {
+      Object[] args = { threshold };
+      throw new IllegalArgumentException(Message.getMessage(INVALID_THRESHOLD,
+                                                            args));
+    }
+    this.delegate = delegate;
+    this.threshold = threshold;
+  }
+
+  /**
+   * Create the transcoder configured by the memcached properties: the
+   * transcoder that CompactTranscoder configures, compressing at the
+   * configured threshold.
+   * 
+   * @param properties the memcached properties
+   * @return the transcoder
+   */
+  static CompressingTranscoder create(ResourceBundle properties) {
+    int threshold = DEFAULT_THRESHOLD;
+    try {
+      threshold =
+        Integer.parseInt(properties.getString(PROP_THRESHOLD).trim());
+    } catch (MissingResourceException e) {
+      // Use the default.
+    } catch (NumberFormatException e) {
+      Object[] args = { properties.getString(PROP_THRESHOLD) };
+      throw new IllegalArgumentException(Message.getMessage(INVALID_THRESHOLD,
+                                                            args),
+                                         e);
+    }
+    Transcoder<Object> delegate = CompactTranscoder.create(properties);
+    // Turn off the GZIP compression of the serializing transcoders.
+    if (delegate instanceof SerializingTranscoder) {
+      ((SerializingTranscoder)delegate).setCompressionThreshold(Integer.MAX_VALUE);
+    } else if (delegate instanceof CompactTranscoder) {
+      ((CompactTranscoder)delegate).setCompressionThreshold(Integer.MAX_VALUE);
+    }
+    return new CompressingTranscoder(delegate, threshold);
+  }
+
+  @Override
+  public boolean asyncDecode(CachedData data) {
+    return false;
+  }
+
+  @Override
+  public CachedData encode(Object object) {
+    CachedData data = delegate.encode(object);
+    byte[] bytes = data.getData();
+    if (threshold > 0 && bytes.length >= threshold) {
+      long start = System.nanoTime();
+      byte[] compressed = compress(bytes);
+      long time = System.nanoTime() - start;
+      Statistics stats = getStatistics(object);
+      if (compressed.length < bytes.length) {
+        stats.compressed(bytes.length, compressed.length, time);
+        data =
+          new CachedData(data.getFlags() | DEFLATED, compressed, getMaxSize());
+      } else {
+        stats.skipped(time);
+      }
+    }
+    return data;
+  }
+
+  @Override
+  public Object decode(CachedData data) {
+    Object object = null;
+    if ((data.getFlags() & DEFLATED) != 0) {
+      long start = System.nanoTime();
+      byte[] bytes = decompress(data.getData());
+      long time = System.nanoTime() - start;
+      if (bytes != null) {
+        object =
+          delegate.decode(new CachedData(data.getFlags() & ~DEFLATED,
+                                         bytes,
+                                         getMaxSize()));
+        if (object != null) {
+          getStatistics(object).decompressed(time);
+        }
+      }
+    } else {
+      object = delegate.decode(data);
+    }
+    return object;
+  }
+
+  @Override
+  public int getMaxSize() {
+    return delegate.getMaxSize();
+  }
+
+  /**
+   * Get the compression threshold.
+   * 
+   * @return the size in bytes at which the transcoder compresses a value, 0
+   *         for no compression
+   */
+  int getThreshold() {
+    return threshold;
+  }
+
+  /**
+   * Get the compression statistics by cache name, formatted for logging.
+   * 
+   * @return a map of cache name to statistics, sorted by cache name
+   */
+  Map<String, String> getStatistics() {
+    Map<String, String> map = new TreeMap<String, String>();
+    for (Map.Entry<String, Statistics> entry : statistics.entrySet()) {
+      map.put(entry.getKey(), entry.getValue().toString());
+    }
+    return map;
+  }
+
+  /**
+   * Get the statistics for the cache name of an object, creating them if
+   * required. The cache name of a DTO is the cache name of its primary key;
+   * the cache name of any other object is its class name.
+   * 
+   * @param object the cached object
+   * @return the statistics
+   */
+  Statistics getStatistics(Object object) {
+    String name = object.getClass().getName();
+    if (object instanceof IDbDto && ((IDbDto)object).getPrimaryKey() != null) {
+      name = ((IDbDto)object).getPrimaryKey().getCacheName();
+    }
+    Statistics stats = statistics.get(name);
+    if (stats == null) {
+      statistics.putIfAbsent(name, new Statistics());
+      stats = statistics.get(name);
+    }
+    return stats;
+  }
+
+  /**
+   * Compress bytes with raw deflate at the fastest level, prefixed with the
+   * original length.
+   * 
+   * @param bytes the bytes to compress
+   * @return the compressed bytes
+   */
+  private static byte[] compress(byte[] bytes) {
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+    try {
+      deflater.setInput(bytes);
+      deflater.finish();
+      // Stop at the original length, as a larger value is not worth keeping.
+      byte[] buffer = new byte[LENGTH_BYTES + bytes.length];
+      int length = LENGTH_BYTES;
+      while (!deflater.finished() && length < buffer.length) {
+        length += deflater.deflate(buffer, length, buffer.length - length);
+      }
+      if (!deflater.finished()) {
+        return bytes;
+      }
+      buffer[0] = (byte)(bytes.length >>> 24);
+      buffer[1] = (byte)(bytes.length >>> 16);
+      buffer[2] = (byte)(bytes.length >>> 8);
+      buffer[3] = (byte)bytes.length;
+      byte[] compressed = new byte[length];
+      System.arraycopy(buffer, 0, compressed, 0, length);
+      return compressed;
+    } finally {
+      deflater.end();
+    }
+  }
+
+  /**
+   * Decompress bytes that compress() compressed.
+   * 
+   * @param bytes the compressed bytes
+   * @return the original bytes, or null if the bytes are not a valid
+   *         compressed value
+   */
+  private static byte[] decompress(byte[] bytes) {
+    if (bytes.length < LENGTH_BYTES) {
+      logger.warn("Ignoring truncated compressed cache value");
+      return null;
+    }
+    int length =
+      ((bytes[0] & 0xff) << 24) | ((bytes[1] & 0xff) << 16)
+          | ((bytes[2] & 0xff) << 8) | (bytes[3] & 0xff);
+    if (length < 0 || length > CachedData.MAX_SIZE * 256) {
+      logger.warn("Ignoring compressed cache value with invalid length "
+                  + length);
+      return null;
+    }
+    Inflater inflater = new Inflater(true);
+    try {
+      inflater.setInput(bytes, LENGTH_BYTES, bytes.length - LENGTH_BYTES);
+      byte[] original = new byte[length];
+      int offset = 0;
+      while (offset < length && !inflater.finished()) {
+        int count = inflater.inflate(original, offset, length - offset);
+        if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        offset += count;
+      }
+      if (offset != length) {
+        logger.warn("Ignoring compressed cache value with " + offset
+                    + " of " + length + " bytes");
+        return null;
+      }
+      return original;
+    } catch (DataFormatException e) {
+      // Treat as a cache miss.
+      logger.warn("Ignoring invalid compressed cache value: " + e.getMessage());
+      return null;
+    } finally {
+      inflater.end();
+    }
+  }
+
+  /**
+   * The compression statistics for a cache name
+   */
+  static final class Statistics {
+    /** The number of values compressed */
+    private final AtomicLong compressed = new AtomicLong();
+    /** The number of values over the threshold that did not compress */
+    private final AtomicLong skipped = new AtomicLong();
+    /** The number of bytes before compression */
+    private final AtomicLong originalBytes = new AtomicLong();
+    /** The number of bytes after compression */
+    private final AtomicLong compressedBytes = new AtomicLong();
+    /** The time spent compressing in nanoseconds */
+    private final AtomicLong compressTime = new AtomicLong();
+    /** The number of values decompressed */
+    private final AtomicLong decompressed = new AtomicLong();
+    /** The time spent decompressing in nanoseconds */
+    private final AtomicLong decompressTime = new AtomicLong();
+
+    /**
+     * Record a compressed value.
+     * 
+     * @param original the number of bytes before compression
+     * @param result the number of bytes after compression
+     * @param time the time spent compressing in nanoseconds
+     */
+    void compressed(int original, int result, long time) {
+      compressed.incrementAndGet();
+      originalBytes.addAndGet(original);
+      compressedBytes.addAndGet(result);
+      compressTime.addAndGet(time);
+    }
+
+    /**
+     * Record a value over the threshold that did not compress.
+     * 
+     * @param time the time spent compressing in nanoseconds
+     */
+    void skipped(long time) {
+      skipped.incrementAndGet();
+      compressTime.addAndGet(time);
+    }
+
+    /**
+     * Record a decompressed value.
+     * 
+     * @param time the time spent decompressing in nanoseconds
+     */
+    void decompressed(long time) {
+      decompressed.incrementAndGet();
+      decompressTime.addAndGet(time);
+    }
+
+    /**
+     * Get the number of values compressed.
+     * 
+     * @return the number of values
+     */
+    long getCompressedCount() {
+      return compressed.get();
+    }
+
+    /**
+     * Get the number of values decompressed.
+     * 
+     * @return the number of values
+     */
+    long getDecompressedCount() {
+      return decompressed.get();
+    }
+
+    /**
+     * Get the ratio of the bytes before compression to the bytes after.
+     * 
+     * @return the compression ratio, or 0 if there are no compressed values
+     */
+    double getRatio() {
+      long result = compressedBytes.get();
+      return result == 0 ? 0.0 : (double)originalBytes.get() / result;
+    }
+
+    @Override
+    public String toString() {
+      long count = compressed.get() + skipped.get();
+      long decompressCount = decompressed.get();
+      return String.format("%d compressed (%d skipped), %d to %d bytes, ratio %.2f, "
+                               + "%.3f ms per compress; %d decompressed, %.3f ms per decompress",
+                           compressed.get(),
+                           skipped.get(),
+                           originalBytes.get(),
+                           compressedBytes.get(),
+                           getRatio(),
+                           count == 0 ? 0.0 : compressTime.get() / 1e6 / count,
+                           decompressCount,
+                           decompressCount == 0 ? 0.0 : decompressTime.get()
+                                                        / 1e6 / decompressCount);
+    }
+  }
+}
@@ -60,6 +60,8 @@ import com.poesys.db.dao.update.UpdateCacheBatchByKey;
 import com.poesys.db.dao.update.UpdateCacheByKey;
 import com.poesys.db.dao.update.UpdateCacheCollectionByKey;
 import com.poesys.db.dao.update.UpdateWithParameters;
+import com.poesys.db.dao.upsert.IUpsertBatch;
+import com.poesys.db.dao.upsert.UpsertCacheBatch;
 import com.poesys.db.dto.IDbDto;
 import com.poesys.db.dto.IDtoCache;
 
@@ -87,6 +89,8 @@ import com.poesys.db.dto.IDtoCache;
 public class DaoCacheFactory<T extends IDbDto> implements IDaoFactory<T> {
   /** The cache of DTOS * */
   private IDtoCache<T> cache;
+  /** The cache name */
+  private final String name;
   /** the client subsystem owning the queried object */
   protected final String subsystem;
 
@@ -98,21 +102,39 @@ public class DaoCacheFactory<T extends IDbDto> implements IDaoFactory<T> {
    * @param manager the DAO manager that created this factory
    * @param subsystem the subsystem of the DTO classes
    */
-  @SuppressWarnings("unchecked")
   public DaoCacheFactory(String name, CacheDaoManager manager, String subsystem) {
-    if (!CacheDaoManager.getInstance(subsystem).isCached(name)) {
-      // Not cached, tell the manager to create a cache for the class.
-      cache = (IDtoCache<T>)manager.createCache(name);
-    } else {
-      // Already cached, get the cache for the factory.
-      cache = (IDtoCache<T>)manager.getCache(name);
-    }
+    this(name, manager, subsystem, 0);
+  }
+
+  /**
+   * Create a QueryCacheFactory object for a particular DTO class with the
+   * expiration time for objects in a new cache.
+   * 
+   * @param name the cache name (usually the fully qualified class name of the
+   *          cached objects)
+   * @param manager the DAO manager that created this factory
+   * @param subsystem the subsystem of the DTO classes
+   * @param expiration the milliseconds an object lives after caching if the
+   *          factory creates the cache and CacheSettings doesn't set a time;
+   *          0 for no limit
+   */
+  @SuppressWarnings("unchecked")
+  public DaoCacheFactory(String name,
+                         CacheDaoManager manager,
+                         String subsystem,
+                         int expiration) {
+    // Get the cache for the class, creating it if it doesn't exist yet.
+    cache = (IDtoCache<T>)manager.createCache(name, expiration);
+    this.name = name;
     this.subsystem = subsystem;
   }
 
   @Override
   public IQueryByKey<T> getQueryByKey(IKeyQuerySql<T> sql, String subsystem) {
-    return new QueryCacheByKey<T>(sql, cache, subsystem);
+    return new QueryCacheByKey<T>(sql,
+                                  cache,
+                                  subsystem,
+                                  CacheSettings.getAbsentTtl(subsystem, name));
   }
 
   @Override
@@ -153,9 +175,14 @@ public class DaoCacheFactory<T extends IDbDto> implements IDaoFactory<T> {
 
   @Override
   public IDeleteBatch<T> getDeleteBatch(IDeleteSql<T> sql) {
+    return getDeleteBatch(sql, false);
+  }
+
+  @Override
+  public IDeleteBatch<T> getDeleteBatch(IDeleteSql<T> sql, boolean inList) {
     DeleteCacheBatchByKey<T> deleter = null;
     if (sql != null) {
-      deleter = new DeleteCacheBatchByKey<T>(sql, cache, subsystem);
+      deleter = new DeleteCacheBatchByKey<T>(sql, cache, subsystem, inList);
     }
     return deleter;
   }
@@ -187,7 +214,12 @@ public class DaoCacheFactory<T extends IDbDto> implements IDaoFactory<T> {
 
   @Override
   public IInsertBatch<T> getInsertBatch(IInsertSql<T> sql) {
-    return new InsertCacheBatch<T>(sql, cache, subsystem);
+    return getInsertBatch(sql, false);
+  }
+
+  @Override
+  public IInsertBatch<T> getInsertBatch(IInsertSql<T> sql, boolean retry) {
+    return new InsertCacheBatch<T>(sql, cache, subsystem, retry);
   }
 
   @Override
@@ -207,9 +239,14 @@ public class DaoCacheFactory<T extends IDbDto> implements IDaoFactory<T> {
 
   @Override
   public IUpdateBatch<T> getUpdateBatch(IUpdateSql<T> sql) {
+    return getUpdateBatch(sql, false);
+  }
+
+  @Override
+  public IUpdateBatch<T> getUpdateBatch(IUpdateSql<T> sql, boolean retry) {
     UpdateCacheBatchByKey<T> updater = null;
     if (sql != null) {
-      updater = new UpdateCacheBatchByKey<T>(sql, cache, subsystem);
+      updater = new UpdateCacheBatchByKey<T>(sql, cache, subsystem, retry);
     }
     return updater;
   }
@@ -233,6 +270,28 @@ public class DaoCacheFactory<T extends IDbDto> implements IDaoFactory<T> {
     return updater;
   }
 
+  @Override
+  public IWriteBehindQueue<T> getWriteBehindQueue(IInsertSql<T> insertSql,
+                                                  IUpdateSql<T> updateSql,
+                                                  int capacity, int size,
+                                                  long interval) {
+    IInsertBatch<T> inserter = null;
+    if (insertSql != null) {
+      inserter = getInsertBatch(insertSql);
+    }
+    return new WriteBehindQueue<T>(inserter,
+                                   getUpdateBatch(updateSql),
+                                   capacity,
+                                   size,
+                                   interval);
+  }
+
+  @Override
+  public IUpsertBatch<T> getUpsertBatch(IInsertSql<T> insertSql,
+                                        IUpdateSql<T> updateSql) {
+    return new UpsertCacheBatch<T>(insertSql, updateSql, cache, subsystem);
+  }
+
   @Override
   public void clear() {
     if (cache != null) {
@@ -59,6 +59,8 @@ import com.poesys.db.dao.update.UpdateBatchByKey;
 import com.poesys.db.dao.update.UpdateByKey;
 import com.poesys.db.dao.update.UpdateCollectionByKey;
 import com.poesys.db.dao.update.UpdateWithParameters;
+import com.poesys.db.dao.upsert.IUpsertBatch;
+import com.poesys.db.dao.upsert.UpsertBatch;
 import com.poesys.db.dto.IDbDto;
 
 
@@ -126,9 +128,14 @@ public class DaoDirectFactory<T extends IDbDto> implements IDaoFactory<T> {
 
   @Override
   public IDeleteBatch<T> getDeleteBatch(IDeleteSql<T> sql) {
+    return getDeleteBatch(sql, false);
+  }
+
+  @Override
+  public IDeleteBatch<T> getDeleteBatch(IDeleteSql<T> sql, boolean inList) {
     DeleteBatchByKey<T> deleter = null;
     if (sql != null) {
-      deleter = new DeleteBatchByKey<T>(sql, subsystem);
+      deleter = new DeleteBatchByKey<T>(sql, subsystem, inList);
     }
     return deleter;
   }
@@ -158,7 +165,12 @@ public class DaoDirectFactory<T extends IDbDto> implements IDaoFactory<T> {
 
   @Override
   public IInsertBatch<T> getInsertBatch(IInsertSql<T> sql) {
-    return new InsertBatch<T>(sql, subsystem);
+    return getInsertBatch(sql, false);
+  }
+
+  @Override
+  public IInsertBatch<T> getInsertBatch(IInsertSql<T> sql, boolean retry) {
+    return new InsertBatch<T>(sql, subsystem, retry);
   }
 
   @Override
@@ -178,9 +190,14 @@ public class DaoDirectFactory<T extends IDbDto> implements IDaoFactory<T> {
 
   @Override
   public IUpdateBatch<T> getUpdateBatch(IUpdateSql<T> sql) {
+    return getUpdateBatch(sql, false);
+  }
+
+  @Override
+  public IUpdateBatch<T> getUpdateBatch(IUpdateSql<T> sql, boolean retry) {
     UpdateBatchByKey<T> updater = null;
     if (sql != null) {
-      updater = new UpdateBatchByKey<T>(sql, subsystem);
+      updater = new UpdateBatchByKey<T>(sql, subsystem, retry);
     }
     return updater;
   }
@@ -203,6 +220,28 @@ public class DaoDirectFactory<T extends IDbDto> implements IDaoFactory<T> {
     return updater;
   }
 
+  @Override
+  public IWriteBehindQueue<T> getWriteBehindQueue(IInsertSql<T> insertSql,
+                                                  IUpdateSql<T> updateSql,
+                                                  int capacity, int size,
+                                                  long interval) {
+    IInsertBatch<T> inserter = null;
+    if (insertSql != null) {
+      inserter = getInsertBatch(insertSql);
+    }
+    return new WriteBehindQueue<T>(inserter,
+                                   getUpdateBatch(updateSql),
+                                   capacity,
+                                   size,
+                                   interval);
+  }
+
+  @Override
+  public IUpsertBatch<T> getUpsertBatch(IInsertSql<T> insertSql,
+                                        IUpdateSql<T> updateSql) {
+    return new UpsertBatch<T>(insertSql, updateSql, subsystem);
+  }
+
   @Override
   public void clear() {
     // Does nothing for direct queries
@@ -100,6 +100,24 @@ public class DaoManagerFactory {
     return getManager(subsystem);
   }
 
+  /**
+   * Initialize a two-level DAO manager with an in-memory near cache in front
+   * of memcached.
+   * 
+   * @param subsystem the subsystem of the DTO classes, a fully-qualified package name
+   * @param broadcast whether to broadcast cache removals to the near caches
+   *          of other JVMs through the Poesys/DB delete topic
+   * @return the DAO manager
+   */
+  public static IDaoManager initNearCacheManager(String subsystem,
+                                                 boolean broadcast) {
+    if (managers.get(subsystem) == null) {
+      managers.put(subsystem,
+                   NearCacheDaoManager.getInstance(subsystem, broadcast));
+    }
+    return getManager(subsystem);
+  }
+
   /**
    * Get the manager, defaulting to initializing a cache-map manager if no
    * manager yet exists.
@@ -60,6 +60,8 @@ import com.poesys.db.dao.update.UpdateMemcachedBatchByKey;
 import com.poesys.db.dao.update.UpdateMemcachedByKey;
 import com.poesys.db.dao.update.UpdateMemcachedCollectionByKey;
 import com.poesys.db.dao.update.UpdateWithParameters;
+import com.poesys.db.dao.upsert.IUpsertBatch;
+import com.poesys.db.dao.upsert.UpsertMemcachedBatch;
 import com.poesys.db.dto.IDbDto;
 
 
@@ -91,6 +93,8 @@ import com.poesys.db.dto.IDbDto;
  * @param <T> the type of database DTO to cache
  */
 public class DaoMemcachedFactory<T extends IDbDto> implements IDaoFactory<T> {
+  /** The cache name */
+  private final String name;
   /** the name of the subsystem containing class T */
   private final String subsystem;
   /** The time in milliseconds an object remains in the cache */
@@ -108,13 +112,18 @@ public class DaoMemcachedFactory<T extends IDbDto> implements IDaoFactory<T> {
    *          default is Integer.MAX_VALUE
    */
   public DaoMemcachedFactory(String name, String subsystem, Integer expiration) {
+    this.name = name;
     this.subsystem = subsystem;
     this.expiration = expiration == null ? Integer.MAX_VALUE : expiration;
   }
 
   @Override
   public IQueryByKey<T> getQueryByKey(IKeyQuerySql<T> sql, String subsystem) {
-    return new QueryMemcachedByKey<T>(sql, subsystem, expiration);
+    return new QueryMemcachedByKey<T>(sql,
+                                      subsystem,
+                                      expiration,
+                                      CacheSettings.getAbsentTtl(subsystem,
+                                                                 name));
   }
 
   @Override
@@ -158,9 +167,14 @@ public class DaoMemcachedFactory<T extends IDbDto> implements IDaoFactory<T> {
 
   @Override
   public IDeleteBatch<T> getDeleteBatch(IDeleteSql<T> sql) {
+    return getDeleteBatch(sql, false);
+  }
+
+  @Override
+  public IDeleteBatch<T> getDeleteBatch(IDeleteSql<T> sql, boolean inList) {
     DeleteMemcachedBatchByKey<T> deleter = null;
     if (sql != null) {
-      deleter = new DeleteMemcachedBatchByKey<T>(sql, subsystem);
+      deleter = new DeleteMemcachedBatchByKey<T>(sql, subsystem, inList);
     }
     return deleter;
   }
@@ -192,7 +206,12 @@ public class DaoMemcachedFactory<T extends IDbDto> implements IDaoFactory<T> {
 
   @Override
   public IInsertBatch<T> getInsertBatch(IInsertSql<T> sql) {
-    return new InsertMemcachedBatch<T>(sql, subsystem, expiration);
+    return getInsertBatch(sql, false);
+  }
+
+  @Override
+  public IInsertBatch<T> getInsertBatch(IInsertSql<T> sql, boolean retry) {
+    return new InsertMemcachedBatch<T>(sql, subsystem, expiration, retry);
   }
 
   @Override
@@ -212,9 +231,14 @@ public class DaoMemcachedFactory<T extends IDbDto> implements IDaoFactory<T> {
 
   @Override
   public IUpdateBatch<T> getUpdateBatch(IUpdateSql<T> sql) {
+    return getUpdateBatch(sql, false);
+  }
+
+  @Override
+  public IUpdateBatch<T> getUpdateBatch(IUpdateSql<T> sql, boolean retry) {
     UpdateMemcachedBatchByKey<T> updater = null;
     if (sql != null) {
-      updater = new UpdateMemcachedBatchByKey<T>(sql, subsystem);
+      updater = new UpdateMemcachedBatchByKey<T>(sql, subsystem, retry);
     }
     return updater;
   }
@@ -238,6 +262,31 @@ public class DaoMemcachedFactory<T extends IDbDto> implements IDaoFactory<T> {
     return updater;
   }
 
+  @Override
+  public IWriteBehindQueue<T> getWriteBehindQueue(IInsertSql<T> insertSql,
+                                                  IUpdateSql<T> updateSql,
+                                                  int capacity, int size,
+                                                  long interval) {
+    IInsertBatch<T> inserter = null;
+    if (insertSql != null) {
+      inserter = getInsertBatch(insertSql);
+    }
+    return new WriteBehindQueue<T>(inserter,
+                                   getUpdateBatch(updateSql),
+                                   capacity,
+                                   size,
+                                   interval);
+  }
+
+  @Override
+  public IUpsertBatch<T> getUpsertBatch(IInsertSql<T> insertSql,
+                                        IUpdateSql<T> updateSql) {
+    return new UpsertMemcachedBatch<T>(insertSql,
+                                       updateSql,
+                                       subsystem,
+                                       expiration);
+  }
+
   @Override
   public void clear() {
     DaoManagerFactory.initMemcachedManager(subsystem);
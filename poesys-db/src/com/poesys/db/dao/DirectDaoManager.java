@@ -19,6 +19,8 @@ package com.poesys.db.dao;
 
 
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.apache.log4j.Logger;
 
@@ -119,6 +121,23 @@ public final class DirectDaoManager implements IDaoManager {
     // Does nothing, no caching
   }
 
+  @Override
+  public <T extends IDbDto> Map<IPrimaryKey, T> getCachedObjects(Collection<IPrimaryKey> keys,
+                                                                 String subsystem) {
+    return new LinkedHashMap<IPrimaryKey, T>(); // no caching
+  }
+
+  @Override
+  public <T extends IDbDto> void putObjectsInCache(int expireTime,
+                                                   Collection<T> objects) {
+    // Does nothing, no caching
+  }
+
+  @Override
+  public void removeObjectsFromCache(Collection<IPrimaryKey> keys) {
+    // Does nothing, no caching
+  }
+
   @Override
   public void clearTemporaryCaches() {
     // No temp caches to clear
@@ -0,0 +1,471 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao;
+
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+import com.poesys.db.DbErrorException;
+import com.poesys.db.InvalidParametersException;
+import com.poesys.db.Message;
+import com.poesys.db.dao.delete.IDeleteBatch;
+import com.poesys.db.dao.insert.IInsertBatch;
+import com.poesys.db.dao.update.IUpdateBatch;
+import com.poesys.db.dto.AbstractDto;
+import com.poesys.db.dto.IDbDto;
+import com.poesys.db.dto.IDbDto.Status;
+
+
+/**
+ * <p>
+ * A unit-of-work flush that writes whole DTO graphs class by class rather than
+ * object by object. The flush first walks the graphs from the root DTOs
+ * through the nested DTOs that the setters of each AbstractDto report (see
+ * INestedDtoSetter), collecting the NEW, CHANGED, and DELETED DTOs by class.
+ * The insert setters among the pre-setters of a DTO write the objects to which
+ * it refers, so their classes come before its class; the insert setters and
+ * post-setters write the objects that refer to it, so their classes come
+ * after. Other pre-setters, such as cascading deletes of children, add their
+ * DTOs to the flush but not to the class order. The flush sorts
+ * the classes in that dependency order, then inserts and updates each class
+ * with one call to its batch DAOs in that order and deletes each class in the
+ * reverse order, so children go before their parents.
+ * </p>
+ * <p>
+ * While the flush writes, it suppresses the nested inserts and pre-inserts of
+ * each collected DTO so that the batch DAOs don't walk the graph again. You
+ * register the batch DAOs for each DTO class; a class with DTOs to write and
+ * no registered DAO for the operation is an error. If the class dependencies
+ * form a cycle, the flush breaks it at the class discovered first and logs a
+ * warning; such graphs need deferrable constraints or an ordinary
+ * object-by-object write. A class in an inheritance hierarchy needs batch DAOs
+ * that write all the tables of the hierarchy.
+ * </p>
+ * <p>
+ * The flush writes everything in one tracking thread, so it is one
+ * transaction unless the DAOs commit on their own.
+ * </p>
+ * 
+ * @see com.poesys.db.dto.INestedDtoSetter
+ * 
+ * @author Robert J. Muller
+ */
+public class GraphFlush {
+  /** Logger for this class */
+  private static final Logger logger = Logger.getLogger(GraphFlush.class);
+
+  /** the batch DAOs by DTO class */
+  private final Map<Class<?>, Writers> writers =
+    new HashMap<Class<?>, Writers>();
+  /** the subsystem for the tracking thread */
+  private final String subsystem;
+
+  /** timeout for the flush thread */
+  private static final int TIMEOUT = 1000 * 60;
+
+  /** Error message when no subsystem supplied */
+  private static final String NULL_SUBSYSTEM_ERROR =
+    "com.poesys.db.dao.msg.null_subsystem";
+  /** Error message when a class with DTOs to write has no DAO */
+  private static final String NO_WRITER_ERROR =
+    "com.poesys.db.dao.msg.graph_no_writer";
+  /** Error message when thread is interrupted or timed out */
+  private static final String THREAD_ERROR = "com.poesys.db.dao.msg.thread";
+
+  /**
+   * Create a GraphFlush object.
+   * 
+   * @param subsystem the subsystem of the DTO classes
+   */
+  public GraphFlush(String subsystem) {
+    if (subsystem == null) {
+      throw new InvalidParametersException(Message.getMessage(NULL_SUBSYSTEM_ERROR,
+                                                              null));
+    }
+    this.subsystem = subsystem;
+  }
+
+  /**
+   * Register the batch DAOs that write a DTO class. The DAOs also write
+   * subclasses of the class that have no registration of their own.
+   * 
+   * @param dtoClass the DTO class
+   * @param inserter the batch DAO that inserts NEW DTOs, or null
+   * @param updater the batch DAO that updates CHANGED DTOs, or null
+   * @param deleter the batch DAO that deletes DELETED DTOs, or null
+   * @param <T> the type of DTO
+   */
+  public <T extends IDbDto> void register(Class<T> dtoClass,
+                                          IInsertBatch<T> inserter,
+                                          IUpdateBatch<T> updater,
+                                          IDeleteBatch<T> deleter) {
+    writers.put(dtoClass, new Writers(inserter, updater, deleter));
+  }
+
+  /**
+   * Write the NEW, CHANGED, and DELETED DTOs in the graphs of a collection of
+   * root DTOs, one batch per class in dependency order.
+   * 
+   * @param roots the root DTOs
+   * @param size the batch size
+   */
+  public void flush(Collection<? extends IDbDto> roots, final int size) {
+    final Graph graph = collect(roots);
+    final List<Class<?>> order = sort(graph.classes, graph.edges);
+    checkWriters(graph, order);
+
+    if (Thread.currentThread() instanceof PoesysTrackingThread) {
+      write(graph, order, size);
+    } else {
+      Runnable process = new Runnable() {
+        public void run() {
+          PoesysTrackingThread thread =
+            (PoesysTrackingThread)Thread.currentThread();
+          try {
+            write(graph, order, size);
+            // Post process here as the client is not in the tracking thread.
+            for (IDbDto dto : graph.dtos) {
+              dto.postprocessNestedObjects();
+            }
+          } catch (Throwable e) {
+            thread.setThrowable(e);
+          } finally {
+            thread.closeConnection();
+          }
+        }
+      };
+      PoesysTrackingThread thread =
+        new PoesysTrackingThread(process, subsystem);
+      thread.start();
+
+      // Join the thread, blocking until the thread completes or
+      // until the flush times out.
+      try {
+        thread.join(TIMEOUT);
+        // Check for problems.
+        if (thread.getThrowable() != null) {
+          Object[] args = { "flush", "graph of DTOs" };
+          String message = Message.getMessage(THREAD_ERROR, args);
+          logger.error(message, thread.getThrowable());
+          throw new DbErrorException(message, thread.getThrowable());
+        }
+      } catch (InterruptedException e) {
+        Object[] args = { "flush", "graph of DTOs" };
+        String message = Message.getMessage(THREAD_ERROR, args);
+        logger.error(message, e);
+      }
+    }
+  }
+
+  /**
+   * Walk the graphs from the root DTOs, collecting the DTOs to write by class
+   * and the dependencies between the classes.
+   * 
+   * @param roots the root DTOs
+   * @return the collected graph
+   */
+  private Graph collect(Collection<? extends IDbDto> roots) {
+    Graph graph = new Graph();
+    Map<IDbDto, Boolean> visited = new IdentityHashMap<IDbDto, Boolean>();
+    LinkedList<IDbDto> queue = new LinkedList<IDbDto>();
+    if (roots != null) {
+      queue.addAll(roots);
+    }
+    while (!queue.isEmpty()) {
+      IDbDto dto = queue.removeFirst();
+      if (dto == null || visited.put(dto, Boolean.TRUE) != null) {
+        continue;
+      }
+      graph.dtos.add(dto);
+      Class<?> dtoClass = getWriterClass(dto);
+      graph.add(dtoClass, dto);
+      if (dto instanceof AbstractDto) {
+        for (IDbDto referenced : ((AbstractDto)dto).getReferencedDtos()) {
+          graph.addEdge(getWriterClass(referenced), dtoClass);
+          queue.add(referenced);
+        }
+        for (IDbDto dependent : ((AbstractDto)dto).getDependentDtos()) {
+          graph.addEdge(dtoClass, getWriterClass(dependent));
+          queue.add(dependent);
+        }
+        queue.addAll(((AbstractDto)dto).getPreprocessedDtos());
+      }
+    }
+    return graph;
+  }
+
+  /**
+   * Get the class under which to group a DTO: the nearest class in its
+   * hierarchy with registered DAOs, or its own class if there is none.
+   * 
+   * @param dto the DTO
+   * @return the class
+   */
+  private Class<?> getWriterClass(IDbDto dto) {
+    for (Class<?> c = dto.getClass(); c != null; c = c.getSuperclass()) {
+      if (writers.containsKey(c)) {
+        return c;
+      }
+    }
+    return dto.getClass();
+  }
+
+  /**
+   * Check that each class with DTOs to write has a DAO for each operation.
+   * 
+   * @param graph the collected graph
+   * @param order the classes in dependency order
+   */
+  private void checkWriters(Graph graph, List<Class<?>> order) {
+    for (Class<?> dtoClass : order) {
+      Writers dao = writers.get(dtoClass);
+      checkWriter(dtoClass, "NEW", graph.inserts.get(dtoClass),
+                  dao == null ? null : dao.inserter);
+      checkWriter(dtoClass, "CHANGED", graph.updates.get(dtoClass),
+                  dao == null ? null : dao.updater);
+      checkWriter(dtoClass, "DELETED", graph.deletes.get(dtoClass),
+                  dao == null ? null : dao.deleter);
+    }
+  }
+
+  /**
+   * Check that there is a DAO to write a list of DTOs.
+   * 
+   * @param dtoClass the class of the DTOs
+   * @param status the status of the DTOs for the error message
+   * @param dtos the DTOs, possibly null
+   * @param dao the DAO, possibly null
+   */
+  private void checkWriter(Class<?> dtoClass, String status, List<IDbDto> dtos,
+                           Object dao) {
+    if (dtos != null && !dtos.isEmpty() && dao == null) {
+      Object[] args = { status, dtoClass.getName() };
+      throw new InvalidParametersException(Message.getMessage(NO_WRITER_ERROR,
+                                                              args));
+    }
+  }
+
+  /**
+   * Write the collected DTOs in the current tracking thread: inserts and
+   * updates in dependency order, then deletes in reverse order.
+   * 
+   * @param graph the collected graph
+   * @param order the classes in dependency order
+   * @param size the batch size
+   */
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private void write(Graph graph, List<Class<?>> order, int size) {
+    Map<IDbDto, boolean[]> suppression =
+      new IdentityHashMap<IDbDto, boolean[]>();
+    for (IDbDto dto : graph.dtos) {
+      boolean[] saved =
+        { dto.isSuppressNestedInserts(), dto.isSuppressNestedPreInserts() };
+      suppression.put(dto, saved);
+      dto.setSuppressNestedInserts(true);
+      dto.setSuppressNestedPreInserts(true);
+    }
+    try {
+      for (Class<?> dtoClass : order) {
+        Writers dao = writers.get(dtoClass);
+        List<IDbDto> inserts = graph.inserts.get(dtoClass);
+        if (inserts != null && !inserts.isEmpty()) {
+          logger.debug("Flushing " + inserts.size() + " inserts of "
+                       + dtoClass.getName());
+          ((IInsertBatch)dao.inserter).insert(inserts, size);
+        }
+        List<IDbDto> updates = graph.updates.get(dtoClass);
+        if (updates != null && !updates.isEmpty()) {
+          logger.debug("Flushing " + updates.size() + " updates of "
+                       + dtoClass.getName());
+          ((IUpdateBatch)dao.updater).update(updates, size);
+        }
+      }
+      for (int i = order.size() - 1; i >= 0; i--) {
+        Class<?> dtoClass = order.get(i);
+        List<IDbDto> deletes = graph.deletes.get(dtoClass);
+        if (deletes != null && !deletes.isEmpty()) {
+          logger.debug("Flushing " + deletes.size() + " deletes of "
+                       + dtoClass.getName());
+          ((IDeleteBatch)writers.get(dtoClass).deleter).delete(deletes, size);
+        }
+      }
+    } finally {
+      for (Map.Entry<IDbDto, boolean[]> entry : suppression.entrySet()) {
+        entry.getKey().setSuppressNestedInserts(entry.getValue()[0]);
+        entry.getKey().setSuppressNestedPreInserts(entry.getValue()[1]);
+      }
+    }
+  }
+
+  /**
+   * Sort nodes topologically so that each node comes after the nodes with
+   * edges to it, keeping the original order among independent nodes. Self
+   * edges are ignored; if the remaining edges form a cycle, the first
+   * unsorted node in the original order breaks it.
+   * 
+   * @param nodes the nodes in discovery order
+   * @param edges the edges from each node to the nodes that must follow it
+   * @param <N> the type of node
+   * @return the sorted nodes
+   */
+  static <N> List<N> sort(Collection<N> nodes, Map<N, Set<N>> edges) {
+    Map<N, Integer> inDegree = new LinkedHashMap<N, Integer>();
+    for (N node : nodes) {
+      inDegree.put(node, 0);
+    }
+    for (Map.Entry<N, Set<N>> entry : edges.entrySet()) {
+      for (N to : entry.getValue()) {
+        if (!to.equals(entry.getKey()) && inDegree.containsKey(to)) {
+          inDegree.put(to, inDegree.get(to) + 1);
+        }
+      }
+    }
+
+    List<N> sorted = new ArrayList<N>(nodes.size());
+    while (!inDegree.isEmpty()) {
+      N next = null;
+      for (Map.Entry<N, Integer> entry : inDegree.entrySet()) {
+        if (entry.getValue() == 0) {
+          next = entry.getKey();
+          break;
+        }
+      }
+      if (next == null) {
+        next = inDegree.keySet().iterator().next();
+        logger.warn("Cycle in graph flush dependencies, writing " + next
+                    + " before its dependencies");
+      }
+      inDegree.remove(next);
+      sorted.add(next);
+      Set<N> targets = edges.get(next);
+      if (targets != null) {
+        for (N to : targets) {
+          Integer degree = inDegree.get(to);
+          if (degree != null && !to.equals(next)) {
+            inDegree.put(to, degree - 1);
+          }
+        }
+      }
+    }
+    return sorted;
+  }
+
+  /**
+   * The batch DAOs for one DTO class
+   */
+  private static class Writers {
+    /** the batch DAO that inserts NEW DTOs, or null */
+    private final IInsertBatch<?> inserter;
+    /** the batch DAO that updates CHANGED DTOs, or null */
+    private final IUpdateBatch<?> updater;
+    /** the batch DAO that deletes DELETED DTOs, or null */
+    private final IDeleteBatch<?> deleter;
+
+    /**
+     * Create a Writers object.
+     * 
+     * @param inserter the insert DAO
+     * @param updater the update DAO
+     * @param deleter the delete DAO
+     */
+    private Writers(IInsertBatch<?> inserter,
+                    IUpdateBatch<?> updater,
+                    IDeleteBatch<?> deleter) {
+      this.inserter = inserter;
+      this.updater = updater;
+      this.deleter = deleter;
+    }
+  }
+
+  /**
+   * The DTOs and class dependencies collected from the graphs
+   */
+  private static class Graph {
+    /** all the DTOs in discovery order */
+    private final List<IDbDto> dtos = new ArrayList<IDbDto>();
+    /** the classes in discovery order */
+    private final Set<Class<?>> classes = new LinkedHashSet<Class<?>>();
+    /** the edges from each class to the classes that must follow it */
+    private final Map<Class<?>, Set<Class<?>>> edges =
+      new HashMap<Class<?>, Set<Class<?>>>();
+    /** the NEW DTOs by class */
+    private final Map<Class<?>, List<IDbDto>> inserts =
+      new HashMap<Class<?>, List<IDbDto>>();
+    /** the CHANGED DTOs by class */
+    private final Map<Class<?>, List<IDbDto>> updates =
+      new HashMap<Class<?>, List<IDbDto>>();
+    /** the DELETED and CASCADE_DELETED DTOs by class */
+    private final Map<Class<?>, List<IDbDto>> deletes =
+      new HashMap<Class<?>, List<IDbDto>>();
+
+    /**
+     * Add a DTO to the list for its status and class.
+     * 
+     * @param dtoClass the class under which to group the DTO
+     * @param dto the DTO
+     */
+    private void add(Class<?> dtoClass, IDbDto dto) {
+      classes.add(dtoClass);
+      Status status = dto.getStatus();
+      Map<Class<?>, List<IDbDto>> lists = null;
+      if (status == Status.NEW) {
+        lists = inserts;
+      } else if (status == Status.CHANGED) {
+        lists = updates;
+      } else if (status == Status.DELETED || status == Status.CASCADE_DELETED) {
+        lists = deletes;
+      }
+      if (lists != null) {
+        List<IDbDto> list = lists.get(dtoClass);
+        if (list == null) {
+          list = new ArrayList<IDbDto>();
+          lists.put(dtoClass, list);
+        }
+        list.add(dto);
+      }
+    }
+
+    /**
+     * Add a dependency between two classes.
+     * 
+     * @param from the class that must be written first
+     * @param to the class that must be written after it
+     */
+    private void addEdge(Class<?> from, Class<?> to) {
+      classes.add(from);
+      classes.add(to);
+      Set<Class<?>> targets = edges.get(from);
+      if (targets == null) {
+        targets = new LinkedHashSet<Class<?>>();
+        edges.put(from, targets);
+      }
+      targets.add(to);
+    }
+  }
+}
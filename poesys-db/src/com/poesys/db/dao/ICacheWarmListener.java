@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao;
+
+
+/**
+ * A listener that receives progress reports from a cache warm-up, one report
+ * per partition of objects cached.
+ *
+ * @see CacheWarmer
+ *
+ * @author Robert J. Muller
+ */
+public interface ICacheWarmListener {
+  /**
+   * Report a partition of objects queried and cached.
+   *
+   * @param query the name of the query that selected the objects (the class
+   *          name of its IQuerySql)
+   * @param done the number of partitions finished so far, including this one
+   * @param partitions the total number of partitions in the warm-up
+   * @param objects the number of objects cached from this partition
+   * @param total the total number of objects cached so far
+   * @param millis the elapsed time in milliseconds to query and cache the
+   *          partition
+   */
+  void partitionWarmed(String query,
+                       int done,
+                       int partitions,
+                       int objects,
+                       long total,
+                       long millis);
+}
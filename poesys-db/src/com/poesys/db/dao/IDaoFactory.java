@@ -42,6 +42,7 @@ import com.poesys.db.dao.update.IUpdateBatch;
 import com.poesys.db.dao.update.IUpdateCollection;
 import com.poesys.db.dao.update.IUpdateSql;
 import com.poesys.db.dao.update.IUpdateWithParameters;
+import com.poesys.db.dao.upsert.IUpsertBatch;
 import com.poesys.db.dto.IDbDto;
 
 
@@ -134,14 +135,25 @@ public interface IDaoFactory<T extends IDbDto> {
 
   /**
    * Generate an IInsertBatch DAO that inserts a batched list of objects using a
-   * SQL insert specification. The batch processing does not enable key
-   * generation through identity keys.
+   * SQL insert specification. Batches of objects with identity keys require a
+   * JDBC driver that returns generated keys for batches.
    * 
    * @param sql the SQL INSERT specification
    * @return the insert DAO
    */
   IInsertBatch<T> getInsertBatch(IInsertSql<T> sql);
 
+  /**
+   * Generate an IInsertBatch DAO that inserts a batched list of objects,
+   * optionally executing each batch within a savepoint and retrying the batch
+   * without any rows that fail.
+   * 
+   * @param sql the SQL INSERT specification
+   * @param retry true to retry batches without their failed rows
+   * @return the insert DAO
+   */
+  IInsertBatch<T> getInsertBatch(IInsertSql<T> sql, boolean retry);
+
   /**
    * Generate an IInsertCollection DAO that inserts a collection of objects
    * using a SQL insert specification. The DAO may generate keys as specified if
@@ -181,6 +193,17 @@ public interface IDaoFactory<T extends IDbDto> {
    */
   IUpdateBatch<T> getUpdateBatch(IUpdateSql<T> sql);
 
+  /**
+   * Generate an IUpdateBatch DAO that updates a batched list of objects,
+   * optionally executing each batch within a savepoint and retrying the batch
+   * without any rows that fail.
+   * 
+   * @param sql the SQL UPDATE specification
+   * @param retry true to retry batches without their failed rows
+   * @return the update DAO
+   */
+  IUpdateBatch<T> getUpdateBatch(IUpdateSql<T> sql, boolean retry);
+
   /**
    * Generate an IUpdateCollection DAO that updates a collection of objects
    * using a SQL update specification.
@@ -217,6 +240,17 @@ public interface IDaoFactory<T extends IDbDto> {
    */
   IDeleteBatch<T> getDeleteBatch(IDeleteSql<T> sql);
 
+  /**
+   * Generate an IDeleteBatch DAO that deletes a batched list of objects,
+   * optionally deleting chunks of objects with single DELETE statements using
+   * IN-lists rather than batches of single-row statements.
+   * 
+   * @param sql the SQL DELETE specification
+   * @param inList true to delete with IN-list chunks, false to use batches
+   * @return the delete DAO
+   */
+  IDeleteBatch<T> getDeleteBatch(IDeleteSql<T> sql, boolean inList);
+
   /**
    * Generate an IDeleteCollection DAO that deletes a collection of objects (no
    * batching).
@@ -226,6 +260,40 @@ public interface IDaoFactory<T extends IDbDto> {
    */
   IDeleteCollection<T> getDeleteCollection(IDeleteSql<T> sql);
 
+  /**
+   * Generate an IWriteBehindQueue that queues inserts and updates and writes
+   * them later with this factory's IInsertBatch and IUpdateBatch DAOs. The
+   * queue flushes in the background at the interval and whenever it holds a
+   * full batch, merges repeated updates of the same object, blocks callers
+   * when it reaches its capacity, and flushes when closed or when the Java
+   * virtual machine shuts down.
+   * 
+   * @param insertSql the SQL INSERT specification; null if the queue accepts
+   *          only updates
+   * @param updateSql the SQL UPDATE specification; null if the queue accepts
+   *          only inserts
+   * @param capacity the maximum number of queued objects
+   * @param size the batch size
+   * @param interval the maximum time in milliseconds between flushes
+   * @return the write-behind queue
+   */
+  IWriteBehindQueue<T> getWriteBehindQueue(IInsertSql<T> insertSql,
+                                           IUpdateSql<T> updateSql,
+                                           int capacity, int size,
+                                           long interval);
+
+  /**
+   * Generate an IUpsertBatch DAO that inserts or updates a batch of objects
+   * with a single statement per object, using the SQL insert and update
+   * specifications of the class.
+   * 
+   * @param insertSql the SQL INSERT specification
+   * @param updateSql the SQL UPDATE specification
+   * @return the upsert DAO
+   */
+  IUpsertBatch<T> getUpsertBatch(IInsertSql<T> insertSql,
+                                 IUpdateSql<T> updateSql);
+
   /**
    * Clear any resources used by the factory. In the caching implementation of
    * this interface, for example, this method clears the cache.
@@ -19,6 +19,7 @@ package com.poesys.db.dao;
 
 
 import java.util.Collection;
+import java.util.Map;
 
 import com.poesys.db.dto.IDbDto;
 import com.poesys.db.dto.IDtoCache;
@@ -169,6 +170,42 @@ public interface IDaoManager {
    */
   void removeObjectFromCache(String cacheName, IPrimaryKey key);
 
+  /**
+   * Get the objects identified by a collection of primary keys out of the
+   * cache in a single operation where the caching scheme supports it. The keys
+   * supply the cache names. This method does not reset the expire time for the
+   * objects in the cache. The result contains only the objects found in the
+   * cache; the caller must get any missing objects from the database.
+   * 
+   * @param <T> the type of object to look up
+   * @param keys the unique identifiers of the objects you want to retrieve
+   * @param subsystem the subsystem of the DTO class
+   * @return a map of the objects found, keyed by primary key, in key order
+   */
+  <T extends IDbDto> Map<IPrimaryKey, T> getCachedObjects(Collection<IPrimaryKey> keys,
+                                                          String subsystem);
+
+  /**
+   * Put a collection of objects into the cache in a single operation where the
+   * caching scheme supports it. The primary keys of the objects supply the
+   * cache names. The expire time has the same meaning as in putObjectInCache().
+   * 
+   * @param <T> the type of object to cache
+   * @param expireTime the milliseconds until the objects expire from the cache
+   * @param objects the objects to cache
+   */
+  <T extends IDbDto> void putObjectsInCache(int expireTime,
+                                            Collection<T> objects);
+
+  /**
+   * Remove the objects specified by a collection of primary keys from the
+   * cache in a single operation where the caching scheme supports it. The keys
+   * supply the cache names.
+   * 
+   * @param keys the unique identifiers for the objects
+   */
+  void removeObjectsFromCache(Collection<IPrimaryKey> keys);
+
   /**
    * Clear any temporary caches created inside the DAO Manager.
    */
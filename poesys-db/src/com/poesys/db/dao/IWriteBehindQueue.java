@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao;
+
+
+import com.poesys.db.dto.IDbDto;
+
+
+/**
+ * <p>
+ * An interface for a Command-pattern class that queues inserts and updates of
+ * DTOs and writes them to the database later in batches (write-behind). The
+ * queue merges repeated updates of the same object into a single update, so
+ * high-churn objects such as counters and status fields get written once per
+ * flush no matter how often they change.
+ * </p>
+ * <p>
+ * Writing behind trades immediate persistence for throughput: until the queue
+ * flushes, the database does not reflect the queued changes, and a failure in
+ * a background flush shows up only in the log and in the FAILED status of the
+ * DTOs involved. If a batch DAO throws an exception, the queue keeps the DTOs
+ * that it did not write and retries them in the next flush. Use the queue only
+ * for data that can tolerate eventual persistence.
+ * </p>
+ * 
+ * @author Robert J. Muller
+ * @param <T> the type of IDbDto to write
+ */
+public interface IWriteBehindQueue<T extends IDbDto> {
+  /**
+   * Queue a DTO for writing. The queue inserts NEW DTOs and updates CHANGED
+   * DTOs and ignores DTOs with any other status. If the queue already holds a
+   * DTO with the same primary key, the queue merges the two into a single
+   * write of the latest state. If the queue is full, the method blocks until a
+   * flush makes room (back-pressure).
+   * 
+   * @param dto the DTO to write
+   */
+  void add(T dto);
+
+  /**
+   * Write all the queued DTOs to the database now, blocking until the writes
+   * complete. If a write fails with an exception, the DTOs not yet written go
+   * back into the queue and the method rethrows the exception.
+   */
+  void flush();
+
+  /**
+   * Get the number of DTOs waiting to be written.
+   * 
+   * @return the number of queued DTOs
+   */
+  int size();
+
+  /**
+   * Stop the background flushing and flush any queued DTOs. The queue rejects
+   * any DTO added after closing. The queue also closes itself when the Java
+   * virtual machine shuts down.
+   */
+  void close();
+}
@@ -24,6 +24,7 @@ import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.ResourceBundle;
@@ -32,7 +33,6 @@ import net.spy.memcached.BinaryConnectionFactory;
 import net.spy.memcached.ClientMode;
 import net.spy.memcached.DefaultConnectionFactory;
 import net.spy.memcached.MemcachedClient;
-import net.spy.memcached.transcoders.SerializingTranscoder;
 
 import org.apache.log4j.Logger;
 
@@ -81,6 +81,14 @@ import com.poesys.db.pool.ObjectPool;
  * there, you will get it from the ultimate source, the database. </strong>
  * </p>
  * <p>
+ * Sets and deletes go through a MemcachedWriter, which by default does not
+ * wait for the server, logs failures asynchronously, and bounds the number of
+ * operations in flight. The memcached property transcoder selects Java
+ * serialization or the compact encoding of CompactTranscoder for the cached
+ * objects, and the CompressingTranscoder compresses the values larger than the
+ * property compression_threshold.
+ * </p>
+ * <p>
  * Note that no methods are synchronized, as most cached objects are stored in
  * threadsafe data structures or are used and disposed of in the same method
  * with no opportunity for concurrent access.
@@ -186,6 +194,14 @@ public final class MemcachedDaoManager implements IDaoManager {
       }
     };
 
+  /** Transcoder for cached objects, compressing large values */
+  private static final CompressingTranscoder transcoder =
+    CompressingTranscoder.create(properties);
+
+  /** Writer for sets and deletes, bounding the operations in flight */
+  private static final MemcachedWriter writer =
+    MemcachedWriter.create(properties);
+
   // Error messages from the Poesys resource bundle.
 
   private static final String INVALID_PORT =
@@ -202,6 +218,10 @@ public final class MemcachedDaoManager implements IDaoManager {
     "com.poesys.db.dao.query.msg.memcached_get";
   private static final String MEMCACHED_RETRY_WARNING =
     "com.poesys.db.dao.query.msg.memcached_retry";
+  private static final String MEMCACHED_BULK_GET_ERROR =
+    "com.poesys.db.dao.query.msg.memcached_bulk_get";
+  private static final String MEMCACHED_BULK_RETRY_WARNING =
+    "com.poesys.db.dao.query.msg.memcached_bulk_retry";
   private static final String STATS_COMPLETE =
     "com.poesys.db.dao.query.msg.memcached_stats_complete";
   private static final String STATS_ERROR =
@@ -378,7 +398,7 @@ public final class MemcachedDaoManager implements IDaoManager {
       int retries = TIMEOUT_RETRIES;
       while (retries > 0) {
         try {
-          dto = (IDbDto)client.get(key.getStringKey());
+          dto = (IDbDto)client.get(key.getStringKey(), transcoder);
           if (dto != null) {
             // object found, track and set processed so that no setters will
             // attempt to get it from the cache again.
@@ -432,6 +452,139 @@ public final class MemcachedDaoManager implements IDaoManager {
     }
   }
 
+  /**
+   * Get the cached objects for a collection of primary keys with a single
+   * memcached bulk get rather than one get per key. The method tracks the
+   * objects it finds in the tracking thread and deserializes their nested
+   * objects, as getCachedObject() does, and it returns only the objects it
+   * finds; the caller gets any missing objects from the database.
+   * 
+   * @param keys the primary keys of the objects to get
+   * @param subsystem the subsystem of the objects
+   * @param <T> the type of the objects
+   * @return a map of the objects found, keyed by primary key, in key order
+   */
+  @SuppressWarnings("unchecked")
+  @Override
+  public <T extends IDbDto> Map<IPrimaryKey, T> getCachedObjects(final Collection<IPrimaryKey> keys,
+                                                                 String subsystem) {
+    final Map<IPrimaryKey, T> objects = new LinkedHashMap<IPrimaryKey, T>();
+    if (keys == null || keys.isEmpty()) {
+      return objects;
+    }
+
+    // Check for the separate thread and create it if it's not already there.
+    if (Thread.currentThread() instanceof PoesysTrackingThread) {
+      getBulkFromMemcached(keys, (Map<IPrimaryKey, IDbDto>)objects);
+    } else {
+      Runnable query = new Runnable() {
+        public void run() {
+          PoesysTrackingThread thread =
+            (PoesysTrackingThread)Thread.currentThread();
+          try {
+            getBulkFromMemcached(keys, (Map<IPrimaryKey, IDbDto>)objects);
+          } catch (Throwable e) {
+            thread.setThrowable(e);
+          }
+        }
+      };
+      PoesysTrackingThread thread = new PoesysTrackingThread(query, subsystem);
+      thread.start();
+      // Join the thread, blocking until the thread completes or
+      // until the query times out.
+      try {
+        thread.join(TIMEOUT);
+        // Check for problems.
+        if (thread.getThrowable() != null) {
+          Object[] args = { "get cached objects from memcached",
+                           keys.size() + " keys" };
+          String message = Message.getMessage(THREAD_ERROR, args);
+          logger.error(message, thread.getThrowable());
+          throw new DbErrorException(message, thread.getThrowable());
+        }
+      } catch (InterruptedException e) {
+        Object[] args = { "bulk get", keys.size() + " keys" };
+        String message = Message.getMessage(THREAD_ERROR, args);
+        logger.error(message, e);
+      }
+    }
+    return objects;
+  }
+
+  /**
+   * Get a set of objects from memcached with a bulk get. This always runs in
+   * a PoesysTrackingThread container.
+   * 
+   * @param keys the primary keys to look up in memcached
+   * @param objects the map into which to put the objects found
+   */
+  private void getBulkFromMemcached(Collection<IPrimaryKey> keys,
+                                    Map<IPrimaryKey, IDbDto> objects) {
+    PoesysTrackingThread thread = (PoesysTrackingThread)Thread.currentThread();
+    Map<String, IPrimaryKey> stringKeys =
+      new LinkedHashMap<String, IPrimaryKey>(keys.size() * 2);
+    for (IPrimaryKey key : keys) {
+      stringKeys.put(key.getStringKey(), key);
+    }
+    MemcachedClient client = clients.getObject();
+
+    try {
+      logger.debug("Getting " + stringKeys.size()
+                   + " objects from the cache with a bulk get");
+      Map<String, Object> found = null;
+
+      // Get the objects synchronously but check for exceptions and retry to
+      // allow for memcached server being unavailable for a short period.
+      int retries = TIMEOUT_RETRIES;
+      while (retries > 0) {
+        try {
+          found = client.getBulk(stringKeys.keySet(), transcoder);
+          break;
+        } catch (Exception e) {
+          retries--;
+          Object[] args = { stringKeys.size(), e.getMessage() };
+          if (retries == 0) {
+            // Retries exhausted, fail with exception
+            String message = Message.getMessage(MEMCACHED_BULK_GET_ERROR, args);
+            logger.error(message, e);
+            throw new DbErrorException(message);
+          }
+          logger.warn(Message.getMessage(MEMCACHED_BULK_RETRY_WARNING, args), e);
+          try {
+            Thread.sleep(RETRY_SLEEP_PERIOD);
+          } catch (InterruptedException e1) {
+            // Externally interrupted sleep, something's wrong
+            String message = Message.getMessage(MEMCACHED_BULK_GET_ERROR, args);
+            logger.error(message, e1);
+            throw new DbErrorException(message);
+          }
+        }
+      }
+
+      // Keep the key order of the request.
+      for (Map.Entry<String, IPrimaryKey> entry : stringKeys.entrySet()) {
+        IDbDto dto = found == null ? null : (IDbDto)found.get(entry.getKey());
+        if (dto != null) {
+          // Track and set processed so that no setters will attempt to get
+          // the object from the cache again.
+          thread.addDto(dto);
+          thread.setProcessed(dto, true);
+          objects.put(entry.getValue(), dto);
+        }
+      }
+      logger.debug("Retrieved " + objects.size() + " of " + stringKeys.size()
+                   + " objects from the cache");
+
+      // Process nested objects after tracking all the objects, so that
+      // references among the objects resolve to the tracked objects.
+      for (IDbDto dto : objects.values()) {
+        dto.deserializeNestedObjects();
+      }
+    } finally {
+      clients.returnObject(client);
+    }
+  }
+
   @Override
   public <T extends IDbDto> void putObjectInCache(String cacheName,
                                                   int expireTime, T object) {
@@ -440,7 +593,7 @@ public final class MemcachedDaoManager implements IDaoManager {
 
     try {
       String key = object.getPrimaryKey().getStringKey();
-      client.set(key, expireTime, object, new SerializingTranscoder());
+      writer.set(client, key, expireTime, object, transcoder);
       logger.debug("Cached object \"" + key + "\" of type "
                    + object.getClass().getName()
                    + " in memcached with expiration time " + expireTime + "ms");
@@ -471,7 +624,7 @@ public final class MemcachedDaoManager implements IDaoManager {
 
     try {
       // asynch, object may get deleted after delay
-      client.delete(key.getStringKey());
+      writer.delete(client, key.getStringKey());
       logger.debug("Removed cached object " + key.getStringKey());
     } catch (IllegalStateException e) {
       // log and ignore
@@ -483,6 +636,80 @@ public final class MemcachedDaoManager implements IDaoManager {
     }
   }
 
+  /**
+   * Put a collection of objects into memcached. The sets are asynchronous
+   * operations on a single client connection, so memcached receives them as a
+   * pipeline rather than as a round trip per object.
+   */
+  @Override
+  public <T extends IDbDto> void putObjectsInCache(int expireTime,
+                                                   Collection<T> objects) {
+    if (objects == null || objects.isEmpty()) {
+      return;
+    }
+    MemcachedClient client = clients.getObject();
+    List<String> errors = new ArrayList<String>();
+
+    try {
+      for (T object : objects) {
+        String key = object.getPrimaryKey().getStringKey();
+        try {
+          writer.set(client, key, expireTime, object, transcoder);
+        } catch (IllegalStateException e) {
+          errors.add(key);
+        } catch (IllegalArgumentException e) {
+          Throwable cause = e.getCause();
+          if (cause instanceof NotSerializableException) {
+            Object[] args = { object.getClass().getName() };
+            String message = Message.getMessage(NONSERIALIZABLE_ERROR, args);
+            logger.error(message, cause);
+            throw new DbErrorException(message);
+          }
+        }
+      }
+      logger.debug("Cached " + (objects.size() - errors.size())
+                   + " objects in memcached with expiration time "
+                   + expireTime + "ms");
+      if (!errors.isEmpty()) {
+        DbErrorException e1 =
+          new DbErrorException(Message.getMessage(MEMCACHED_QUEUE_FULL, null));
+        e1.setParameters(errors);
+        throw e1;
+      }
+    } finally {
+      clients.returnObject(client);
+    }
+  }
+
+  /**
+   * Remove a collection of objects from memcached. The deletes are
+   * asynchronous operations on a single client connection, so memcached
+   * receives them as a pipeline.
+   */
+  @Override
+  public void removeObjectsFromCache(Collection<IPrimaryKey> keys) {
+    if (keys == null || keys.isEmpty()) {
+      return;
+    }
+    MemcachedClient client = clients.getObject();
+
+    try {
+      for (IPrimaryKey key : keys) {
+        try {
+          // asynch, object may get deleted after delay
+          writer.delete(client, key.getStringKey());
+        } catch (IllegalStateException e) {
+          // log and ignore
+          String[] args = { key.getStringKey() };
+          logger.warn(Message.getMessage(MEMCACHED_QUEUE_FULL, args));
+        }
+      }
+      logger.debug("Removed " + keys.size() + " cached objects");
+    } finally {
+      clients.returnObject(client);
+    }
+  }
+
   @Override
   public void clearTemporaryCaches() {
     // Nothing to do, no temp caches for memcached support
@@ -498,6 +725,12 @@ public final class MemcachedDaoManager implements IDaoManager {
 
   @Override
   public void logMetaData() {
+    logger.info(writer.getStatistics());
+    Map<String, String> compression = transcoder.getStatistics();
+    for (String cacheName : compression.keySet()) {
+      logger.info("compression " + cacheName + ": "
+                  + compression.get(cacheName));
+    }
     MemcachedClient client = clients.getObject();
     Map<SocketAddress, Map<String, String>> stats;
     try {
@@ -23,15 +23,16 @@ import java.io.NotSerializableException;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.ResourceBundle;
 
 import net.spy.memcached.BinaryConnectionFactory;
+import net.spy.memcached.CachedData;
 import net.spy.memcached.ClientMode;
 import net.spy.memcached.DefaultConnectionFactory;
 import net.spy.memcached.MemcachedClient;
-import net.spy.memcached.transcoders.SerializingTranscoder;
 
 import org.apache.log4j.Logger;
 
@@ -91,6 +92,8 @@ public class MemcachedService<T extends IDbDto> {
   /** client pool number of clients to create at once */
   private static final int INTERVAL =
     new Integer(properties.getString(MEMCACHED_PROP_POOL_INTERVAL));
+  /** the prefix of the memcached keys of absent records */
+  private static final String ABSENT_PREFIX = "absent:";
   /** the default time until which an object stays in the cache (8 hours) */
   private static final int DEFAULT_EXPIRE_TIME = 1000 * 60 * 60 * 8;
 
@@ -110,6 +113,14 @@ public class MemcachedService<T extends IDbDto> {
   private static final String STATS_ERROR =
     "com.poesys.db.dao.query.msg.memcached_stats_error";
 
+  /** static transcoder for cached objects, compressing large values */
+  private static final CompressingTranscoder transcoder =
+    CompressingTranscoder.create(properties);
+
+  /** static writer for sets and deletes, bounding the operations in flight */
+  private static final MemcachedWriter writer =
+    MemcachedWriter.create(properties);
+
   /** static memcached client pool */
   private static final ObjectPool<MemcachedClient> clients =
     new ObjectPool<MemcachedClient>(MIN, MAX, INTERVAL) {
@@ -175,7 +186,7 @@ public class MemcachedService<T extends IDbDto> {
     MemcachedClient client = clients.getObject();
     try {
       // cast required to convert "Object" object returned by memcached client
-      object = (T)client.get(key.getStringKey());
+      object = (T)client.get(key.getStringKey(), transcoder);
       // reset the expiration time of the object in the cache
       client.touch(key.getStringKey(), DEFAULT_EXPIRE_TIME);
     } finally {
@@ -231,7 +242,7 @@ public class MemcachedService<T extends IDbDto> {
     MemcachedClient client = clients.getObject();
     try {
       String key = object.getPrimaryKey().getStringKey();
-      client.set(key, expireTime, object, new SerializingTranscoder());
+      writer.set(client, key, expireTime, object, transcoder);
       logger.debug("Cached object \"" + key + "\" of type "
                    + object.getClass().getName()
                    + " in memcached with expiration time " + expireTime + "ms");
@@ -267,7 +278,7 @@ public class MemcachedService<T extends IDbDto> {
 
     try {
       // asynch, object may get deleted after delay
-      client.delete(key.getStringKey());
+      writer.delete(client, key.getStringKey());
       logger.debug("Removed cached object " + key.getStringKey());
     } catch (IllegalStateException e) {
       // log and ignore
@@ -279,10 +290,146 @@ public class MemcachedService<T extends IDbDto> {
     }
   }
 
+  /**
+   * Encode an object as memcached would store it, without storing it. A
+   * thread can hand the encoded object to other threads, each of which
+   * decodes its own copy.
+   * 
+   * @param object the object to encode
+   * @return the encoded object
+   */
+  public CachedData encode(T object) {
+    return transcoder.encode(object);
+  }
+
+  /**
+   * Decode an object that the encode method encoded.
+   * 
+   * @param data the encoded object
+   * @return a new copy of the object, or null if the object cannot be decoded
+   */
+  @SuppressWarnings("unchecked")
+  public T decode(CachedData data) {
+    return (T)transcoder.decode(data);
+  }
+
+  /**
+   * Record in the cache that no object with a primary key exists in the
+   * database (negative caching). The record is a small value under a separate
+   * memcached key, so readers of the object see a plain cache miss.
+   * 
+   * @param key the primary key for which there is no object
+   * @param expireTime the milliseconds until the record expires, rounded up to
+   *          whole seconds for memcached
+   */
+  public void putAbsent(IPrimaryKey key, int expireTime) {
+    if (expireTime <= 0) {
+      return;
+    }
+    int seconds = (int)((expireTime + 999L) / 1000L);
+    MemcachedClient client = clients.getObject();
+    try {
+      writer.set(client, getAbsentKey(key), seconds, Boolean.TRUE, transcoder);
+      logger.debug("Cached absent key " + key.getStringKey() + " for "
+                   + seconds + "s");
+    } catch (IllegalStateException e) {
+      // log and ignore, the record is only an optimization
+      String[] args = new String[1];
+      args[0] = key.getStringKey();
+      logger.warn(Message.getMessage(QUEUE_FULL_ERROR, args));
+    } finally {
+      clients.returnObject(client);
+    }
+  }
+
+  /**
+   * Is there a record in the cache that no object with a primary key exists
+   * in the database?
+   * 
+   * @param key the primary key
+   * @return true if the cache has an unexpired record for the key
+   */
+  public boolean isAbsent(IPrimaryKey key) {
+    MemcachedClient client = clients.getObject();
+    try {
+      return client.get(getAbsentKey(key), transcoder) != null;
+    } finally {
+      clients.returnObject(client);
+    }
+  }
+
+  /**
+   * Remove the record that no object exists for a primary key, such as the
+   * key of a newly inserted object, if the cache for the key records absent
+   * keys.
+   * 
+   * @param subsystem the subsystem of the object
+   * @param key the primary key
+   * @see CacheSettings#getAbsentTtl(String, String)
+   */
+  public void removeAbsent(String subsystem, IPrimaryKey key) {
+    List<IPrimaryKey> keys = new ArrayList<IPrimaryKey>(1);
+    keys.add(key);
+    removeAbsent(subsystem, keys);
+  }
+
+  /**
+   * Remove the records that no objects exist for a collection of primary
+   * keys, such as the keys of newly inserted objects. The method skips the
+   * keys of caches that don't record absent keys, so it costs nothing unless
+   * the subsystem configures negative caching.
+   * 
+   * @param subsystem the subsystem of the objects
+   * @param keys the primary keys
+   * @see CacheSettings#getAbsentTtl(String, String)
+   */
+  public void removeAbsent(String subsystem, Collection<IPrimaryKey> keys) {
+    List<IPrimaryKey> recorded = new ArrayList<IPrimaryKey>();
+    if (keys != null) {
+      for (IPrimaryKey key : keys) {
+        if (CacheSettings.getAbsentTtl(subsystem, key.getCacheName()) > 0) {
+          recorded.add(key);
+        }
+      }
+    }
+    if (recorded.isEmpty()) {
+      return;
+    }
+    MemcachedClient client = clients.getObject();
+    try {
+      for (IPrimaryKey key : recorded) {
+        writer.delete(client, getAbsentKey(key));
+      }
+    } catch (IllegalStateException e) {
+      // log and ignore
+      String[] args = new String[1];
+      args[0] = recorded.get(0).getStringKey();
+      logger.warn(Message.getMessage(QUEUE_FULL_ERROR, args));
+    } finally {
+      clients.returnObject(client);
+    }
+  }
+
+  /**
+   * Get the memcached key for the absent record of a primary key.
+   * 
+   * @param key the primary key
+   * @return the memcached key
+   */
+  private static String getAbsentKey(IPrimaryKey key) {
+    return ABSENT_PREFIX + key.getStringKey();
+  }
+
   /**
    * Log the memcached meta data.
    */
   public void logMetaData() {
+    logger.info(writer.getStatistics());
+    Map<String, String> compression = transcoder.getStatistics();
+    for (String cacheName : compression.keySet()) {
+      logger.info("compression " + cacheName + ": "
+                  + compression.get(cacheName));
+    }
     MemcachedClient client = clients.getObject();
     Map<SocketAddress, Map<String, String>> stats;
     try {
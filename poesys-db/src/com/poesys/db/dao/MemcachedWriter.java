@@ -0,0 +1,328 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao;
+
+
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.spy.memcached.MemcachedClient;
+import net.spy.memcached.internal.OperationCompletionListener;
+import net.spy.memcached.internal.OperationFuture;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.transcoders.Transcoder;
+
+import org.apache.log4j.Logger;
+
+import com.poesys.db.DbErrorException;
+import com.poesys.db.Message;
+
+
+/**
+ * <p>
+ * The writer that MemcachedDaoManager and MemcachedService use to send sets
+ * and deletes to memcached. The spymemcached client queues each operation and
+ * returns a future; in asynchronous mode (the default) the writer does not
+ * wait for the future but attaches a listener that logs any failure on the
+ * client's I/O thread, so populating the cache adds no server round trip to
+ * the caller's read path. In synchronous mode the writer waits for each
+ * operation and throws a DbErrorException if it fails.
+ * </p>
+ * <p>
+ * The writer bounds the number of operations in flight with a semaphore so
+ * that a slow or unavailable server does not fill the client's queue. A set
+ * that finds no free permit is dropped, as a missing cache entry just means a
+ * later query goes to the database; a delete waits for a permit, as dropping
+ * it would leave a stale object in the cache.
+ * </p>
+ * <p>
+ * The memcached properties async_writes (true or false) and max_in_flight (a
+ * positive integer) configure the writer; both are optional.
+ * </p>
+ * 
+ * @author Robert J. Muller
+ */
+final class MemcachedWriter {
+  /** Logger for debugging */
+  private static final Logger logger = Logger.getLogger(MemcachedWriter.class);
+
+  /** Memcached configuration property for asynchronous writes */
+  static final String PROP_ASYNC = "async_writes";
+  /** Memcached configuration property for the maximum operations in flight */
+  static final String PROP_MAX_IN_FLIGHT = "max_in_flight";
+  /** Default maximum number of operations in flight */
+  static final int DEFAULT_MAX_IN_FLIGHT = 1000;
+
+  /** Error message when a memcached write fails */
+  private static final String WRITE_FAILED =
+    "com.poesys.db.dao.query.msg.memcached_write_failed";
+  /** Warning message when the writer drops a set */
+  private static final String WRITE_DROPPED =
+    "com.poesys.db.dao.query.msg.memcached_write_dropped";
+  /** Error message for an invalid max_in_flight property */
+  private static final String INVALID_MAX =
+    "com.poesys.db.dao.query.msg.memcached_invalid_max_in_flight";
+
+  /** Set operation name for messages */
+  private static final String SET = "set";
+  /** Delete operation name for messages */
+  private static final String DELETE = "delete";
+
+  /** Whether to write without waiting for the server */
+  private final boolean async;
+  /** The maximum number of operations in flight */
+  private final int maxInFlight;
+  /** The permits for operations in flight */
+  private final Semaphore permits;
+  /** The number of failed operations */
+  private final AtomicLong failures = new AtomicLong();
+  /** The number of sets dropped for lack of a permit */
+  private final AtomicLong dropped = new AtomicLong();
+
+  /**
+   * Create a MemcachedWriter object.
+   * 
+   * @param async true to write without waiting for the server, false to wait
+   *          for each operation
+   * @param maxInFlight the maximum number of operations in flight, greater
+   *          than 0
+   */
+  MemcachedWriter(boolean async, int maxInFlight) {
+    if (maxInFlight <= 0) {
+      Object[] args = { maxInFlight };
+      throw new IllegalArgumentException(Message.getMessage(INVALID_MAX, args));
+    }
+    this.async = async;
+    this.maxInFlight = maxInFlight;
+    this.permits = new Semaphore(maxInFlight);
+  }
+
+  /**
+   * Create a MemcachedWriter configured by the memcached properties.
+   * 
+   * @param properties the memcached properties
+   * @return the writer
+   */
+  static MemcachedWriter create(ResourceBundle properties) {
+    boolean async = true;
+    int max = DEFAULT_MAX_IN_FLIGHT;
+    try {
+      async = Boolean.parseBoolean(properties.getString(PROP_ASYNC).trim());
+    } catch (MissingResourceException e) {
+      // Use the default.
+    }
+    try {
+      max = Integer.parseInt(properties.getString(PROP_MAX_IN_FLIGHT).trim());
+    } catch (MissingResourceException e) {
+      // Use the default.
+    } catch (NumberFormatException e) {
+      Object[] args = { properties.getString(PROP_MAX_IN_FLIGHT) };
+      throw new IllegalArgumentException(Message.getMessage(INVALID_MAX, args),
+                                         e);
+    }
+    return new MemcachedWriter(async, max);
+  }
+
+  /**
+   * Set an object into memcached. The client serializes the object on the
+   * calling thread, so later changes to the object do not affect the cached
+   * version.
+   * 
+   * @param client the memcached client
+   * @param key the string key of the object
+   * @param expireTime the expiration time
+   * @param object the object to cache
+   * @param transcoder the transcoder that serializes the object
+   * @param <V> the type of the object
+   */
+  <V> void set(MemcachedClient client, String key, int expireTime, V object,
+               Transcoder<V> transcoder) {
+    if (!acquire(false)) {
+      Object[] args = { maxInFlight, key };
+      logger.warn(Message.getMessage(WRITE_DROPPED, args));
+      return;
+    }
+    OperationFuture<Boolean> future = null;
+    try {
+      future = client.set(key, expireTime, object, transcoder);
+    } finally {
+      if (future == null) {
+        permits.release();
+      }
+    }
+    complete(future, SET, key);
+  }
+
+  /**
+   * Delete an object from memcached, waiting for a permit if too many
+   * operations are in flight.
+   * 
+   * @param client the memcached client
+   * @param key the string key of the object
+   */
+  void delete(MemcachedClient client, String key) {
+    acquire(true);
+    OperationFuture<Boolean> future = null;
+    try {
+      future = client.delete(key);
+    } finally {
+      if (future == null) {
+        permits.release();
+      }
+    }
+    complete(future, DELETE, key);
+  }
+
+  /**
+   * Acquire a permit for an operation, counting a failure to get one as a
+   * dropped operation.
+   * 
+   * @param wait true to wait for a permit, false to return immediately
+   * @return true if the writer acquired a permit, false if not
+   */
+  boolean acquire(boolean wait) {
+    boolean acquired = true;
+    if (wait) {
+      permits.acquireUninterruptibly();
+    } else if (!permits.tryAcquire()) {
+      dropped.incrementAndGet();
+      acquired = false;
+    }
+    return acquired;
+  }
+
+  /**
+   * Complete an operation for which the caller holds a permit, either by attaching a listener that releases the
+   * permit and logs a failure or, in synchronous mode, by waiting for the
+   * operation.
+   * 
+   * @param future the future for the operation
+   * @param operation the operation name
+   * @param key the string key of the object
+   */
+  void complete(OperationFuture<Boolean> future, final String operation,
+                final String key) {
+    if (async) {
+      future.addListener(new OperationCompletionListener() {
+        @Override
+        public void onComplete(OperationFuture<?> f) throws Exception {
+          try {
+            String error = getError(f, operation);
+            if (error != null) {
+              failures.incrementAndGet();
+              Object[] args = { operation, key, error };
+              logger.warn(Message.getMessage(WRITE_FAILED, args));
+            }
+          } finally {
+            permits.release();
+          }
+        }
+      });
+    } else {
+      String error = null;
+      try {
+        error = getError(future, operation);
+      } finally {
+        permits.release();
+      }
+      if (error != null) {
+        failures.incrementAndGet();
+        Object[] args = { operation, key, error };
+        String message = Message.getMessage(WRITE_FAILED, args);
+        logger.error(message);
+        throw new DbErrorException(message);
+      }
+    }
+  }
+
+  /**
+   * Get the error for a completed operation, if any. A delete of a key that
+   * is not in the cache is not an error.
+   * 
+   * @param future the future for the operation
+   * @param operation the operation name
+   * @return the error message, or null if the operation succeeded
+   */
+  private static String getError(OperationFuture<?> future, String operation) {
+    String error = null;
+    try {
+      // Waits for the operation if it is not complete.
+      OperationStatus status = future.getStatus();
+      if (status == null) {
+        error = "no status";
+      } else if (!status.isSuccess() && !DELETE.equals(operation)) {
+        error = status.getMessage();
+      }
+    } catch (RuntimeException e) {
+      // timeout or cancellation
+      error = e.toString();
+    }
+    return error;
+  }
+
+  /**
+   * Is the writer asynchronous?
+   * 
+   * @return true if the writer does not wait for the server
+   */
+  boolean isAsync() {
+    return async;
+  }
+
+  /**
+   * Get the number of operations currently in flight.
+   * 
+   * @return the number of operations
+   */
+  int getInFlight() {
+    return maxInFlight - permits.availablePermits();
+  }
+
+  /**
+   * Get the number of operations that have failed.
+   * 
+   * @return the number of failures
+   */
+  long getFailureCount() {
+    return failures.get();
+  }
+
+  /**
+   * Get the number of sets dropped because too many operations were in
+   * flight.
+   * 
+   * @return the number of dropped sets
+   */
+  long getDroppedCount() {
+    return dropped.get();
+  }
+
+  /**
+   * Get a summary of the writer statistics for logging.
+   * 
+   * @return the statistics
+   */
+  String getStatistics() {
+    return "memcached writer: " + (async ? "asynchronous" : "synchronous")
+           + ", " + getInFlight() + " of " + maxInFlight
+           + " operations in flight, " + getFailureCount() + " failed, "
+           + getDroppedCount() + " dropped";
+  }
+}
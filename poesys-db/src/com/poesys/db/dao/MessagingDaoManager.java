@@ -61,12 +61,16 @@ public final class MessagingDaoManager extends CacheDaoManager implements
    */
   public static IDaoManager getInstance() {
     if (manager == null) {
-      manager = new MessagingDaoManager(subsystem);
-      map = new ConcurrentHashMap<String, IDtoCache<IDbDto>>();
-      // Start the cache listener for the delete topic, registering the
-      // manager with the listener for later cache access.
-      CacheListenerExecutor exec = new CacheListenerExecutor();
-      exec.execute(new CacheMessageListener(subsystem));
+      synchronized (CacheDaoManager.class) {
+        if (manager == null) {
+          map = new ConcurrentHashMap<String, IDtoCache<IDbDto>>();
+          manager = new MessagingDaoManager(subsystem);
+          // Start the cache listener for the delete topic, registering the
+          // manager with the listener for later cache access.
+          CacheListenerExecutor exec = new CacheListenerExecutor();
+          exec.execute(new CacheMessageListener(subsystem));
+        }
+      }
     }
     return manager;
   }
@@ -0,0 +1,385 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao;
+
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+import org.apache.log4j.Logger;
+
+import com.poesys.db.dto.BoundedDtoCache;
+import com.poesys.db.dto.IDbDto;
+import com.poesys.db.dto.IDtoCache;
+import com.poesys.db.pk.IPrimaryKey;
+
+
+/**
+ * <p>
+ * A two-level DAO manager that puts a small, short-lived in-memory cache (the
+ * near cache) in front of memcached (the far cache). A get looks in the near
+ * cache first and goes to memcached only on a miss, caching what it finds in
+ * the near cache; a hot object thus costs a network round trip and a
+ * deserialization only once per near-cache lifetime rather than on every get.
+ * Puts go to both caches, and removes remove the object from both caches.
+ * </p>
+ * <p>
+ * Each near cache is a BoundedDtoCache with a maximum number of entries and
+ * an expire-after-write time from CacheSettings (by default 1000 objects for 5
+ * seconds), so a near cache holds an object that another JVM changed for at
+ * most that time. To close that window, turn on the invalidation broadcast:
+ * each remove then also publishes a message on the Poesys/DB delete topic,
+ * and a CacheMessageListener in each JVM removes the object from the local
+ * near cache. The near cache returns the same object to all threads, as
+ * CacheDaoManager does, so it suits reference data that the application reads
+ * far more often than it changes.
+ * </p>
+ * <p>
+ * The manager uses DaoMemcachedFactory, and the memcached DAOs get the manager
+ * for the subsystem from DaoManagerFactory, so registering this manager with
+ * DaoManagerFactory.initNearCacheManager() puts the near cache in front of all
+ * the memcached DAOs of the subsystem.
+ * </p>
+ * 
+ * @see CacheSettings
+ * @see CacheMessagePublisher
+ * 
+ * @author Robert J. Muller
+ */
+public final class NearCacheDaoManager implements IDaoManager {
+  /** Logger for debugging */
+  private static final Logger logger =
+    Logger.getLogger(NearCacheDaoManager.class);
+
+  /** The managers by subsystem */
+  private static final ConcurrentMap<String, NearCacheDaoManager> managers =
+    new ConcurrentHashMap<String, NearCacheDaoManager>();
+
+  /** The subsystem whose settings the near caches use */
+  private final String subsystem;
+  /** The far cache manager */
+  private final IDaoManager far;
+  /** Whether to broadcast removes to the near caches of other JVMs */
+  private final boolean broadcast;
+  /** The near caches by cache name */
+  private final ConcurrentMap<String, IDtoCache<IDbDto>> near =
+    new ConcurrentHashMap<String, IDtoCache<IDbDto>>();
+  /** Whether the removal listener is running, guarded by this */
+  private boolean listening = false;
+
+  /**
+   * Create a NearCacheDaoManager object.
+   * 
+   * @param subsystem the subsystem whose settings the near caches use
+   * @param far the far cache manager
+   * @param broadcast whether to broadcast removes to other JVMs
+   */
+  NearCacheDaoManager(String subsystem, IDaoManager far, boolean broadcast) {
+    this.subsystem = subsystem;
+    this.far = far;
+    this.broadcast = broadcast;
+  }
+
+  /**
+   * Get the near-cache manager for a subsystem, creating it in front of the
+   * memcached manager if it doesn't exist. If the broadcast is on, creating
+   * the manager also starts the listener that removes objects from the near
+   * caches on request from other JVMs.
+   * 
+   * @param subsystem the subsystem of the DTO classes
+   * @param broadcast whether to broadcast removes to other JVMs; applies only
+   *          when the call creates the manager
+   * @return the DAO manager
+   */
+  public static IDaoManager getInstance(final String subsystem,
+                                        final boolean broadcast) {
+    NearCacheDaoManager manager = managers.get(subsystem);
+    if (manager == null) {
+      manager =
+        managers.computeIfAbsent(subsystem,
+                                 new Function<String, NearCacheDaoManager>() {
+                                   @Override
+                                   public NearCacheDaoManager apply(String key) {
+                                     return new NearCacheDaoManager(key,
+                                                                    MemcachedDaoManager.getInstance(),
+                                                                    broadcast);
+                                   }
+                                 });
+      manager.startListener();
+    }
+    return manager;
+  }
+
+  /**
+   * Start the listener for removal requests from other JVMs if the broadcast
+   * is on and the listener is not already running.
+   */
+  private synchronized void startListener() {
+    if (broadcast && !listening) {
+      listening = true;
+      CacheListenerExecutor exec = new CacheListenerExecutor();
+      exec.execute(new CacheMessageListener(subsystem, this));
+    }
+  }
+
+  @Override
+  public <T extends IDbDto, C extends Collection<T>> IDaoFactory<T> getFactory(String name,
+                                                                               String subsystem,
+                                                                               Integer expiration) {
+    return new DaoMemcachedFactory<T>(name, subsystem, expiration);
+  }
+
+  @Override
+  public boolean isCached(String name) {
+    // As with memcached, every class is cached.
+    return true;
+  }
+
+  @Override
+  public void clearCache(String name) {
+    // Memcached does not support cache clearing, so clear only the near cache.
+    IDtoCache<IDbDto> cache = near.get(name);
+    if (cache != null) {
+      cache.clear();
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public <T extends IDbDto> IDtoCache<T> createCache(final String name) {
+    IDtoCache<IDbDto> cache = null;
+    if (name != null) {
+      cache = near.get(name);
+      if (cache == null) {
+        cache =
+          near.computeIfAbsent(name,
+                               new Function<String, IDtoCache<IDbDto>>() {
+                                 @Override
+                                 public IDtoCache<IDbDto> apply(String key) {
+                                   int max =
+                                     CacheSettings.getNearMaxEntries(subsystem,
+                                                                     key);
+                                   int ttl =
+                                     CacheSettings.getNearTtl(subsystem, key);
+                                   logger.debug("Created near cache " + key
+                                                + " with maximum size " + max
+                                                + " and time to live " + ttl
+                                                + "ms");
+                                   return new BoundedDtoCache<IDbDto>(key,
+                                                                      max,
+                                                                      ttl,
+                                                                      0);
+                                 }
+                               });
+      }
+    }
+    return (IDtoCache<T>)cache;
+  }
+
+  @Override
+  public <T extends IDbDto> IDtoCache<? extends IDbDto> getCache(String name) {
+    return near.get(name);
+  }
+
+  @Override
+  public <T extends IDbDto> T getCachedObject(IPrimaryKey key, String subsystem) {
+    return getCachedObject(key, 0, subsystem);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public <T extends IDbDto> T getCachedObject(IPrimaryKey key, int expireTime,
+                                              String subsystem) {
+    T object = null;
+    if (key != null && key.getCacheName() != null) {
+      IDtoCache<IDbDto> cache = createCache(key.getCacheName());
+      object = (T)cache.get(key);
+      if (object != null) {
+        logger.debug("Found object " + key.getStringKey() + " in near cache");
+        // Track the object as the memcached get does, so that the caller
+        // doesn't query its nested objects again.
+        if (Thread.currentThread() instanceof PoesysTrackingThread) {
+          PoesysTrackingThread thread =
+            (PoesysTrackingThread)Thread.currentThread();
+          thread.addDto(object);
+          thread.setProcessed(object, true);
+        }
+      } else {
+        object =
+          expireTime > 0 ? far.<T> getCachedObject(key, expireTime, subsystem)
+              : far.<T> getCachedObject(key, subsystem);
+        if (object != null) {
+          cache.cache(object);
+        }
+      }
+    }
+    return object;
+  }
+
+  @Override
+  public <T extends IDbDto> void putObjectInCache(String cacheName,
+                                                  int expireTime, T object) {
+    far.putObjectInCache(cacheName, expireTime, object);
+    if (cacheName != null && object != null
+        && object.getPrimaryKey() != null) {
+      // Replace any older version of the object in the near cache.
+      IDtoCache<IDbDto> cache = createCache(cacheName);
+      cache.removeLocally(object.getPrimaryKey());
+      cache.cache(object);
+    }
+  }
+
+  @Override
+  public void removeObjectFromCache(String cacheName, IPrimaryKey key) {
+    if (cacheName != null && key != null) {
+      IDtoCache<IDbDto> cache = near.get(cacheName);
+      if (cache != null) {
+        cache.removeLocally(key);
+      }
+      far.removeObjectFromCache(cacheName, key);
+      if (broadcast) {
+        CacheMessagePublisher.publishRemove(cacheName, key);
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public <T extends IDbDto> Map<IPrimaryKey, T> getCachedObjects(Collection<IPrimaryKey> keys,
+                                                                 String subsystem) {
+    Map<IPrimaryKey, T> objects = new LinkedHashMap<IPrimaryKey, T>();
+    if (keys == null || keys.isEmpty()) {
+      return objects;
+    }
+    PoesysTrackingThread thread =
+      Thread.currentThread() instanceof PoesysTrackingThread ? (PoesysTrackingThread)Thread.currentThread()
+          : null;
+
+    // Get what the near caches have, then get the rest from the far tier in
+    // one operation.
+    List<IPrimaryKey> misses = new ArrayList<IPrimaryKey>();
+    for (IPrimaryKey key : keys) {
+      if (key != null && key.getCacheName() != null) {
+        T object = (T)createCache(key.getCacheName()).get(key);
+        if (object != null) {
+          if (thread != null) {
+            thread.addDto(object);
+            thread.setProcessed(object, true);
+          }
+          objects.put(key, object);
+        } else {
+          misses.add(key);
+        }
+      }
+    }
+    Map<IPrimaryKey, T> found = null;
+    if (!misses.isEmpty()) {
+      found = far.<T> getCachedObjects(misses, subsystem);
+      for (T object : found.values()) {
+        createCache(object.getPrimaryKey().getCacheName()).cache(object);
+      }
+    }
+
+    // Return the objects in key order.
+    Map<IPrimaryKey, T> ordered = objects;
+    if (found != null && !found.isEmpty()) {
+      ordered = new LinkedHashMap<IPrimaryKey, T>();
+      for (IPrimaryKey key : keys) {
+        T object = objects.get(key);
+        if (object == null) {
+          object = found.get(key);
+        }
+        if (object != null) {
+          ordered.put(key, object);
+        }
+      }
+    }
+    return ordered;
+  }
+
+  @Override
+  public <T extends IDbDto> void putObjectsInCache(int expireTime,
+                                                   Collection<T> objects) {
+    if (objects == null || objects.isEmpty()) {
+      return;
+    }
+    far.putObjectsInCache(expireTime, objects);
+    for (T object : objects) {
+      if (object != null && object.getPrimaryKey() != null
+          && object.getPrimaryKey().getCacheName() != null) {
+        // Replace any older version of the object in the near cache.
+        IDtoCache<IDbDto> cache =
+          createCache(object.getPrimaryKey().getCacheName());
+        cache.removeLocally(object.getPrimaryKey());
+        cache.cache(object);
+      }
+    }
+  }
+
+  @Override
+  public void removeObjectsFromCache(Collection<IPrimaryKey> keys) {
+    if (keys == null || keys.isEmpty()) {
+      return;
+    }
+    for (IPrimaryKey key : keys) {
+      if (key != null && key.getCacheName() != null) {
+        IDtoCache<IDbDto> cache = near.get(key.getCacheName());
+        if (cache != null) {
+          cache.removeLocally(key);
+        }
+      }
+    }
+    far.removeObjectsFromCache(keys);
+    if (broadcast) {
+      for (IPrimaryKey key : keys) {
+        if (key != null && key.getCacheName() != null) {
+          CacheMessagePublisher.publishRemove(key.getCacheName(), key);
+        }
+      }
+    }
+  }
+
+  @Override
+  public void clearTemporaryCaches() {
+    far.clearTemporaryCaches();
+  }
+
+  @Override
+  public void clearAllCaches() {
+    for (IDtoCache<IDbDto> cache : near.values()) {
+      cache.clear();
+    }
+    far.clearAllCaches();
+  }
+
+  @Override
+  public void logMetaData() {
+    logger.debug("Logging near caches with " + near.size() + " caches:");
+    for (IDtoCache<IDbDto> cache : near.values()) {
+      logger.debug("Near cache: "
+                   + ((BoundedDtoCache<IDbDto>)cache).getStatistics());
+    }
+    far.logMetaData();
+  }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * <p>
+ * The outcome of a ParallelBatchWriter write, partition by partition: whether
+ * each partition committed, rolled back, or had not finished when the writer
+ * stopped waiting, with the exception that caused any rollback, the primary
+ * keys of the DTOs that failed within a batch, and the elapsed time. The
+ * report collects the batch errors from the tracking threads of all the
+ * partitions, taking the place of PoesysTrackingThread.getBatchErrors() for a
+ * parallel write.
+ * </p>
+ * <p>
+ * The report is final once the write returns. A partition that had not
+ * finished by then keeps the TIMED_OUT outcome and rolls back rather than
+ * committing, even if it finishes writing later.
+ * </p>
+ * 
+ * @see ParallelBatchWriter
+ * 
+ * @author Robert J. Muller
+ */
+public class ParallelBatchReport {
+  /** The outcome of a partition */
+  public enum Outcome {
+    /** the partition has not finished */
+    PENDING,
+    /** the partition committed */
+    COMMITTED,
+    /** the partition rolled back */
+    ROLLED_BACK,
+    /** the partition had not finished when the writer stopped waiting */
+    TIMED_OUT
+  }
+
+  /** the outcome of each partition */
+  private final Outcome[] outcomes;
+  /** the number of DTOs in each partition */
+  private final int[] sizes;
+  /** the exception that caused each partition to roll back */
+  private final Throwable[] throwables;
+  /** the keys of the DTOs that failed in each partition */
+  private final List<List<String>> batchErrors;
+  /** the elapsed time of each partition in milliseconds */
+  private final long[] millis;
+  /** whether each partition has started to commit */
+  private final boolean[] committing;
+
+  /**
+   * Create a ParallelBatchReport object.
+   * 
+   * @param partitions the number of partitions
+   */
+  ParallelBatchReport(int partitions) {
+    outcomes = new Outcome[partitions];
+    sizes = new int[partitions];
+    throwables = new Throwable[partitions];
+    millis = new long[partitions];
+    committing = new boolean[partitions];
+    batchErrors = new ArrayList<List<String>>(partitions);
+    for (int i = 0; i < partitions; i++) {
+      outcomes[i] = Outcome.PENDING;
+      batchErrors.add(Collections.<String> emptyList());
+    }
+  }
+
+  /**
+   * Claim the right to commit a partition, which a partition must do before it
+   * commits. The claim fails if the partition has timed out, in which case the
+   * partition must roll back instead.
+   * 
+   * @param partition the partition number
+   * @return true if the partition may commit, false if it timed out
+   */
+  synchronized boolean startCommit(int partition) {
+    if (outcomes[partition] == Outcome.PENDING) {
+      committing[partition] = true;
+    }
+    return committing[partition];
+  }
+
+  /**
+   * Record the outcome of a finished partition. The method ignores the
+   * outcome of a partition that has already timed out, as the writer has
+   * returned the report.
+   * 
+   * @param partition the partition number
+   * @param size the number of DTOs in the partition
+   * @param committed whether the partition committed
+   * @param throwable the exception that caused a rollback, or null
+   * @param errors the keys of the DTOs that failed within a batch
+   * @param elapsed the elapsed time in milliseconds
+   */
+  synchronized void setOutcome(int partition, int size, boolean committed,
+                               Throwable throwable, List<String> errors,
+                               long elapsed) {
+    if (outcomes[partition] == Outcome.TIMED_OUT) {
+      return;
+    }
+    outcomes[partition] = committed ? Outcome.COMMITTED : Outcome.ROLLED_BACK;
+    sizes[partition] = size;
+    throwables[partition] = throwable;
+    batchErrors.set(partition, new ArrayList<String>(errors));
+    millis[partition] = elapsed;
+  }
+
+  /**
+   * Record that a partition had not finished when the writer stopped waiting.
+   * A partition that has started to commit does not time out, as it can no
+   * longer roll back; the writer must wait for its outcome.
+   * 
+   * @param partition the partition number
+   * @param throwable the timeout exception
+   * @return true if the partition timed out, false if it has finished or
+   *         started to commit
+   */
+  synchronized boolean setTimedOut(int partition, Throwable throwable) {
+    boolean timedOut = false;
+    if (outcomes[partition] == Outcome.PENDING && !committing[partition]) {
+      outcomes[partition] = Outcome.TIMED_OUT;
+      throwables[partition] = throwable;
+      timedOut = true;
+    }
+    return timedOut;
+  }
+
+  /**
+   * Get the number of partitions.
+   * 
+   * @return the number of partitions
+   */
+  public int getPartitionCount() {
+    return outcomes.length;
+  }
+
+  /**
+   * Get the outcome of a partition.
+   * 
+   * @param partition the partition number
+   * @return the outcome
+   */
+  public synchronized Outcome getOutcome(int partition) {
+    return outcomes[partition];
+  }
+
+  /**
+   * Did a partition commit?
+   * 
+   * @param partition the partition number
+   * @return true if the partition committed
+   */
+  public synchronized boolean isCommitted(int partition) {
+    return outcomes[partition] == Outcome.COMMITTED;
+  }
+
+  /**
+   * Did all the partitions commit?
+   * 
+   * @return true if all the partitions committed
+   */
+  public synchronized boolean isAllCommitted() {
+    return getCommittedCount() == outcomes.length;
+  }
+
+  /**
+   * Get the number of partitions that committed.
+   * 
+   * @return the number of committed partitions
+   */
+  public synchronized int getCommittedCount() {
+    int count = 0;
+    for (Outcome outcome : outcomes) {
+      if (outcome == Outcome.COMMITTED) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Get the number of DTOs in a finished partition.
+   * 
+   * @param partition the partition number
+   * @return the number of DTOs
+   */
+  public synchronized int getSize(int partition) {
+    return sizes[partition];
+  }
+
+  /**
+   * Get the exception that caused a partition to roll back or time out.
+   * 
+   * @param partition the partition number
+   * @return the exception, or null if there was none
+   */
+  public synchronized Throwable getThrowable(int partition) {
+    return throwables[partition];
+  }
+
+  /**
+   * Get the elapsed time of a finished partition.
+   * 
+   * @param partition the partition number
+   * @return the elapsed time in milliseconds
+   */
+  public synchronized long getMillis(int partition) {
+    return millis[partition];
+  }
+
+  /**
+   * Get the primary key strings of the DTOs in a partition that had batch
+   * processing errors.
+   * 
+   * @param partition the partition number
+   * @return a list of DTO primary key strings, possibly empty
+   */
+  public synchronized List<String> getBatchErrors(int partition) {
+    return new ArrayList<String>(batchErrors.get(partition));
+  }
+
+  /**
+   * Get the primary key strings of the DTOs in all partitions that had batch
+   * processing errors.
+   * 
+   * @return a list of DTO primary key strings, possibly empty
+   */
+  public synchronized List<String> getBatchErrors() {
+    List<String> errors = new ArrayList<String>();
+    for (List<String> partitionErrors : batchErrors) {
+      errors.addAll(partitionErrors);
+    }
+    return errors;
+  }
+}
@@ -0,0 +1,389 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao;
+
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.log4j.Logger;
+
+import com.poesys.db.DbErrorException;
+import com.poesys.db.InvalidParametersException;
+import com.poesys.db.Message;
+import com.poesys.db.dao.delete.IDeleteBatch;
+import com.poesys.db.dao.insert.IInsertBatch;
+import com.poesys.db.dao.update.IUpdateBatch;
+import com.poesys.db.dto.IDbDto;
+
+
+/**
+ * <p>
+ * A writer that splits a large collection of DTOs into partitions and writes
+ * the partitions at the same time on separate pooled connections, one
+ * PoesysTrackingThread per partition. Each partition runs the insert, update,
+ * and delete batch DAOs in that order inside its tracking thread, so the DAOs
+ * use the partition's connection and transaction; each DAO writes only the
+ * DTOs with the status it handles.
+ * </p>
+ * <p>
+ * The writer has two transaction modes. In independent mode, each partition
+ * commits when it finishes and rolls back only when it throws an exception;
+ * rows that fail within a batch are reported but do not stop the commit, as
+ * with the single-connection batch DAOs. In group mode, each partition writes
+ * its rows and then waits for the other partitions; if every partition wrote
+ * its rows with no exception and no batch errors, all the partitions commit,
+ * otherwise all of them roll back. This is a best-effort group, not an XA
+ * transaction: if a commit fails after the vote, the partitions that already
+ * committed stay committed. The ParallelBatchReport tells you which partitions
+ * committed.
+ * </p>
+ * <p>
+ * When a partition rolls back, the writer undoes the status change of each DTO
+ * in the partition that the write changed, so you can retry the DTOs with
+ * another write.
+ * </p>
+ * <p>
+ * If a partition has not finished when the timeout expires, the writer
+ * interrupts its thread and reports it as timed out. The partition then rolls
+ * back when it finishes rather than committing, so the report returned by
+ * write() stays accurate. A partition that has already started to commit
+ * cannot roll back, so the writer waits for the commit to finish. The
+ * statuses of the DTOs in a timed-out partition may change until its thread
+ * ends.
+ * </p>
+ * <p>
+ * The partitions must be independent: a DTO should not share nested objects
+ * that need writing with a DTO in another partition, as the tracking threads
+ * do not see each other's work.
+ * </p>
+ * 
+ * @see ParallelBatchReport
+ * 
+ * @author Robert J. Muller
+ * @param <T> the type of IDbDto to write
+ */
+public class ParallelBatchWriter<T extends IDbDto> {
+  /** Logger for this class */
+  private static final Logger logger =
+    Logger.getLogger(ParallelBatchWriter.class);
+
+  /** the batch DAO that inserts NEW DTOs, or null */
+  private final IInsertBatch<T> inserter;
+  /** the batch DAO that updates CHANGED DTOs, or null */
+  private final IUpdateBatch<T> updater;
+  /** the batch DAO that deletes DELETED DTOs, or null */
+  private final IDeleteBatch<T> deleter;
+  /** the subsystem of class T */
+  private final String subsystem;
+  /** the maximum number of partitions and connections */
+  private final int connections;
+  /** whether the partitions commit or roll back as a group */
+  private final boolean group;
+  /** the maximum time in milliseconds to wait for the write */
+  private final long timeout;
+
+  /** Error message when the writer settings are not valid */
+  private static final String PARAMETERS_ERROR =
+    "com.poesys.db.dao.msg.parallel_parameters";
+  /** Error message when a partition does not finish in time */
+  private static final String TIMEOUT_ERROR =
+    "com.poesys.db.dao.msg.parallel_timeout";
+  /** Error message when a partition rolls back because of the group */
+  private static final String GROUP_ERROR =
+    "com.poesys.db.dao.msg.parallel_group_rollback";
+  /** Error message when a partition commit fails */
+  private static final String COMMIT_ERROR =
+    "com.poesys.db.dao.msg.parallel_commit";
+
+  /**
+   * Create a ParallelBatchWriter object.
+   * 
+   * @param inserter the batch DAO that inserts NEW DTOs; null to skip inserts
+   * @param updater the batch DAO that updates CHANGED DTOs; null to skip
+   *          updates
+   * @param deleter the batch DAO that deletes DELETED DTOs; null to skip
+   *          deletes
+   * @param subsystem the subsystem of class T
+   * @param connections the maximum number of partitions, each of which uses
+   *          one connection from the subsystem pool
+   * @param group true to commit or roll back all the partitions as a group,
+   *          false to commit each partition independently
+   * @param timeout the maximum time in milliseconds to wait for the write
+   */
+  public ParallelBatchWriter(IInsertBatch<T> inserter,
+                             IUpdateBatch<T> updater,
+                             IDeleteBatch<T> deleter,
+                             String subsystem,
+                             int connections,
+                             boolean group,
+                             long timeout) {
+    if ((inserter == null && updater == null && deleter == null)
+        || subsystem == null || connections < 1 || timeout < 1) {
+      throw new InvalidParametersException(Message.getMessage(PARAMETERS_ERROR,
+                                                              null));
+    }
+    this.inserter = inserter;
+    this.updater = updater;
+    this.deleter = deleter;
+    this.subsystem = subsystem;
+    this.connections = connections;
+    this.group = group;
+    this.timeout = timeout;
+  }
+
+  /**
+   * Write a collection of DTOs in parallel partitions, blocking until all the
+   * partitions finish or the timeout expires.
+   * 
+   * @param dtos the DTOs to write
+   * @param size the batch size for the DAOs within each partition
+   * @return the report of the partition outcomes
+   */
+  public ParallelBatchReport write(Collection<T> dtos, int size) {
+    List<List<T>> partitions = partition(dtos, connections);
+    ParallelBatchReport report = new ParallelBatchReport(partitions.size());
+    if (partitions.isEmpty()) {
+      return report;
+    }
+
+    CountDownLatch written = new CountDownLatch(partitions.size());
+    AtomicBoolean failed = new AtomicBoolean(false);
+    long deadline = System.currentTimeMillis() + timeout;
+    List<PoesysTrackingThread> threads =
+      new ArrayList<PoesysTrackingThread>(partitions.size());
+    for (int i = 0; i < partitions.size(); i++) {
+      Runnable process =
+        new PartitionWriter(i, partitions.get(i), size, report, written,
+                            failed, deadline);
+      threads.add(new PoesysTrackingThread(process, subsystem + " partition "
+                                                    + i, subsystem));
+    }
+    for (PoesysTrackingThread thread : threads) {
+      thread.start();
+    }
+
+    // Join the threads, blocking until they complete or the time runs out.
+    for (int i = 0; i < threads.size(); i++) {
+      PoesysTrackingThread thread = threads.get(i);
+      try {
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining > 0) {
+          thread.join(remaining);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      if (thread.isAlive()) {
+        Object[] args = { i, timeout };
+        String message = Message.getMessage(TIMEOUT_ERROR, args);
+        if (report.setTimedOut(i, new DbErrorException(message))) {
+          logger.error(message);
+          // Stop any wait so the partition rolls back sooner.
+          thread.interrupt();
+        } else {
+          // The partition is committing, so wait for the outcome.
+          try {
+            thread.join();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+      }
+    }
+    return report;
+  }
+
+  /**
+   * Split a collection into at most a specified number of contiguous
+   * partitions of nearly equal size.
+   * 
+   * @param dtos the collection to split
+   * @param count the maximum number of partitions
+   * @param <T> the type of element in the collection
+   * @return the list of non-empty partitions
+   */
+  static <T> List<List<T>> partition(Collection<T> dtos, int count) {
+    List<List<T>> partitions = new ArrayList<List<T>>();
+    if (dtos != null && !dtos.isEmpty()) {
+      int n = Math.min(count, dtos.size());
+      int base = dtos.size() / n;
+      int extra = dtos.size() % n;
+      List<T> current = null;
+      int limit = 0;
+      for (T dto : dtos) {
+        if (current == null || current.size() == limit) {
+          limit = base + (partitions.size() < extra ? 1 : 0);
+          current = new ArrayList<T>(limit);
+          partitions.add(current);
+        }
+        current.add(dto);
+      }
+    }
+    return partitions;
+  }
+
+  /**
+   * The task that writes one partition in its tracking thread and then commits
+   * or rolls back the partition's transaction.
+   */
+  private class PartitionWriter implements Runnable {
+    /** the partition number */
+    private final int index;
+    /** the DTOs in the partition */
+    private final List<T> dtos;
+    /** the batch size */
+    private final int size;
+    /** the report to fill in */
+    private final ParallelBatchReport report;
+    /** the latch that counts the partitions that have finished writing */
+    private final CountDownLatch written;
+    /** whether any partition has failed */
+    private final AtomicBoolean failed;
+    /** the time at which the write times out */
+    private final long deadline;
+
+    /**
+     * Create a PartitionWriter object.
+     * 
+     * @param index the partition number
+     * @param dtos the DTOs in the partition
+     * @param size the batch size
+     * @param report the report to fill in
+     * @param written the latch that counts finished partitions
+     * @param failed the shared failure flag
+     * @param deadline the time at which the write times out
+     */
+    PartitionWriter(int index,
+                    List<T> dtos,
+                    int size,
+                    ParallelBatchReport report,
+                    CountDownLatch written,
+                    AtomicBoolean failed,
+                    long deadline) {
+      this.index = index;
+      this.dtos = dtos;
+      this.size = size;
+      this.report = report;
+      this.written = written;
+      this.failed = failed;
+      this.deadline = deadline;
+    }
+
+    @Override
+    public void run() {
+      PoesysTrackingThread thread =
+        (PoesysTrackingThread)Thread.currentThread();
+      long start = System.currentTimeMillis();
+      List<IDbDto.Status> before = new ArrayList<IDbDto.Status>(dtos.size());
+      for (T dto : dtos) {
+        before.add(dto.getStatus());
+      }
+      Throwable error = null;
+      boolean committed = false;
+      try {
+        try {
+          if (inserter != null) {
+            inserter.insert(dtos, size);
+          }
+          if (updater != null) {
+            updater.update(dtos, size);
+          }
+          if (deleter != null) {
+            deleter.delete(dtos, size);
+          }
+          // Post process here as the client is not in the tracking thread.
+          for (T dto : dtos) {
+            dto.postprocessNestedObjects();
+          }
+        } catch (Throwable e) {
+          error = e;
+        } finally {
+          if (error != null || (group && !thread.getBatchErrors().isEmpty())) {
+            failed.set(true);
+          }
+          written.countDown();
+        }
+
+        if (error == null && group) {
+          // Wait for the other partitions to vote.
+          long remaining = deadline - System.currentTimeMillis();
+          if (remaining <= 0
+              || !written.await(remaining, TimeUnit.MILLISECONDS)) {
+            failed.set(true);
+          }
+          if (failed.get()) {
+            Object[] args = { index };
+            error = new DbErrorException(Message.getMessage(GROUP_ERROR, args));
+          }
+        }
+
+        if (error == null && !report.startCommit(index)) {
+          // The writer has reported a timeout, so don't commit.
+          Object[] args = { index, timeout };
+          error = new DbErrorException(Message.getMessage(TIMEOUT_ERROR, args));
+        }
+        if (error == null) {
+          try {
+            thread.getConnection().commit();
+            committed = true;
+          } catch (SQLException e) {
+            Object[] args = { index };
+            String message = Message.getMessage(COMMIT_ERROR, args);
+            logger.error(message, e);
+            error = new DbErrorException(message, e);
+          }
+        }
+      } catch (InterruptedException e) {
+        error = e;
+      } finally {
+        if (!committed) {
+          thread.rollback();
+          undoStatus(before);
+        }
+        thread.closeConnection();
+        long millis = System.currentTimeMillis() - start;
+        report.setOutcome(index, dtos.size(), committed, error,
+                          thread.getBatchErrors(), millis);
+        logger.info("Parallel batch partition " + index + " of " + subsystem
+                    + (committed ? " committed " : " rolled back ")
+                    + dtos.size() + " DTOs in " + millis + " ms");
+      }
+    }
+
+    /**
+     * Undo the status change of each DTO that the rolled-back write changed.
+     * 
+     * @param before the statuses of the DTOs before the write, in order
+     */
+    private void undoStatus(List<IDbDto.Status> before) {
+      int i = 0;
+      for (T dto : dtos) {
+        if (dto.getStatus() != before.get(i)) {
+          dto.undoStatus();
+        }
+        i++;
+      }
+    }
+  }
+}
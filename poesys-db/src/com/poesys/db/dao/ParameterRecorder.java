@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao;
+
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+
+/**
+ * <p>
+ * A recorder for the parameters that an SQL specification object (IInsertSql,
+ * IUpdateSql, and so on) sets into a PreparedStatement. The recorder supplies a
+ * PreparedStatement that sends nothing to a database but records each setter
+ * call by parameter index. DAOs that build a different statement from an
+ * existing SQL specification, such as a bulk load or an upsert, use the
+ * recorder to get the parameter values or to replay the setter calls against
+ * the real statement at different parameter indexes.
+ * </p>
+ * <p>
+ * The recording statement returns null, false, or 0 from all its methods.
+ * </p>
+ *
+ * @author Robert J. Muller
+ */
+public class ParameterRecorder {
+  /** The recorded setter calls in call order */
+  private final List<Call> calls = new ArrayList<Call>();
+  /** The recording statement */
+  private final PreparedStatement stmt;
+
+  /**
+   * Create a ParameterRecorder object with a new recording statement.
+   */
+  public ParameterRecorder() {
+    InvocationHandler handler = new InvocationHandler() {
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        if (method.getName().startsWith("set") && args != null
+            && args.length >= 2 && args[0] instanceof Integer) {
+          calls.add(new Call(method, args));
+        }
+        return defaultValue(method.getReturnType());
+      }
+    };
+    stmt =
+      (PreparedStatement)Proxy.newProxyInstance(ParameterRecorder.class.getClassLoader(),
+                                                new Class<?>[] { PreparedStatement.class },
+                                                handler);
+  }
+
+  /**
+   * Get the recording statement to pass to the SQL specification.
+   *
+   * @return the recording statement
+   */
+  public PreparedStatement getStatement() {
+    return stmt;
+  }
+
+  /**
+   * Get the recorded values by parameter index. A parameter set with setNull
+   * has a null value. If the specification set a parameter more than once, the
+   * map contains the last value set.
+   *
+   * @return a map of parameter index to value, sorted by index
+   */
+  public Map<Integer, Object> getValues() {
+    Map<Integer, Object> values = new TreeMap<Integer, Object>();
+    for (Call call : calls) {
+      values.put(call.getIndex(), call.method.getName().equals("setNull") ? null
+          : call.args[1]);
+    }
+    return values;
+  }
+
+  /**
+   * Replay the recorded setter calls for a range of parameter indexes against
+   * a real statement, adding an offset to each index.
+   *
+   * @param target the statement on which to call the setters
+   * @param first the first recorded index to replay
+   * @param last the last recorded index to replay
+   * @param offset the number to add to each recorded index
+   * @throws SQLException when a setter fails
+   */
+  public void replay(PreparedStatement target, int first, int last, int offset)
+      throws SQLException {
+    for (Call call : calls) {
+      int index = call.getIndex();
+      if (index >= first && index <= last) {
+        Object[] args = call.args.clone();
+        args[0] = index + offset;
+        try {
+          call.method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+          if (e.getCause() instanceof SQLException) {
+            throw (SQLException)e.getCause();
+          }
+          throw new SQLException(e.getCause());
+        } catch (IllegalAccessException e) {
+          throw new SQLException(e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Get the default value of a return type for the recording statement.
+   *
+   * @param type the return type
+   * @return the default value (null, false, or 0)
+   */
+  private static Object defaultValue(Class<?> type) {
+    Object value = null;
+    if (type == Boolean.TYPE) {
+      value = Boolean.FALSE;
+    } else if (type == Integer.TYPE) {
+      value = Integer.valueOf(0);
+    } else if (type == Long.TYPE) {
+      value = Long.valueOf(0L);
+    }
+    return value;
+  }
+
+  /**
+   * A single recorded setter call
+   */
+  private static class Call {
+    /** the setter method */
+    private final Method method;
+    /** the arguments, starting with the parameter index */
+    private final Object[] args;
+
+    /**
+     * Create a Call object.
+     *
+     * @param method the setter method
+     * @param args the arguments
+     */
+    private Call(Method method, Object[] args) {
+      this.method = method;
+      this.args = args;
+    }
+
+    /**
+     * Get the parameter index of the call.
+     *
+     * @return the index
+     */
+    private int getIndex() {
+      return (Integer)args[0];
+    }
+  }
+}
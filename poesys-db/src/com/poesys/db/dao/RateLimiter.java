@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao;
+
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * A limiter that spaces out work to a maximum number of units (rows, for
+ * example) per second across all the threads that use it. A thread acquires
+ * the units before or after doing the work; if the work of all the threads
+ * has run ahead of the rate, the thread sleeps until the rate catches up. A
+ * thread can acquire more units than the rate allows in one second, and the
+ * next thread then waits for the excess, so work of unknown size can acquire
+ * its units after it finishes.
+ * 
+ * @author Robert J. Muller
+ */
+final class RateLimiter {
+  /** The nanoseconds per unit, 0 for no limit */
+  private final long interval;
+  /** The System.nanoTime() at which the next unit is free */
+  private long next;
+
+  /**
+   * Create a RateLimiter object.
+   * 
+   * @param unitsPerSecond the maximum number of units per second; 0 or less
+   *          for no limit
+   */
+  RateLimiter(int unitsPerSecond) {
+    interval =
+      unitsPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / unitsPerSecond : 0L;
+    next = System.nanoTime();
+  }
+
+  /**
+   * Acquire units, sleeping until the rate allows them.
+   * 
+   * @param units the number of units
+   * @return the nanoseconds the thread slept
+   * @throws InterruptedException when the thread is interrupted while
+   *           sleeping
+   */
+  long acquire(int units) throws InterruptedException {
+    if (interval == 0L || units <= 0) {
+      return 0L;
+    }
+    long wait;
+    synchronized (this) {
+      long now = System.nanoTime();
+      if (next - now < 0L) {
+        next = now;
+      }
+      wait = next - now;
+      next += interval * units;
+    }
+    if (wait > 0L) {
+      TimeUnit.NANOSECONDS.sleep(wait);
+    }
+    return wait;
+  }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao;
+
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+import com.poesys.db.dto.IDbDto;
+
+
+/**
+ * <p>
+ * A JDBC batch that survives failed rows. The batch keeps the parameters of
+ * each row in a ParameterRecorder and sets a savepoint before executing. If
+ * the execution throws a BatchUpdateException, the batch rolls back to the
+ * savepoint, uses the update counts to find the rows that failed, marks those
+ * DTOs FAILED in the tracking thread, and executes the remaining rows again.
+ * Each retry removes at least one row, so a batch with one bad row costs one
+ * retry rather than the loss of the whole batch.
+ * </p>
+ * <p>
+ * When the driver stops at the first failed row, the update counts cover only
+ * the rows before it; the batch treats the next row as the failed one and
+ * retries all the others. When the driver continues past failures, the batch
+ * removes every row marked EXECUTE_FAILED.
+ * </p>
+ * 
+ * @author Robert J. Muller
+ * @param <T> the type of IDbDto in the batch
+ */
+public class SavepointBatch<T extends IDbDto> {
+  /** Logger for this class */
+  private static final Logger logger = Logger.getLogger(SavepointBatch.class);
+
+  /** the statement containing the batch */
+  private final PreparedStatement stmt;
+  /** the connection on which to set savepoints */
+  private final Connection connection;
+  /** the DTOs in the batch, in batch order */
+  private final List<T> dtos = new ArrayList<T>();
+  /** the recorded parameters of each row, in batch order */
+  private final List<ParameterRecorder> params =
+    new ArrayList<ParameterRecorder>();
+
+  /**
+   * Create a SavepointBatch object.
+   * 
+   * @param stmt the statement containing the batch
+   * @param connection the connection of the statement
+   */
+  public SavepointBatch(PreparedStatement stmt, Connection connection) {
+    this.stmt = stmt;
+    this.connection = connection;
+  }
+
+  /**
+   * Add a row to the batch, replaying the recorded parameters into the
+   * statement.
+   * 
+   * @param dto the DTO that the row writes
+   * @param recorder the recorder holding the row's parameters
+   * @throws SQLException when setting a parameter fails
+   */
+  public void add(T dto, ParameterRecorder recorder) throws SQLException {
+    recorder.replay(stmt, 1, Integer.MAX_VALUE, 0);
+    stmt.addBatch();
+    dtos.add(dto);
+    params.add(recorder);
+  }
+
+  /**
+   * Get the number of rows in the batch.
+   * 
+   * @return the number of rows
+   */
+  public int size() {
+    return dtos.size();
+  }
+
+  /**
+   * Execute the batch, retrying without the failed rows until the remaining
+   * rows succeed, then empty the batch. The method marks the failed DTOs in
+   * the current tracking thread.
+   * 
+   * @return the DTOs whose rows succeeded, in batch order
+   * @throws SQLException when a savepoint operation or a non-batch error
+   *           occurs
+   */
+  @SuppressWarnings("unchecked")
+  public List<T> execute() throws SQLException {
+    List<T> pending = new ArrayList<T>(dtos);
+    List<ParameterRecorder> pendingParams =
+      new ArrayList<ParameterRecorder>(params);
+    List<T> failed = new ArrayList<T>();
+    dtos.clear();
+    params.clear();
+
+    while (!pending.isEmpty()) {
+      Savepoint savepoint = connection.setSavepoint();
+      try {
+        stmt.executeBatch();
+        release(savepoint);
+        break;
+      } catch (BatchUpdateException e) {
+        connection.rollback(savepoint);
+        release(savepoint);
+        stmt.clearBatch();
+        boolean[] bad = getFailedRows(e.getUpdateCounts(), pending.size());
+        List<T> retry = new ArrayList<T>();
+        List<ParameterRecorder> retryParams =
+          new ArrayList<ParameterRecorder>();
+        for (int i = 0; i < pending.size(); i++) {
+          if (bad[i]) {
+            failed.add(pending.get(i));
+          } else {
+            retry.add(pending.get(i));
+            retryParams.add(pendingParams.get(i));
+          }
+        }
+        logger.warn("Batch row failure, retrying " + retry.size()
+                    + " rows without " + (pending.size() - retry.size())
+                    + " failed rows: " + e.getMessage());
+        pending = retry;
+        pendingParams = retryParams;
+        for (ParameterRecorder recorder : pendingParams) {
+          recorder.replay(stmt, 1, Integer.MAX_VALUE, 0);
+          stmt.addBatch();
+        }
+      }
+    }
+
+    if (!failed.isEmpty()) {
+      int[] codes = new int[failed.size()];
+      Arrays.fill(codes, PreparedStatement.EXECUTE_FAILED);
+      PoesysTrackingThread thread =
+        (PoesysTrackingThread)Thread.currentThread();
+      thread.processErrors(codes, (Collection<IDbDto>)failed);
+    }
+    return pending;
+  }
+
+  /**
+   * Determine which rows of a batch failed from the update counts of a
+   * BatchUpdateException. If the counts cover fewer rows than the batch, the
+   * row after the last count failed. If they cover all the rows, the rows
+   * marked EXECUTE_FAILED failed; if none are marked, all the rows fail so
+   * that the retry loop ends.
+   * 
+   * @param codes the update counts, possibly null
+   * @param size the number of rows in the batch
+   * @return an array of flags, true for each failed row
+   */
+  static boolean[] getFailedRows(int[] codes, int size) {
+    boolean[] bad = new boolean[size];
+    if (codes == null || codes.length < size) {
+      bad[codes == null ? 0 : codes.length] = true;
+    } else {
+      boolean any = false;
+      for (int i = 0; i < size; i++) {
+        bad[i] = codes[i] == PreparedStatement.EXECUTE_FAILED;
+        any = any || bad[i];
+      }
+      if (!any) {
+        Arrays.fill(bad, true);
+      }
+    }
+    return bad;
+  }
+
+  /**
+   * Release a savepoint, ignoring drivers that don't support releasing.
+   * 
+   * @param savepoint the savepoint
+   */
+  private void release(Savepoint savepoint) {
+    try {
+      connection.releaseSavepoint(savepoint);
+    } catch (SQLException e) {
+      // Some drivers (Oracle) release savepoints only at commit; ignore.
+    }
+  }
+}
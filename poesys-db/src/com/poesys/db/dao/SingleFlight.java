@@ -0,0 +1,326 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao;
+
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+
+/**
+ * <p>
+ * Coalesces concurrent loads of the same key, so that when many threads miss
+ * in a cache for the same object at once, only the first thread (the leader)
+ * queries the database and the others (the followers) wait for its result
+ * rather than each querying the database and re-caching the object.
+ * </p>
+ * <p>
+ * The leader shares its result with the followers through the Loader: the
+ * share method turns the loaded object into a form that is safe to hand to
+ * other threads, and each follower gets its own object from that form with
+ * the copy method. By default both methods return the object itself, which is
+ * right for objects that the threads share anyway, such as objects in an
+ * in-memory cache. The leader shares the object as soon as it loads it, before
+ * the caller changes it, and only if there are followers waiting.
+ * </p>
+ * <p>
+ * A follower waits at most the timeout for the leader. If the leader takes
+ * longer, fails, or finishes before the follower can join it, the follower
+ * loads the object itself, so coalescing never makes a load fail that would
+ * have worked without it.
+ * </p>
+ * 
+ * @author Robert J. Muller
+ * @param <V> the type of the loaded object
+ */
+public final class SingleFlight<V> {
+  /** Logger for debugging */
+  private static final Logger logger = Logger.getLogger(SingleFlight.class);
+
+  /** The default milliseconds a follower waits for the leader */
+  public static final long DEFAULT_TIMEOUT = 5000L;
+
+  /** The loads in progress by key */
+  private final ConcurrentMap<String, Flight> flights =
+    new ConcurrentHashMap<String, Flight>();
+  /** The milliseconds a follower waits for the leader */
+  private final long timeout;
+  /** The number of loads the leaders ran */
+  private final AtomicLong loads = new AtomicLong();
+  /** The number of loads that followers got from a leader */
+  private final AtomicLong coalesced = new AtomicLong();
+  /** The number of followers that loaded for themselves */
+  private final AtomicLong fallbacks = new AtomicLong();
+
+  /**
+   * The load of an object for a key, with the optional sharing of the result
+   * between threads
+   * 
+   * @param <V> the type of the loaded object
+   */
+  public abstract static class Loader<V> {
+    /**
+     * Load the object.
+     * 
+     * @return the object, or null if there is no object for the key
+     */
+    public abstract V load();
+
+    /**
+     * Convert a loaded object into a form that followers can use in other
+     * threads. The default returns the object.
+     * 
+     * @param value the loaded object, not null
+     * @return the shared form of the object
+     */
+    protected Object share(V value) {
+      return value;
+    }
+
+    /**
+     * Get a follower's object from the shared form. The default returns the
+     * shared form itself.
+     * 
+     * @param shared the shared form from the share method, not null
+     * @return the follower's object, or null if the follower must load the
+     *         object itself
+     */
+    @SuppressWarnings("unchecked")
+    protected V copy(Object shared) {
+      return (V)shared;
+    }
+  }
+
+  /**
+   * A load in progress; the fields are guarded by the flight's monitor
+   */
+  private static final class Flight {
+    /** Whether the leader finished */
+    private boolean done = false;
+    /** Whether the leader loaded the object without failing */
+    private boolean loaded = false;
+    /** The shared form of the object, null if there is no object */
+    private Object shared = null;
+    /** The number of followers waiting for the leader */
+    private int followers = 0;
+  }
+
+  /**
+   * Create a SingleFlight object with the default timeout.
+   */
+  public SingleFlight() {
+    this(DEFAULT_TIMEOUT);
+  }
+
+  /**
+   * Create a SingleFlight object.
+   * 
+   * @param timeout the milliseconds a follower waits for the leader
+   */
+  public SingleFlight(long timeout) {
+    this.timeout = timeout;
+  }
+
+  /**
+   * Load the object for a key, either running the loader or waiting for
+   * another thread that is already loading the key.
+   * 
+   * @param key the key, unique across all the objects that the caller loads
+   *          through this object
+   * @param loader the loader for the object
+   * @return the result, with the object and whether it came from another
+   *         thread
+   */
+  public Result<V> load(String key, Loader<V> loader) {
+    Flight flight = new Flight();
+    Flight existing = flights.putIfAbsent(key, flight);
+    if (existing == null) {
+      return lead(key, flight, loader);
+    }
+    Result<V> result = follow(existing, loader);
+    if (result == null) {
+      fallbacks.incrementAndGet();
+      logger.debug("Loading " + key + " without waiting for other thread");
+      result = new Result<V>(loader.load(), false);
+    }
+    return result;
+  }
+
+  /**
+   * Run the loader as the leader for a key and share the result with any
+   * followers.
+   * 
+   * @param key the key
+   * @param flight the flight for the key
+   * @param loader the loader
+   * @return the result
+   */
+  private Result<V> lead(String key, Flight flight, Loader<V> loader) {
+    V value = null;
+    boolean loaded = false;
+    try {
+      loads.incrementAndGet();
+      value = loader.load();
+      loaded = true;
+    } finally {
+      // Late threads now start their own flight rather than join this one.
+      flights.remove(key, flight);
+      synchronized (flight) {
+        flight.done = true;
+        if (loaded && flight.followers > 0) {
+          try {
+            flight.shared = value == null ? null : loader.share(value);
+            flight.loaded = true;
+          } catch (RuntimeException e) {
+            // The followers load for themselves.
+            logger.warn("Cannot share object for key " + key + ": "
+                        + e.getMessage());
+          }
+        }
+        flight.notifyAll();
+      }
+    }
+    return new Result<V>(value, false);
+  }
+
+  /**
+   * Wait for the leader of a flight and get a copy of its result.
+   * 
+   * @param flight the flight
+   * @param loader the loader
+   * @return the result, or null if the follower must load the object itself
+   */
+  private Result<V> follow(Flight flight, Loader<V> loader) {
+    Object shared = null;
+    synchronized (flight) {
+      if (flight.done) {
+        // Joined too late to get the result.
+        return null;
+      }
+      flight.followers++;
+      long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+      try {
+        long remaining = deadline - System.nanoTime();
+        while (!flight.done && remaining > 0L) {
+          TimeUnit.NANOSECONDS.timedWait(flight, remaining);
+          remaining = deadline - System.nanoTime();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      if (!flight.done || !flight.loaded) {
+        return null;
+      }
+      shared = flight.shared;
+    }
+    V value = null;
+    if (shared != null) {
+      value = loader.copy(shared);
+      if (value == null) {
+        return null;
+      }
+    }
+    coalesced.incrementAndGet();
+    return new Result<V>(value, true);
+  }
+
+  /**
+   * Get the number of keys being loaded.
+   * 
+   * @return the number of keys
+   */
+  public int getInFlight() {
+    return flights.size();
+  }
+
+  /**
+   * Get the number of loads that followers got from a leader.
+   * 
+   * @return the number of coalesced loads
+   */
+  public long getCoalescedCount() {
+    return coalesced.get();
+  }
+
+  /**
+   * Get the number of followers that loaded the object themselves because the
+   * leader timed out or failed.
+   * 
+   * @return the number of fallback loads
+   */
+  public long getFallbackCount() {
+    return fallbacks.get();
+  }
+
+  /**
+   * Get the load statistics for logging.
+   * 
+   * @return the statistics as a string
+   */
+  public String getStatistics() {
+    return "single flight: " + loads.get() + " loads, " + coalesced.get()
+           + " coalesced, " + fallbacks.get() + " fallbacks, "
+           + flights.size() + " in flight";
+  }
+
+  /**
+   * The result of a load
+   * 
+   * @param <V> the type of the loaded object
+   */
+  public static final class Result<V> {
+    /** The loaded object */
+    private final V value;
+    /** Whether the object came from another thread */
+    private final boolean shared;
+
+    /**
+     * Create a Result object.
+     * 
+     * @param value the loaded object
+     * @param shared whether the object came from another thread
+     */
+    private Result(V value, boolean shared) {
+      this.value = value;
+      this.shared = shared;
+    }
+
+    /**
+     * Get the loaded object.
+     * 
+     * @return the object, or null if there is no object for the key
+     */
+    public V getValue() {
+      return value;
+    }
+
+    /**
+     * Did the object come from another thread's load? If so, that thread also
+     * did any caching of the object.
+     * 
+     * @return true if another thread loaded the object
+     */
+    public boolean isShared() {
+      return shared;
+    }
+  }
+}
@@ -0,0 +1,403 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao;
+
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import com.poesys.db.DbErrorException;
+import com.poesys.db.InvalidParametersException;
+import com.poesys.db.Message;
+import com.poesys.db.col.IColumnValue;
+import com.poesys.db.dao.insert.IInsertBatch;
+import com.poesys.db.dao.update.IUpdateBatch;
+import com.poesys.db.dto.IDbDto;
+import com.poesys.db.pk.IPrimaryKey;
+
+
+/**
+ * <p>
+ * An implementation of the IWriteBehindQueue interface that writes the queued
+ * DTOs with an IInsertBatch DAO and an IUpdateBatch DAO. A single background
+ * thread flushes the queue at a fixed interval and whenever the queue reaches
+ * the batch size. The queue holds at most a fixed number of DTOs; adding a DTO
+ * to a full queue blocks until the next flush drains the queue.
+ * </p>
+ * <p>
+ * The queue keeps NEW DTOs in insertion order and flushes them before the
+ * CHANGED DTOs so that an update never precedes the insert of its object. A
+ * NEW DTO with an identity key has no key value before the insert, so the
+ * queue never merges such DTOs.
+ * </p>
+ * <p>
+ * If the inserter or updater throws an exception, the flush puts the DTOs it
+ * did not write back at the front of the queue, still NEW or CHANGED, so the
+ * next flush retries them. A DTO queued for the same key during the failed
+ * flush replaces the returned one, as it holds the later state.
+ * </p>
+ * <p>
+ * Get a queue from the IDaoFactory for the DTO class so that the batch DAOs
+ * handle caching the same way as the other DAOs from that factory.
+ * </p>
+ * 
+ * @see IDaoFactory#getWriteBehindQueue(com.poesys.db.dao.insert.IInsertSql,
+ *      com.poesys.db.dao.update.IUpdateSql, int, int, long)
+ * 
+ * @author Robert J. Muller
+ * @param <T> the type of IDbDto to write
+ */
+public class WriteBehindQueue<T extends IDbDto> implements IWriteBehindQueue<T> {
+  /** Logger for this class */
+  private static final Logger logger = Logger.getLogger(WriteBehindQueue.class);
+
+  /** the batch DAO that inserts NEW DTOs */
+  private final IInsertBatch<T> inserter;
+  /** the batch DAO that updates CHANGED DTOs */
+  private final IUpdateBatch<T> updater;
+  /** the maximum number of queued DTOs */
+  private final int capacity;
+  /** the batch size and the queue size that triggers a flush */
+  private final int size;
+
+  /** queued NEW DTOs indexed by primary key string */
+  private final Map<String, T> inserts = new LinkedHashMap<String, T>();
+  /** queued NEW DTOs with no key value yet (identity keys) */
+  private final List<T> keylessInserts = new ArrayList<T>();
+  /** queued CHANGED DTOs indexed by primary key string */
+  private final Map<String, T> updates = new LinkedHashMap<String, T>();
+
+  /** monitor that serializes flushes so writes happen in queue order */
+  private final Object flushLock = new Object();
+  /** whether the queue is closed */
+  private boolean closed = false;
+  /** whether the background thread has a pending size-triggered flush */
+  private boolean flushPending = false;
+
+  /** the background flushing thread */
+  private final ScheduledExecutorService executorService;
+  /** the JVM shutdown hook that flushes the queue */
+  private final Thread shutdownHook;
+
+  /** Error message when no DTO supplied */
+  private static final String NO_DTO_ERROR = "com.poesys.db.dao.msg.no_dto";
+  /** Error message when adding a DTO to a closed queue */
+  private static final String CLOSED_ERROR =
+    "com.poesys.db.dao.msg.write_behind_closed";
+  /** Error message when there is no DAO for the DTO status */
+  private static final String NO_DAO_ERROR =
+    "com.poesys.db.dao.msg.write_behind_no_dao";
+  /** Error message when interrupted waiting for room in the queue */
+  private static final String INTERRUPTED_ERROR =
+    "com.poesys.db.dao.msg.write_behind_interrupted";
+  /** Error message when the queue settings are not positive */
+  private static final String PARAMETERS_ERROR =
+    "com.poesys.db.dao.msg.write_behind_parameters";
+  /** Error message when a background flush fails */
+  private static final String FLUSH_ERROR =
+    "com.poesys.db.dao.msg.write_behind_flush";
+
+  /**
+   * Create a WriteBehindQueue object and start its background flushing.
+   * 
+   * @param inserter the batch DAO that inserts NEW DTOs; null if the queue
+   *          accepts only CHANGED DTOs
+   * @param updater the batch DAO that updates CHANGED DTOs; null if the queue
+   *          accepts only NEW DTOs
+   * @param capacity the maximum number of queued DTOs, which should be at least
+   *          the batch size
+   * @param size the batch size for the DAOs and the number of queued DTOs that
+   *          triggers an immediate flush
+   * @param interval the maximum time in milliseconds between flushes
+   */
+  public WriteBehindQueue(IInsertBatch<T> inserter,
+                          IUpdateBatch<T> updater,
+                          int capacity,
+                          int size,
+                          long interval) {
+    if (capacity < 1 || size < 1 || interval < 1) {
+      throw new InvalidParametersException(Message.getMessage(PARAMETERS_ERROR,
+                                                              null));
+    }
+    this.inserter = inserter;
+    this.updater = updater;
+    this.capacity = capacity;
+    this.size = size;
+
+    // Use a daemon thread so that an open queue doesn't keep the JVM from
+    // exiting; the shutdown hook flushes the queue on exit.
+    executorService =
+      Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread thread = new Thread(r, "Poesys write-behind flush");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    executorService.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        flushInBackground();
+      }
+    }, interval, interval, TimeUnit.MILLISECONDS);
+
+    shutdownHook = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        close();
+      }
+    });
+    Runtime.getRuntime().addShutdownHook(shutdownHook);
+  }
+
+  @Override
+  public void add(T dto) {
+    if (dto == null) {
+      throw new InvalidParametersException(Message.getMessage(NO_DTO_ERROR,
+                                                              null));
+    }
+
+    IDbDto.Status status = dto.getStatus();
+    if (status == IDbDto.Status.NEW && inserter == null
+        || status == IDbDto.Status.CHANGED && updater == null) {
+      Object[] args = { status.toString() };
+      throw new InvalidParametersException(Message.getMessage(NO_DAO_ERROR,
+                                                              args));
+    }
+
+    if (status == IDbDto.Status.NEW || status == IDbDto.Status.CHANGED) {
+      boolean full = false;
+      synchronized (this) {
+        if (closed) {
+          throw new DbErrorException(Message.getMessage(CLOSED_ERROR, null));
+        }
+        String key = getKey(dto);
+        // Block until there is room unless the DTO merges with a queued DTO.
+        while (!isQueued(dto, key, status) && size() >= capacity && !closed) {
+          try {
+            wait();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            String message = Message.getMessage(INTERRUPTED_ERROR, null);
+            logger.error(message, e);
+            throw new DbErrorException(message, e);
+          }
+        }
+        if (closed) {
+          throw new DbErrorException(Message.getMessage(CLOSED_ERROR, null));
+        }
+        if (status == IDbDto.Status.NEW && key == null) {
+          keylessInserts.add(dto);
+        } else if (status == IDbDto.Status.NEW) {
+          inserts.put(key, dto);
+        } else if (inserts.get(key) == dto) {
+          // Already queued for insert, which writes the latest state
+        } else {
+          updates.put(key, dto);
+        }
+        full = size() >= size && !flushPending;
+        flushPending = flushPending || full;
+      }
+      // Flush in the background as soon as the queue fills a batch.
+      if (full) {
+        executorService.execute(new Runnable() {
+          @Override
+          public void run() {
+            flushInBackground();
+          }
+        });
+      }
+    }
+  }
+
+  @Override
+  public void flush() {
+    synchronized (flushLock) {
+      List<T> newDtos = new ArrayList<T>();
+      List<T> changedDtos = new ArrayList<T>();
+      synchronized (this) {
+        newDtos.addAll(inserts.values());
+        newDtos.addAll(keylessInserts);
+        changedDtos.addAll(updates.values());
+        inserts.clear();
+        keylessInserts.clear();
+        updates.clear();
+        flushPending = false;
+        // Wake up any callers blocked on a full queue.
+        notifyAll();
+      }
+      logger.debug("Flushing write-behind queue with " + newDtos.size()
+                   + " inserts and " + changedDtos.size() + " updates");
+      // Insert first so updates never precede the insert of their objects.
+      boolean insertsWritten = newDtos.isEmpty();
+      try {
+        if (!insertsWritten) {
+          inserter.insert(newDtos, size);
+          insertsWritten = true;
+        }
+        if (!changedDtos.isEmpty()) {
+          updater.update(changedDtos, size);
+        }
+      } catch (RuntimeException e) {
+        // Keep the unwritten DTOs so that the next flush retries them.
+        requeue(insertsWritten ? new ArrayList<T>() : newDtos, changedDtos);
+        throw e;
+      }
+    }
+  }
+
+  @Override
+  public synchronized int size() {
+    return inserts.size() + keylessInserts.size() + updates.size();
+  }
+
+  @Override
+  public void close() {
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      notifyAll();
+    }
+    executorService.shutdown();
+    try {
+      executorService.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    try {
+      Runtime.getRuntime().removeShutdownHook(shutdownHook);
+    } catch (IllegalStateException e) {
+      // The JVM is shutting down and is running this method from the hook.
+    }
+    flush();
+    if (inserter != null) {
+      inserter.close();
+    }
+    if (updater != null) {
+      updater.close();
+    }
+  }
+
+  /**
+   * Flush the queue from the background thread, logging any error so that the
+   * background thread keeps running.
+   */
+  private void flushInBackground() {
+    try {
+      flush();
+    } catch (Throwable e) {
+      logger.error(Message.getMessage(FLUSH_ERROR, null), e);
+    }
+  }
+
+  /**
+   * Put the DTOs of a failed flush back at the front of the queue. The method
+   * skips DTOs that the DAO wrote or marked FAILED before the failure, and a
+   * DTO queued for the same key since the flush started replaces the returned
+   * DTO.
+   * 
+   * @param newDtos the NEW DTOs that were not inserted
+   * @param changedDtos the CHANGED DTOs that were not updated
+   */
+  private synchronized void requeue(List<T> newDtos, List<T> changedDtos) {
+    Map<String, T> laterInserts = new LinkedHashMap<String, T>(inserts);
+    List<T> laterKeylessInserts = new ArrayList<T>(keylessInserts);
+    Map<String, T> laterUpdates = new LinkedHashMap<String, T>(updates);
+    inserts.clear();
+    keylessInserts.clear();
+    updates.clear();
+    for (T dto : newDtos) {
+      if (dto.getStatus() == IDbDto.Status.NEW) {
+        String key = getKey(dto);
+        if (key == null) {
+          keylessInserts.add(dto);
+        } else {
+          inserts.put(key, dto);
+        }
+      }
+    }
+    inserts.putAll(laterInserts);
+    keylessInserts.addAll(laterKeylessInserts);
+    for (T dto : changedDtos) {
+      if (dto.getStatus() == IDbDto.Status.CHANGED) {
+        updates.put(getKey(dto), dto);
+      }
+    }
+    updates.putAll(laterUpdates);
+    logger.warn("Write-behind flush failed, " + size()
+                + " objects queued for the next flush");
+  }
+
+  /**
+   * Get the key under which to queue a DTO, or null if the DTO has no key
+   * value yet (a NEW DTO with an identity key).
+   * 
+   * @param dto the DTO
+   * @return the primary key string or null
+   */
+  private String getKey(T dto) {
+    String key = null;
+    IPrimaryKey pk = dto.getPrimaryKey();
+    if (pk == null) {
+      throw new InvalidParametersException(Message.getMessage(NO_DTO_ERROR,
+                                                              null));
+    }
+    boolean hasValue = true;
+    for (IColumnValue col : pk) {
+      hasValue = hasValue && col.hasValue();
+    }
+    if (hasValue) {
+      key = pk.getStringKey();
+    }
+    return key;
+  }
+
+  /**
+   * Is a DTO with a specified key already queued so that adding it merges with
+   * the queued DTO rather than taking more room? A CHANGED DTO merges with a
+   * queued insert only if it is the same instance; a different instance with
+   * the same key goes into the updates and takes room.
+   * 
+   * @param dto the DTO being added
+   * @param key the primary key string, null for no key value
+   * @param status the status of the DTO being added
+   * @return true if the DTO will merge with a queued DTO
+   */
+  private boolean isQueued(T dto, String key, IDbDto.Status status) {
+    boolean queued = false;
+    if (key != null) {
+      if (status == IDbDto.Status.NEW) {
+        queued = inserts.containsKey(key);
+      } else {
+        queued = updates.containsKey(key) || inserts.get(key) == dto;
+      }
+    }
+    return queued;
+  }
+}
@@ -21,6 +21,9 @@ package com.poesys.db.dao.delete;
 import java.sql.BatchUpdateException;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.util.Arrays;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -30,6 +33,7 @@ import org.apache.log4j.Logger;
 import com.poesys.db.DbErrorException;
 import com.poesys.db.Message;
 import com.poesys.db.NoPrimaryKeyException;
+import com.poesys.db.col.IColumnValue;
 import com.poesys.db.dao.AbstractBatch;
 import com.poesys.db.dao.DataEvent;
 import com.poesys.db.dao.PoesysTrackingThread;
@@ -56,6 +60,17 @@ import com.poesys.db.pk.IPrimaryKey;
  * single batch. There may be some rare circumstance where batching doesn't
  * work, in which case you can use com.poesys.db.dao.DeleteCollectionByKey.
  * </p>
+ * <p>
+ * In IN-list mode, the delete replaces the batch of single-row DELETE
+ * statements with one statement per chunk of DTOs that deletes all the rows in
+ * the chunk: WHERE id IN (?, ?, ...) for single-valued keys and WHERE (k1 = ?
+ * AND k2 = ?) OR (k1 = ? AND k2 = ?) ... for composite and association keys.
+ * The batch size is the chunk size, up to a maximum of 1000 keys. The DELETE
+ * statement must be of the standard form ending with the primary key WHERE
+ * expression; otherwise the delete falls back to batching. Since a chunk is a
+ * single statement, a SQL error fails all the DTOs in the chunk, which get the
+ * FAILED status, just as DTOs that fail in a batch do.
+ * </p>
  * 
  * @see com.poesys.db.dto.IDbDto
  * @see IDeleteSql
@@ -79,6 +94,10 @@ public class DeleteBatchByKey<T extends IDbDto> extends AbstractBatch<T>
   private static final String THREAD_ERROR = "com.poesys.db.dao.msg.thread";
   /** timeout for the cache thread */
   private static final int TIMEOUT = 1000 * 60;
+  /** the maximum number of keys in an IN-list chunk */
+  private static final int MAX_IN_LIST = 1000;
+  /** whether to delete in chunks with IN-lists rather than batches */
+  private final boolean inList;
 
   /**
    * Create a DeleteBatchByKey object by supplying the concrete implementation
@@ -88,8 +107,22 @@ public class DeleteBatchByKey<T extends IDbDto> extends AbstractBatch<T>
    * @param subsystem the subsystem of class T
    */
   public DeleteBatchByKey(IDeleteSql<T> sql, String subsystem) {
+    this(sql, subsystem, false);
+  }
+
+  /**
+   * Create a DeleteBatchByKey object that optionally deletes in chunks using
+   * IN-lists rather than batches of single-row DELETE statements.
+   * 
+   * @param sql the SQL DELETE statement generator object
+   * @param subsystem the subsystem of class T
+   * @param inList true to delete chunks of DTOs with IN-lists, false to use
+   *          batches
+   */
+  public DeleteBatchByKey(IDeleteSql<T> sql, String subsystem, boolean inList) {
     super(subsystem);
     this.sql = sql;
+    this.inList = inList;
   }
 
   @Override
@@ -159,6 +192,10 @@ public class DeleteBatchByKey<T extends IDbDto> extends AbstractBatch<T>
     List<T> list = new ArrayList<T>();
     // error count
     int count = 0;
+    // DTOs in the current IN-list chunk
+    List<T> chunk = new ArrayList<T>();
+    // whether to delete in IN-list chunks, decided with the first DTO
+    Boolean chunked = null;
 
     try {
       if (dtos != null) {
@@ -182,7 +219,18 @@ public class DeleteBatchByKey<T extends IDbDto> extends AbstractBatch<T>
           }
 
           // Only proceed to an actual delete if the dto is DELETED.
-          if (dto.getStatus() == IDbDto.Status.DELETED) {
+          if (dto.getStatus() == IDbDto.Status.DELETED && chunked == null) {
+            chunked = inList && getInListWhere(dto.getPrimaryKey(), 1) != null;
+          }
+          if (dto.getStatus() == IDbDto.Status.DELETED && chunked) {
+            // Delete in chunks, marking the DTO deleted from the database.
+            dto.setDeletedFromDatabase();
+            chunk.add(dto);
+            if (chunk.size() >= Math.min(getBatchSize(size, dto), MAX_IN_LIST)) {
+              deleteChunk(chunk, size, thread);
+              chunk.clear();
+            }
+          } else if (dto.getStatus() == IDbDto.Status.DELETED) {
 
             count++;
 
@@ -205,10 +253,12 @@ public class DeleteBatchByKey<T extends IDbDto> extends AbstractBatch<T>
             list.add(dto);
             logger.debug("Adding delete to batch with key " + key);
             logger.debug("SQL: " + sqlStmt);
-            if (count == size) {
+            if (count >= getBatchSize(size, dto)) {
               // end of batch, execute
               try {
+                long start = System.nanoTime();
                 stmt.executeBatch();
+                recordBatch(size, dto, count, start);
               } catch (BatchUpdateException e) {
                 logger.error("Batch delete exception", e);
                 codes = e.getUpdateCounts();
@@ -234,6 +284,10 @@ public class DeleteBatchByKey<T extends IDbDto> extends AbstractBatch<T>
       logger.error(message, e);
       throw new DbErrorException(message, thread, e);
     } finally {
+      // Delete the last chunk, if any.
+      if (chunk.size() > 0) {
+        deleteChunk(chunk, size, thread);
+      }
       // Execute the last batch, if any.
       if (count > 0 && stmt != null) {
         try {
@@ -260,6 +314,120 @@ public class DeleteBatchByKey<T extends IDbDto> extends AbstractBatch<T>
     }
   }
 
+  /**
+   * Delete a chunk of DTOs with a single DELETE statement using an IN-list or
+   * a list of OR-ed key expressions. If the statement fails with an integrity
+   * constraint violation (SQLSTATE class 23), the method fails all the DTOs in
+   * the chunk; any other error aborts the delete, as in the batch path. The
+   * method reports the latency of a full chunk
+   * to the adaptive batch size as the batch path does.
+   * 
+   * @param list the DTOs in the chunk
+   * @param size the requested batch size
+   * @param thread the tracking thread
+   */
+  @SuppressWarnings("unchecked")
+  private void deleteChunk(List<T> list, int size,
+                           PoesysTrackingThread thread) {
+    IPrimaryKey key = list.get(0).getPrimaryKey();
+    String sqlStmt = sql.getSql(key);
+    String where = key.getSqlWhereExpression("");
+    StringBuilder builder =
+      new StringBuilder(sqlStmt.substring(0, sqlStmt.length() - where.length()));
+    builder.append(getInListWhere(key, list.size()));
+    logger.debug("Deleting chunk of " + list.size() + " with SQL: " + builder);
+
+    PreparedStatement stmt = null;
+    try {
+      stmt = thread.getConnection().prepareStatement(builder.toString());
+      int next = 1;
+      for (T dto : list) {
+        next = sql.setParams(stmt, next, dto);
+      }
+      T first = list.get(0);
+      long start = System.nanoTime();
+      stmt.executeUpdate();
+      if (list.size() >= Math.min(getBatchSize(size, first), MAX_IN_LIST)) {
+        recordBatch(size, first, list.size(), start);
+      }
+    } catch (SQLException e) {
+      if (!isConstraintViolation(e)) {
+        Object[] args = { "Chunk of deletes" };
+        String message = Message.getMessage(DELETE_ERROR, args);
+        logger.error(message, e);
+        throw new DbErrorException(message, thread, e);
+      }
+      logger.error("Chunk delete exception", e);
+      // The statement failed as a whole, so fail all the DTOs.
+      int[] codes = new int[list.size()];
+      Arrays.fill(codes, Statement.EXECUTE_FAILED);
+      thread.processErrors(codes, (Collection<IDbDto>)list);
+    } finally {
+      if (stmt != null) {
+        try {
+          stmt.close();
+        } catch (SQLException e) {
+          // ignore
+        }
+      }
+    }
+  }
+
+  /**
+   * Is an exception an integrity constraint violation, such as deleting a row
+   * that another table references?
+   * 
+   * @param e the exception
+   * @return true if the exception is a constraint violation
+   */
+  private boolean isConstraintViolation(SQLException e) {
+    String state = e.getSQLState();
+    return e instanceof SQLIntegrityConstraintViolationException
+           || (state != null && state.startsWith("23"));
+  }
+
+  /**
+   * Get the WHERE expression that matches a number of primary keys: an
+   * IN-list for a single-column key or OR-ed key expressions for a
+   * multiple-column key. Returns null if the SQL statement for the key does not
+   * end with the key's WHERE expression, in which case the delete must use a
+   * batch.
+   * 
+   * @param key an example primary key
+   * @param count the number of keys to match
+   * @return the WHERE expression or null
+   */
+  private String getInListWhere(IPrimaryKey key, int count) {
+    String where = key.getSqlWhereExpression("");
+    String sqlStmt = sql.getSql(key);
+    if (where.length() == 0 || sqlStmt == null || !sqlStmt.endsWith(where)) {
+      return null;
+    }
+
+    List<String> names = new ArrayList<String>();
+    for (IColumnValue col : key) {
+      names.add(col.getName());
+    }
+    StringBuilder builder = new StringBuilder();
+    if (names.size() == 1) {
+      builder.append(names.get(0));
+      builder.append(" IN (");
+      for (int i = 0; i < count; i++) {
+        builder.append(i == 0 ? "?" : ", ?");
+      }
+      builder.append(")");
+    } else {
+      builder.append("(");
+      for (int i = 0; i < count; i++) {
+        builder.append(i == 0 ? "(" : " OR (");
+        builder.append(where);
+        builder.append(")");
+      }
+      builder.append(")");
+    }
+    return builder.toString();
+  }
+
   /**
    * Notify message subscribers of the delete event.
    * 
@@ -51,6 +51,24 @@ public class DeleteCacheBatchByKey<T extends IDbDto> extends
     this.cache = cache;
   }
 
+  /**
+   * Create a DeleteCacheBatchByKey object that optionally deletes in chunks
+   * using IN-lists rather than batches.
+   * 
+   * @param sql the SQL DELETE statement specification
+   * @param cache the DTO cache from which to remove the deleted DTO
+   * @param subsystem the subsystem of class T
+   * @param inList true to delete chunks of DTOs with IN-lists, false to use
+   *          batches
+   */
+  public DeleteCacheBatchByKey(IDeleteSql<T> sql,
+                               IDtoCache<T> cache,
+                               String subsystem,
+                               boolean inList) {
+    super(sql, subsystem, inList);
+    this.cache = cache;
+  }
+
   @Override
   public void delete(Collection<T> dtos, int size) {
     // Delete only happens for DELETED objects, not CASCADE_DELETED
@@ -20,6 +20,7 @@ package com.poesys.db.dao.delete;
 
 import java.util.Collection;
 
+import com.poesys.db.dao.BatchThreshold;
 import com.poesys.db.dto.IDbDto;
 
 
@@ -39,6 +40,8 @@ import com.poesys.db.dto.IDbDto;
  * single-statement support for multiple deletes processed in a single batch.
  * Consider using the com.poesys.db.dao.DeleteBatchByKey class instead of this
  * one unless there is some reason why batch processing would not work well.
+ * This class itself deletes with a DeleteBatchByKey when the collection is
+ * larger than the batch threshold for the subsystem (see BatchThreshold).
  * </p>
  * 
  * @see IDeleteSql
@@ -71,8 +74,11 @@ public class DeleteCollectionByKey<T extends IDbDto> implements
   public void delete(Collection<T> dtos) {
     DeleteByKey<T> deleter = new DeleteByKey<T>(sql, subsystem);
 
-    // Iterate only if there are DTOs to iterate over.
-    if (dtos != null) {
+    // Batch large collections; iterate only if there are DTOs to iterate over.
+    if (dtos != null && BatchThreshold.isBatch(subsystem, dtos.size())) {
+      new DeleteBatchByKey<T>(sql, subsystem).delete(dtos,
+                                                     BatchThreshold.getBatchSize(subsystem));
+    } else if (dtos != null) {
       for (T dto : dtos) {
         deleter.delete(dto);
       }
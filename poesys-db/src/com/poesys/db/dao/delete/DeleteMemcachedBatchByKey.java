@@ -18,12 +18,15 @@
 package com.poesys.db.dao.delete;
 
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import com.poesys.db.dao.DaoManagerFactory;
 import com.poesys.db.dao.IDaoManager;
 import com.poesys.db.dto.IDbDto;
 import com.poesys.db.dto.IDbDto.Status;
+import com.poesys.db.pk.IPrimaryKey;
 
 
 /**
@@ -46,6 +49,21 @@ public class DeleteMemcachedBatchByKey<T extends IDbDto> extends
     super(sql, subsystem);
   }
 
+  /**
+   * Create a DeleteMemcachedBatchByKey object that optionally deletes in
+   * chunks using IN-lists rather than batches.
+   * 
+   * @param sql the SQL DELETE statement specification
+   * @param subsystem the name of the subsystem of class T
+   * @param inList true to delete chunks of DTOs with IN-lists, false to use
+   *          batches
+   */
+  public DeleteMemcachedBatchByKey(IDeleteSql<T> sql,
+                                   String subsystem,
+                                   boolean inList) {
+    super(sql, subsystem, inList);
+  }
+
   @Override
   public void delete(Collection<T> dtos, int size) {
     super.delete(dtos, size);
@@ -53,13 +71,14 @@ public class DeleteMemcachedBatchByKey<T extends IDbDto> extends
     if (dtos != null && dtos.size() > 0) {
       DaoManagerFactory.initMemcachedManager(subsystem);
       IDaoManager manager = DaoManagerFactory.getManager(subsystem);
+      List<IPrimaryKey> keys = new ArrayList<IPrimaryKey>(dtos.size());
       for (IDbDto dto : dtos) {
         // Only proceed if the DTO is DELETED_FROM_DATABASE.
         if (dto.getStatus() == Status.DELETED_FROM_DATABASE) {
-          manager.removeObjectFromCache(dto.getPrimaryKey().getCacheName(),
-                                        dto.getPrimaryKey());
+          keys.add(dto.getPrimaryKey());
         }
       }
+      manager.removeObjectsFromCache(keys);
     }
   }
 }
@@ -38,7 +38,8 @@ public interface IDeleteBatch<T extends IDbDto> {
    * must contain values for the primary key.
    * 
    * @param dtos the data transfer objects containing the primary keys to delete
-   * @param size the size of the batches
+   * @param size the size of the batches; AdaptiveBatchSize.ADAPTIVE to let
+   *          the DAO tune the size
    */
   public void delete(Collection<T> dtos, int size);
 
@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao.insert;
+
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.poesys.db.DbErrorException;
+import com.poesys.db.Message;
+import com.poesys.db.dao.ParameterRecorder;
+import com.poesys.db.dto.IDbDto;
+import com.poesys.db.pk.IPrimaryKey;
+
+
+/**
+ * <p>
+ * A buffer of rows in MySQL LOAD DATA format (tab-delimited fields,
+ * newline-terminated lines, backslash escapes, and \N for NULL) that
+ * InsertBulkLoad streams to the server. The buffer gets the column order and
+ * the values from the IInsertSql object for the DTO class: it parses the table
+ * name and column list out of the INSERT statement, which must have a
+ * parameter marker for each column, then captures the values
+ * that the primary key and the IInsertSql object set with a
+ * ParameterRecorder. That way the bulk load uses exactly the columns and
+ * values that InsertBatch would use for the same DTOs. The rows are UTF-8, so
+ * the load reads them as utf8mb4 rather than the three-byte MySQL utf8, which
+ * rejects characters outside the Basic Multilingual Plane.
+ * </p>
+ *
+ * @author Robert J. Muller
+ * @param <T> the type of IDbDto to load
+ */
+class BulkLoadRows<T extends IDbDto> {
+  /** Pattern that parses the table, columns, and values out of an INSERT */
+  private static final Pattern INSERT_PATTERN =
+    Pattern.compile("^\\s*INSERT\\s+INTO\\s+([\\w.`\"]+)\\s*\\(([^)]*)\\)\\s*VALUES\\s*\\((.*)\\)\\s*$",
+                    Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+  /** Error message when a parameter type has no text representation */
+  private static final String TYPE_ERROR =
+    "com.poesys.db.dao.insert.msg.bulk_load_unsupported_parameter";
+
+  /** The SQL generator that supplies the values for each DTO */
+  private final IInsertSql<T> sql;
+  /** The table name parsed from the INSERT statement */
+  private final String table;
+  /** The comma-separated column list parsed from the INSERT statement */
+  private final String columns;
+  /** The number of columns in the column list */
+  private final int columnCount;
+  /** The buffer of encoded rows */
+  private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+  /** The number of rows in the buffer */
+  private int rows = 0;
+
+  /**
+   * Create a BulkLoadRows object.
+   *
+   * @param sql the SQL INSERT statement generator for the DTO class
+   * @param table the table into which to load the rows
+   * @param columns the comma-separated list of columns to load
+   */
+  private BulkLoadRows(IInsertSql<T> sql, String table, String columns) {
+    this.sql = sql;
+    this.table = table;
+    this.columns = columns;
+    this.columnCount = columns.split(",").length;
+  }
+
+  /**
+   * Create a row buffer for the INSERT statement that an IInsertSql object
+   * generates for a primary key.
+   *
+   * @param sql the SQL INSERT statement generator for the DTO class
+   * @param key an example primary key for the DTO class
+   * @param <T> the type of IDbDto to load
+   * @return the row buffer, or null if the statement is not a simple INSERT
+   *         INTO table (columns) VALUES (?, ...) statement with exactly one
+   *         parameter marker per column
+   */
+  static <T extends IDbDto> BulkLoadRows<T> create(IInsertSql<T> sql,
+                                                    IPrimaryKey key) {
+    BulkLoadRows<T> rows = null;
+    Matcher matcher = INSERT_PATTERN.matcher(sql.getSql(key));
+    if (matcher.matches() && matcher.group(2).trim().length() > 0
+        && isParameterList(matcher.group(3),
+                           matcher.group(2).split(",").length)) {
+      rows =
+        new BulkLoadRows<T>(sql, matcher.group(1), matcher.group(2).trim());
+    }
+    return rows;
+  }
+
+  /**
+   * Is a VALUES list nothing but a parameter marker for each column? The
+   * buffer maps the parameters to the columns by position, so a literal, a
+   * function such as NOW(), or DEFAULT in the list would shift the later
+   * values into the wrong columns.
+   *
+   * @param values the contents of the VALUES list
+   * @param columnCount the number of columns in the column list
+   * @return true if the list is exactly one ? per column
+   */
+  private static boolean isParameterList(String values, int columnCount) {
+    String[] items = values.split(",", -1);
+    boolean parameters = items.length == columnCount;
+    for (int i = 0; parameters && i < items.length; i++) {
+      parameters = items[i].trim().equals("?");
+    }
+    return parameters;
+  }
+
+  /**
+   * Get the table name.
+   *
+   * @return the table name
+   */
+  String getTable() {
+    return table;
+  }
+
+  /**
+   * Get the LOAD DATA statement that loads the buffered rows from a local
+   * stream.
+   *
+   * @return the LOAD DATA LOCAL INFILE statement
+   */
+  String getLoadSql() {
+    StringBuilder builder = new StringBuilder("LOAD DATA LOCAL INFILE 'poesys.tsv' INTO TABLE ");
+    builder.append(table);
+    builder.append(" CHARACTER SET utf8mb4 FIELDS TERMINATED BY '\\t' ESCAPED BY '\\\\' LINES TERMINATED BY '\\n' (");
+    builder.append(columns);
+    builder.append(")");
+    return builder.toString();
+  }
+
+  /**
+   * Add a DTO to the buffer as a row.
+   *
+   * @param dto the DTO to add
+   */
+  void add(T dto) {
+    ParameterRecorder recorder = new ParameterRecorder();
+    int next = dto.getPrimaryKey().setInsertParams(recorder.getStatement(), 1);
+    sql.setParams(recorder.getStatement(), next, dto);
+    Map<Integer, Object> values = recorder.getValues();
+    for (int i = 1; i <= columnCount; i++) {
+      if (i > 1) {
+        buffer.write('\t');
+      }
+      write(values.get(i));
+    }
+    buffer.write('\n');
+    rows++;
+  }
+
+  /**
+   * Get the number of rows in the buffer.
+   *
+   * @return the number of rows
+   */
+  int size() {
+    return rows;
+  }
+
+  /**
+   * Get a stream over the buffered rows.
+   *
+   * @return the input stream
+   */
+  InputStream getStream() {
+    return new ByteArrayInputStream(buffer.toByteArray());
+  }
+
+  /**
+   * Empty the buffer for the next batch.
+   */
+  void clear() {
+    buffer.reset();
+    rows = 0;
+  }
+
+  /**
+   * Write a single field value into the buffer in LOAD DATA format.
+   *
+   * @param value the value to write
+   */
+  private void write(Object value) {
+    if (value == null) {
+      buffer.write('\\');
+      buffer.write('N');
+    } else if (value instanceof byte[]) {
+      escape((byte[])value);
+    } else if (value instanceof Boolean) {
+      buffer.write(((Boolean)value).booleanValue() ? '1' : '0');
+    } else if (value instanceof BigDecimal) {
+      escape(((BigDecimal)value).toPlainString().getBytes(StandardCharsets.UTF_8));
+    } else if (value instanceof java.util.Date
+               && !(value instanceof java.sql.Date)
+               && !(value instanceof java.sql.Time)
+               && !(value instanceof Timestamp)) {
+      Timestamp timestamp = new Timestamp(((java.util.Date)value).getTime());
+      escape(timestamp.toString().getBytes(StandardCharsets.UTF_8));
+    } else if (value instanceof String || value instanceof Number
+               || value instanceof java.util.Date
+               || value instanceof Character) {
+      escape(value.toString().getBytes(StandardCharsets.UTF_8));
+    } else {
+      Object[] args = { value.getClass().getName() };
+      throw new DbErrorException(Message.getMessage(TYPE_ERROR, args));
+    }
+  }
+
+  /**
+   * Write bytes into the buffer, escaping the characters that LOAD DATA
+   * treats specially.
+   *
+   * @param bytes the bytes to write
+   */
+  private void escape(byte[] bytes) {
+    for (byte b : bytes) {
+      switch (b) {
+      case '\\':
+        buffer.write('\\');
+        buffer.write('\\');
+        break;
+      case '\t':
+        buffer.write('\\');
+        buffer.write('t');
+        break;
+      case '\n':
+        buffer.write('\\');
+        buffer.write('n');
+        break;
+      case '\r':
+        buffer.write('\\');
+        buffer.write('r');
+        break;
+      case 0:
+        buffer.write('\\');
+        buffer.write('0');
+        break;
+      default:
+        buffer.write(b);
+      }
+    }
+  }
+}
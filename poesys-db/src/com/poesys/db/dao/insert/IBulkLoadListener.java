@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao.insert;
+
+
+/**
+ * A listener that receives progress reports from a bulk load, one report per
+ * batch of rows sent to the database.
+ *
+ * @see InsertBulkLoad
+ *
+ * @author Robert J. Muller
+ */
+public interface IBulkLoadListener {
+  /**
+   * Report a batch of rows loaded into a table.
+   *
+   * @param table the table into which the batch loaded
+   * @param batch the number of the batch within the current load, starting
+   *          with 1
+   * @param rows the number of rows in the batch
+   * @param total the total number of rows loaded so far in the current load
+   * @param millis the elapsed time in milliseconds to load the batch
+   */
+  void batchLoaded(String table, int batch, int rows, long total, long millis);
+}
@@ -70,7 +70,8 @@ public interface IInsertBatch<T extends IDbDto> {
    *          must have values; the method will insert only DTOs with isNew() =
    *          true
    * @param size the batch size; an int because collections cannot exceed
-   *          MAX_INT members in size
+   *          MAX_INT members in size; AdaptiveBatchSize.ADAPTIVE to let the
+   *          DAO tune the size
    */
   public void insert(Collection<T> dtos, int size);
 
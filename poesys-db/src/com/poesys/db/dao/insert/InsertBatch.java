@@ -21,19 +21,24 @@ package com.poesys.db.dao.insert;
 import java.sql.BatchUpdateException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.log4j.Logger;
 
 import com.poesys.db.DbErrorException;
-import com.poesys.db.InvalidParametersException;
 import com.poesys.db.Message;
 import com.poesys.db.NoPrimaryKeyException;
 import com.poesys.db.dao.AbstractBatch;
+import com.poesys.db.dao.ParameterRecorder;
 import com.poesys.db.dao.PoesysTrackingThread;
+import com.poesys.db.dao.SavepointBatch;
 import com.poesys.db.dto.IDbDto;
 import com.poesys.db.pk.IPrimaryKey;
 import com.poesys.db.pk.IdentityPrimaryKey;
@@ -50,10 +55,25 @@ import com.poesys.db.pk.IdentityPrimaryKey;
  * collection that have the status NEW, then change status to EXISTING.
  * </p>
  * <p>
- * <em>Note: You cannot insert batches of objects with identity (auto-generated)
- * keys because the underlying JDBC standard does not support getting back the
- * key values. Use InsertCollection instead. InsertNoKey inserts a single
- * identity-key object.</em>
+ * Objects with identity (auto-generated) keys get inserted with a statement
+ * that returns the generated keys. After executing each batch, the insert
+ * reads the generated-key result set and finalizes the identity key of each
+ * DTO in the order in which the DTOs went into the batch. This requires a JDBC
+ * driver that returns generated keys for batches (MySQL Connector/J does); if
+ * the driver returns fewer keys than there are DTOs in the batch, the insert
+ * fails with an exception. After each batch, the insert calls the DTO
+ * finalizeBatchInsert method for each inserted DTO with its finalized primary
+ * key, so that the DTO can copy its generated key into nested objects before
+ * the insert of the nested objects. The insert does not call finalizeInsert,
+ * because the generated-key result set covers the whole batch rather than a
+ * single DTO. InsertNoKey inserts a single identity-key object.
+ * </p>
+ * <p>
+ * In retry mode, each batch executes within a savepoint; if some rows fail,
+ * the insert rolls back to the savepoint, marks the failed DTOs, and executes
+ * the remaining rows again (see SavepointBatch). Retry mode records the
+ * parameters of each row so that it can replay them, which costs a little
+ * more per row.
  * </p>
  * 
  * @see com.poesys.db.dto.ISet
@@ -61,6 +81,7 @@ import com.poesys.db.pk.IdentityPrimaryKey;
  * @see com.poesys.db.dto.AbstractDto
  * @see com.poesys.db.dao.insert.InsertCollection
  * @see com.poesys.db.dao.insert.InsertNoKey
+ * @see com.poesys.db.dao.SavepointBatch
  * 
  * @author Robert J. Muller
  * @param <T> the database DTO type to insert
@@ -71,15 +92,17 @@ public class InsertBatch<T extends IDbDto> extends AbstractBatch<T> implements
   private static final Logger logger = Logger.getLogger(InsertBatch.class);
   /** The helper class for generating the SQL statement */
   private final IInsertSql<T> sql;
+  /** whether to retry the successful rows of a batch with failed rows */
+  private final boolean retry;
 
   /** message string for exceptions */
   private static final String BATCH_MSG = "com.poesys.db.dao.msg.batch_of_dtos";
   /** Error message when no primary key supplied */
   private static final String NO_KEY_ERROR =
     "com.poesys.db.dao.insert.msg.no_primary_key_for_insert";
-  /** Error message when identity primary key supplied */
-  private static final String IDENTITY_KEY_ERROR =
-    "com.poesys.db.dao.insert.msg.no_batch_autogenerated_keys";
+  /** Error message when the driver returns too few generated keys */
+  private static final String GENERATED_KEY_ERROR =
+    "com.poesys.db.dao.insert.msg.missing_batch_autogenerated_keys";
   /** Error message when thread is interrupted or timed out */
   private static final String THREAD_ERROR = "com.poesys.db.dao.msg.thread";
   /** Error message when insert throws exception */
@@ -97,8 +120,23 @@ public class InsertBatch<T extends IDbDto> extends AbstractBatch<T> implements
    * @param subsystem the subsystem of class T
    */
   public InsertBatch(IInsertSql<T> sql, String subsystem) {
+    this(sql, subsystem, false);
+  }
+
+  /**
+   * Create an Insert object that optionally retries the successful rows of a
+   * batch in which some rows fail.
+   * 
+   * @param sql the SQL INSERT statement generator object
+   * @param subsystem the subsystem of class T
+   * @param retry true to execute each batch within a savepoint and retry
+   *          without the failed rows, false to lose the rest of a failed
+   *          batch as the driver dictates
+   */
+  public InsertBatch(IInsertSql<T> sql, String subsystem, boolean retry) {
     super(subsystem);
     this.sql = sql;
+    this.retry = retry;
   }
 
   @Override
@@ -175,11 +213,16 @@ public class InsertBatch<T extends IDbDto> extends AbstractBatch<T> implements
   @SuppressWarnings("unchecked")
   private void insertBatch(Connection connection, Collection<T> dtos, int size) {
     PreparedStatement stmt = null;
+    // Savepoint batch in retry mode
+    SavepointBatch<T> batch = null;
     String dtoType = null; // string for error messages
     int[] codes = null; // array of return codes from JDBC batch processing
     // Current DTOs for error processing
     List<T> list = new ArrayList<T>();
     int count = 0; // counter for number of objects processed in batch
+    // Keys of the DTOs added to a batch in this call
+    Set<IPrimaryKey> batched = new HashSet<IPrimaryKey>();
+    boolean identity = false; // whether the keys are auto-generated
     PoesysTrackingThread thread = (PoesysTrackingThread)Thread.currentThread();
 
     // Iterate only if there are DTOs to iterate over.
@@ -192,11 +235,7 @@ public class InsertBatch<T extends IDbDto> extends AbstractBatch<T> implements
             // Something's very wrong, so abort the whole insert.
             throw new NoPrimaryKeyException(Message.getMessage(NO_KEY_ERROR,
                                                                null));
-          } else if (key instanceof IdentityPrimaryKey) {
-            // Can't process an identity key using this class.
-            throw new InvalidParametersException(Message.getMessage(IDENTITY_KEY_ERROR,
-                                                                    null));
-          } else if (thread.getDto(key) == null
+          } else if (!isInserted(thread, key, batched)
                      && dto.getStatus() == IDbDto.Status.NEW) {
             dtoType = dtoType == null ? key.getStringKey() : dtoType;
             /*
@@ -217,16 +256,27 @@ public class InsertBatch<T extends IDbDto> extends AbstractBatch<T> implements
 
             // Check again for the DTO in the thread as it may already have
             // been inserted through the nested object preprocessing step.
-            if (thread.getDto(key) == null) {
+            if (!isInserted(thread, key, batched)) {
               count++;
 
               /*
                * The first time through the loop, build the batched SQL
                * statement and prepare it. The statement will track the batch
-               * and send it to the database when the size is reached.
+               * and send it to the database when the size is reached. For
+               * identity keys, the statement returns the generated keys.
                */
               if (stmt == null) {
-                stmt = connection.prepareStatement(sql.getSql(key).toString());
+                identity = key instanceof IdentityPrimaryKey;
+                if (identity) {
+                  stmt =
+                    connection.prepareStatement(sql.getSql(key),
+                                                Statement.RETURN_GENERATED_KEYS);
+                } else {
+                  stmt = connection.prepareStatement(sql.getSql(key));
+                }
+                if (retry) {
+                  batch = new SavepointBatch<T>(stmt, connection);
+                }
               }
               logger.debug("Adding insert to batch with key " + key
                            + " in thread " + thread.getId());
@@ -234,33 +284,55 @@ public class InsertBatch<T extends IDbDto> extends AbstractBatch<T> implements
               logger.debug("Parameters: " + sql.getParamString(dto));
               // Set the key value into the parameters as the first set of
               // parameters, then set the rest of the parameters.
-              int next = key.setInsertParams(stmt, 1);
-              sql.setParams(stmt, next, dto);
-              stmt.addBatch();
+              if (batch != null) {
+                ParameterRecorder recorder = new ParameterRecorder();
+                int next = key.setInsertParams(recorder.getStatement(), 1);
+                sql.setParams(recorder.getStatement(), next, dto);
+                batch.add(dto, recorder);
+              } else {
+                int next = key.setInsertParams(stmt, 1);
+                sql.setParams(stmt, next, dto);
+                stmt.addBatch();
+              }
               // Add the DTO to the current batch list for error processing.
               list.add(dto);
-              // Add the DTO to the tracking thread if not already tracked.
-              if (thread.getDto(key) == null) {
+              if (!identity) {
+                batched.add(key);
+              }
+              // Add the DTO to the tracking thread if not already tracked;
+              // identity-key DTOs get tracked once they have their key value.
+              if (!identity && thread.getDto(key) == null) {
                 thread.addDto(dto);
               }
-              if (count == size) {
+              if (count >= getBatchSize(size, dto)) {
                 try {
-                  stmt.executeBatch();
-                  // Set the processed flag for each DTO. If there is inheritance, the caller will
-                  // need to reset that flag to false.
-                  for (T persistedDto : list) {
+                  long start = System.nanoTime();
+                  List<T> persisted = list;
+                  if (batch != null) {
+                    persisted = batch.execute();
+                  } else {
+                    stmt.executeBatch();
+                  }
+                  recordBatch(size, dto, count, start);
+                  if (identity) {
+                    finalizeIdentityKeys(stmt, persisted, dtoType);
+                  }
+                  // Finalize each DTO and set its processed flag. If there is
+                  // inheritance, the caller will need to reset that flag to
+                  // false.
+                  for (T persistedDto : persisted) {
+                    persistedDto.finalizeBatchInsert(persistedDto.getPrimaryKey());
                     thread.setProcessed(persistedDto, true);
                   }
-                  // Reset the batch variables for the next batch.
-                  count = 0;
-                  list.clear();
                 } catch (BatchUpdateException e) {
                   logger.error("Batch insert exception", e);
                   codes = e.getUpdateCounts();
+                  // Mark the failed DTOs before resetting the batch list.
+                  thread.processErrors(codes, (Collection<IDbDto>)list);
+                } finally {
                   // Reset the batch variables for the next batch.
                   count = 0;
                   list.clear();
-                  thread.processErrors(codes, (Collection<IDbDto>)list);
                 }
               }
             }
@@ -276,10 +348,19 @@ public class InsertBatch<T extends IDbDto> extends AbstractBatch<T> implements
         // Execute the last batch, if any.
         if (count > 0 && stmt != null) {
           try {
-            codes = stmt.executeBatch();
-            // Set the processed flag for each DTO. If there is inheritance, the caller will
-            // need to reset that flag to false.
-            for (T persistedDto : list) {
+            List<T> persisted = list;
+            if (batch != null) {
+              persisted = batch.execute();
+            } else {
+              codes = stmt.executeBatch();
+            }
+            if (identity) {
+              finalizeIdentityKeys(stmt, persisted, dtoType);
+            }
+            // Finalize each DTO and set its processed flag. If there is
+            // inheritance, the caller will need to reset that flag to false.
+            for (T persistedDto : persisted) {
+              persistedDto.finalizeBatchInsert(persistedDto.getPrimaryKey());
               thread.setProcessed(persistedDto, true);
             }
           } catch (BatchUpdateException e) {
@@ -326,6 +407,67 @@ public class InsertBatch<T extends IDbDto> extends AbstractBatch<T> implements
     }
   }
 
+  /**
+   * Has the DTO with a specified primary key already been inserted or added
+   * to a batch? As in Insert, a DTO that the tracking thread tracks but has
+   * not processed still gets inserted; for example, an inheritance insert
+   * resets the processed flag so that the subclass insert happens. An identity
+   * key has no value until after the insert, so all new identity-key DTOs
+   * share the same string key; such DTOs are never inserted before the insert
+   * sets their key values.
+   * 
+   * @param thread the tracking thread
+   * @param key the primary key of the DTO
+   * @param batched the keys of the DTOs already added to a batch in this call
+   * @return true if the DTO is processed or batched, false if not
+   */
+  private boolean isInserted(PoesysTrackingThread thread, IPrimaryKey key,
+                             Set<IPrimaryKey> batched) {
+    boolean inserted = false;
+    if (!(key instanceof IdentityPrimaryKey)
+        || key.iterator().next().hasValue()) {
+      inserted =
+        (thread.getDto(key) != null && thread.isProcessed(key))
+            || batched.contains(key);
+    }
+    return inserted;
+  }
+
+  /**
+   * Finalize the identity keys of a successfully executed batch of DTOs. The
+   * method reads the generated-key result set of the statement and sets the
+   * keys of the DTOs in the batch in order, then adds the DTOs to the tracking
+   * thread under their new keys.
+   * 
+   * @param stmt the statement that just executed the batch
+   * @param list the DTOs in the batch, in batch order
+   * @param dtoType the example DTO string for error messages
+   * @throws SQLException when the driver can't supply the generated keys
+   */
+  private void finalizeIdentityKeys(PreparedStatement stmt, List<T> list,
+                                    String dtoType) throws SQLException {
+    PoesysTrackingThread thread = (PoesysTrackingThread)Thread.currentThread();
+    ResultSet keys = stmt.getGeneratedKeys();
+    try {
+      for (T dto : list) {
+        IdentityPrimaryKey key = (IdentityPrimaryKey)dto.getPrimaryKey();
+        if (!key.finalizeInsert(keys)) {
+          Object[] args =
+            { Message.getMessage(BATCH_MSG, null) + ": batch example "
+              + dtoType };
+          String message = Message.getMessage(GENERATED_KEY_ERROR, args);
+          logger.error(message);
+          throw new DbErrorException(message, thread);
+        }
+        if (thread.getDto(key) == null) {
+          thread.addDto(dto);
+        }
+      }
+    } finally {
+      keys.close();
+    }
+  }
+
   @Override
   public void close() {
     // Nothing to do
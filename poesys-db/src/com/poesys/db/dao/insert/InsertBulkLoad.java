@@ -0,0 +1,372 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao.insert;
+
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+import com.poesys.db.DbErrorException;
+import com.poesys.db.InvalidParametersException;
+import com.poesys.db.Message;
+import com.poesys.db.NoPrimaryKeyException;
+import com.poesys.db.connection.ConnectionFactoryFactory;
+import com.poesys.db.connection.IConnectionFactory;
+import com.poesys.db.dao.AbstractBatch;
+import com.poesys.db.dao.PoesysTrackingThread;
+import com.poesys.db.dto.IDbDto;
+import com.poesys.db.pk.IPrimaryKey;
+import com.poesys.db.pk.IdentityPrimaryKey;
+
+
+/**
+ * <p>
+ * An implementation of the IInsertBatch generic interface that inserts very
+ * large collections of objects using the native bulk-load facility of the
+ * DBMS rather than JDBC batching. For MySQL, the insert streams each batch of
+ * rows from memory with LOAD DATA LOCAL INFILE; the IInsertSql object supplies
+ * the table, the column order, and the values, just as it does for
+ * InsertBatch. For other DBMS products (as determined by the DBMS of the
+ * subsystem's connection factory), for identity (auto-generated) keys, which
+ * need the generated keys back from the DBMS, and for INSERT statements that
+ * are not of the simple form INSERT INTO table (columns) VALUES (...), the
+ * insert falls back to InsertBatch.
+ * </p>
+ * <p>
+ * As with InsertBatch, only NEW DTOs not yet processed get inserted, and the
+ * insert validates the DTOs, inserts any nested objects, and sets the
+ * processed flag for each DTO in a successful batch. A bulk load either loads
+ * a whole batch or fails; MySQL skips duplicate-key rows in a LOCAL load
+ * rather than failing, so if the DBMS reports fewer rows loaded than the batch
+ * contains, the insert fails with an exception and leaves the DTOs in the
+ * batch unprocessed. Set an IBulkLoadListener to get a progress report for
+ * each batch.
+ * </p>
+ *
+ * @see InsertBatch
+ * @see IBulkLoadListener
+ *
+ * @author Robert J. Muller
+ * @param <T> the database DTO type to insert
+ */
+public class InsertBulkLoad<T extends IDbDto> extends AbstractBatch<T>
+    implements IInsertBatch<T> {
+  /** Logger for debugging */
+  private static final Logger logger = Logger.getLogger(InsertBulkLoad.class);
+  /** The helper class for generating the SQL statement */
+  private final IInsertSql<T> sql;
+  /** Optional listener for progress reports */
+  private IBulkLoadListener listener = null;
+
+  /** message string for exceptions */
+  private static final String BATCH_MSG = "com.poesys.db.dao.msg.batch_of_dtos";
+  /** Error message when no primary key supplied */
+  private static final String NO_KEY_ERROR =
+    "com.poesys.db.dao.insert.msg.no_primary_key_for_insert";
+  /** Error message when the load loads fewer rows than the batch has */
+  private static final String ROWS_ERROR =
+    "com.poesys.db.dao.insert.msg.bulk_load_rows";
+  /** Error message when thread is interrupted or timed out */
+  private static final String THREAD_ERROR = "com.poesys.db.dao.msg.thread";
+  /** Error message when insert throws exception */
+  private static final String INSERT_ERROR =
+    "com.poesys.db.dao.insert.msg.insert";
+  /** Error message when the connection factory is not available */
+  private static final String FACTORY_ERROR =
+    "com.poesys.db.dao.insert.msg.bulk_load_factory";
+
+  /** timeout for the cache thread */
+  private static final int TIMEOUT = 1000 * 60;
+
+  /**
+   * Create an InsertBulkLoad object by supplying the concrete implementation
+   * of the SQL-statement generator and JDBC setter.
+   *
+   * @param sql the SQL INSERT statement generator object
+   * @param subsystem the subsystem of class T
+   */
+  public InsertBulkLoad(IInsertSql<T> sql, String subsystem) {
+    super(subsystem);
+    this.sql = sql;
+  }
+
+  /**
+   * Set the listener that gets a progress report for each batch loaded.
+   *
+   * @param listener the listener, or null for no progress reports
+   */
+  public void setListener(IBulkLoadListener listener) {
+    this.listener = listener;
+  }
+
+  @Override
+  public void insert(Collection<T> dtos, int size) {
+    // If the current thread is a PoesysTrackingThread, just load in that
+    // thread; if not, start a new thread for the load.
+    if (Thread.currentThread() instanceof PoesysTrackingThread) {
+      PoesysTrackingThread thread =
+        (PoesysTrackingThread)Thread.currentThread();
+      load(thread.getConnection(), dtos, size);
+    } else {
+      Runnable process = new Runnable() {
+        public void run() {
+          PoesysTrackingThread thread =
+            (PoesysTrackingThread)Thread.currentThread();
+          try {
+            load(thread.getConnection(), dtos, size);
+            // Post process here as the client is not in the tracking thread.
+            if (dtos != null) {
+              for (T dto : dtos) {
+                dto.postprocessNestedObjects();
+              }
+            }
+          } catch (Throwable e) {
+            thread.setThrowable(e);
+          } finally {
+            thread.closeConnection();
+          }
+        }
+      };
+      PoesysTrackingThread thread =
+        new PoesysTrackingThread(process, subsystem);
+      thread.start();
+
+      // Join the thread, blocking until the thread completes or
+      // until the query times out.
+      try {
+        thread.join(TIMEOUT);
+        // Check for problems.
+        if (thread.getThrowable() != null) {
+          Object[] args = { "insert", Message.getMessage(BATCH_MSG, null) };
+          String message = Message.getMessage(THREAD_ERROR, args);
+          logger.error(message, thread.getThrowable());
+          throw new DbErrorException(message, thread.getThrowable());
+        }
+      } catch (InterruptedException e) {
+        Object[] args = { "insert", Message.getMessage(BATCH_MSG, null) };
+        String message = Message.getMessage(THREAD_ERROR, args);
+        logger.error(message, e);
+      }
+    }
+  }
+
+  /**
+   * Load the DTOs with a native bulk load if possible, otherwise fall back to
+   * a batched insert. This method runs within a container
+   * PoesysTrackingThread.
+   *
+   * @param connection the SQL connection to use to do the inserts
+   * @param dtos the DTOs to insert
+   * @param size the size of the batches to process
+   */
+  private void load(Connection connection, Collection<T> dtos, int size) {
+    if (dtos == null) {
+      return;
+    }
+
+    BulkLoadRows<T> rows = null;
+    MySqlLocalInfileStatement stmt = null;
+    IPrimaryKey example = getExampleKey(dtos);
+    if (example != null && !(example instanceof IdentityPrimaryKey)
+        && isMySql()) {
+      rows = BulkLoadRows.create(sql, example);
+      stmt =
+        rows == null ? null : MySqlLocalInfileStatement.create(connection);
+    }
+
+    if (stmt == null) {
+      logger.debug("Falling back to batched insert for " + example);
+      new InsertBatch<T>(sql, subsystem).insert(dtos, size);
+    } else {
+      try {
+        loadBatches(stmt, rows, dtos, size);
+      } finally {
+        try {
+          stmt.close();
+        } catch (SQLException e) {
+          // ignore
+        }
+      }
+
+      // Insert any to-many or child nested objects for the inserted DTOs
+      // after all the parents exist, as InsertBatch does.
+      for (IDbDto dto : dtos) {
+        if (dto.getStatus() == IDbDto.Status.NEW && !dto.isAbstractClass()) {
+          dto.insertNestedObjects();
+        }
+      }
+    }
+  }
+
+  /**
+   * Load the NEW, unprocessed DTOs into the database in batches of rows
+   * streamed through a MySQL statement.
+   *
+   * @param stmt the MySQL statement with which to load the rows
+   * @param rows the row buffer for the DTO class
+   * @param dtos the DTOs to insert
+   * @param size the number of rows in each batch or
+   *          AdaptiveBatchSize.ADAPTIVE
+   */
+  private void loadBatches(MySqlLocalInfileStatement stmt,
+                           BulkLoadRows<T> rows, Collection<T> dtos,
+                           int size) {
+    PoesysTrackingThread thread = (PoesysTrackingThread)Thread.currentThread();
+    List<T> list = new ArrayList<T>();
+    int batch = 0;
+    long total = 0L;
+
+    for (T dto : dtos) {
+      IPrimaryKey key = dto.getPrimaryKey();
+      if (key == null) {
+        // Something's very wrong, so abort the whole insert.
+        throw new NoPrimaryKeyException(Message.getMessage(NO_KEY_ERROR, null));
+      } else if (thread.getDto(key) == null
+                 && dto.getStatus() == IDbDto.Status.NEW) {
+        // Validate and preprocess nested objects as InsertBatch does.
+        dto.queryNestedObjectsForValidation();
+        dto.validateForInsert();
+        dto.preprocessNestedObjects();
+
+        // Check again, as preprocessing may have inserted the DTO.
+        if (thread.getDto(key) == null) {
+          rows.add(dto);
+          list.add(dto);
+          thread.addDto(dto);
+          if (rows.size() >= getBatchSize(size, dto)) {
+            long start = System.nanoTime();
+            int count = loadBatch(stmt, rows, list, ++batch, total);
+            recordBatch(size, dto, count, start);
+            total += count;
+          }
+        }
+      }
+    }
+
+    // Load the last batch, if any.
+    if (rows.size() > 0) {
+      loadBatch(stmt, rows, list, ++batch, total);
+    }
+  }
+
+  /**
+   * Stream a batch of rows to the database, set the processed flag for the
+   * DTOs in the batch, report progress, and empty the batch.
+   *
+   * @param stmt the MySQL statement with which to load the rows
+   * @param rows the row buffer holding the batch
+   * @param list the DTOs in the batch
+   * @param batch the number of the batch
+   * @param total the number of rows loaded before this batch
+   * @return the number of rows loaded
+   */
+  private int loadBatch(MySqlLocalInfileStatement stmt, BulkLoadRows<T> rows,
+                        List<T> list, int batch, long total) {
+    PoesysTrackingThread thread = (PoesysTrackingThread)Thread.currentThread();
+    int count = rows.size();
+    long start = System.currentTimeMillis();
+    try {
+      stmt.setLocalInfileInputStream(rows.getStream());
+      int loaded = stmt.executeUpdate(rows.getLoadSql());
+      if (loaded < count) {
+        Object[] args = { loaded, count, rows.getTable() };
+        String message = Message.getMessage(ROWS_ERROR, args);
+        logger.error(message);
+        throw new DbErrorException(message, thread);
+      }
+    } catch (SQLException e) {
+      Object[] args =
+        { Message.getMessage(BATCH_MSG, null) + ": batch example "
+          + list.get(0).getPrimaryKey().getStringKey() };
+      String message = Message.getMessage(INSERT_ERROR, args);
+      logger.error(message, e);
+      throw new DbErrorException(message, thread, e);
+    } finally {
+      try {
+        stmt.setLocalInfileInputStream(null);
+      } catch (SQLException e) {
+        // ignore, the statement gets closed after the load
+      }
+    }
+
+    long millis = System.currentTimeMillis() - start;
+    for (T dto : list) {
+      thread.setProcessed(dto, true);
+    }
+    list.clear();
+    rows.clear();
+
+    logger.debug("Bulk loaded batch " + batch + " of " + count + " rows into "
+                 + rows.getTable() + " in " + millis + " ms");
+    if (listener != null) {
+      listener.batchLoaded(rows.getTable(), batch, count, total + count, millis);
+    }
+    return count;
+  }
+
+  /**
+   * Get the primary key of the first NEW DTO in the collection as an example
+   * for generating the SQL.
+   *
+   * @param dtos the DTOs to insert
+   * @return the example key, or null if there are no NEW DTOs with keys
+   */
+  private IPrimaryKey getExampleKey(Collection<T> dtos) {
+    IPrimaryKey key = null;
+    for (T dto : dtos) {
+      if (dto.getStatus() == IDbDto.Status.NEW && dto.getPrimaryKey() != null) {
+        key = dto.getPrimaryKey();
+        break;
+      }
+    }
+    return key;
+  }
+
+  /**
+   * Is the DBMS for the subsystem MySQL?
+   *
+   * @return true if the subsystem connects to MySQL, false otherwise
+   */
+  private boolean isMySql() {
+    try {
+      IConnectionFactory.DBMS dbms =
+        ConnectionFactoryFactory.getInstance(subsystem).getDbms();
+      return dbms == IConnectionFactory.DBMS.MYSQL
+             || dbms == IConnectionFactory.DBMS.JNDI_MYSQL;
+    } catch (IOException e) {
+      String message = Message.getMessage(FACTORY_ERROR, null);
+      logger.error(message, e);
+      throw new DbErrorException(message, e);
+    } catch (InvalidParametersException e) {
+      String message = Message.getMessage(FACTORY_ERROR, null);
+      logger.error(message, e);
+      throw new DbErrorException(message, e);
+    }
+  }
+
+  @Override
+  public void close() {
+    // Nothing to do
+  }
+}
@@ -50,6 +50,23 @@ public class InsertCacheBatch<T extends IDbDto> extends InsertBatch<T>
     this.cache = cache;
   }
 
+  /**
+   * Create an InsertCacheBatch object that optionally retries the successful
+   * rows of a batch in which some rows fail.
+   * 
+   * @param sql the SQL insert statement object
+   * @param cache the DTO cache into which to cache the objects
+   * @param subsystem the subsystem of class T
+   * @param retry true to retry batches without their failed rows
+   */
+  public InsertCacheBatch(IInsertSql<T> sql,
+                          IDtoCache<T> cache,
+                          String subsystem,
+                          boolean retry) {
+    super(sql, subsystem, retry);
+    this.cache = cache;
+  }
+
   @Override
   public void insert(Collection<T> dtos, int size) {
     super.insert(dtos, size);
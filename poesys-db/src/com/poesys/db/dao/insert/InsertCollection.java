@@ -20,6 +20,7 @@ package com.poesys.db.dao.insert;
 
 import java.util.Collection;
 
+import com.poesys.db.dao.BatchThreshold;
 import com.poesys.db.dto.IDbDto;
 
 
@@ -35,13 +36,16 @@ import com.poesys.db.dto.IDbDto;
  * </p>
  * <p>
  * <em>Note: This implementation inserts the entire collection in a series of
- * single inserts. To insert using JDBC batches, use the InsertBatch implementation.
- * To insert objects with auto-generated keys, use the InsertNoKeyCollection 
- * implementation.</em>
+ * single inserts unless the collection is larger than the batch threshold for
+ * the subsystem, in which case it inserts the collection with an InsertBatch.
+ * To insert using JDBC batches regardless of size, use the InsertBatch
+ * implementation. To insert objects with auto-generated keys, use the
+ * InsertNoKeyCollection implementation.</em>
  * </p>
  * 
  * @see InsertBatch
  * @see InsertNoKeyCollection
+ * @see com.poesys.db.dao.BatchThreshold
  * @see com.poesys.db.dto.AbstractDto
  * @see com.poesys.db.dto.IDbDto
  * 
@@ -55,6 +59,9 @@ public class InsertCollection<T extends IDbDto> implements IInsertCollection<T>
    */
   private final Insert<T> dao;
 
+  /** The SQL INSERT statement generator for batch inserts */
+  private final IInsertSql<T> sql;
+
   protected final String subsystem;
 
   /**
@@ -67,13 +74,17 @@ public class InsertCollection<T extends IDbDto> implements IInsertCollection<T>
    */
   public InsertCollection(IInsertSql<T> sql, String subsystem) {
     this.subsystem = subsystem;
+    this.sql = sql;
     dao = new Insert<T>(sql, subsystem);
   }
 
   @Override
   public void insert(Collection<T> dtos) {
 
-    if (dtos != null) {
+    if (dtos != null && BatchThreshold.isBatch(subsystem, dtos.size())) {
+      new InsertBatch<T>(sql, subsystem).insert(dtos,
+                                                BatchThreshold.getBatchSize(subsystem));
+    } else if (dtos != null) {
       for (T dto : dtos) {
         dao.insert(dto);
       }
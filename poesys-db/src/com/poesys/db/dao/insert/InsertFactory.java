@@ -67,9 +67,8 @@ public class InsertFactory<T extends IDbDto> {
   }
 
   /**
-   * Generate a batched multiple-object insert. Note that you cannot batch
-   * inserts that use a sequence or identity key.
-   * 
+   * Generate a batched multiple-object insert. Batches of identity-key
+   * objects require a JDBC driver that returns generated keys for batches.
    * 
    * @param sql the SQL insert statement object
    * @return the insert object
@@ -78,6 +77,18 @@ public class InsertFactory<T extends IDbDto> {
     return new InsertBatch<T>(sql, subsystem);
   }
 
+  /**
+   * Generate a multiple-object insert that uses the native bulk-load facility
+   * of the DBMS for very large collections, falling back to a batched insert
+   * where there is no such facility.
+   * 
+   * @param sql the SQL insert statement object
+   * @return the insert object
+   */
+  public IInsertBatch<T> getInsertBulkLoad(IInsertSql<T> sql) {
+    return new InsertBulkLoad<T>(sql, subsystem);
+  }
+
   /**
    * Generate a collection multiple-object insert.
    * 
@@ -90,8 +101,8 @@ public class InsertFactory<T extends IDbDto> {
 
   /**
    * Generate a collection multiple-object insert for use with a sequence key or
-   * an identiy key, both of which generate the key value. Note that you cannot
-   * batch such inserts.
+   * an identiy key, both of which generate the key value. Use getInsertBatch
+   * to batch such inserts.
    * 
    * @param sql the SQL insert statement object
    * @return the insert object
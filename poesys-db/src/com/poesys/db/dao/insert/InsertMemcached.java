@@ -20,6 +20,7 @@ package com.poesys.db.dao.insert;
 
 import com.poesys.db.dao.DaoManagerFactory;
 import com.poesys.db.dao.IDaoManager;
+import com.poesys.db.dao.MemcachedService;
 import com.poesys.db.dto.IDbDto;
 
 
@@ -58,6 +59,8 @@ public class InsertMemcached<T extends IDbDto> extends Insert<T> implements
     manager.putObjectInCache(dto.getPrimaryKey().getCacheName(),
                              expiration,
                              dto);
+    // Remove any record that the key is absent, if the cache keeps them.
+    new MemcachedService<IDbDto>().removeAbsent(subsystem, dto.getPrimaryKey());
   }
 
   @Override
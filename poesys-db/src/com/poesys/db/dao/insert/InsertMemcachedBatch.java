@@ -18,11 +18,15 @@
 package com.poesys.db.dao.insert;
 
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import com.poesys.db.dao.DaoManagerFactory;
 import com.poesys.db.dao.IDaoManager;
+import com.poesys.db.dao.MemcachedService;
 import com.poesys.db.dto.IDbDto;
+import com.poesys.db.pk.IPrimaryKey;
 
 
 /**
@@ -52,6 +56,24 @@ public class InsertMemcachedBatch<T extends IDbDto> extends InsertBatch<T>
     this.expiration = expiration;
   }
 
+  /**
+   * Create an InsertMemcachedBatch object that optionally retries the
+   * successful rows of a batch in which some rows fail.
+   * 
+   * @param sql the SQL insert statement object
+   * @param subsystem the name of the subsystem containing the T class
+   * @param expiration the memcached expiration time in milliseconds for T
+   *          objects
+   * @param retry true to retry batches without their failed rows
+   */
+  public InsertMemcachedBatch(IInsertSql<T> sql,
+                              String subsystem,
+                              int expiration,
+                              boolean retry) {
+    super(sql, subsystem, retry);
+    this.expiration = expiration;
+  }
+
   @Override
   public void insert(Collection<T> dtos, int size) {
     super.insert(dtos, size);
@@ -59,16 +81,20 @@ public class InsertMemcachedBatch<T extends IDbDto> extends InsertBatch<T>
     if (dtos != null && dtos.size() > 0) {
       DaoManagerFactory.initMemcachedManager(subsystem);
       IDaoManager manager = DaoManagerFactory.getManager(subsystem);
+      List<T> cacheable = new ArrayList<T>(dtos.size());
+      List<IPrimaryKey> keys = new ArrayList<IPrimaryKey>(dtos.size());
       for (T dto : dtos) {
         if (dto.getStatus() == IDbDto.Status.NEW
             || dto.getStatus() == IDbDto.Status.EXISTING) {
           // Cache NEW and EXISTING objects (those just inserted and those
           // unchanged from what is already in the cache).
-          manager.putObjectInCache(dto.getPrimaryKey().getCacheName(),
-                                   expiration,
-                                   dto);
+          cacheable.add(dto);
+          keys.add(dto.getPrimaryKey());
         }
       }
+      manager.putObjectsInCache(expiration, cacheable);
+      // Remove any records that the keys are absent, if the cache keeps them.
+      new MemcachedService<T>().removeAbsent(subsystem, keys);
     }
   }
 
@@ -18,11 +18,15 @@
 package com.poesys.db.dao.insert;
 
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import com.poesys.db.dao.DaoManagerFactory;
 import com.poesys.db.dao.IDaoManager;
+import com.poesys.db.dao.MemcachedService;
 import com.poesys.db.dto.IDbDto;
+import com.poesys.db.pk.IPrimaryKey;
 
 
 /**
@@ -58,6 +62,7 @@ public class InsertMemcachedNoKeyCollection<T extends IDbDto> extends
     DaoManagerFactory.initMemcachedManager(subsystem);
     IDaoManager manager = DaoManagerFactory.getManager(subsystem);
     if (dtos != null) {
+      List<IPrimaryKey> keys = new ArrayList<IPrimaryKey>(dtos.size());
       for (T dto : dtos) {
         if (dto.getStatus() == IDbDto.Status.NEW
             || dto.getStatus() == IDbDto.Status.EXISTING) {
@@ -66,8 +71,11 @@ public class InsertMemcachedNoKeyCollection<T extends IDbDto> extends
           manager.putObjectInCache(dto.getPrimaryKey().getCacheName(),
                                    expiration,
                                    dto);
+          keys.add(dto.getPrimaryKey());
         }
       }
+      // Remove any records that the keys are absent, if the cache keeps them.
+      new MemcachedService<T>().removeAbsent(subsystem, keys);
     }
   }
 
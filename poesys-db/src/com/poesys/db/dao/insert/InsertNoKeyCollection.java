@@ -35,8 +35,9 @@ import com.poesys.db.dto.IDbDto;
  * </p>
  * <p>
  * <em>Note: This implementation inserts the entire collection in a series of
- * single inserts. You cannot insert no-key objects in batches because the underlying
- * JDBC standard does not support that operation.</em>
+ * single inserts. To insert identity-key objects in JDBC batches, use the
+ * InsertBatch implementation with a driver that returns generated keys for
+ * batches.</em>
  * </p>
  * 
  * @see com.poesys.db.dto.IDbDto
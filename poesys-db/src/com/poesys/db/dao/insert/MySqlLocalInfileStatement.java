@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao.insert;
+
+
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.apache.log4j.Logger;
+
+
+/**
+ * <p>
+ * A MySQL Connector/J statement that can stream the rows of a LOAD DATA LOCAL
+ * INFILE statement from memory. Connector/J declares the
+ * setLocalInfileInputStream method on a driver-specific interface that
+ * differs between versions (com.mysql.jdbc.Statement in 5.1,
+ * com.mysql.cj.jdbc.JdbcStatement in 8), so the class finds the interface and
+ * calls the method through reflection rather than compiling against either
+ * version.
+ * </p>
+ *
+ * @author Robert J. Muller
+ */
+final class MySqlLocalInfileStatement {
+  /** Logger for this class */
+  private static final Logger logger =
+    Logger.getLogger(MySqlLocalInfileStatement.class);
+
+  /** The Connector/J statement interfaces, newest first */
+  private static final String[] STATEMENT_INTERFACES =
+    { "com.mysql.cj.jdbc.JdbcStatement", "com.mysql.jdbc.Statement" };
+  /** The name of the method that sets the LOCAL INFILE stream */
+  private static final String SET_STREAM = "setLocalInfileInputStream";
+
+  /** The statement created by the connection */
+  private final Statement stmt;
+  /** The Connector/J statement unwrapped from the statement */
+  private final Object driverStmt;
+  /** The method that sets the LOCAL INFILE stream on the driver statement */
+  private final Method setStream;
+
+  /**
+   * Create a MySqlLocalInfileStatement object.
+   *
+   * @param stmt the statement created by the connection
+   * @param driverStmt the Connector/J statement unwrapped from the statement
+   * @param setStream the method that sets the LOCAL INFILE stream
+   */
+  private MySqlLocalInfileStatement(Statement stmt,
+                                    Object driverStmt,
+                                    Method setStream) {
+    this.stmt = stmt;
+    this.driverStmt = driverStmt;
+    this.setStream = setStream;
+  }
+
+  /**
+   * Create a statement from a connection, unwrapping pooled statements as
+   * required.
+   *
+   * @param connection the connection
+   * @return the statement, or null if the driver statement is not a
+   *         Connector/J statement
+   */
+  static MySqlLocalInfileStatement create(Connection connection) {
+    MySqlLocalInfileStatement mysqlStmt = null;
+    Statement stmt = null;
+    try {
+      stmt = connection.createStatement();
+      ClassLoader loader = stmt.getClass().getClassLoader();
+      for (String name : STATEMENT_INTERFACES) {
+        Class<?> type = getInterface(name, loader);
+        if (type != null && stmt.isWrapperFor(type)) {
+          mysqlStmt =
+            new MySqlLocalInfileStatement(stmt,
+                                          stmt.unwrap(type),
+                                          type.getMethod(SET_STREAM,
+                                                         InputStream.class));
+          break;
+        }
+      }
+    } catch (SQLException e) {
+      // Not a Connector/J statement, fall back to batching.
+      logger.debug("Cannot unwrap MySQL statement", e);
+    } catch (NoSuchMethodException e) {
+      // Connector/J without LOCAL INFILE streams, fall back to batching.
+      logger.debug("Cannot unwrap MySQL statement", e);
+    } catch (AbstractMethodError e) {
+      // Pre-JDBC 4 wrapper, fall back to batching.
+      logger.debug("Cannot unwrap MySQL statement", e);
+    }
+    if (mysqlStmt == null && stmt != null) {
+      try {
+        stmt.close();
+      } catch (SQLException e) {
+        // ignore
+      }
+    }
+    return mysqlStmt;
+  }
+
+  /**
+   * Load a Connector/J interface by name.
+   *
+   * @param name the fully qualified name of the interface
+   * @param loader the class loader of the driver statement
+   * @return the interface, or null if the driver does not have it
+   */
+  private static Class<?> getInterface(String name, ClassLoader loader) {
+    Class<?> type = null;
+    try {
+      type = Class.forName(name, false, loader);
+    } catch (ClassNotFoundException e) {
+      // Not this version of Connector/J
+    }
+    return type;
+  }
+
+  /**
+   * Set the stream from which the next LOAD DATA LOCAL INFILE statement reads
+   * its rows.
+   *
+   * @param stream the stream, or null to read the named file again
+   * @throws SQLException when the driver fails to set the stream
+   */
+  void setLocalInfileInputStream(InputStream stream) throws SQLException {
+    try {
+      setStream.invoke(driverStmt, stream);
+    } catch (InvocationTargetException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof SQLException) {
+        throw (SQLException)cause;
+      }
+      throw new SQLException(cause);
+    } catch (IllegalAccessException e) {
+      throw new SQLException(e);
+    }
+  }
+
+  /**
+   * Execute an SQL statement that updates the database.
+   *
+   * @param sql the statement
+   * @return the number of rows updated
+   * @throws SQLException when the statement fails
+   */
+  int executeUpdate(String sql) throws SQLException {
+    return stmt.executeUpdate(sql);
+  }
+
+  /**
+   * Close the statement.
+   *
+   * @throws SQLException when the close fails
+   */
+  void close() throws SQLException {
+    stmt.close();
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao.query;
+
+
+import com.poesys.db.dto.IDbDto;
+
+
+/**
+ * <p>
+ * An IQuerySql that also supports the keys-first query strategy of
+ * QueryMemcachedList: query only the primary keys of the objects, get the
+ * cached objects for all the keys in one bulk cache request, then query the
+ * full rows of just the objects missing from the cache with a key-list query.
+ * A large cached list thus costs one key query, one cache round trip, and
+ * one query for the misses instead of a full-row query plus one cache round
+ * trip per row.
+ * </p>
+ * <p>
+ * The key query must select the primary key columns under the same names as
+ * the full query so that getPrimaryKey() works on either result set, and it
+ * must return the keys in the order of the full query.
+ * </p>
+ * 
+ * @see QueryMemcachedList
+ * 
+ * @author Robert J. Muller
+ * @param <T> the type of IDbDto to query
+ */
+public interface IKeysFirstQuerySql<T extends IDbDto> extends IQuerySql<T> {
+  /**
+   * Get the SQL SELECT statement that selects only the primary key columns of
+   * the objects the full query selects, in the same order.
+   * 
+   * @return the SQL for the key SELECT statement
+   */
+  String getKeySql();
+
+  /**
+   * Get a new key-list query that selects the full rows for a list of primary
+   * keys, for querying the objects missing from the cache.
+   * 
+   * @return the key-list query specification
+   */
+  IKeyListQuerySql<T> getKeyListSql();
+}
@@ -30,6 +30,7 @@ import com.poesys.db.DbErrorException;
 import com.poesys.db.Message;
 import com.poesys.db.NoPrimaryKeyException;
 import com.poesys.db.dao.PoesysTrackingThread;
+import com.poesys.db.dao.SingleFlight;
 import com.poesys.db.dto.IDbDto;
 import com.poesys.db.dto.IDtoCache;
 import com.poesys.db.pk.IPrimaryKey;
@@ -44,6 +45,19 @@ import com.poesys.db.pk.IPrimaryKey;
  * replaces all the code in the superclass because the caching has to happen
  * right in the middle of the method and there's no easy way to split apart the
  * shared code from the caching-specific code.
+ * <p>
+ * If you create the query with an absent expiration time, a key that has no
+ * object in the database is recorded as absent in the cache for that time,
+ * and queries for the key return null without going to the database until the
+ * record expires or caching an inserted object with the key removes it.
+ * </p>
+ * <p>
+ * Concurrent misses for the same key coalesce: the first thread queries the
+ * database and caches the object, and the other threads wait for it and use
+ * the object it cached, so that the expiration of a popular object does not
+ * send a burst of identical queries to the database. A thread that waits
+ * longer than SingleFlight.DEFAULT_TIMEOUT queries the database itself.
+ * </p>
  * 
  * @author Robert J. Muller
  * @param <T> the type of IDbDto to query
@@ -54,6 +68,11 @@ public class QueryCacheByKey<T extends IDbDto> extends QueryByKey<T> implements
   private static final Logger logger = Logger.getLogger(QueryCacheByKey.class);
   /** Reference to the DTO cache of data transfer objects (DTOs) */
   IDtoCache<T> cache;
+  /** expiration time in milliseconds for absent keys, 0 for none */
+  private final int absentExpiration;
+  /** the database loads in progress for all cached queries by key */
+  private static final SingleFlight<IDbDto> flights =
+    new SingleFlight<IDbDto>();
 
   /** Error on executing SQL query */
   private static final String SQL_ERROR =
@@ -72,17 +91,33 @@ public class QueryCacheByKey<T extends IDbDto> extends QueryByKey<T> implements
   public QueryCacheByKey(IKeyQuerySql<T> sql,
                          IDtoCache<T> cache,
                          String subsystem) {
+    this(sql, cache, subsystem, 0);
+  }
+
+  /**
+   * Create a QueryCacheByKey object that records the keys that have no object
+   * in the database as absent in the cache.
+   * 
+   * @param sql the SQL statement specification
+   * @param cache the DTO cache
+   * @param subsystem the subsystem that owns the object being queried
+   * @param absentExpiration the expiration time in milliseconds for a record
+   *          of an absent key, usually short; 0 to not record absent keys
+   */
+  public QueryCacheByKey(IKeyQuerySql<T> sql,
+                         IDtoCache<T> cache,
+                         String subsystem,
+                         int absentExpiration) {
     super(sql, subsystem);
     if (cache == null) {
       throw new RuntimeException(Message.getMessage(NO_CACHE_ERROR, null));
     }
     this.cache = cache;
+    this.absentExpiration = absentExpiration > 0 ? absentExpiration : 0;
   }
 
   @Override
   protected void getDto(IPrimaryKey key, PoesysTrackingThread thread) {
-    PreparedStatement stmt = null;
-
     // Make sure the key is there.
     if (key == null) {
       throw new NoPrimaryKeyException(Message.getMessage(NO_PRIMARY_KEY_ERROR,
@@ -97,50 +132,14 @@ public class QueryCacheByKey<T extends IDbDto> extends QueryByKey<T> implements
     if (dto == null && cache != null) {
       dto = cache.get(key);
 
-      // Only proceed if the object is not cached.
-      if (dto == null) {
-        try {
-          Connection connection = thread.getConnection();
-          stmt = connection.prepareStatement(sql.getSql(key));
-          key.setParams(stmt, 1);
-          logger.debug("Querying uncached object by key: " + sql.getSql(key));
-          logger.debug("Setting key value: " + key.getValueList());
-          ResultSet rs = stmt.executeQuery();
-
-          // Get a single result from the ResultSet and create the DTO.
-          if (rs.next()) {
-            dto = sql.getData(key, rs);
-            // Only cache if successfully retrieved.
-            if (dto != null) {
-              // Set status to existing to indicate DTO is fresh from the
-              // database; do this before caching and adding to the thread so
-              // any further access from those places will get the right status.
-              dto.setExisting();
-              // Cache the object. This must be done here before processing
-              // nested objects to avoid infinite loops.
-              cache.cache(dto);
-              // Add the DTO to the tracking thread to track processing.
-              thread.addDto(dto);
-            }
-          }
-        } catch (ConstraintViolationException e) {
-          throw new DbErrorException(e.getMessage(), thread, e);
-        } catch (SQLException e) {
-          // Log the message and the SQL statement, then throw a standard DB
-          // exception.
-          logger.error("Caching query by key error: " + e.getMessage());
-          logger.error("Caching query by key sql: " + sql.getSql(key) + "\n");
-          logger.debug("SQL statement in class: " + sql.getClass().getName());
-          String message = Message.getMessage(SQL_ERROR, null);
-          throw new DbErrorException(message, thread, e);
-        } finally {
-          if (stmt != null) {
-            try {
-              stmt.close();
-            } catch (SQLException e) {
-              // ignore
-            }
-          }
+      // Only proceed if the object is not cached or known to be absent.
+      if (dto == null && absentExpiration > 0 && cache.isAbsent(key)) {
+        logger.debug("Key " + key.getValueList() + " is cached as absent");
+      } else if (dto == null) {
+        dto = loadDtoFromDatabase(key, thread);
+        if (dto != null) {
+          // Add the DTO to the tracking thread to track processing.
+          thread.addDto(dto);
         }
       } else {
         // Object cached but not in tracking thread, add it.
@@ -159,4 +158,91 @@ public class QueryCacheByKey<T extends IDbDto> extends QueryByKey<T> implements
       }
     }
   }
+
+  /**
+   * Query the DTO from the database and cache it, or wait for another thread
+   * that is already querying it and get the DTO it cached. A waiting thread
+   * gets the DTO from the cache rather than the instance the other thread
+   * loaded, so it gets its own copy from a copy-on-read cache such as
+   * OffHeapDtoCache and the shared instance from an in-memory cache.
+   * 
+   * @param key the primary key of the DTO to query
+   * @param thread the tracking thread with the SQL connection
+   * @return the DTO, or null if there is none
+   */
+  @SuppressWarnings("unchecked")
+  private T loadDtoFromDatabase(final IPrimaryKey key,
+                                final PoesysTrackingThread thread) {
+    SingleFlight.Loader<IDbDto> loader = new SingleFlight.Loader<IDbDto>() {
+      @Override
+      public IDbDto load() {
+        return queryDtoFromDatabase(key, thread);
+      }
+
+      @Override
+      protected IDbDto copy(Object shared) {
+        // Null if evicted since the load, so the follower queries it itself.
+        return cache.get(key);
+      }
+    };
+    return (T)flights.load(key.getCacheName() + ":" + key.getValueList(),
+                           loader).getValue();
+  }
+
+  /**
+   * Query the DTO from the database and cache it, or record the key as absent
+   * if there is no object and absent keys are on.
+   * 
+   * @param key the primary key of the DTO to query
+   * @param thread the tracking thread with the SQL connection
+   * @return the DTO, or null if there is none
+   */
+  protected T queryDtoFromDatabase(IPrimaryKey key, PoesysTrackingThread thread) {
+    PreparedStatement stmt = null;
+    T dto = null;
+    try {
+      Connection connection = thread.getConnection();
+      stmt = connection.prepareStatement(sql.getSql(key));
+      key.setParams(stmt, 1);
+      logger.debug("Querying uncached object by key: " + sql.getSql(key));
+      logger.debug("Setting key value: " + key.getValueList());
+      ResultSet rs = stmt.executeQuery();
+
+      // Get a single result from the ResultSet and create the DTO.
+      if (rs.next()) {
+        dto = sql.getData(key, rs);
+        // Only cache if successfully retrieved.
+        if (dto != null) {
+          // Set status to existing to indicate DTO is fresh from the
+          // database; do this before caching and adding to the thread so
+          // any further access from those places will get the right status.
+          dto.setExisting();
+          // Cache the object. This must be done here before processing
+          // nested objects to avoid infinite loops.
+          cache.cache(dto);
+        }
+      } else if (absentExpiration > 0) {
+        cache.cacheAbsent(key, absentExpiration);
+      }
+    } catch (ConstraintViolationException e) {
+      throw new DbErrorException(e.getMessage(), thread, e);
+    } catch (SQLException e) {
+      // Log the message and the SQL statement, then throw a standard DB
+      // exception.
+      logger.error("Caching query by key error: " + e.getMessage());
+      logger.error("Caching query by key sql: " + sql.getSql(key) + "\n");
+      logger.debug("SQL statement in class: " + sql.getClass().getName());
+      String message = Message.getMessage(SQL_ERROR, null);
+      throw new DbErrorException(message, thread, e);
+    } finally {
+      if (stmt != null) {
+        try {
+          stmt.close();
+        } catch (SQLException e) {
+          // ignore
+        }
+      }
+    }
+    return dto;
+  }
 }
@@ -155,10 +155,12 @@ public class QueryList<T extends IDbDto> implements IQueryList<T> {
 
   /**
    * Execute the query, allocating the list and querying all the objects.
+   * Subclasses can override this method to use a different query strategy,
+   * supplying the result with setList().
    * 
    * @param thread the tracking thread
    */
-  private void doQuery(PoesysTrackingThread thread) {
+  protected void doQuery(PoesysTrackingThread thread) {
     list = new ArrayList<T>();
     PreparedStatement stmt = null;
     ResultSet rs = null;
@@ -214,6 +216,16 @@ public class QueryList<T extends IDbDto> implements IQueryList<T> {
     queryNestedObjectsForList(list, thread);
   }
 
+  /**
+   * Set the list of queried objects that query() returns. Subclasses that
+   * override doQuery() use this method to supply the list.
+   * 
+   * @param list the list of queried objects
+   */
+  protected void setList(List<T> list) {
+    this.list = list;
+  }
+
   /**
    * Query the nested objects for all the objects in a list of objects of type
    * T. You can override this method in subclasses to provide a session ID in
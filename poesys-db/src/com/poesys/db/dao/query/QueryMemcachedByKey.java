@@ -23,6 +23,8 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
+import net.spy.memcached.CachedData;
+
 import org.apache.log4j.Logger;
 
 import com.poesys.db.ConstraintViolationException;
@@ -32,6 +34,7 @@ import com.poesys.db.dao.DaoManagerFactory;
 import com.poesys.db.dao.IDaoManager;
 import com.poesys.db.dao.MemcachedService;
 import com.poesys.db.dao.PoesysTrackingThread;
+import com.poesys.db.dao.SingleFlight;
 import com.poesys.db.dto.IDbDto;
 import com.poesys.db.pk.IPrimaryKey;
 
@@ -44,6 +47,20 @@ import com.poesys.db.pk.IPrimaryKey;
  * cached, the method queries and caches the object. This subclass overrides the
  * queryByKey method to add caching to the logic; the code replaces all the code
  * in the superclass as the code must run in a separate tracking thread.
+ * <p>
+ * If you create the query with an absent expiration time, a key that has no
+ * object in the database is recorded as absent in memcached for that time,
+ * and queries for the key return null without going to the database until the
+ * record expires or an insert of an object with the key removes it.
+ * </p>
+ * <p>
+ * Concurrent misses for the same key in this server coalesce: the first
+ * thread queries the database and caches the object, and the other threads
+ * wait for it and decode their own copies of the object, so that the
+ * expiration of a popular object does not send a burst of identical queries
+ * to the database. A thread that waits longer than SingleFlight.DEFAULT_TIMEOUT
+ * queries the database itself.
+ * </p>
  * 
  * @author Robert J. Muller
  * @param <T> the type of IDbDto to query
@@ -57,6 +74,11 @@ public class QueryMemcachedByKey<T extends IDbDto> extends QueryByKey<T>
   private final String subsystem;
   /** expiration time in milliseconds for cached objects */
   private final Integer expiration;
+  /** expiration time in milliseconds for absent keys, 0 for none */
+  private final int absentExpiration;
+  /** the database loads in progress for all memcached queries by key */
+  private static final SingleFlight<IDbDto> flights =
+    new SingleFlight<IDbDto>();
 
   /**
    * Create a QueryMemcachedByKey object with the appropriate SQL class, the
@@ -72,9 +94,32 @@ public class QueryMemcachedByKey<T extends IDbDto> extends QueryByKey<T>
   public QueryMemcachedByKey(IKeyQuerySql<T> sql,
                              String subsystem,
                              Integer expiration) {
+    this(sql, subsystem, expiration, 0);
+  }
+
+  /**
+   * Create a QueryMemcachedByKey object that records the keys that have no
+   * object in the database as absent in memcached. The memcached insert DAOs
+   * remove these records only for caches with a positive absent time in
+   * CacheSettings, which is where DaoMemcachedFactory gets the time, so set
+   * the time there as well when you create the DAO directly.
+   * 
+   * @param sql the SQL statement specification
+   * @param subsystem the subsystem name for the subsystem containing the T
+   *          class
+   * @param expiration the memcached expiration time in milliseconds for the
+   *          cached object
+   * @param absentExpiration the expiration time in milliseconds for a record
+   *          of an absent key, usually short; 0 to not record absent keys
+   */
+  public QueryMemcachedByKey(IKeyQuerySql<T> sql,
+                             String subsystem,
+                             Integer expiration,
+                             int absentExpiration) {
     super(sql, subsystem);
     this.subsystem = subsystem;
     this.expiration = expiration;
+    this.absentExpiration = absentExpiration > 0 ? absentExpiration : 0;
   }
 
   /**
@@ -95,11 +140,22 @@ public class QueryMemcachedByKey<T extends IDbDto> extends QueryByKey<T>
     // First check tracking thread for DTO.
     T dto = (T)thread.getDto(key);
     if (dto == null) {
+      // Whether another thread queried and cached the DTO
+      boolean shared = false;
       // Next check memcached for DTO.
       dto = getObjectByKeyFromCache(key);
       // Only proceed if the DTO object was not in the tracking thread or cache.
       if (dto == null) {
-        dto = queryDtoFromDatabase(key, thread);
+        if (absentExpiration > 0 && new MemcachedService<T>().isAbsent(key)) {
+          logger.debug("Key " + key.getStringKey() + " is cached as absent");
+        } else {
+          SingleFlight.Result<IDbDto> result = loadDtoFromDatabase(key, thread);
+          dto = (T)result.getValue();
+          shared = result.isShared();
+          if (shared && dto != null) {
+            dto.setQueried(false);
+          }
+        }
       } else {
         dto.setQueried(false);
         logger.debug("Found object " + key.getCacheName() + " with key "
@@ -122,16 +178,56 @@ public class QueryMemcachedByKey<T extends IDbDto> extends QueryByKey<T>
           dto.queryNestedObjects();
           thread.setProcessed(dto, true);
         }
-        // Get the memcached cache manager.
-        DaoManagerFactory.initMemcachedManager(subsystem);
-        IDaoManager memcachedManager = DaoManagerFactory.getManager(subsystem);
-        memcachedManager.putObjectInCache(dto.getPrimaryKey().getCacheName(),
-                                          expiration,
-                                          dto);
+        // Cache the DTO unless the thread that queried it does so.
+        if (!shared) {
+          // Get the memcached cache manager.
+          DaoManagerFactory.initMemcachedManager(subsystem);
+          IDaoManager memcachedManager =
+            DaoManagerFactory.getManager(subsystem);
+          memcachedManager.putObjectInCache(dto.getPrimaryKey().getCacheName(),
+                                            expiration,
+                                            dto);
+        }
       }
     }
   }
 
+  /**
+   * Query the DTO from the database, or wait for another thread that is
+   * already querying it and get a copy of its DTO. The querying thread also
+   * records the key as absent if there is no object and absent keys are on.
+   * 
+   * @param key the primary key of the DTO to query
+   * @param thread the tracking thread with the SQL connection
+   * @return the result, with the DTO or null if there is none
+   */
+  private SingleFlight.Result<IDbDto> loadDtoFromDatabase(final IPrimaryKey key,
+                                                          final PoesysTrackingThread thread) {
+    final MemcachedService<T> service = new MemcachedService<T>();
+    SingleFlight.Loader<IDbDto> loader = new SingleFlight.Loader<IDbDto>() {
+      @Override
+      public IDbDto load() {
+        T dto = queryDtoFromDatabase(key, thread);
+        if (dto == null && absentExpiration > 0) {
+          service.putAbsent(key, absentExpiration);
+        }
+        return dto;
+      }
+
+      @SuppressWarnings("unchecked")
+      @Override
+      protected Object share(IDbDto value) {
+        return service.encode((T)value);
+      }
+
+      @Override
+      protected IDbDto copy(Object shared) {
+        return service.decode((CachedData)shared);
+      }
+    };
+    return flights.load(key.getCacheName() + ":" + key.getValueList(), loader);
+  }
+
   /**
    * Set the DTO object by querying the object from the database, caching the
    * object and setting it into the thread history.
@@ -190,8 +286,10 @@ public class QueryMemcachedByKey<T extends IDbDto> extends QueryByKey<T>
   }
 
   /**
-   * Get the object from the memcached cache by key, or from the thread's
-   * history of objects already deserialized from the cache in this thread.
+   * Get the object from the subsystem's cache manager by key, or from the
+   * thread's history of objects already deserialized from the cache in this
+   * thread. Going through the manager lets a two-level manager answer from its
+   * near cache without a memcached round trip.
    * 
    * @param key the primary key to query
    * @return the object of type T
@@ -199,7 +297,6 @@ public class QueryMemcachedByKey<T extends IDbDto> extends QueryByKey<T>
   @SuppressWarnings("unchecked")
   private T getObjectByKeyFromCache(IPrimaryKey key) {
     T object = null;
-    MemcachedService<T> service = new MemcachedService<T>();
 
     // Make sure the key is there.
     if (key == null) {
@@ -215,12 +312,14 @@ public class QueryMemcachedByKey<T extends IDbDto> extends QueryByKey<T>
     object = (T)thread.getDto(key);
 
     if (object == null) {
-      logger.debug("Object not found in thread DTO history, checking memcached with key \""
+      logger.debug("Object not found in thread DTO history, checking cache with key \""
                    + keyString + "\"");
       // Check the cache for the object.
-      object = service.getObject(key, expiration);
+      DaoManagerFactory.initMemcachedManager(subsystem);
+      IDaoManager manager = DaoManagerFactory.getManager(subsystem);
+      object = manager.getCachedObject(key, expiration, subsystem);
       if (object != null) {
-        logger.debug("Object found in memcached cache: \"" + keyString + "\"");
+        logger.debug("Object found in cache: \"" + keyString + "\"");
       }
     } else {
       object.setQueried(false);
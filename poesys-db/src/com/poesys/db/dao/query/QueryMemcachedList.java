@@ -18,11 +18,18 @@
 package com.poesys.db.dao.query;
 
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.log4j.Logger;
 
+import com.poesys.db.DbErrorException;
+import com.poesys.db.Message;
 import com.poesys.db.dao.DaoManagerFactory;
 import com.poesys.db.dao.IDaoManager;
 import com.poesys.db.dao.PoesysTrackingThread;
@@ -37,6 +44,15 @@ import com.poesys.db.pk.IPrimaryKey;
  * and retrieves the results, but it first gets the primary key and looks up the
  * object in the cache and uses any object that already exists rather than
  * creating a new one.
+ * <p>
+ * If the SQL specification is an IKeysFirstQuerySql, the query instead selects
+ * only the primary keys, gets all the cached objects with one bulk memcached
+ * get, and queries the full rows of only the objects missing from the cache
+ * with key-list queries, then caches those objects. The result list has the
+ * order of the key query.
+ * </p>
+ * 
+ * @see IKeysFirstQuerySql
  * 
  * @author Robert J. Muller
  * @param <T> the type of IDbDto to query
@@ -48,6 +64,8 @@ public class QueryMemcachedList<T extends IDbDto> extends QueryList<T> {
   private final String subsystem;
   /** the memcached expiration time in milliseconds for T objects */
   private final int expiration;
+  /** the maximum number of keys in one key-list query for cache misses */
+  static final int KEY_LIST_SIZE = 500;
 
   /**
    * Create a QueryCacheList object.
@@ -68,6 +86,128 @@ public class QueryMemcachedList<T extends IDbDto> extends QueryList<T> {
     this.expiration = expiration;
   }
 
+  @SuppressWarnings("unchecked")
+  @Override
+  protected void doQuery(PoesysTrackingThread thread) {
+    if (sql instanceof IKeysFirstQuerySql) {
+      doKeysFirstQuery((IKeysFirstQuerySql<T>)sql, thread);
+    } else {
+      super.doQuery(thread);
+    }
+  }
+
+  /**
+   * Query the list with the keys-first strategy: query the keys, get the
+   * cached objects in bulk, and query and cache the rest.
+   * 
+   * @param keySql the keys-first SQL specification
+   * @param thread the tracking thread
+   */
+  private void doKeysFirstQuery(IKeysFirstQuerySql<T> keySql,
+                                PoesysTrackingThread thread) {
+    List<IPrimaryKey> keys = queryKeys(keySql, thread);
+    Map<IPrimaryKey, T> objects = new HashMap<IPrimaryKey, T>(keys.size() * 2);
+
+    // Look up the objects in the tracking thread first.
+    List<IPrimaryKey> untracked = new ArrayList<IPrimaryKey>();
+    for (IPrimaryKey key : keys) {
+      @SuppressWarnings("unchecked")
+      T dto = (T)thread.getDto(key);
+      if (dto != null) {
+        thread.setProcessed(dto, true);
+        objects.put(key, dto);
+      } else {
+        untracked.add(key);
+      }
+    }
+
+    // Get the rest from the cache in bulk.
+    DaoManagerFactory.initMemcachedManager(subsystem);
+    IDaoManager manager = DaoManagerFactory.getManager(subsystem);
+    Map<IPrimaryKey, T> cached = manager.getCachedObjects(untracked, subsystem);
+    for (T dto : cached.values()) {
+      dto.setQueried(false);
+    }
+    objects.putAll(cached);
+    logger.debug("Retrieved " + cached.size() + " of " + untracked.size()
+                 + " DTOs from cache for keys-first memcached list");
+
+    // Query the misses from the database and cache them.
+    List<IPrimaryKey> misses = new ArrayList<IPrimaryKey>();
+    for (IPrimaryKey key : untracked) {
+      if (!cached.containsKey(key)) {
+        misses.add(key);
+      }
+    }
+    if (!misses.isEmpty()) {
+      for (int i = 0; i < misses.size(); i += KEY_LIST_SIZE) {
+        IKeyListQuerySql<T> listSql = keySql.getKeyListSql();
+        listSql.setKeys(new ArrayList<IPrimaryKey>(misses.subList(i,
+                                                                  Math.min(i
+                                                                           + KEY_LIST_SIZE,
+                                                                           misses.size()))));
+        // The key-list query queries the nested objects and sets the DTOs
+        // existing and processed.
+        QueryListWithKeyList<T> query =
+          new QueryListWithKeyList<T>(listSql, subsystem, rows);
+        List<T> queried = query.query();
+        for (T dto : queried) {
+          dto.setQueried(true);
+          objects.put(dto.getPrimaryKey(), dto);
+        }
+        manager.putObjectsInCache(expiration, queried);
+      }
+    }
+
+    // Assemble the list in key order.
+    List<T> list = new ArrayList<T>(keys.size());
+    for (IPrimaryKey key : keys) {
+      T dto = objects.get(key);
+      if (dto != null) {
+        list.add(dto);
+      }
+    }
+    setList(list);
+    queryNestedObjectsForList(list, thread);
+  }
+
+  /**
+   * Query the primary keys of the objects in the list.
+   * 
+   * @param keySql the keys-first SQL specification
+   * @param thread the tracking thread with the connection
+   * @return the list of primary keys in query order
+   */
+  private List<IPrimaryKey> queryKeys(IKeysFirstQuerySql<T> keySql,
+                                      PoesysTrackingThread thread) {
+    List<IPrimaryKey> keys = new ArrayList<IPrimaryKey>();
+    PreparedStatement stmt = null;
+    try {
+      stmt = thread.getConnection().prepareStatement(keySql.getKeySql());
+      logger.debug("Querying keys for memcached list with SQL: "
+                   + keySql.getKeySql());
+      stmt.setFetchSize(rows);
+      ResultSet rs = stmt.executeQuery();
+      while (rs.next()) {
+        keys.add(keySql.getPrimaryKey(rs));
+      }
+    } catch (SQLException e) {
+      String[] args = { keySql.getKeySql() };
+      String message = Message.getMessage(SQL_ERROR, args);
+      logger.error(message, e);
+      throw new DbErrorException(message, e);
+    } finally {
+      if (stmt != null) {
+        try {
+          stmt.close();
+        } catch (SQLException e) {
+          // ignore
+        }
+      }
+    }
+    return keys;
+  }
+
   @Override
   protected T getObject(ResultSet rs, PoesysTrackingThread thread) {
     IPrimaryKey key = sql.getPrimaryKey(rs);
@@ -110,6 +250,7 @@ public class QueryMemcachedList<T extends IDbDto> extends QueryList<T> {
     // Query any nested objects using the current memcached session. This is
     // outside the fetch above to make sure that the statement and result set
     // are closed before recursing.
+    List<T> queried = new ArrayList<T>();
     for (T dto : list) {
       // Only query DTOs not already queried in this thread as an optimization.
       if (!thread.isProcessed(dto.getPrimaryKey())) {
@@ -120,9 +261,7 @@ public class QueryMemcachedList<T extends IDbDto> extends QueryList<T> {
 
         // Cache the object to ensure all nested object keys get serialized.
         if (dto.isQueried()) {
-          manager.putObjectInCache(dto.getPrimaryKey().getCacheName(),
-                                   expiration,
-                                   dto);
+          queried.add(dto);
         }
         // After first-time nested objects are processed, set processed flag.
         thread.setProcessed(dto, true);
@@ -130,5 +269,7 @@ public class QueryMemcachedList<T extends IDbDto> extends QueryList<T> {
         dto.setExisting();
       }
     }
+    // Cache all the queried objects in one operation.
+    manager.putObjectsInCache(expiration, queried);
   }
 }
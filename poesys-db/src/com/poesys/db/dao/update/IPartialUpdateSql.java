@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao.update;
+
+
+import java.sql.PreparedStatement;
+
+import com.poesys.db.dto.IDbDto;
+
+
+/**
+ * <p>
+ * An extension of the IUpdateSql interface that lets the update DAOs generate
+ * UPDATE statements covering only the columns for the fields that changed in
+ * the DTO. The DTO records the changed fields when its set methods call
+ * setChanged(String) with the field name. When the DTO has a set of changed
+ * fields, the DAO generates and caches an UPDATE statement of the form
+ * </p>
+ * 
+ * <pre>
+ * <code>
+ * UPDATE Table SET col1 = ?, col2 = ? WHERE &lt;key expression&gt;
+ * </code>
+ * </pre>
+ * <p>
+ * with the columns in alphabetical order of field name. When the DTO has no
+ * set of changed fields, the DAO uses the full UPDATE statement from the
+ * IUpdateSql methods.
+ * </p>
+ * 
+ * @see com.poesys.db.dto.IDbDto#setChanged(String)
+ * @see PartialUpdateSql
+ * 
+ * @author Robert J. Muller
+ * @param <T> the DTO type to update
+ */
+public interface IPartialUpdateSql<T extends IDbDto> extends IUpdateSql<T> {
+  /**
+   * Get the name of the table to update.
+   * 
+   * @return the table name
+   */
+  String getTableName();
+
+  /**
+   * Get the name of the column that stores a specified DTO field.
+   * 
+   * @param field the DTO field name passed to setChanged(String)
+   * @return the column name, or null if the field has no updatable column, in
+   *         which case the DAO updates all the columns
+   */
+  String getColumnName(String field);
+
+  /**
+   * Set the parameter for the column of a specified DTO field.
+   * 
+   * @param stmt the prepared SQL statement
+   * @param next the index of the parameter to set
+   * @param dto the data transfer object containing the value to set into the
+   *          statement
+   * @param field the DTO field name
+   * @return the index of the next parameter to set
+   */
+  int setParam(PreparedStatement stmt, int next, T dto, String field);
+}
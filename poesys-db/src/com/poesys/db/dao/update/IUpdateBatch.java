@@ -46,7 +46,8 @@ public interface IUpdateBatch<T extends IDbDto> {
    * 
    * @param dtos the data transfer objects containing the desired state of the
    *          objects
-   * @param size the size of the batches
+   * @param size the size of the batches; AdaptiveBatchSize.ADAPTIVE to let
+   *          the DAO tune the size
    */
   public void update(Collection<T> dtos, int size);
 
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao.update;
+
+
+import java.sql.PreparedStatement;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.log4j.Logger;
+
+import com.poesys.db.dto.IDbDto;
+import com.poesys.db.pk.IPrimaryKey;
+
+
+/**
+ * A helper class for the update DAOs that chooses between the full UPDATE
+ * statement of an IUpdateSql object and a partial UPDATE statement that covers
+ * only the columns of the changed fields of a DTO. The class generates partial
+ * statements only for IPartialUpdateSql objects and DTOs with a set of changed
+ * fields; it caches each generated statement by table and set of fields, so
+ * DTOs that change the same fields share the same SQL and can share a JDBC
+ * batch.
+ * 
+ * @see IPartialUpdateSql
+ * 
+ * @author Robert J. Muller
+ * @param <T> the type of IDbDto to update
+ */
+public class PartialUpdateSql<T extends IDbDto> {
+  /** Logger for this class */
+  private static final Logger logger =
+    Logger.getLogger(PartialUpdateSql.class);
+
+  /** cache of partial UPDATE statements indexed by table and fields */
+  private static final Map<String, String> statements =
+    new ConcurrentHashMap<String, String>();
+
+  /** the full UPDATE statement specification */
+  private final IUpdateSql<T> sql;
+
+  /** the partial UPDATE statement specification, or null if not supported */
+  private final IPartialUpdateSql<T> partialSql;
+
+  /**
+   * Create a PartialUpdateSql object.
+   * 
+   * @param sql the SQL UPDATE statement specification
+   */
+  public PartialUpdateSql(IUpdateSql<T> sql) {
+    this.sql = sql;
+    if (sql instanceof IPartialUpdateSql) {
+      partialSql = (IPartialUpdateSql<T>)sql;
+    } else {
+      partialSql = null;
+    }
+  }
+
+  /**
+   * Get the SQL UPDATE statement for a DTO, either the partial statement for
+   * its changed fields or the full statement.
+   * 
+   * @param dto the DTO to update
+   * @return the SQL UPDATE statement
+   */
+  public String getSql(T dto) {
+    IPrimaryKey key = dto.getPrimaryKey();
+    String sqlStmt = null;
+    Set<String> fields = getPartialFields(dto);
+    if (fields != null) {
+      String cacheKey = partialSql.getTableName() + ":" + fields;
+      sqlStmt = statements.get(cacheKey);
+      if (sqlStmt == null) {
+        sqlStmt = buildSql(key, fields);
+        statements.put(cacheKey, sqlStmt);
+        logger.debug("Cached partial update SQL: " + sqlStmt);
+      }
+    } else {
+      sqlStmt = sql.getSql(key);
+    }
+    return sqlStmt;
+  }
+
+  /**
+   * Set the parameters of the UPDATE statement that getSql() returns for the
+   * DTO, including the primary key parameters in the WHERE clause.
+   * 
+   * @param stmt the prepared SQL statement
+   * @param next the index of the first parameter to set
+   * @param dto the DTO containing the values to set into the statement
+   * @return the index of the next parameter to set
+   */
+  public int setParams(PreparedStatement stmt, int next, T dto) {
+    Set<String> fields = getPartialFields(dto);
+    if (fields != null) {
+      for (String field : fields) {
+        next = partialSql.setParam(stmt, next, dto, field);
+      }
+      next = dto.getPrimaryKey().setParams(stmt, next);
+    } else {
+      next = sql.setParams(stmt, next, dto);
+    }
+    return next;
+  }
+
+  /**
+   * Get the parameter string for logging display.
+   * 
+   * @param dto the DTO containing the values to set into the statement
+   * @return the parameter string
+   */
+  public String getParamString(T dto) {
+    Set<String> fields = getPartialFields(dto);
+    StringBuilder builder = new StringBuilder(sql.getParamString(dto));
+    if (fields != null) {
+      builder.append(" (changed: ");
+      builder.append(fields);
+      builder.append(")");
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Get the set of fields for a partial update of a DTO.
+   * 
+   * @param dto the DTO to update
+   * @return the set of changed fields, or null if the update must cover all
+   *         the columns
+   */
+  private Set<String> getPartialFields(T dto) {
+    Set<String> fields = null;
+    if (partialSql != null) {
+      fields = dto.getChangedFields();
+      if (fields.isEmpty()) {
+        fields = null;
+      } else {
+        // Fall back to the full update if any field has no column.
+        for (String field : fields) {
+          if (partialSql.getColumnName(field) == null) {
+            fields = null;
+            break;
+          }
+        }
+      }
+    }
+    return fields;
+  }
+
+  /**
+   * Build the partial UPDATE statement for a set of fields.
+   * 
+   * @param key the primary key, which supplies the WHERE clause
+   * @param fields the fields to update
+   * @return the SQL UPDATE statement
+   */
+  private String buildSql(IPrimaryKey key, Set<String> fields) {
+    StringBuilder builder = new StringBuilder("UPDATE ");
+    builder.append(partialSql.getTableName());
+    builder.append(" SET ");
+    String sep = "";
+    for (String field : fields) {
+      builder.append(sep);
+      builder.append(partialSql.getColumnName(field));
+      builder.append(" = ?");
+      sep = ", ";
+    }
+    builder.append(" WHERE ");
+    builder.append(key.getSqlWhereExpression(""));
+    return builder.toString();
+  }
+}
@@ -23,7 +23,9 @@ import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.log4j.Logger;
 
@@ -32,7 +34,9 @@ import com.poesys.db.InvalidParametersException;
 import com.poesys.db.Message;
 import com.poesys.db.NoPrimaryKeyException;
 import com.poesys.db.dao.AbstractBatch;
+import com.poesys.db.dao.ParameterRecorder;
 import com.poesys.db.dao.PoesysTrackingThread;
+import com.poesys.db.dao.SavepointBatch;
 import com.poesys.db.dto.IDbDto;
 import com.poesys.db.dto.IDbDto.Status;
 import com.poesys.db.pk.IPrimaryKey;
@@ -56,11 +60,24 @@ import com.poesys.db.pk.IPrimaryKey;
  * There may be some rare circumstance where batching doesn't work, in which
  * case you can use com.poesys.db.dao.update.UpdateCollectionByKey.
  * </p>
+ * <p>
+ * If the SQL object is an IPartialUpdateSql, DTOs that recorded their changed
+ * fields get updated with statements that cover only the changed columns. The
+ * implementation groups DTOs with the same set of changed fields into a batch
+ * for each statement.
+ * </p>
+ * <p>
+ * In retry mode, each batch executes within a savepoint; if some rows fail,
+ * the update rolls back to the savepoint, marks the failed DTOs, and executes
+ * the remaining rows again (see SavepointBatch).
+ * </p>
  * 
  * @see com.poesys.db.dto.AbstractDto
  * @see com.poesys.db.dto.IDbDto
  * @see IUpdateSql
+ * @see IPartialUpdateSql
  * @see UpdateCollectionByKey
+ * @see com.poesys.db.dao.SavepointBatch
  * 
  * @author Robert J. Muller
  * @param <T> the type of IDbDto to update
@@ -70,7 +87,9 @@ public class UpdateBatchByKey<T extends IDbDto> extends AbstractBatch<T>
   /** Logger for this class */
   private static final Logger logger = Logger.getLogger(UpdateBatchByKey.class);
   /** Internal Strategy-pattern object containing the SQL query */
-  private IUpdateSql<T> sql;
+  private PartialUpdateSql<T> sql;
+  /** whether to retry the successful rows of a batch with failed rows */
+  private final boolean retry;
 
   /** timeout for the cache thread */
   private static final int TIMEOUT = 1000 * 60;
@@ -102,13 +121,28 @@ public class UpdateBatchByKey<T extends IDbDto> extends AbstractBatch<T>
    * @param subsystem the subsystem of class T
    */
   public UpdateBatchByKey(IUpdateSql<T> sql, String subsystem) {
+    this(sql, subsystem, false);
+  }
+
+  /**
+   * Create an UpdateBatchByKey object that optionally retries the successful
+   * rows of a batch in which some rows fail.
+   * 
+   * @param sql the SQL UPDATE statement generator object
+   * @param subsystem the subsystem of class T
+   * @param retry true to execute each batch within a savepoint and retry
+   *          without the failed rows, false to lose the rest of a failed
+   *          batch as the driver dictates
+   */
+  public UpdateBatchByKey(IUpdateSql<T> sql, String subsystem, boolean retry) {
     super(subsystem);
+    this.retry = retry;
     if (sql == null) {
       throw new InvalidParametersException(Message.getMessage(NULL_SQL_ERROR,
                                                               null));
     }
 
-    this.sql = sql;
+    this.sql = new PartialUpdateSql<T>(sql);
   }
 
   @Override
@@ -171,7 +205,8 @@ public class UpdateBatchByKey<T extends IDbDto> extends AbstractBatch<T>
 
   /**
    * Update a collection of DTOs using batch processing, including pre- and
-   * post-processing.
+   * post-processing. DTOs that share the same UPDATE statement (the same set
+   * of changed columns for partial updates) share a batch.
    * 
    * @param dtos a collection of DTOs to update
    * @param size the batch size
@@ -179,93 +214,79 @@ public class UpdateBatchByKey<T extends IDbDto> extends AbstractBatch<T>
    */
   private void processUpdateBatches(Collection<T> dtos, int size,
                                     PoesysTrackingThread thread) {
-    PreparedStatement stmt = null;
-    // array of return codes from JDBC batch processing
-    int[] codes = null;
-    // list of current DTOs for error processing
-    List<T> list = new ArrayList<T>();
-    // counter for number of objects processed in batch
-    int count = 0;
+    // batches of updates indexed by SQL statement
+    Map<String, Batch> batches = new LinkedHashMap<String, Batch>();
 
     // Iterate only if there are DTOs to iterate over.
     if (dtos != null) {
       try {
         for (T dto : dtos) {
-          IPrimaryKey key = dto.getPrimaryKey();
-          String sqlStmt = sql.getSql(key);
-          if (sqlStmt != null) {
-            if (stmt == null) {
-              stmt =
-                thread.getConnection().prepareStatement(sql.getSql(key).toString());
-            }
-          }
-          count = processDto(dto, stmt, sqlStmt, list, size, codes, count);
+          processDto(dto, batches, size, thread);
         }
       } catch (SQLException e) {
         throw new DbErrorException(Message.getMessage(SQL_ERROR, null));
       } finally {
-        // Execute the last batch, if any.
-        if (count > 0 && stmt != null) {
-          processFinalBatch(dtos, stmt, list);
+        try {
+          // Execute the last batch of each statement, if any.
+          for (Batch batch : batches.values()) {
+            processFinalBatch(batch);
+          }
+        } finally {
+          // Close all the statements, even if a batch failed.
+          for (Batch batch : batches.values()) {
+            try {
+              batch.stmt.close();
+            } catch (SQLException e) {
+              // ignore
+            }
+          }
         }
       }
     }
   }
 
   /**
-   * Process the final batch.
+   * Process the final batch for a statement. The caller closes the statement.
    * 
-   * @param dtos the list of DTOs being processed
-   * @param stmt the prepared statement containing the final batch of SQL
-   *          updates
-   * @param list the list of processed DTOs, for error handling
+   * @param batch the batch containing the prepared statement and the list of
+   *          DTOs in the final batch, for error handling
    */
   @SuppressWarnings("unchecked")
-  private void processFinalBatch(Collection<T> dtos, PreparedStatement stmt,
-                                 List<T> list) {
+  private void processFinalBatch(Batch batch) {
     PoesysTrackingThread thread = (PoesysTrackingThread)Thread.currentThread();
     int[] codes;
     try {
-      codes = stmt.executeBatch();
+      if (batch.count > 0 && batch.retryBatch != null) {
+        batch.retryBatch.execute();
+      } else if (batch.count > 0) {
+        codes = batch.stmt.executeBatch();
+      }
     } catch (BatchUpdateException e) {
       logger.error("Batch update exception", e);
       codes = e.getUpdateCounts();
-      thread.processErrors(codes, (Collection<IDbDto>)dtos);
+      thread.processErrors(codes, (Collection<IDbDto>)batch.list);
     } catch (SQLException e) {
       // Log and let the thread complete immediately
       Object[] args = { "batch of DTOs" };
       String message = Message.getMessage(POST_PROCESSING_ERROR, args);
       logger.error(message, e);
       throw new DbErrorException(message, thread, e);
-    } finally {
-      // Close the statement as required.
-      if (stmt != null) {
-        try {
-          stmt.close();
-        } catch (SQLException e) {
-          // ignore
-        }
-      }
     }
   }
 
   /**
    * Process the DTO. The method processes a DTO with status CHANGED that the
-   * thread has not already processed.
+   * thread has not already processed, adding it to the batch for its UPDATE
+   * statement.
    * 
    * @param dto the DTO to process
-   * @param stmt the prepared SQL statement that contains the batch
-   * @param sqlStmt the text of the SQL statement, for debugging output
-   * @param list the list of current DTOs for error processing
+   * @param batches the current batches indexed by SQL statement
    * @param size the batch size
-   * @param codes an array of codes for the batched statements
-   * @param count the count of DTOs processed
-   * @return the updated count of DTOs processed (0 or 1 more than count input)
+   * @param thread the Poesys tracking thread for the update
+   * @throws SQLException when the statement for a new batch can't be prepared
    */
-  private int processDto(T dto, PreparedStatement stmt, String sqlStmt,
-                         List<T> list, int size, int[] codes, int count) {
-    PoesysTrackingThread thread = (PoesysTrackingThread)Thread.currentThread();
-
+  private void processDto(T dto, Map<String, Batch> batches, int size,
+                          PoesysTrackingThread thread) throws SQLException {
     try {
       if (dto == null) {
         throw new InvalidParametersException(NO_DTO_ERROR, null);
@@ -274,7 +295,7 @@ public class UpdateBatchByKey<T extends IDbDto> extends AbstractBatch<T>
         // Something's very wrong, so abort the whole update.
         throw new NoPrimaryKeyException(Message.getMessage(NO_KEY_ERROR, null));
       }
-      if (sqlStmt == null || sql == null) {
+      if (sql == null || sql.getSql(dto) == null) {
         throw new InvalidParametersException(Message.getMessage(NULL_SQL_ERROR,
                                                                 null));
       }
@@ -288,16 +309,38 @@ public class UpdateBatchByKey<T extends IDbDto> extends AbstractBatch<T>
         dto.validateForUpdate();
 
         // Everything is valid, so proceed to the main update.
-        count++;
-
         IPrimaryKey key = dto.getPrimaryKey();
+        String sqlStmt = sql.getSql(dto);
+        Batch batch = batches.get(sqlStmt);
+        if (batch == null) {
+          batch =
+            new Batch(thread.getConnection().prepareStatement(sqlStmt));
+          if (retry) {
+            batch.retryBatch =
+              new SavepointBatch<T>(batch.stmt, thread.getConnection());
+          }
+          batches.put(sqlStmt, batch);
+        }
+        batch.count++;
+
+        logger.debug("Adding update to batch with key " + key);
+        logger.debug("SQL: " + sqlStmt);
+        logger.debug(sql.getParamString(dto));
 
         // Set the updating fields first, then the key in the WHERE
         // clause.
-        sql.setParams(stmt, 1, dto);
-        stmt.addBatch();
+        if (batch.retryBatch != null) {
+          // Record the parameters now, as setExisting() clears the changed
+          // fields that a partial update uses to set them.
+          ParameterRecorder recorder = new ParameterRecorder();
+          sql.setParams(recorder.getStatement(), 1, dto);
+          batch.retryBatch.add(dto, recorder);
+        } else {
+          sql.setParams(batch.stmt, 1, dto);
+          batch.stmt.addBatch();
+        }
         // Add the DTO to the current batch list for error processing.
-        list.add(dto);
+        batch.list.add(dto);
         // Set status to existing to indicate DTO is fresh from the
         // database; do this before adding to the thread so any further access
         // from those places will get the right status.
@@ -308,13 +351,8 @@ public class UpdateBatchByKey<T extends IDbDto> extends AbstractBatch<T>
         // Note that the caller must set the DTO status to EXISTING once ALL
         // processing is complete (over the entire inheritance hierarchy).
 
-        logger.debug("Adding update to batch with key " + key);
-        logger.debug("SQL: " + sqlStmt);
-        logger.debug(sql.getParamString(dto));
-
-        if (count == size) {
-          count =
-            processBatch(dto.getPrimaryKey().getStringKey(), stmt, list, count);
+        if (batch.count >= getBatchSize(size, dto)) {
+          processBatch(dto.getPrimaryKey().getStringKey(), batch, size, dto);
         }
       }
     } catch (InvalidParametersException | SQLException e) {
@@ -323,43 +361,70 @@ public class UpdateBatchByKey<T extends IDbDto> extends AbstractBatch<T>
       logger.error(message, e);
       throw new DbErrorException(message, thread, e);
     }
-    return count;
   }
 
   /**
-   * Take a complete batch of statements and execute the batch.
+   * Take a complete batch of statements and execute the batch, then reset the
+   * batch for the next set of DTOs.
    * 
    * @param key the string representation of the primary key of the DTO, used
    *          for error messages
-   * @param stmt the prepared SQL statement containing the batch of updates
-   * @param list the list of current DTOs processed
-   * @param count the count of DTOs processed in this batch
-   * @return the count after completion of batch processing, normally 0
+   * @param batch the batch containing the prepared SQL statement and the list
+   *          of current DTOs processed
+   * @param size the requested batch size
+   * @param dto the last DTO added to the batch
    */
   @SuppressWarnings("unchecked")
-  private int processBatch(String key, PreparedStatement stmt, List<T> list,
-                           int count) {
+  private void processBatch(String key, Batch batch, int size, T dto) {
     PoesysTrackingThread thread = (PoesysTrackingThread)Thread.currentThread();
     int[] codes;
     // end of batch, execute
     try {
-      stmt.executeBatch();
+      long start = System.nanoTime();
+      if (batch.retryBatch != null) {
+        batch.retryBatch.execute();
+      } else {
+        batch.stmt.executeBatch();
+      }
+      recordBatch(size, dto, batch.count, start);
       // Reset the batch variables for the next batch.
-      count = 0;
-      list.clear();
+      batch.count = 0;
+      batch.list.clear();
     } catch (BatchUpdateException e) {
       codes = e.getUpdateCounts();
-      thread.processErrors(codes, (Collection<IDbDto>)list);
+      thread.processErrors(codes, (Collection<IDbDto>)batch.list);
       // Reset the batch variables for the next batch.
-      count = 0;
-      list.clear();
+      batch.count = 0;
+      batch.list.clear();
     } catch (SQLException e) {
       Object[] args = { key };
       String message = Message.getMessage(UPDATE_ERROR, args);
       logger.error(message, e);
       throw new DbErrorException(message, thread, e);
     }
-    return count;
+  }
+
+  /**
+   * The state of a JDBC batch for one UPDATE statement
+   */
+  private class Batch {
+    /** the prepared statement containing the batch */
+    private final PreparedStatement stmt;
+    /** the DTOs in the current batch, for error processing */
+    private final List<T> list = new ArrayList<T>();
+    /** the number of DTOs in the current batch */
+    private int count = 0;
+    /** the savepoint batch in retry mode, or null */
+    private SavepointBatch<T> retryBatch = null;
+
+    /**
+     * Create a Batch object.
+     * 
+     * @param stmt the prepared statement for the batch
+     */
+    private Batch(PreparedStatement stmt) {
+      this.stmt = stmt;
+    }
   }
 
   @Override
@@ -38,10 +38,13 @@ import com.poesys.db.pk.IPrimaryKey;
  * identifying the object in the database using the primary key of the DTO. The
  * implementation should update in the database only if isChanged() is true. The
  * caller should set the DTO status to existing once <strong>all</strong>
- * processing is complete (over the entire inheritance hierarchy).
+ * processing is complete (over the entire inheritance hierarchy). If the SQL
+ * object is an IPartialUpdateSql and the DTO recorded its changed fields, the
+ * update covers only the columns of those fields.
  * 
  * @see com.poesys.db.dto.AbstractDto
  * @see IUpdateSql
+ * @see IPartialUpdateSql
  * 
  * @author Robert J. Muller
  * @param <T> the type of IDbDto to update
@@ -49,7 +52,7 @@ import com.poesys.db.pk.IPrimaryKey;
 public class UpdateByKey<T extends IDbDto> implements IUpdate<T> {
   private static final Logger logger = Logger.getLogger(UpdateByKey.class);
   /** Internal Strategy-pattern object containing the SQL query */
-  private IUpdateSql<T> sql;
+  private PartialUpdateSql<T> sql;
   /** Error message when no DTO supplied */
   private static final String NO_DTO_ERROR =
     "com.poesys.db.dao.update.msg.no_dto";
@@ -72,7 +75,7 @@ public class UpdateByKey<T extends IDbDto> implements IUpdate<T> {
    * @param subsystem of class T
    */
   public UpdateByKey(IUpdateSql<T> sql, String subsystem) {
-    this.sql = sql;
+    this.sql = new PartialUpdateSql<T>(sql);
     this.subsystem = subsystem;
   }
 
@@ -148,7 +151,7 @@ public class UpdateByKey<T extends IDbDto> implements IUpdate<T> {
         dto.validateForUpdate();
         dto.preprocessNestedObjects();
         IPrimaryKey key = dto.getPrimaryKey();
-        sqlStmt = sql.getSql(key);
+        sqlStmt = sql.getSql(dto);
         if (sqlStmt != null) {
           stmt = thread.getConnection().prepareStatement(sqlStmt);
           sql.setParams(stmt, 1, dto);
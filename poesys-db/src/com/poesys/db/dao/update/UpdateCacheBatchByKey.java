@@ -50,6 +50,23 @@ public class UpdateCacheBatchByKey<T extends IDbDto> extends
     this.cache = cache;
   }
 
+  /**
+   * Create a UpdateCacheBatchByKey object that optionally retries the
+   * successful rows of a batch in which some rows fail.
+   * 
+   * @param sql the SQL UPDATE statement specification
+   * @param cache the cache of IDtos from which to remove the updated DTOs
+   * @param subsystem the subsystem of class T
+   * @param retry true to retry batches without their failed rows
+   */
+  public UpdateCacheBatchByKey(IUpdateSql<T> sql,
+                               IDtoCache<T> cache,
+                               String subsystem,
+                               boolean retry) {
+    super(sql, subsystem, retry);
+    this.cache = cache;
+  }
+
   @Override
   public void update(Collection<T> dtos, int size) {
     super.update(dtos, size);
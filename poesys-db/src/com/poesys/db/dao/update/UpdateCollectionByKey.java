@@ -18,8 +18,11 @@
 package com.poesys.db.dao.update;
 
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
+import com.poesys.db.dao.BatchThreshold;
 import com.poesys.db.dto.IDbDto;
 
 
@@ -39,7 +42,11 @@ import com.poesys.db.dto.IDbDto;
  * single-statement support for multiple updates processed in a single batch.
  * Consider using the com.poesys.db.dao.update.UpdateBatchByKey class instead of
  * this one unless there is some reason why batch processing would not work
- * well.
+ * well. This class itself updates with an UpdateBatchByKey when the collection
+ * is larger than the batch threshold for the subsystem (see BatchThreshold).
+ * In that case it passes only the CHANGED DTOs to the batch, because
+ * UpdateBatchByKey pre-processes the nested objects of every DTO it gets,
+ * while UpdateByKey processes only those of CHANGED DTOs.
  * </p>
  * 
  * @see com.poesys.db.dto.AbstractDto
@@ -74,8 +81,17 @@ public class UpdateCollectionByKey<T extends IDbDto> implements
   public void update(Collection<T> dtos) {
     UpdateByKey<T> updater = new UpdateByKey<T>(sql, subsystem);
 
-    // Iterate only if there are DTOs to iterate over.
-    if (dtos != null) {
+    // Batch large collections; iterate only if there are DTOs to iterate over.
+    if (dtos != null && BatchThreshold.isBatch(subsystem, dtos.size())) {
+      List<T> changed = new ArrayList<T>();
+      for (T dto : dtos) {
+        if (dto == null || dto.getStatus() == IDbDto.Status.CHANGED) {
+          changed.add(dto);
+        }
+      }
+      new UpdateBatchByKey<T>(sql, subsystem).update(changed,
+                                                     BatchThreshold.getBatchSize(subsystem));
+    } else if (dtos != null) {
       for (T dto : dtos) {
         updater.update(dto);
       }
@@ -18,12 +18,15 @@
 package com.poesys.db.dao.update;
 
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import com.poesys.db.dao.DaoManagerFactory;
 import com.poesys.db.dao.IDaoManager;
 import com.poesys.db.dto.IDbDto;
 import com.poesys.db.dto.IDbDto.Status;
+import com.poesys.db.pk.IPrimaryKey;
 
 
 /**
@@ -46,6 +49,20 @@ public class UpdateMemcachedBatchByKey<T extends IDbDto> extends
     super(sql, subsystem);
   }
 
+  /**
+   * Create a UpdateMemcachedBatchByKey object that optionally retries the
+   * successful rows of a batch in which some rows fail.
+   * 
+   * @param sql the SQL UPDATE statement specification
+   * @param subsystem the name of the subsystem containing the T class
+   * @param retry true to retry batches without their failed rows
+   */
+  public UpdateMemcachedBatchByKey(IUpdateSql<T> sql,
+                                   String subsystem,
+                                   boolean retry) {
+    super(sql, subsystem, retry);
+  }
+
   @Override
   public void update(Collection<T> dtos, int size) {
     // Remove any CHANGED DTOs from the cache, then do the update, which resets
@@ -53,12 +70,13 @@ public class UpdateMemcachedBatchByKey<T extends IDbDto> extends
     if (dtos != null && dtos.size() > 0) {
       DaoManagerFactory.initMemcachedManager(subsystem);
       IDaoManager manager = DaoManagerFactory.getManager(subsystem);
+      List<IPrimaryKey> keys = new ArrayList<IPrimaryKey>(dtos.size());
       for (T dto : dtos) {
         if (dto != null && dto.getStatus() == Status.CHANGED) {
-          manager.removeObjectFromCache(dto.getPrimaryKey().getCacheName(),
-                                        dto.getPrimaryKey());
+          keys.add(dto.getPrimaryKey());
         }
       }
+      manager.removeObjectsFromCache(keys);
     }
     super.update(dtos, size);
   }
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao.upsert;
+
+
+import java.util.Collection;
+
+import com.poesys.db.dto.IDbDto;
+
+
+/**
+ * An interface for a Command pattern class that inserts or updates a batch of
+ * data transfer objects (DTOs) in the database in a single statement per
+ * object, inserting the row if no row with the primary key exists and
+ * updating it otherwise. This replaces querying by key and then inserting or
+ * updating, which takes two round trips per object and races with other
+ * writers. The implementation should process a DTO if it has the status NEW
+ * or CHANGED.
+ * 
+ * @author Robert J. Muller
+ * @param <T> the type of IDbDto to upsert
+ */
+public interface IUpsertBatch<T extends IDbDto> {
+  /**
+   * Insert or update the contents of a collection of DTO objects in the
+   * database in batches of a specified size. The DTOs must contain values for
+   * the primary key.
+   * 
+   * @param dtos the data transfer objects containing the desired state of the
+   *          objects
+   * @param size the size of the batches
+   */
+  public void upsert(Collection<T> dtos, int size);
+
+  /**
+   * Close any resources allocated by the Command.
+   */
+  public void close();
+}
@@ -0,0 +1,323 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao.upsert;
+
+
+import java.io.IOException;
+import java.sql.BatchUpdateException;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+import com.poesys.db.DbErrorException;
+import com.poesys.db.InvalidParametersException;
+import com.poesys.db.Message;
+import com.poesys.db.NoPrimaryKeyException;
+import com.poesys.db.connection.ConnectionFactoryFactory;
+import com.poesys.db.dao.AbstractBatch;
+import com.poesys.db.dao.PoesysTrackingThread;
+import com.poesys.db.dao.insert.IInsertSql;
+import com.poesys.db.dao.update.IUpdateSql;
+import com.poesys.db.dto.IDbDto;
+import com.poesys.db.dto.IDbDto.Status;
+import com.poesys.db.pk.IPrimaryKey;
+import com.poesys.db.pk.IdentityPrimaryKey;
+
+
+/**
+ * <p>
+ * An implementation of the IUpsertBatch generic interface that inserts or
+ * updates a batch of objects with a single statement per object: INSERT ... ON
+ * DUPLICATE KEY UPDATE on MySQL and MERGE on Oracle and Sybase. The DBMS
+ * comes from the connection factory of the subsystem. You supply the
+ * IInsertSql and IUpdateSql specifications that the insert and update DAOs for
+ * the class use; see UpsertSql for the form these statements must take.
+ * </p>
+ * <p>
+ * The upsert processes NEW and CHANGED DTOs that the tracking thread has not
+ * already processed, validating NEW DTOs for insert and CHANGED DTOs for
+ * update. As with UpdateBatchByKey, CHANGED DTOs get the status EXISTING when
+ * they go into the batch; as with InsertBatch, NEW DTOs keep their status and
+ * get their to-many and child nested objects inserted after all the batches
+ * execute. The upsert does not support identity keys, as the key must have a
+ * value to match an existing row.
+ * </p>
+ * 
+ * @see UpsertSql
+ * @see com.poesys.db.dao.insert.InsertBatch
+ * @see com.poesys.db.dao.update.UpdateBatchByKey
+ * 
+ * @author Robert J. Muller
+ * @param <T> the type of IDbDto to upsert
+ */
+public class UpsertBatch<T extends IDbDto> extends AbstractBatch<T> implements
+    IUpsertBatch<T> {
+  /** Logger for this class */
+  private static final Logger logger = Logger.getLogger(UpsertBatch.class);
+  /** The INSERT specification */
+  private final IInsertSql<T> insertSql;
+  /** The UPDATE specification */
+  private final IUpdateSql<T> updateSql;
+
+  /** timeout for the tracking thread */
+  private static final int TIMEOUT = 1000 * 60;
+
+  /** Error message when no primary key supplied */
+  private static final String NO_KEY_ERROR =
+    "com.poesys.db.dao.upsert.msg.no_key";
+  /** Error message when the key is an identity key */
+  private static final String IDENTITY_ERROR =
+    "com.poesys.db.dao.upsert.msg.identity_key";
+  /** Error message when no SQL object supplied */
+  private static final String NULL_SQL_ERROR = "com.poesys.db.dao.msg.null_sql";
+  /** Error message when the upsert throws an exception */
+  private static final String UPSERT_ERROR =
+    "com.poesys.db.dao.upsert.msg.upsert";
+  /** Error message when the connection factory is not available */
+  private static final String FACTORY_ERROR =
+    "com.poesys.db.dao.upsert.msg.factory";
+  /** Error message when thread is interrupted or timed out */
+  private static final String THREAD_ERROR = "com.poesys.db.dao.msg.thread";
+  /** message string for exceptions */
+  private static final String BATCH_MSG = "com.poesys.db.dao.msg.batch_of_dtos";
+
+  /**
+   * Create an UpsertBatch object.
+   * 
+   * @param insertSql the SQL INSERT statement generator object
+   * @param updateSql the SQL UPDATE statement generator object
+   * @param subsystem the subsystem of class T
+   */
+  public UpsertBatch(IInsertSql<T> insertSql,
+                     IUpdateSql<T> updateSql,
+                     String subsystem) {
+    super(subsystem);
+    if (insertSql == null || updateSql == null) {
+      throw new InvalidParametersException(Message.getMessage(NULL_SQL_ERROR,
+                                                              null));
+    }
+    this.insertSql = insertSql;
+    this.updateSql = updateSql;
+  }
+
+  @Override
+  public void upsert(Collection<T> dtos, int size) {
+    // If the current thread is a PoesysTrackingThread, just upsert in that
+    // thread; if not, start a new thread for the upserts.
+    if (Thread.currentThread() instanceof PoesysTrackingThread) {
+      upsertBatches(dtos, size);
+    } else {
+      Runnable process = new Runnable() {
+        public void run() {
+          PoesysTrackingThread thread =
+            (PoesysTrackingThread)Thread.currentThread();
+          try {
+            upsertBatches(dtos, size);
+            // Post process here as the client is not in the tracking thread.
+            if (dtos != null) {
+              for (T dto : dtos) {
+                dto.postprocessNestedObjects();
+              }
+            }
+          } catch (Throwable e) {
+            thread.setThrowable(e);
+          } finally {
+            thread.closeConnection();
+          }
+        }
+      };
+      PoesysTrackingThread thread =
+        new PoesysTrackingThread(process, subsystem);
+      thread.start();
+
+      // Join the thread, blocking until the thread completes or
+      // until the query times out.
+      try {
+        thread.join(TIMEOUT);
+        // Check for problems.
+        if (thread.getThrowable() != null) {
+          Object[] args = { "upsert", Message.getMessage(BATCH_MSG, null) };
+          String message = Message.getMessage(THREAD_ERROR, args);
+          logger.error(message, thread.getThrowable());
+          throw new DbErrorException(message, thread.getThrowable());
+        }
+      } catch (InterruptedException e) {
+        Object[] args = { "upsert", Message.getMessage(BATCH_MSG, null) };
+        String message = Message.getMessage(THREAD_ERROR, args);
+        logger.error(message, e);
+      }
+    }
+  }
+
+  /**
+   * Upsert the NEW and CHANGED DTOs in batches of a specified size. This
+   * method runs within a container PoesysTrackingThread.
+   * 
+   * @param dtos the DTOs to upsert
+   * @param size the batch size
+   */
+  private void upsertBatches(Collection<T> dtos, int size) {
+    if (dtos == null) {
+      return;
+    }
+
+    PoesysTrackingThread thread = (PoesysTrackingThread)Thread.currentThread();
+    UpsertSql<T> sql = null;
+    PreparedStatement stmt = null;
+    List<T> list = new ArrayList<T>();
+    String example = null; // key string for error messages
+
+    try {
+      for (T dto : dtos) {
+        IPrimaryKey key = dto.getPrimaryKey();
+        if (key == null) {
+          // Something's very wrong, so abort the whole upsert.
+          throw new NoPrimaryKeyException(Message.getMessage(NO_KEY_ERROR,
+                                                             null));
+        } else if (key instanceof IdentityPrimaryKey) {
+          throw new InvalidParametersException(Message.getMessage(IDENTITY_ERROR,
+                                                                  null));
+        }
+
+        Status status = dto.getStatus();
+        if (thread.getDto(key) == null
+            && (status == Status.NEW || status == Status.CHANGED)) {
+          if (status == Status.NEW) {
+            dto.queryNestedObjectsForValidation();
+            dto.validateForInsert();
+          } else {
+            dto.validateForUpdate();
+          }
+          dto.preprocessNestedObjects();
+
+          // Check again, as preprocessing may have processed the DTO.
+          if (thread.getDto(key) == null) {
+            if (stmt == null) {
+              sql = new UpsertSql<T>(insertSql, updateSql, getDbms());
+              stmt = thread.getConnection().prepareStatement(sql.getSql(key));
+              example = key.getStringKey();
+            }
+            logger.debug("Adding upsert to batch with key " + key);
+            logger.debug("Parameters: " + sql.getParamString(dto));
+            sql.setParams(stmt, dto);
+            stmt.addBatch();
+            list.add(dto);
+            if (status == Status.CHANGED) {
+              // Set status to existing to indicate DTO is fresh from the
+              // database, as UpdateBatchByKey does.
+              dto.setExisting();
+            }
+            thread.addDto(dto);
+            if (list.size() >= getBatchSize(size, dto)) {
+              long start = System.nanoTime();
+              int rows = list.size();
+              executeBatch(stmt, list, example);
+              recordBatch(size, dto, rows, start);
+            }
+          }
+        }
+      }
+    } catch (SQLException e) {
+      Object[] args = { example };
+      String message = Message.getMessage(UPSERT_ERROR, args);
+      logger.error(message, e);
+      throw new DbErrorException(message, thread, e);
+    } finally {
+      if (stmt != null) {
+        try {
+          // Execute the last batch, if any.
+          if (list.size() > 0) {
+            executeBatch(stmt, list, example);
+          }
+        } finally {
+          try {
+            stmt.close();
+          } catch (SQLException e) {
+            // ignore
+          }
+        }
+      }
+    }
+
+    // Insert to-many and child nested objects of NEW DTOs after all the
+    // parents exist, as InsertBatch does.
+    for (IDbDto dto : dtos) {
+      if (dto.getStatus() == Status.NEW && !dto.isAbstractClass()) {
+        dto.insertNestedObjects();
+      }
+    }
+  }
+
+  /**
+   * Execute a batch, set the processed flag for each successful DTO, process
+   * any errors, and empty the batch list.
+   * 
+   * @param stmt the statement containing the batch
+   * @param list the DTOs in the batch
+   * @param example the example key string for error messages
+   */
+  @SuppressWarnings("unchecked")
+  private void executeBatch(PreparedStatement stmt, List<T> list,
+                            String example) {
+    PoesysTrackingThread thread = (PoesysTrackingThread)Thread.currentThread();
+    try {
+      stmt.executeBatch();
+      for (T dto : list) {
+        thread.setProcessed(dto, true);
+      }
+    } catch (BatchUpdateException e) {
+      logger.error("Batch upsert exception", e);
+      thread.processErrors(e.getUpdateCounts(), (Collection<IDbDto>)list);
+    } catch (SQLException e) {
+      Object[] args = { example };
+      String message = Message.getMessage(UPSERT_ERROR, args);
+      logger.error(message, e);
+      throw new DbErrorException(message, thread, e);
+    } finally {
+      list.clear();
+    }
+  }
+
+  /**
+   * Get the DBMS of the subsystem from its connection factory.
+   * 
+   * @return the DBMS
+   */
+  private com.poesys.db.connection.IConnectionFactory.DBMS getDbms() {
+    try {
+      return ConnectionFactoryFactory.getInstance(subsystem).getDbms();
+    } catch (IOException e) {
+      String message = Message.getMessage(FACTORY_ERROR, null);
+      logger.error(message, e);
+      throw new DbErrorException(message, e);
+    } catch (InvalidParametersException e) {
+      String message = Message.getMessage(FACTORY_ERROR, null);
+      logger.error(message, e);
+      throw new DbErrorException(message, e);
+    }
+  }
+
+  @Override
+  public void close() {
+    // Nothing to do
+  }
+}
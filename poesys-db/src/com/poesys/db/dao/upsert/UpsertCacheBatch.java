@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao.upsert;
+
+
+import java.util.Collection;
+
+import com.poesys.db.dao.insert.IInsertSql;
+import com.poesys.db.dao.update.IUpdateSql;
+import com.poesys.db.dto.IDbDto;
+import com.poesys.db.dto.IDtoCache;
+
+
+/**
+ * A cache-aware version of the UpsertBatch class. After upserting the batch,
+ * the upsert removes the upserted DTOs from the cache, as the update DAOs do,
+ * then caches the NEW and EXISTING DTOs, as the insert DAOs do.
+ * 
+ * @author Robert J. Muller
+ * @param <T> the type of IDbDto to upsert
+ */
+public class UpsertCacheBatch<T extends IDbDto> extends UpsertBatch<T>
+    implements IUpsertBatch<T> {
+  /** DTO cache */
+  private IDtoCache<T> cache;
+
+  /**
+   * Create an UpsertCacheBatch object.
+   * 
+   * @param insertSql the SQL INSERT statement specification
+   * @param updateSql the SQL UPDATE statement specification
+   * @param cache the DTO cache in which to refresh the upserted DTOs
+   * @param subsystem the subsystem of class T
+   */
+  public UpsertCacheBatch(IInsertSql<T> insertSql,
+                          IUpdateSql<T> updateSql,
+                          IDtoCache<T> cache,
+                          String subsystem) {
+    super(insertSql, updateSql, subsystem);
+    this.cache = cache;
+  }
+
+  @Override
+  public void upsert(Collection<T> dtos, int size) {
+    super.upsert(dtos, size);
+    // Only refresh the cache if the DTOs exist and aren't empty.
+    if (dtos != null && dtos.size() > 0) {
+      for (T dto : dtos) {
+        cache.remove(dto.getPrimaryKey());
+        if (dto.getStatus() == IDbDto.Status.NEW
+            || dto.getStatus() == IDbDto.Status.EXISTING) {
+          cache.cache(dto);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao.upsert;
+
+
+import java.util.Collection;
+
+import com.poesys.db.dao.DaoManagerFactory;
+import com.poesys.db.dao.IDaoManager;
+import com.poesys.db.dao.insert.IInsertSql;
+import com.poesys.db.dao.update.IUpdateSql;
+import com.poesys.db.dto.IDbDto;
+import com.poesys.db.dto.IDbDto.Status;
+
+
+/**
+ * A memcached-aware version of the UpsertBatch class. Before upserting the
+ * batch, the upsert removes the CHANGED DTOs from the cache, as the update
+ * DAOs do; after upserting, it caches the NEW and EXISTING DTOs, as the insert
+ * DAOs do.
+ * 
+ * @author Robert J. Muller
+ * @param <T> the type of IDbDto to upsert
+ */
+public class UpsertMemcachedBatch<T extends IDbDto> extends UpsertBatch<T>
+    implements IUpsertBatch<T> {
+  /** the memcached expiration time in milliseconds for T objects */
+  private final int expiration;
+
+  /**
+   * Create an UpsertMemcachedBatch object.
+   * 
+   * @param insertSql the SQL INSERT statement specification
+   * @param updateSql the SQL UPDATE statement specification
+   * @param subsystem the name of the subsystem containing the T class
+   * @param expiration the memcached expiration time in milliseconds for T
+   *          objects
+   */
+  public UpsertMemcachedBatch(IInsertSql<T> insertSql,
+                              IUpdateSql<T> updateSql,
+                              String subsystem,
+                              int expiration) {
+    super(insertSql, updateSql, subsystem);
+    this.expiration = expiration;
+  }
+
+  @Override
+  public void upsert(Collection<T> dtos, int size) {
+    if (dtos != null && dtos.size() > 0) {
+      DaoManagerFactory.initMemcachedManager(subsystem);
+      IDaoManager manager = DaoManagerFactory.getManager(subsystem);
+      for (T dto : dtos) {
+        if (dto != null && dto.getStatus() == Status.CHANGED) {
+          manager.removeObjectFromCache(dto.getPrimaryKey().getCacheName(),
+                                        dto.getPrimaryKey());
+        }
+      }
+      super.upsert(dtos, size);
+      for (T dto : dtos) {
+        if (dto.getStatus() == Status.NEW || dto.getStatus() == Status.EXISTING) {
+          manager.putObjectInCache(dto.getPrimaryKey().getCacheName(),
+                                   expiration,
+                                   dto);
+        }
+      }
+    } else {
+      super.upsert(dtos, size);
+    }
+  }
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao.upsert;
+
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.poesys.db.InvalidParametersException;
+import com.poesys.db.Message;
+import com.poesys.db.col.IColumnValue;
+import com.poesys.db.connection.IConnectionFactory.DBMS;
+import com.poesys.db.dao.ParameterRecorder;
+import com.poesys.db.dao.insert.IInsertSql;
+import com.poesys.db.dao.update.IUpdateSql;
+import com.poesys.db.dto.IDbDto;
+import com.poesys.db.pk.IPrimaryKey;
+
+
+/**
+ * <p>
+ * A helper class that builds a DBMS-specific upsert statement from the
+ * IInsertSql and IUpdateSql specifications of a DTO class and sets its
+ * parameters. The INSERT statement must have the form INSERT INTO table
+ * (columns) VALUES (?, ...), and the UPDATE statement must have the form
+ * UPDATE table SET assignments WHERE key expression; the upsert uses the
+ * insert columns and values and the update SET clause:
+ * </p>
+ * <ul>
+ * <li>MySQL: INSERT ... ON DUPLICATE KEY UPDATE assignments</li>
+ * <li>Oracle and Sybase: MERGE INTO table USING (SELECT the insert values) ON
+ * (primary key) WHEN MATCHED THEN UPDATE SET assignments WHEN NOT MATCHED
+ * THEN INSERT</li>
+ * </ul>
+ * <p>
+ * The insert parameters come first, then the SET clause parameters; the
+ * helper records the parameters the IUpdateSql object sets and replays the
+ * SET clause parameters after the insert parameters, dropping the WHERE
+ * clause key parameters.
+ * </p>
+ * 
+ * @author Robert J. Muller
+ * @param <T> the type of IDbDto to upsert
+ */
+public class UpsertSql<T extends IDbDto> {
+  /** Pattern that parses the table, columns, and values out of an INSERT */
+  private static final Pattern INSERT_PATTERN =
+    Pattern.compile("^\\s*INSERT\\s+INTO\\s+([\\w.`\"]+)\\s*\\(([^)]*)\\)\\s*VALUES\\s*\\(([^)]*)\\)\\s*$",
+                    Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+  /** Pattern that parses the SET clause out of an UPDATE */
+  private static final Pattern UPDATE_PATTERN =
+    Pattern.compile("^\\s*UPDATE\\s+[\\w.`\"]+\\s+SET\\s+(.*?)\\s+WHERE\\s.*$",
+                    Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+  /** Error message when the SQL specifications are not simple statements */
+  private static final String SQL_ERROR =
+    "com.poesys.db.dao.upsert.msg.unsupported_sql";
+  /** Error message when the DBMS has no upsert statement */
+  private static final String DBMS_ERROR =
+    "com.poesys.db.dao.upsert.msg.unsupported_dbms";
+
+  /** The INSERT specification */
+  private final IInsertSql<T> insertSql;
+  /** The UPDATE specification */
+  private final IUpdateSql<T> updateSql;
+  /** The DBMS for which to generate the statement */
+  private final DBMS dbms;
+
+  /**
+   * Create an UpsertSql object.
+   * 
+   * @param insertSql the INSERT specification for the DTO class
+   * @param updateSql the UPDATE specification for the DTO class
+   * @param dbms the DBMS for which to generate the statement
+   */
+  public UpsertSql(IInsertSql<T> insertSql, IUpdateSql<T> updateSql, DBMS dbms) {
+    this.insertSql = insertSql;
+    this.updateSql = updateSql;
+    this.dbms = dbms;
+  }
+
+  /**
+   * Get the upsert statement for a primary key.
+   * 
+   * @param key the primary key of the DTO to upsert
+   * @return the SQL statement
+   * @throws InvalidParametersException when the specifications are not simple
+   *           INSERT and UPDATE statements or the DBMS has no upsert
+   */
+  public String getSql(IPrimaryKey key) {
+    String insert = insertSql.getSql(key);
+    String update = updateSql.getSql(key);
+    Matcher insertMatcher = INSERT_PATTERN.matcher(insert);
+    Matcher updateMatcher = UPDATE_PATTERN.matcher(update);
+    if (!insertMatcher.matches() || !updateMatcher.matches()) {
+      Object[] args = { insert, update };
+      throw new InvalidParametersException(Message.getMessage(SQL_ERROR, args));
+    }
+    String table = insertMatcher.group(1);
+    String[] columns = insertMatcher.group(2).split(",");
+    String set = updateMatcher.group(1);
+
+    StringBuilder builder = new StringBuilder();
+    switch (dbms) {
+    case MYSQL:
+    case JNDI_MYSQL:
+      builder.append(insert.trim());
+      builder.append(" ON DUPLICATE KEY UPDATE ");
+      builder.append(set);
+      break;
+    case ORACLE:
+    case JNDI_ORACLE:
+    case JNDI:
+      appendMerge(builder, table, columns, set, key, "", " FROM dual");
+      break;
+    case SYBASE:
+    case JNDI_SYBASE:
+      appendMerge(builder, table, columns, set, key, "AS ", "");
+      break;
+    default:
+      Object[] args = { dbms };
+      throw new InvalidParametersException(Message.getMessage(DBMS_ERROR,
+                                                              args));
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Append a MERGE statement to a builder.
+   * 
+   * @param builder the builder
+   * @param table the target table
+   * @param columns the insert columns
+   * @param set the SET clause assignments
+   * @param key the primary key, which supplies the ON clause columns
+   * @param as the keyword preceding a table alias, if any
+   * @param from the FROM clause of the source SELECT, if any
+   */
+  private void appendMerge(StringBuilder builder, String table,
+                           String[] columns, String set, IPrimaryKey key,
+                           String as, String from) {
+    builder.append("MERGE INTO ");
+    builder.append(table);
+    builder.append(" ");
+    builder.append(as);
+    builder.append("t USING (SELECT ");
+    for (int i = 0; i < columns.length; i++) {
+      builder.append(i > 0 ? ", ? AS " : "? AS ");
+      builder.append(columns[i].trim());
+    }
+    builder.append(from);
+    builder.append(") ");
+    builder.append(as);
+    builder.append("s ON (");
+    String separator = "";
+    for (IColumnValue col : key) {
+      builder.append(separator);
+      builder.append("t.");
+      builder.append(col.getName());
+      builder.append(" = s.");
+      builder.append(col.getName());
+      separator = " AND ";
+    }
+    builder.append(") WHEN MATCHED THEN UPDATE SET ");
+    builder.append(set);
+    builder.append(" WHEN NOT MATCHED THEN INSERT (");
+    separator = "";
+    StringBuilder values = new StringBuilder();
+    for (String column : columns) {
+      builder.append(separator);
+      builder.append(column.trim());
+      values.append(separator);
+      values.append("s.");
+      values.append(column.trim());
+      separator = ", ";
+    }
+    builder.append(") VALUES (");
+    builder.append(values);
+    builder.append(")");
+  }
+
+  /**
+   * Set the parameters of the upsert statement: the insert parameters, then
+   * the SET clause parameters of the update.
+   * 
+   * @param stmt the prepared upsert statement
+   * @param dto the DTO to upsert
+   * @throws SQLException when a parameter can't be set
+   */
+  public void setParams(PreparedStatement stmt, T dto) throws SQLException {
+    IPrimaryKey key = dto.getPrimaryKey();
+    int next = key.setInsertParams(stmt, 1);
+    insertSql.setParams(stmt, next, dto);
+    int count = countParameters(insertSql.getSql(key));
+
+    // Record the update parameters, then replay the SET clause parameters,
+    // which precede the key parameters of the WHERE clause.
+    ParameterRecorder recorder = new ParameterRecorder();
+    updateSql.setParams(recorder.getStatement(), 1, dto);
+    Matcher matcher = UPDATE_PATTERN.matcher(updateSql.getSql(key));
+    int setCount = matcher.matches() ? countParameters(matcher.group(1)) : 0;
+    recorder.replay(stmt, 1, setCount, count);
+  }
+
+  /**
+   * Get the parameters of the upsert as a string for debugging.
+   * 
+   * @param dto the DTO to upsert
+   * @return the parameter string
+   */
+  public String getParamString(T dto) {
+    return insertSql.getParamString(dto) + "; "
+           + updateSql.getParamString(dto);
+  }
+
+  /**
+   * Count the parameter markers in a SQL string, skipping any ? in quoted
+   * strings and identifiers, line comments (--), and block comments.
+   * 
+   * @param sql the SQL string
+   * @return the number of ? markers
+   */
+  static int countParameters(String sql) {
+    int count = 0;
+    int i = 0;
+    while (i < sql.length()) {
+      char c = sql.charAt(i);
+      if (c == '\'' || c == '"' || c == '`') {
+        // Skip to the closing quote; a doubled quote reopens the text.
+        int end = sql.indexOf(c, i + 1);
+        i = end < 0 ? sql.length() : end + 1;
+      } else if (sql.startsWith("--", i)) {
+        int end = sql.indexOf('\n', i);
+        i = end < 0 ? sql.length() : end + 1;
+      } else if (sql.startsWith("/*", i)) {
+        int end = sql.indexOf("*/", i + 2);
+        i = end < 0 ? sql.length() : end + 2;
+      } else {
+        if (c == '?') {
+          count++;
+        }
+        i++;
+      }
+    }
+    return count;
+  }
+}
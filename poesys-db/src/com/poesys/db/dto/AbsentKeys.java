@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dto;
+
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.poesys.db.pk.IPrimaryKey;
+
+
+/**
+ * The record of the primary keys that a DTO cache knows have no object in the
+ * database, each for a short time; the caches use it to implement the absent
+ * keys of IDtoCache. The record holds at most a fixed number of keys so that a
+ * stream of lookups for random keys cannot fill memory; when it is full, it
+ * drops the expired keys, and if there are none it ignores new keys until
+ * some expire.
+ * 
+ * @author Robert J. Muller
+ */
+final class AbsentKeys {
+  /** The default maximum number of absent keys */
+  static final int DEFAULT_MAX_KEYS = 10000;
+
+  /** The expiration times in System.nanoTime() terms by key */
+  private final ConcurrentHashMap<IPrimaryKey, Long> keys =
+    new ConcurrentHashMap<IPrimaryKey, Long>();
+  /** The maximum number of absent keys */
+  private final int maxKeys;
+
+  /**
+   * Create an AbsentKeys object.
+   * 
+   * @param maxKeys the maximum number of absent keys
+   */
+  AbsentKeys(int maxKeys) {
+    this.maxKeys = maxKeys;
+  }
+
+  /**
+   * Record that a key is absent.
+   * 
+   * @param key the primary key
+   * @param expireTime the milliseconds until the record expires; 0 or less
+   *          records nothing
+   */
+  void add(IPrimaryKey key, int expireTime) {
+    if (key != null && expireTime > 0) {
+      long now = System.nanoTime();
+      if (keys.size() >= maxKeys) {
+        purge(now);
+      }
+      if (keys.size() < maxKeys) {
+        keys.put(key, now + TimeUnit.MILLISECONDS.toNanos(expireTime));
+      }
+    }
+  }
+
+  /**
+   * Is a key recorded as absent? Removes the record of the key if it has
+   * expired.
+   * 
+   * @param key the primary key
+   * @return true if the key is absent and the record has not expired
+   */
+  boolean contains(IPrimaryKey key) {
+    boolean absent = false;
+    if (key != null && !keys.isEmpty()) {
+      Long expires = keys.get(key);
+      if (expires != null) {
+        if (System.nanoTime() - expires < 0L) {
+          absent = true;
+        } else {
+          keys.remove(key, expires);
+        }
+      }
+    }
+    return absent;
+  }
+
+  /**
+   * Remove the record of a key, if there is one.
+   * 
+   * @param key the primary key
+   */
+  void remove(IPrimaryKey key) {
+    if (key != null && !keys.isEmpty()) {
+      keys.remove(key);
+    }
+  }
+
+  /**
+   * Remove all the records.
+   */
+  void clear() {
+    keys.clear();
+  }
+
+  /**
+   * Get the number of absent keys, including any expired keys not yet
+   * removed.
+   * 
+   * @return the number of keys
+   */
+  int size() {
+    return keys.size();
+  }
+
+  /**
+   * Remove the expired records.
+   * 
+   * @param now the current System.nanoTime()
+   */
+  private void purge(long now) {
+    Iterator<Map.Entry<IPrimaryKey, Long>> i = keys.entrySet().iterator();
+    while (i.hasNext()) {
+      if (now - i.next().getValue() >= 0L) {
+        i.remove();
+      }
+    }
+  }
+}
@@ -123,4 +123,14 @@ abstract public class AbstractBatchInsertSetter<T extends IDbDto, C extends Coll
     // Always not set
     return false;
   }
+
+  @Override
+  public Collection<IDbDto> getNestedDtos() {
+    return toDtoList(getDtos());
+  }
+
+  @Override
+  public boolean isInsertSetter() {
+    return true;
+  }
 }
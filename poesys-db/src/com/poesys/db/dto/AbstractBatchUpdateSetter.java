@@ -18,6 +18,7 @@
 package com.poesys.db.dto;
 
 
+import java.util.Collection;
 import java.util.List;
 
 import com.poesys.db.ConstraintViolationException;
@@ -108,4 +109,9 @@ abstract public class AbstractBatchUpdateSetter<T extends IDbDto> extends
     // Always not set
     return false;
   }
+
+  @Override
+  public Collection<IDbDto> getNestedDtos() {
+    return toDtoList(getDtos());
+  }
 }
@@ -97,4 +97,9 @@ abstract public class AbstractCollectionDeleteSetter<T extends IDbDto> extends
     // Always not set
     return false;
   }
+
+  @Override
+  public Collection<IDbDto> getNestedDtos() {
+    return toDtoList(getDtos());
+  }
 }
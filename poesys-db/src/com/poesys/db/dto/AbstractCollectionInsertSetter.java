@@ -34,7 +34,9 @@ import com.poesys.db.dao.insert.IInsertSql;
  * An abstract implementation of the ISet interface for a Strategy-pattern class
  * that inserts a collection of DTOs as part of a more comprehensive
  * transaction. The abstract methods parameterize the class with objects that
- * the set() method uses in processing the non-batch insert.
+ * the set() method uses in processing the non-batch insert. The collection DAO
+ * switches to a batch insert when the collection is larger than the batch
+ * threshold for the subsystem.
  * 
  * @author Robert J. Muller
  * @param <T> the type of IDbDto to insert
@@ -105,4 +107,14 @@ abstract public class AbstractCollectionInsertSetter<T extends IDbDto> extends
     // Always not set
     return false;
   }
+
+  @Override
+  public Collection<IDbDto> getNestedDtos() {
+    return toDtoList(getDtos());
+  }
+
+  @Override
+  public boolean isInsertSetter() {
+    return true;
+  }
 }
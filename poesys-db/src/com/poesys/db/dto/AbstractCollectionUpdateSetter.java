@@ -35,7 +35,8 @@ import com.poesys.db.dao.update.IUpdateSql;
  * that updates a collection of DTOs as part of a more comprehensive
  * transaction, taking in a connection and not closing it. The abstract methods
  * parameterize the class with objects that the set() method uses in processing
- * the non-batch update.
+ * the non-batch update. The collection DAO switches to a batch update when the
+ * collection is larger than the batch threshold for the subsystem.
  * 
  * @author Robert J. Muller
  * @param <T> the type of IDbDto to update
@@ -97,4 +98,9 @@ abstract public class AbstractCollectionUpdateSetter<T extends IDbDto> extends
     // Always not set
     return false;
   }
+
+  @Override
+  public Collection<IDbDto> getNestedDtos() {
+    return toDtoList(getDtos());
+  }
 }
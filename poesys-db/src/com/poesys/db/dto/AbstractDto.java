@@ -23,7 +23,11 @@ import java.io.ObjectInputStream;
 import java.sql.PreparedStatement;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.log4j.Logger;
@@ -115,6 +119,12 @@ public abstract class AbstractDto implements IDbDto {
   /** whether the object was queried from the database or retrieved from a cache */
   transient private boolean queried = false;
 
+  /** names of the fields changed since the object was last EXISTING */
+  transient private SortedSet<String> changedFields = null;
+
+  /** whether some change since last EXISTING did not record a field name */
+  transient private boolean untrackedChange = false;
+
   /** List of query-related setter objects for the DTO */
   protected List<ISet> querySetters = null;
 
@@ -214,6 +224,8 @@ public abstract class AbstractDto implements IDbDto {
       // Allow undo to NEW or CHANGED for subclass inserts
       previousStatus = status;
       status = Status.EXISTING;
+      // The object now matches the database, so nothing is dirty.
+      clearChangedFields();
     } else if (status == Status.EXISTING) {
       // do nothing; it's already EXISTING
     } else {
@@ -242,11 +254,39 @@ public abstract class AbstractDto implements IDbDto {
 
   @Override
   public synchronized void setChanged() {
+    if (changeStatus()) {
+      // No field name, so the update must cover all the columns.
+      untrackedChange = true;
+    }
+  }
+
+  @Override
+  public synchronized void setChanged(String field) {
+    if (changeStatus()) {
+      if (field == null) {
+        untrackedChange = true;
+      } else {
+        if (changedFields == null) {
+          changedFields = new TreeSet<String>();
+        }
+        changedFields.add(field);
+      }
+    }
+  }
+
+  /**
+   * Change the status to CHANGED if the current status permits it.
+   * 
+   * @return true if the status is now CHANGED, false if not
+   */
+  private boolean changeStatus() {
+    boolean changed = false;
     if (status == Status.EXISTING || status == Status.FAILED
         || status == Status.CHANGED) {
       // Allow undo to EXISTING, FAILED, or CHANGED
       previousStatus = status;
       status = Status.CHANGED;
+      changed = true;
     } else if (status == Status.NEW) {
       // do nothing, just ignore the attempt to set to CHANGED
     } else {
@@ -255,6 +295,26 @@ public abstract class AbstractDto implements IDbDto {
       parameters.add(status.toString());
       e.setParameters(parameters);
     }
+    return changed;
+  }
+
+  @Override
+  public synchronized Set<String> getChangedFields() {
+    Set<String> fields = null;
+    if (untrackedChange || changedFields == null) {
+      fields = Collections.emptySet();
+    } else {
+      fields = Collections.unmodifiableSet(new TreeSet<String>(changedFields));
+    }
+    return fields;
+  }
+
+  /**
+   * Forget the changed fields, as the object now matches the database.
+   */
+  private void clearChangedFields() {
+    changedFields = null;
+    untrackedChange = false;
   }
 
   @Override
@@ -457,6 +517,78 @@ public abstract class AbstractDto implements IDbDto {
     }
   }
 
+  /**
+   * Get the nested DTOs that the insert setters among the pre-setters write
+   * before the DTO, which are the objects to which the DTO refers through
+   * foreign keys. Only setters that implement INestedDtoSetter report their
+   * DTOs.
+   * 
+   * @return a collection of DTOs, possibly empty
+   */
+  public Collection<IDbDto> getReferencedDtos() {
+    Collection<IDbDto> dtos = new ArrayList<IDbDto>();
+    if (preSetters != null) {
+      for (ISet set : preSetters) {
+        if (set instanceof INestedDtoSetter
+            && ((INestedDtoSetter)set).isInsertSetter()) {
+          dtos.addAll(((INestedDtoSetter)set).getNestedDtos());
+        }
+      }
+    }
+    return dtos;
+  }
+
+  /**
+   * Get the nested DTOs that the other pre-setters process before the DTO,
+   * such as children that a pre-setter deletes in cascade. These objects
+   * refer to the DTO rather than the other way around. Only setters that
+   * implement INestedDtoSetter report their DTOs.
+   * 
+   * @return a collection of DTOs, possibly empty
+   */
+  public Collection<IDbDto> getPreprocessedDtos() {
+    Collection<IDbDto> dtos = new ArrayList<IDbDto>();
+    if (preSetters != null) {
+      for (ISet set : preSetters) {
+        if (set instanceof INestedDtoSetter
+            && !((INestedDtoSetter)set).isInsertSetter()) {
+          dtos.addAll(((INestedDtoSetter)set).getNestedDtos());
+        }
+      }
+    }
+    return dtos;
+  }
+
+  /**
+   * Get the nested DTOs that the insert setters and post-setters write after
+   * the DTO, which are the objects that refer to the DTO through foreign keys.
+   * Only setters that implement INestedDtoSetter report their DTOs.
+   * 
+   * @return a collection of DTOs, possibly empty
+   */
+  public Collection<IDbDto> getDependentDtos() {
+    Collection<IDbDto> dtos = new ArrayList<IDbDto>();
+    addNestedDtos(insertSetters, dtos);
+    addNestedDtos(postSetters, dtos);
+    return dtos;
+  }
+
+  /**
+   * Add the nested DTOs of a list of setters to a collection.
+   * 
+   * @param setters the setters, possibly null
+   * @param dtos the collection to which to add the DTOs
+   */
+  private void addNestedDtos(List<ISet> setters, Collection<IDbDto> dtos) {
+    if (setters != null) {
+      for (ISet set : setters) {
+        if (set instanceof INestedDtoSetter) {
+          dtos.addAll(((INestedDtoSetter)set).getNestedDtos());
+        }
+      }
+    }
+  }
+
   @Override
   public void preprocessNestedObjects() {
     // Run the setters unless suppression is turned on for subclasses.
@@ -133,4 +133,14 @@ abstract public class AbstractInsertSetter extends AbstractSetter<IDbDto>
     }
     return set;
   }
+
+  @Override
+  public Collection<IDbDto> getNestedDtos() {
+    return toDtoList(getDtos());
+  }
+
+  @Override
+  public boolean isInsertSetter() {
+    return true;
+  }
 }
@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.sql.PreparedStatement;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.log4j.Logger;
 
@@ -190,6 +191,16 @@ public abstract class AbstractLazyLoadingDtoProxy implements IDbDto {
     dto.setChanged();
   }
 
+  @Override
+  public void setChanged(String field) {
+    dto.setChanged(field);
+  }
+
+  @Override
+  public Set<String> getChangedFields() {
+    return dto.getChangedFields();
+  }
+
   @Override
   public void setExisting() {
     dto.setExisting();
@@ -143,4 +143,9 @@ abstract public class AbstractPostProcessSetter extends AbstractSetter<IDbDto>
 
     return set;
   }
+
+  @Override
+  public Collection<IDbDto> getNestedDtos() {
+    return toDtoList(getDtos());
+  }
 }
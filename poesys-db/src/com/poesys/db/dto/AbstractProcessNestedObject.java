@@ -18,6 +18,10 @@
 package com.poesys.db.dto;
 
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 import com.poesys.db.dao.PoesysTrackingThread;
 import com.poesys.db.dto.IDbDto.Status;
 
@@ -160,4 +164,13 @@ public abstract class AbstractProcessNestedObject<T extends IDbDto> extends
    * @param dto the DELETED DTO
    */
   abstract protected void doDeleted(T dto);
+
+  @Override
+  public Collection<IDbDto> getNestedDtos() {
+    List<IDbDto> dtos = new ArrayList<IDbDto>();
+    if (getDto() != null) {
+      dtos.add(getDto());
+    }
+    return dtos;
+  }
 }
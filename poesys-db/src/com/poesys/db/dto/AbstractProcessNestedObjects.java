@@ -172,4 +172,9 @@ public abstract class AbstractProcessNestedObjects<T extends IDbDto, C extends C
    * @param dtos the collection of DELETED DTOs
    */
   abstract protected void doDeleted(C dtos);
+
+  @Override
+  public Collection<IDbDto> getNestedDtos() {
+    return toDtoList(getDtos());
+  }
 }
@@ -19,6 +19,10 @@
 package com.poesys.db.dto;
 
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 import org.apache.log4j.Logger;
 
 import com.poesys.db.DbErrorException;
@@ -35,7 +39,8 @@ import com.poesys.db.dao.PoesysTrackingThread;
  * @author Robert J. Muller
  * @param <T> the kind of IDbDto processed by the setter
  */
-public abstract class AbstractSetter<T extends IDbDto> implements ISet {
+public abstract class AbstractSetter<T extends IDbDto> implements ISet,
+    INestedDtoSetter {
   /** Logger for this class */
   private static final Logger logger = Logger.getLogger(AbstractSetter.class);
   /** Serial version UID for Serializable object */
@@ -140,4 +145,34 @@ public abstract class AbstractSetter<T extends IDbDto> implements ISet {
    * @return the DTO class name
    */
   abstract protected String getClassName();
+
+  /**
+   * Get the nested DTOs that the setter writes. This implementation returns an
+   * empty list; setters that write DTOs override it.
+   * 
+   * @return a collection of DTOs, possibly empty
+   */
+  @Override
+  public Collection<IDbDto> getNestedDtos() {
+    return new ArrayList<IDbDto>();
+  }
+
+  /**
+   * Copy a possibly null collection of DTOs into a list, leaving out null
+   * elements.
+   * 
+   * @param dtos the DTOs, possibly null
+   * @return a list of the DTOs, possibly empty
+   */
+  protected static List<IDbDto> toDtoList(Collection<? extends IDbDto> dtos) {
+    List<IDbDto> list = new ArrayList<IDbDto>();
+    if (dtos != null) {
+      for (IDbDto dto : dtos) {
+        if (dto != null) {
+          list.add(dto);
+        }
+      }
+    }
+    return list;
+  }
 }
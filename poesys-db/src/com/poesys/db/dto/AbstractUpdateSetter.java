@@ -18,6 +18,10 @@
 package com.poesys.db.dto;
 
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 import com.poesys.db.ConstraintViolationException;
 import com.poesys.db.DbErrorException;
 import com.poesys.db.dao.DaoManagerFactory;
@@ -96,4 +100,13 @@ abstract public class AbstractUpdateSetter<T extends IDbDto> extends
     // set if not CHANGED
     return Status.CHANGED.compareTo(getDto().getStatus()) != 0;
   }
+
+  @Override
+  public Collection<IDbDto> getNestedDtos() {
+    List<IDbDto> dtos = new ArrayList<IDbDto>();
+    if (getDto() != null) {
+      dtos.add(getDto());
+    }
+    return dtos;
+  }
 }
@@ -0,0 +1,438 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dto;
+
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.log4j.Logger;
+
+import com.poesys.db.Message;
+import com.poesys.db.pk.IPrimaryKey;
+
+
+/**
+ * <p>
+ * A DTO cache with a maximum number of entries. When caching an object would
+ * put the cache over its maximum, the cache evicts the least-recently-used
+ * object, the object that has gone longest without a get or a cache call.
+ * The cache counts hits, misses, and evictions so that you can size the cache
+ * from its statistics.
+ * </p>
+ * <p>
+ * Objects can also expire after write or after access as in DtoCache. A get
+ * removes an expired object, and each write checks the least-recently-used
+ * end of the cache, where expired objects collect, for a few expired objects
+ * to remove.
+ * </p>
+ * <p>
+ * The cache keeps its objects in a concurrent map, so a get never locks. A get
+ * records its key in a read buffer rather than reordering the recency list
+ * itself; the writes, which lock the recency list, replay the buffered reads
+ * before choosing an object to evict. A get that finds a full buffer drains it
+ * only if no other thread holds the lock, and drops its key if the buffer is
+ * still full, so under heavy reads the recency order is approximate. For
+ * caches that must be unbounded, use DtoCache.
+ * </p>
+ * 
+ * @see DtoCache
+ * 
+ * @author Robert J. Muller
+ * @param <T> the type of IDbDto object to cache
+ */
+public class BoundedDtoCache<T extends IDbDto> implements IDtoCache<T> {
+  /** Logger for debugging */
+  private static final Logger logger = Logger.getLogger(BoundedDtoCache.class);
+
+  /** Message when null passed for cache name */
+  private static final String NULL_CACHE_NAME =
+    "com.poesys.db.dto.null_cache_name_msg";
+  /** Message when the maximum number of entries is not positive */
+  private static final String INVALID_MAX =
+    "com.poesys.db.dto.msg.invalid_cache_max";
+
+  /** The number of buffered reads at which a get tries to drain the buffer */
+  static final int READ_BUFFER_DRAIN = 64;
+  /** The maximum number of buffered reads; a get drops its key past this */
+  static final int READ_BUFFER_MAX = 4 * READ_BUFFER_DRAIN;
+
+  /** The name of the cache (fully-qualified class name of type T) */
+  private final String cacheName;
+  /** The maximum number of objects in the cache */
+  private final int maxEntries;
+  /** The cache map, read without locking */
+  private final Map<IPrimaryKey, CacheEntry<T>> cache =
+    new ConcurrentHashMap<IPrimaryKey, CacheEntry<T>>();
+  /** The access-ordered recency list, guarded by policyLock */
+  private final LinkedHashMap<IPrimaryKey, CacheEntry<T>> order =
+    new LinkedHashMap<IPrimaryKey, CacheEntry<T>>(16, 0.75f, true);
+  /** The lock for the recency list, taken by writes and drains */
+  private final ReentrantLock policyLock = new ReentrantLock();
+  /** The keys of gets not yet replayed into the recency list */
+  private final ConcurrentLinkedQueue<IPrimaryKey> reads =
+    new ConcurrentLinkedQueue<IPrimaryKey>();
+  /** The number of keys in the read buffer */
+  private final AtomicInteger pendingReads = new AtomicInteger();
+  /** The default milliseconds an object lives after caching, 0 for no limit */
+  private final int expireAfterWrite;
+  /** The milliseconds an object lives after each get, 0 for no limit */
+  private final int expireAfterAccess;
+
+  /** The number of gets that found an object */
+  private final AtomicLong hits = new AtomicLong();
+  /** The number of gets that found no object */
+  private final AtomicLong misses = new AtomicLong();
+  /** The number of objects evicted to keep the cache at its maximum */
+  private final AtomicLong evictions = new AtomicLong();
+  /** The number of expired objects removed */
+  private final AtomicLong expirations = new AtomicLong();
+  /** The keys known to have no object in the database */
+  private final AbsentKeys absent =
+    new AbsentKeys(AbsentKeys.DEFAULT_MAX_KEYS);
+
+  /**
+   * Create a BoundedDtoCache object.
+   * 
+   * @param name the name of the cache (fully-qualified class name of type T)
+   * @param maxEntries the maximum number of objects in the cache, at least 1
+   */
+  public BoundedDtoCache(String name, int maxEntries) {
+    this(name, maxEntries, 0, 0);
+  }
+
+  /**
+   * Create a BoundedDtoCache object with expiration.
+   * 
+   * @param name the name of the cache (fully-qualified class name of type T)
+   * @param maxEntries the maximum number of objects in the cache, at least 1
+   * @param expireAfterWrite the milliseconds an object lives after caching
+   *          unless the caller supplies an expiration time, 0 for no limit
+   * @param expireAfterAccess the milliseconds an object lives after each get,
+   *          0 for no limit
+   */
+  public BoundedDtoCache(String name,
+                         int maxEntries,
+                         int expireAfterWrite,
+                         int expireAfterAccess) {
+    if (name == null) {
+      String message = Message.getMessage(NULL_CACHE_NAME, null);
+      throw new IllegalArgumentException(message);
+    }
+    if (maxEntries < 1) {
+      Object[] args = { name, maxEntries };
+      String message = Message.getMessage(INVALID_MAX, args);
+      throw new IllegalArgumentException(message);
+    }
+    cacheName = name;
+    this.maxEntries = maxEntries;
+    this.expireAfterWrite = expireAfterWrite > 0 ? expireAfterWrite : 0;
+    this.expireAfterAccess = expireAfterAccess > 0 ? expireAfterAccess : 0;
+  }
+
+  @Override
+  public void cache(T object) {
+    cache(object, 0);
+  }
+
+  @Override
+  public void cache(T object, int expireTime) {
+    if (object != null && object.getPrimaryKey() != null) {
+      IPrimaryKey key = object.getPrimaryKey();
+      absent.remove(key);
+      CacheEntry<T> entry =
+        new CacheEntry<T>(object,
+                          expireTime > 0 ? expireTime : expireAfterWrite,
+                          expireAfterAccess);
+      policyLock.lock();
+      try {
+        drainReads();
+        purgeEldest(DtoCache.SWEEP_SIZE);
+        CacheEntry<T> existing = cache.get(key);
+        if (existing == null
+            || (existing.expires() && existing.isExpired(System.nanoTime()))) {
+          cache.put(key, entry);
+          order.put(key, entry);
+          evict();
+          logger.debug("Caching object of class "
+                       + object.getClass().getName() + " with primary key "
+                       + key.getValueList());
+        } else {
+          // A cache call counts as a use of the existing object.
+          order.get(key);
+          logger.debug("Object of class " + object.getClass().getName()
+                       + " already in cache, request to cache ignored");
+        }
+      } finally {
+        policyLock.unlock();
+      }
+    } else {
+      logger.debug("Tried to cache null object or object with null key");
+    }
+  }
+
+  @Override
+  public void cacheAbsent(IPrimaryKey key, int expireTime) {
+    absent.add(key, expireTime);
+  }
+
+  @Override
+  public boolean isAbsent(IPrimaryKey key) {
+    return absent.contains(key);
+  }
+
+  @Override
+  public T get(IPrimaryKey key) {
+    return get(key, 0);
+  }
+
+  @Override
+  public T get(IPrimaryKey key, int expireTime) {
+    T dto = null;
+    if (key != null) {
+      CacheEntry<T> entry = cache.get(key);
+      if (entry != null && (entry.expires() || expireTime > 0)) {
+        long now = System.nanoTime();
+        if (entry.isExpired(now)) {
+          // The next write drops the stale recency entry.
+          if (cache.remove(key, entry)) {
+            expirations.incrementAndGet();
+          }
+          entry = null;
+        } else {
+          entry.access(now, expireTime);
+        }
+      }
+      if (entry == null) {
+        misses.incrementAndGet();
+      } else {
+        dto = entry.getDto();
+        hits.incrementAndGet();
+        recordRead(key);
+      }
+    }
+    return dto;
+  }
+
+  @Override
+  public void remove(IPrimaryKey key) {
+    // Remove locally, no messaging with this class
+    removeLocally(key);
+  }
+
+  @Override
+  public void removeLocally(IPrimaryKey key) {
+    if (key != null) {
+      policyLock.lock();
+      try {
+        cache.remove(key);
+        order.remove(key);
+      } finally {
+        policyLock.unlock();
+      }
+      absent.remove(key);
+      logger.debug("Removing key " + key.getValueList() + " from cache "
+                   + cacheName);
+    }
+  }
+
+  @Override
+  public void clear() {
+    policyLock.lock();
+    try {
+      drainReads();
+      cache.clear();
+      order.clear();
+    } finally {
+      policyLock.unlock();
+    }
+    absent.clear();
+    logger.debug("Cleared cache " + cacheName);
+  }
+
+  /**
+   * Buffer a get of a key for the recency list. If the buffer has filled to
+   * its drain point and no other thread holds the lock, replay the buffer now;
+   * otherwise leave the replay to the next write. If the buffer is full, drop
+   * the key rather than wait.
+   * 
+   * @param key the primary key of the object found
+   */
+  private void recordRead(IPrimaryKey key) {
+    int pending = pendingReads.incrementAndGet();
+    if (pending <= READ_BUFFER_MAX) {
+      reads.offer(key);
+    } else {
+      pendingReads.decrementAndGet();
+    }
+    if (pending >= READ_BUFFER_DRAIN && policyLock.tryLock()) {
+      try {
+        drainReads();
+      } finally {
+        policyLock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Replay the buffered gets into the recency list, moving each key that is
+   * still in the list to its most-recently-used end. The caller must hold the
+   * policy lock.
+   */
+  private void drainReads() {
+    IPrimaryKey key;
+    while ((key = reads.poll()) != null) {
+      pendingReads.decrementAndGet();
+      order.get(key);
+    }
+  }
+
+  /**
+   * Evict least-recently-used objects until the cache is within its maximum.
+   * The caller must hold the policy lock.
+   */
+  private void evict() {
+    Iterator<Map.Entry<IPrimaryKey, CacheEntry<T>>> iterator =
+      order.entrySet().iterator();
+    while (cache.size() > maxEntries && iterator.hasNext()) {
+      Map.Entry<IPrimaryKey, CacheEntry<T>> eldest = iterator.next();
+      iterator.remove();
+      if (cache.remove(eldest.getKey(), eldest.getValue())) {
+        evictions.incrementAndGet();
+        logger.debug("Evicting key " + eldest.getKey().getValueList()
+                     + " from cache " + cacheName);
+      }
+    }
+  }
+
+  /**
+   * Remove expired objects from the least-recently-used end of the cache,
+   * stopping at the first object that has not expired. Recency entries for
+   * objects that a get already removed go too. The caller must hold the
+   * policy lock.
+   * 
+   * @param limit the maximum number of objects to check
+   */
+  private void purgeEldest(int limit) {
+    long now = 0L;
+    Iterator<Map.Entry<IPrimaryKey, CacheEntry<T>>> iterator =
+      order.entrySet().iterator();
+    for (int i = 0; i < limit && iterator.hasNext(); i++) {
+      Map.Entry<IPrimaryKey, CacheEntry<T>> eldest = iterator.next();
+      CacheEntry<T> entry = eldest.getValue();
+      if (cache.get(eldest.getKey()) != entry) {
+        iterator.remove();
+        continue;
+      }
+      if (!entry.expires()) {
+        break;
+      }
+      if (now == 0L) {
+        now = System.nanoTime();
+      }
+      if (!entry.isExpired(now)) {
+        break;
+      }
+      iterator.remove();
+      if (cache.remove(eldest.getKey(), entry)) {
+        expirations.incrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * Get the cacheName.
+   * 
+   * @return a cacheName
+   */
+  public String getCacheName() {
+    return cacheName;
+  }
+
+  /**
+   * Get the maximum number of objects in the cache.
+   * 
+   * @return the maximum number of objects
+   */
+  public int getMaxEntries() {
+    return maxEntries;
+  }
+
+  /**
+   * Get the current number of objects in the cache.
+   * 
+   * @return the number of objects
+   */
+  public int size() {
+    return cache.size();
+  }
+
+  /**
+   * Get the number of gets that found an object in the cache.
+   * 
+   * @return the hit count
+   */
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  /**
+   * Get the number of gets that found no object in the cache.
+   * 
+   * @return the miss count
+   */
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  /**
+   * Get the number of objects evicted from the cache to keep it at its
+   * maximum size.
+   * 
+   * @return the eviction count
+   */
+  public long getEvictionCount() {
+    return evictions.get();
+  }
+
+  /**
+   * Get the number of expired objects removed from the cache.
+   * 
+   * @return the expiration count
+   */
+  public long getExpirationCount() {
+    return expirations.get();
+  }
+
+  /**
+   * Get a summary of the cache statistics for logging.
+   * 
+   * @return the statistics as a string
+   */
+  public String getStatistics() {
+    return cacheName + ": size=" + size() + ", max=" + maxEntries + ", hits="
+           + hits.get() + ", misses=" + misses.get() + ", evictions="
+           + evictions.get() + ", expirations=" + expirations.get();
+  }
+}
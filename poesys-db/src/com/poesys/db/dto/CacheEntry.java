@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dto;
+
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * <p>
+ * An object in an in-memory DTO cache with its expiration times. An entry can
+ * expire a fixed time after the cache stores it (expire-after-write), a fixed
+ * time after the last get (expire-after-access), both, or never. Times are in
+ * System.nanoTime() units, so clock changes don't affect expiration.
+ * </p>
+ * <p>
+ * An entry that never expires doesn't read the clock, so caches without
+ * expiration pay nothing for it.
+ * </p>
+ * 
+ * @author Robert J. Muller
+ * @param <T> the type of IDbDto in the entry
+ */
+final class CacheEntry<T extends IDbDto> {
+  /** The cached object */
+  private final T dto;
+  /** Whether the entry expires a fixed time after the write */
+  private final boolean writeExpiry;
+  /** The time at which the entry expires after the write */
+  private final long writeDeadline;
+  /** The nanoseconds the entry lives after each access, 0 for no limit */
+  private volatile long accessNanos;
+  /** The time at which the entry expires after the last access */
+  private volatile long accessDeadline;
+
+  /**
+   * Create a CacheEntry object.
+   * 
+   * @param dto the cached object
+   * @param afterWrite the milliseconds the entry lives after the write, 0 for
+   *          no limit
+   * @param afterAccess the milliseconds the entry lives after each access, 0
+   *          for no limit
+   */
+  CacheEntry(T dto, long afterWrite, long afterAccess) {
+    this.dto = dto;
+    writeExpiry = afterWrite > 0;
+    accessNanos =
+      afterAccess > 0 ? TimeUnit.MILLISECONDS.toNanos(afterAccess) : 0L;
+    long now = writeExpiry || accessNanos > 0 ? System.nanoTime() : 0L;
+    writeDeadline =
+      writeExpiry ? now + TimeUnit.MILLISECONDS.toNanos(afterWrite) : 0L;
+    accessDeadline = now + accessNanos;
+  }
+
+  /**
+   * Get the cached object.
+   * 
+   * @return the object
+   */
+  T getDto() {
+    return dto;
+  }
+
+  /**
+   * Does the entry expire at all?
+   * 
+   * @return true if the entry has a write or access expiration
+   */
+  boolean expires() {
+    return writeExpiry || accessNanos > 0;
+  }
+
+  /**
+   * Has the entry expired at a given time?
+   * 
+   * @param now the current System.nanoTime()
+   * @return true if the entry has expired
+   */
+  boolean isExpired(long now) {
+    return (writeExpiry && now - writeDeadline >= 0)
+           || (accessNanos > 0 && now - accessDeadline >= 0);
+  }
+
+  /**
+   * Record an access to the entry, extending its access expiration. An
+   * expiration time given with the access replaces the access expiration of
+   * the entry, like a memcached touch.
+   * 
+   * @param now the current System.nanoTime()
+   * @param expireTime the milliseconds the entry lives after this access, or 0
+   *          to keep the current access expiration
+   */
+  void access(long now, int expireTime) {
+    if (expireTime > 0) {
+      accessNanos = TimeUnit.MILLISECONDS.toNanos(expireTime);
+    }
+    if (accessNanos > 0) {
+      accessDeadline = now + accessNanos;
+    }
+  }
+}
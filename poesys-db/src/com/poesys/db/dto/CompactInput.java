@@ -0,0 +1,466 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dto;
+
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import com.poesys.db.InvalidParametersException;
+import com.poesys.db.Message;
+import com.poesys.db.col.BigDecimalColumnValue;
+import com.poesys.db.col.BigIntegerColumnValue;
+import com.poesys.db.col.DateColumnValue;
+import com.poesys.db.col.IColumnValue;
+import com.poesys.db.col.IntegerColumnValue;
+import com.poesys.db.col.LongColumnValue;
+import com.poesys.db.col.NullColumnValue;
+import com.poesys.db.col.StringColumnValue;
+import com.poesys.db.col.TimestampColumnValue;
+import com.poesys.db.col.UuidColumnValue;
+import com.poesys.db.pk.AssociationPrimaryKey;
+import com.poesys.db.pk.CompositePrimaryKey;
+import com.poesys.db.pk.GuidPrimaryKey;
+import com.poesys.db.pk.IPrimaryKey;
+import com.poesys.db.pk.IdentityPrimaryKey;
+import com.poesys.db.pk.NaturalPrimaryKey;
+import com.poesys.db.pk.SequencePrimaryKey;
+
+
+/**
+ * The input of the compact binary encoding for IDbDto objects, reading the
+ * encodings that CompactOutput writes. Each read method reads the value that
+ * the corresponding write method wrote; IDtoCodec implementations must read
+ * the fields in the order they wrote them. The input is not thread safe; use
+ * one input per encoding.
+ * 
+ * @author Robert J. Muller
+ */
+public final class CompactInput {
+  /** Error message for an invalid encoding */
+  private static final String INVALID_ENCODING =
+    "com.poesys.db.dto.msg.compact_invalid_encoding";
+
+  /** The encoded bytes */
+  private final byte[] buffer;
+  /** The position of the next byte to read */
+  private int position;
+  /** The end of the encoding in the buffer */
+  private final int limit;
+  /** The symbols read so far, in index order */
+  private final List<String> symbols = new ArrayList<String>();
+
+  /**
+   * Create a CompactInput object over an entire byte array.
+   * 
+   * @param buffer the encoded bytes
+   */
+  public CompactInput(byte[] buffer) {
+    this(buffer, 0, buffer.length);
+  }
+
+  /**
+   * Create a CompactInput object over part of a byte array.
+   * 
+   * @param buffer the encoded bytes
+   * @param offset the position of the first byte of the encoding
+   * @param length the number of bytes in the encoding
+   */
+  public CompactInput(byte[] buffer, int offset, int length) {
+    this.buffer = buffer;
+    this.position = offset;
+    this.limit = offset + length;
+  }
+
+  /**
+   * Read a single byte.
+   * 
+   * @return the byte as an unsigned value
+   * @throws IOException when there are no more bytes
+   */
+  public int readByte() throws IOException {
+    if (position >= limit) {
+      throw new EOFException();
+    }
+    return buffer[position++] & 0xFF;
+  }
+
+  /**
+   * Read a boolean.
+   * 
+   * @return the boolean
+   * @throws IOException when there are no more bytes
+   */
+  public boolean readBoolean() throws IOException {
+    return readByte() != 0;
+  }
+
+  /**
+   * Read a zig-zag variable-length integer.
+   * 
+   * @return the integer
+   * @throws IOException when the encoding is incomplete
+   */
+  public int readInt() throws IOException {
+    int value = (int)readUnsignedLong();
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  /**
+   * Read a zig-zag variable-length long.
+   * 
+   * @return the long
+   * @throws IOException when the encoding is incomplete
+   */
+  public long readLong() throws IOException {
+    long value = readUnsignedLong();
+    return (value >>> 1) ^ -(value & 1L);
+  }
+
+  /**
+   * Read a nullable Integer.
+   * 
+   * @return the Integer or null
+   * @throws IOException when the encoding is incomplete
+   */
+  public Integer readInteger() throws IOException {
+    return readBoolean() ? Integer.valueOf(readInt()) : null;
+  }
+
+  /**
+   * Read a nullable string.
+   * 
+   * @return the string or null
+   * @throws IOException when the encoding is incomplete
+   */
+  public String readString() throws IOException {
+    int length = readLength();
+    String value = null;
+    if (length >= 0) {
+      value = new String(buffer, position, length, StandardCharsets.UTF_8);
+      position += length;
+    }
+    return value;
+  }
+
+  /**
+   * Read a nullable byte array.
+   * 
+   * @return the bytes or null
+   * @throws IOException when the encoding is incomplete
+   */
+  public byte[] readBytes() throws IOException {
+    int length = readLength();
+    byte[] value = null;
+    if (length >= 0) {
+      value = new byte[length];
+      System.arraycopy(buffer, position, value, 0, length);
+      position += length;
+    }
+    return value;
+  }
+
+  /**
+   * Read a nullable BigInteger.
+   * 
+   * @return the BigInteger or null
+   * @throws IOException when the encoding is incomplete
+   */
+  public BigInteger readBigInteger() throws IOException {
+    byte[] bytes = readBytes();
+    return bytes == null ? null : new BigInteger(bytes);
+  }
+
+  /**
+   * Read a nullable BigDecimal.
+   * 
+   * @return the BigDecimal or null
+   * @throws IOException when the encoding is incomplete
+   */
+  public BigDecimal readBigDecimal() throws IOException {
+    BigInteger unscaled = readBigInteger();
+    return unscaled == null ? null : new BigDecimal(unscaled, readInt());
+  }
+
+  /**
+   * Read a nullable date.
+   * 
+   * @return the date or null
+   * @throws IOException when the encoding is incomplete
+   */
+  public java.util.Date readDate() throws IOException {
+    return readBoolean() ? new java.util.Date(readLong()) : null;
+  }
+
+  /**
+   * Read a nullable timestamp.
+   * 
+   * @return the timestamp or null
+   * @throws IOException when the encoding is incomplete
+   */
+  public Timestamp readTimestamp() throws IOException {
+    Timestamp value = null;
+    if (readBoolean()) {
+      value = new Timestamp(readLong());
+      value.setNanos(readInt());
+    }
+    return value;
+  }
+
+  /**
+   * Read a nullable UUID.
+   * 
+   * @return the UUID or null
+   * @throws IOException when the encoding is incomplete
+   */
+  public UUID readUuid() throws IOException {
+    return readBoolean() ? new UUID(readFixedLong(), readFixedLong()) : null;
+  }
+
+  /**
+   * Read a string written with CompactOutput.writeSymbol().
+   * 
+   * @return the string
+   * @throws IOException when the encoding is incomplete or invalid
+   */
+  public String readSymbol() throws IOException {
+    long index = readUnsignedLong();
+    String symbol = null;
+    if (index == 0L) {
+      symbol = readString();
+      if (symbol == null) {
+        throw invalid("null symbol");
+      }
+      symbols.add(symbol);
+    } else if (index <= symbols.size()) {
+      symbol = symbols.get((int)index - 1);
+    } else {
+      throw invalid("symbol reference " + index);
+    }
+    return symbol;
+  }
+
+  /**
+   * Read a column value.
+   * 
+   * @return the column value
+   * @throws IOException when the encoding is incomplete or invalid
+   */
+  public IColumnValue readColumnValue() throws IOException {
+    int tag = readByte();
+    String name = readSymbol();
+    IColumnValue value = null;
+    try {
+      switch (tag) {
+      case CompactOutput.COL_BIG_DECIMAL:
+        value = new BigDecimalColumnValue(name, readBigDecimal());
+        break;
+      case CompactOutput.COL_BIG_INTEGER:
+        value = new BigIntegerColumnValue(name, readBigInteger());
+        break;
+      case CompactOutput.COL_INTEGER:
+        value = new IntegerColumnValue(name, readInt());
+        break;
+      case CompactOutput.COL_LONG:
+        value = new LongColumnValue(name, readLong());
+        break;
+      case CompactOutput.COL_DATE:
+        java.util.Date date = readDate();
+        value =
+          new DateColumnValue(name, date == null ? null
+              : new java.sql.Date(date.getTime()));
+        break;
+      case CompactOutput.COL_STRING:
+        value = new StringColumnValue(name, readString());
+        break;
+      case CompactOutput.COL_TIMESTAMP:
+        value = new TimestampColumnValue(name, readTimestamp());
+        break;
+      case CompactOutput.COL_UUID:
+        value = new UuidColumnValue(name, readUuid());
+        break;
+      case CompactOutput.COL_NULL:
+        value = new NullColumnValue(name, readInt());
+        break;
+      default:
+        throw invalid("column type " + tag);
+      }
+    } catch (InvalidParametersException e) {
+      throw invalid(e.getMessage());
+    }
+    return value;
+  }
+
+  /**
+   * Read a nullable primary key.
+   * 
+   * @return the primary key or null
+   * @throws IOException when the encoding is incomplete or invalid
+   */
+  public IPrimaryKey readKey() throws IOException {
+    int tag = readByte();
+    if (tag == CompactOutput.KEY_NULL) {
+      return null;
+    }
+    String className = readSymbol();
+    IPrimaryKey key = null;
+    try {
+      switch (tag) {
+      case CompactOutput.KEY_NATURAL:
+        key = new NaturalPrimaryKey(readColumnList(), className);
+        break;
+      case CompactOutput.KEY_SEQUENCE:
+        String sequenceName = readSymbol();
+        key = new SequencePrimaryKey(sequenceName, readBigInteger(), className);
+        break;
+      case CompactOutput.KEY_IDENTITY:
+        String identityName = readSymbol();
+        key = new IdentityPrimaryKey(identityName, readBigInteger(), className);
+        break;
+      case CompactOutput.KEY_GUID:
+        String guidName = readSymbol();
+        key = new GuidPrimaryKey(guidName, readUuid(), className);
+        break;
+      case CompactOutput.KEY_COMPOSITE:
+        IPrimaryKey parent = readKey();
+        key = new CompositePrimaryKey(parent, readKey(), className);
+        break;
+      case CompactOutput.KEY_ASSOCIATION:
+        key = new AssociationPrimaryKey(readKeyList(), className);
+        break;
+      default:
+        throw invalid("key type " + tag);
+      }
+    } catch (InvalidParametersException e) {
+      throw invalid(e.getMessage());
+    }
+    return key;
+  }
+
+  /**
+   * Read a nullable list of primary keys.
+   * 
+   * @return the list of keys or null
+   * @throws IOException when the encoding is incomplete or invalid
+   */
+  public List<IPrimaryKey> readKeyList() throws IOException {
+    int length = readLength();
+    List<IPrimaryKey> keys = null;
+    if (length >= 0) {
+      keys = new ArrayList<IPrimaryKey>(length);
+      for (int i = 0; i < length; i++) {
+        keys.add(readKey());
+      }
+    }
+    return keys;
+  }
+
+  /**
+   * Is there more input to read?
+   * 
+   * @return true if there are unread bytes
+   */
+  public boolean hasMore() {
+    return position < limit;
+  }
+
+  /**
+   * Read the column values of a key.
+   * 
+   * @return the list of column values
+   * @throws IOException when the encoding is incomplete or invalid
+   */
+  private List<IColumnValue> readColumnList() throws IOException {
+    int count = (int)readUnsignedLong();
+    if (count < 0 || count > limit - position) {
+      throw invalid("column count " + count);
+    }
+    List<IColumnValue> list = new ArrayList<IColumnValue>(count);
+    for (int i = 0; i < count; i++) {
+      list.add(readColumnValue());
+    }
+    return list;
+  }
+
+  /**
+   * Read the length prefix of a nullable value and check it against the
+   * remaining input.
+   * 
+   * @return the length, or -1 for null
+   * @throws IOException when the length is invalid
+   */
+  private int readLength() throws IOException {
+    long length = readUnsignedLong() - 1L;
+    if (length < -1L) {
+      throw invalid("length " + length);
+    } else if (length > limit - position) {
+      throw new EOFException();
+    }
+    return (int)length;
+  }
+
+  /**
+   * Read an unsigned variable-length integer.
+   * 
+   * @return the value
+   * @throws IOException when the encoding is incomplete or too long
+   */
+  private long readUnsignedLong() throws IOException {
+    long value = 0L;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = readByte();
+      value |= (long)(b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw invalid("variable-length integer");
+  }
+
+  /**
+   * Read a fixed eight-byte long.
+   * 
+   * @return the long
+   * @throws IOException when the encoding is incomplete
+   */
+  private long readFixedLong() throws IOException {
+    long value = 0L;
+    for (int i = 0; i < 8; i++) {
+      value = (value << 8) | readByte();
+    }
+    return value;
+  }
+
+  /**
+   * Create an exception for an invalid encoding.
+   * 
+   * @param detail the detail of the problem
+   * @return the exception
+   */
+  private IOException invalid(String detail) {
+    Object[] args = { detail };
+    return new IOException(Message.getMessage(INVALID_ENCODING, args));
+  }
+}
@@ -0,0 +1,527 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dto;
+
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+
+import com.poesys.db.Message;
+import com.poesys.db.col.BigDecimalColumnValue;
+import com.poesys.db.col.BigIntegerColumnValue;
+import com.poesys.db.col.DateColumnValue;
+import com.poesys.db.col.IColumnValue;
+import com.poesys.db.col.IColumnVisitor;
+import com.poesys.db.col.IntegerColumnValue;
+import com.poesys.db.col.LongColumnValue;
+import com.poesys.db.col.NullColumnValue;
+import com.poesys.db.col.StringColumnValue;
+import com.poesys.db.col.TimestampColumnValue;
+import com.poesys.db.col.UuidColumnValue;
+import com.poesys.db.pk.AssociationPrimaryKey;
+import com.poesys.db.pk.CompositePrimaryKey;
+import com.poesys.db.pk.GuidPrimaryKey;
+import com.poesys.db.pk.IPrimaryKey;
+import com.poesys.db.pk.IdentityPrimaryKey;
+import com.poesys.db.pk.NaturalPrimaryKey;
+import com.poesys.db.pk.SequencePrimaryKey;
+
+
+/**
+ * <p>
+ * The output of the compact binary encoding for IDbDto objects. The output
+ * provides primitive encodings that IDtoCodec implementations use to write
+ * the fields of a DTO:
+ * </p>
+ * <ul>
+ * <li>integers and longs as zig-zag variable-length integers, so small values
+ * take one byte</li>
+ * <li>strings, byte arrays, and numbers with a length prefix that also encodes
+ * null</li>
+ * <li>dates and timestamps as milliseconds, UUIDs as two fixed longs</li>
+ * <li>column values with a one-byte type tag</li>
+ * <li>primary keys with a one-byte key type tag, writing each class name and
+ * column name once per encoding and a back reference after that</li>
+ * </ul>
+ * <p>
+ * CompactInput reads the encodings back. The output is not thread safe; use
+ * one output per encoding.
+ * </p>
+ * 
+ * @author Robert J. Muller
+ */
+public final class CompactOutput {
+  // Column value type tags
+  static final int COL_BIG_DECIMAL = 1;
+  static final int COL_BIG_INTEGER = 2;
+  static final int COL_INTEGER = 3;
+  static final int COL_LONG = 4;
+  static final int COL_DATE = 5;
+  static final int COL_STRING = 6;
+  static final int COL_TIMESTAMP = 7;
+  static final int COL_UUID = 8;
+  static final int COL_NULL = 9;
+
+  // Primary key type tags
+  static final int KEY_NULL = 0;
+  static final int KEY_NATURAL = 1;
+  static final int KEY_SEQUENCE = 2;
+  static final int KEY_IDENTITY = 3;
+  static final int KEY_GUID = 4;
+  static final int KEY_COMPOSITE = 5;
+  static final int KEY_ASSOCIATION = 6;
+
+  /** Error message for a type the encoding does not support */
+  static final String UNSUPPORTED_TYPE =
+    "com.poesys.db.dto.msg.compact_unsupported_type";
+
+  /** The initial size of the buffer */
+  private static final int INITIAL_SIZE = 128;
+
+  /** The encoded bytes */
+  private byte[] buffer = new byte[INITIAL_SIZE];
+  /** The number of bytes in the buffer */
+  private int size = 0;
+  /** The symbols (class and column names) written so far, with their index */
+  private final Map<String, Integer> symbols = new HashMap<String, Integer>();
+
+  /**
+   * Create an empty CompactOutput object.
+   */
+  public CompactOutput() {
+  }
+
+  /**
+   * Write a single byte.
+   * 
+   * @param b the byte to write (the low 8 bits)
+   */
+  public void writeByte(int b) {
+    ensure(1);
+    buffer[size++] = (byte)b;
+  }
+
+  /**
+   * Write a boolean as a single byte.
+   * 
+   * @param value the boolean
+   */
+  public void writeBoolean(boolean value) {
+    writeByte(value ? 1 : 0);
+  }
+
+  /**
+   * Write an integer as a zig-zag variable-length integer.
+   * 
+   * @param value the integer
+   */
+  public void writeInt(int value) {
+    writeUnsignedLong(((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Write a long as a zig-zag variable-length integer.
+   * 
+   * @param value the long
+   */
+  public void writeLong(long value) {
+    writeUnsignedLong((value << 1) ^ (value >> 63));
+  }
+
+  /**
+   * Write a nullable Integer.
+   * 
+   * @param value the Integer or null
+   */
+  public void writeInteger(Integer value) {
+    writeBoolean(value != null);
+    if (value != null) {
+      writeInt(value);
+    }
+  }
+
+  /**
+   * Write a nullable string as UTF-8 with a length prefix.
+   * 
+   * @param value the string or null
+   */
+  public void writeString(String value) {
+    writeBytes(value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Write a nullable byte array with a length prefix.
+   * 
+   * @param value the bytes or null
+   */
+  public void writeBytes(byte[] value) {
+    if (value == null) {
+      writeUnsignedLong(0L);
+    } else {
+      writeUnsignedLong(value.length + 1L);
+      ensure(value.length);
+      System.arraycopy(value, 0, buffer, size, value.length);
+      size += value.length;
+    }
+  }
+
+  /**
+   * Write a nullable BigInteger as its two's-complement bytes.
+   * 
+   * @param value the BigInteger or null
+   */
+  public void writeBigInteger(BigInteger value) {
+    writeBytes(value == null ? null : value.toByteArray());
+  }
+
+  /**
+   * Write a nullable BigDecimal as its unscaled value and scale.
+   * 
+   * @param value the BigDecimal or null
+   */
+  public void writeBigDecimal(BigDecimal value) {
+    if (value == null) {
+      writeBigInteger(null);
+    } else {
+      writeBigInteger(value.unscaledValue());
+      writeInt(value.scale());
+    }
+  }
+
+  /**
+   * Write a nullable date as milliseconds since the epoch.
+   * 
+   * @param value the date or null
+   */
+  public void writeDate(java.util.Date value) {
+    writeBoolean(value != null);
+    if (value != null) {
+      writeLong(value.getTime());
+    }
+  }
+
+  /**
+   * Write a nullable timestamp as milliseconds since the epoch and nanoseconds.
+   * 
+   * @param value the timestamp or null
+   */
+  public void writeTimestamp(Timestamp value) {
+    writeBoolean(value != null);
+    if (value != null) {
+      writeLong(value.getTime());
+      writeInt(value.getNanos());
+    }
+  }
+
+  /**
+   * Write a nullable UUID as two fixed-length longs.
+   * 
+   * @param value the UUID or null
+   */
+  public void writeUuid(UUID value) {
+    writeBoolean(value != null);
+    if (value != null) {
+      writeFixedLong(value.getMostSignificantBits());
+      writeFixedLong(value.getLeastSignificantBits());
+    }
+  }
+
+  /**
+   * Write a required string that is likely to repeat in the encoding, such as
+   * a class or column name. The first occurrence writes the string; later
+   * occurrences write a reference to the first.
+   * 
+   * @param symbol the string
+   */
+  public void writeSymbol(String symbol) {
+    Integer index = symbols.get(symbol);
+    if (index == null) {
+      symbols.put(symbol, symbols.size());
+      writeUnsignedLong(0L);
+      writeString(symbol);
+    } else {
+      writeUnsignedLong(index + 1L);
+    }
+  }
+
+  /**
+   * Write a column value with its type tag and name.
+   * 
+   * @param value the column value
+   * @throws IOException when the column value type is not supported
+   */
+  public void writeColumnValue(IColumnValue value) throws IOException {
+    ColumnWriter writer = new ColumnWriter();
+    value.accept(writer);
+    if (!writer.written) {
+      Object[] args = { value.getClass().getName() };
+      throw new IOException(Message.getMessage(UNSUPPORTED_TYPE, args));
+    }
+  }
+
+  /**
+   * Write a nullable primary key with its key type tag and class name.
+   * 
+   * @param key the primary key or null
+   * @throws IOException when the key or one of its column values has a type
+   *           the encoding does not support
+   */
+  public void writeKey(IPrimaryKey key) throws IOException {
+    if (key == null) {
+      writeByte(KEY_NULL);
+      return;
+    }
+    Class<?> type = key.getClass();
+    if (type == NaturalPrimaryKey.class) {
+      writeByte(KEY_NATURAL);
+      writeSymbol(key.getCacheName());
+      writeColumnList(key);
+    } else if (type == SequencePrimaryKey.class) {
+      // single BigInteger column: name and value only
+      BigIntegerColumnValue col =
+        getSingleColumn(key, BigIntegerColumnValue.class);
+      writeByte(KEY_SEQUENCE);
+      writeSymbol(key.getCacheName());
+      writeSymbol(col.getName());
+      writeBigInteger(col.getValue());
+    } else if (type == IdentityPrimaryKey.class) {
+      // single BigInteger column or null column before insert
+      IColumnValue col = getSingleColumn(key, IColumnValue.class);
+      writeByte(KEY_IDENTITY);
+      writeSymbol(key.getCacheName());
+      writeSymbol(col.getName());
+      writeBigInteger(col instanceof BigIntegerColumnValue ? ((BigIntegerColumnValue)col).getValue()
+          : null);
+    } else if (type == GuidPrimaryKey.class) {
+      // single UUID column
+      UuidColumnValue col = getSingleColumn(key, UuidColumnValue.class);
+      writeByte(KEY_GUID);
+      writeSymbol(key.getCacheName());
+      writeSymbol(col.getName());
+      writeUuid(col.getValue());
+    } else if (type == CompositePrimaryKey.class) {
+      writeByte(KEY_COMPOSITE);
+      writeSymbol(key.getCacheName());
+      writeKey(((CompositePrimaryKey)key).getParentKey());
+      writeKey(((CompositePrimaryKey)key).getSubKey());
+    } else if (type == AssociationPrimaryKey.class) {
+      writeByte(KEY_ASSOCIATION);
+      writeSymbol(key.getCacheName());
+      writeKeyList(((AssociationPrimaryKey)key).getKeyListCopy());
+    } else {
+      Object[] args = { type.getName() };
+      throw new IOException(Message.getMessage(UNSUPPORTED_TYPE, args));
+    }
+  }
+
+  /**
+   * Write a nullable collection of primary keys, such as the keys of a
+   * collection of nested objects.
+   * 
+   * @param keys the keys or null
+   * @throws IOException when a key has a type the encoding does not support
+   */
+  public void writeKeyList(Collection<IPrimaryKey> keys) throws IOException {
+    if (keys == null) {
+      writeUnsignedLong(0L);
+    } else {
+      writeUnsignedLong(keys.size() + 1L);
+      for (IPrimaryKey key : keys) {
+        writeKey(key);
+      }
+    }
+  }
+
+  /**
+   * Get the number of bytes written.
+   * 
+   * @return the number of bytes
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Get a copy of the bytes written.
+   * 
+   * @return the bytes
+   */
+  public byte[] toByteArray() {
+    return Arrays.copyOf(buffer, size);
+  }
+
+  /**
+   * Write the column values of a multiple-valued (natural) key.
+   * 
+   * @param key the key
+   * @throws IOException when a column value type is not supported
+   */
+  private void writeColumnList(IPrimaryKey key) throws IOException {
+    int count = 0;
+    for (Iterator<IColumnValue> i = key.iterator(); i.hasNext(); i.next()) {
+      count++;
+    }
+    writeUnsignedLong(count);
+    for (Iterator<IColumnValue> i = key.iterator(); i.hasNext();) {
+      writeColumnValue(i.next());
+    }
+  }
+
+  /**
+   * Get the column value of a single-valued key.
+   * 
+   * @param key the key
+   * @param type the required type of the column value
+   * @param <C> the type of the column value
+   * @return the column value
+   * @throws IOException when the key does not have exactly one column of the
+   *           required type
+   */
+  private <C extends IColumnValue> C getSingleColumn(IPrimaryKey key,
+                                                     Class<C> type)
+      throws IOException {
+    Iterator<IColumnValue> i = key.iterator();
+    IColumnValue col = i.hasNext() ? i.next() : null;
+    if (col == null || i.hasNext() || !type.isInstance(col)) {
+      Object[] args = { key.getClass().getName() + " " + key.getStringKey() };
+      throw new IOException(Message.getMessage(UNSUPPORTED_TYPE, args));
+    }
+    return type.cast(col);
+  }
+
+  /**
+   * Write an unsigned variable-length integer, seven bits per byte with the
+   * high bit set on all bytes but the last.
+   * 
+   * @param value the value, treated as unsigned
+   */
+  private void writeUnsignedLong(long value) {
+    ensure(10);
+    while ((value & ~0x7FL) != 0L) {
+      buffer[size++] = (byte)((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    buffer[size++] = (byte)value;
+  }
+
+  /**
+   * Write a long as eight bytes, most significant first.
+   * 
+   * @param value the long
+   */
+  private void writeFixedLong(long value) {
+    ensure(8);
+    for (int shift = 56; shift >= 0; shift -= 8) {
+      buffer[size++] = (byte)(value >>> shift);
+    }
+  }
+
+  /**
+   * Make sure the buffer has room for a number of additional bytes.
+   * 
+   * @param count the number of bytes
+   */
+  private void ensure(int count) {
+    if (size + count > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + count));
+    }
+  }
+
+  /**
+   * A visitor that writes a column value with its type tag
+   */
+  private class ColumnWriter implements IColumnVisitor {
+    /** whether the visitor recognized the column type */
+    private boolean written = false;
+
+    /**
+     * Write the tag and name of the column.
+     * 
+     * @param tag the column type tag
+     * @param value the column value
+     */
+    private void start(int tag, IColumnValue value) {
+      writeByte(tag);
+      writeSymbol(value.getName());
+      written = true;
+    }
+
+    @Override
+    public void visit(BigDecimalColumnValue value) {
+      start(COL_BIG_DECIMAL, value);
+      writeBigDecimal(value.getValue());
+    }
+
+    @Override
+    public void visit(BigIntegerColumnValue value) {
+      start(COL_BIG_INTEGER, value);
+      writeBigInteger(value.getValue());
+    }
+
+    @Override
+    public void visit(IntegerColumnValue value) {
+      start(COL_INTEGER, value);
+      writeInt(value.getValue());
+    }
+
+    @Override
+    public void visit(LongColumnValue value) {
+      start(COL_LONG, value);
+      writeLong(value.getValue());
+    }
+
+    @Override
+    public void visit(DateColumnValue value) {
+      start(COL_DATE, value);
+      writeDate(value.getValue());
+    }
+
+    @Override
+    public void visit(StringColumnValue value) {
+      start(COL_STRING, value);
+      writeString(value.getValue());
+    }
+
+    @Override
+    public void visit(TimestampColumnValue value) {
+      start(COL_TIMESTAMP, value);
+      writeTimestamp(value.getValue());
+    }
+
+    @Override
+    public void visit(UuidColumnValue value) {
+      start(COL_UUID, value);
+      writeUuid(value.getValue());
+    }
+
+    @Override
+    public void visit(NullColumnValue value) {
+      start(COL_NULL, value);
+      writeInt(value.getJdbcType());
+    }
+  }
+}
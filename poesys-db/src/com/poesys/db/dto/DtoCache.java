@@ -18,7 +18,11 @@
 package com.poesys.db.dto;
 
 
+import java.util.Iterator;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
 
@@ -37,6 +41,15 @@ import com.poesys.db.pk.IPrimaryKey;
  * cache whenever you need them, then drop the reference as soon as possible.
  * The cache factory stores the cache in the DaoManager under the name of the
  * cached class.
+ * <p>
+ * Objects can expire a fixed time after the cache stores them
+ * (expire-after-write), a fixed time after the last get (expire-after-access),
+ * or both. A get never returns an expired object and removes it. To keep
+ * expired objects that nobody asks for from filling the cache, every
+ * SWEEP_INTERVAL writes the writing thread checks the next SWEEP_SIZE entries
+ * of the cache for expiration, so the cleanup cost spreads across the writes
+ * and the cache needs no sweeper thread.
+ * </p>
  * 
  * @see com.poesys.db.dao.DaoCacheFactory
  * @see com.poesys.db.dao.CacheDaoManager
@@ -49,11 +62,31 @@ public class DtoCache<T extends IDbDto> implements IDtoCache<T> {
   /** Logger for debugging */
   private static final Logger logger = Logger.getLogger(DtoCache.class);
   /** The cache */
-  private ConcurrentHashMap<IPrimaryKey, T> cache =
-    new ConcurrentHashMap<IPrimaryKey, T>();
+  private ConcurrentHashMap<IPrimaryKey, CacheEntry<T>> cache =
+    new ConcurrentHashMap<IPrimaryKey, CacheEntry<T>>();
 
   /** The name of the cache (fully-qualified class name of type T) */
   private final String cacheName;
+  /** The default milliseconds an object lives after caching, 0 for no limit */
+  private final int expireAfterWrite;
+  /** The milliseconds an object lives after each get, 0 for no limit */
+  private final int expireAfterAccess;
+
+  /** The number of writes between partial sweeps for expired objects */
+  static final int SWEEP_INTERVAL = 64;
+  /** The number of entries a partial sweep checks */
+  static final int SWEEP_SIZE = 32;
+  /** Whether the cache has ever held an object that expires */
+  private volatile boolean expiring = false;
+  /** The number of writes since the cache was created */
+  private final AtomicInteger writes = new AtomicInteger();
+  /** Whether a thread is sweeping the cache */
+  private final AtomicBoolean sweeping = new AtomicBoolean(false);
+  /** The keys known to have no object in the database */
+  private final AbsentKeys absent =
+    new AbsentKeys(AbsentKeys.DEFAULT_MAX_KEYS);
+  /** The position of the partial sweeps, guarded by sweeping */
+  private Iterator<Map.Entry<IPrimaryKey, CacheEntry<T>>> cursor = null;
 
   /** Message when null passed for cache name */
   private static final String NULL_CACHE_NAME =
@@ -65,19 +98,53 @@ public class DtoCache<T extends IDbDto> implements IDtoCache<T> {
    * @param name the name of the cache (fully-qualified class name of type T)
    */
   public DtoCache(String name) {
+    this(name, 0, 0);
+  }
+
+  /**
+   * Create a DtoCache object with expiration.
+   * 
+   * @param name the name of the cache (fully-qualified class name of type T)
+   * @param expireAfterWrite the milliseconds an object lives after caching
+   *          unless the caller supplies an expiration time, 0 for no limit
+   * @param expireAfterAccess the milliseconds an object lives after each get,
+   *          0 for no limit
+   */
+  public DtoCache(String name, int expireAfterWrite, int expireAfterAccess) {
     if (name == null) {
       String message = Message.getMessage(NULL_CACHE_NAME, null);
       throw new IllegalArgumentException(message);
     }
     cacheName = name;
+    this.expireAfterWrite = expireAfterWrite > 0 ? expireAfterWrite : 0;
+    this.expireAfterAccess = expireAfterAccess > 0 ? expireAfterAccess : 0;
+    expiring = this.expireAfterWrite > 0 || this.expireAfterAccess > 0;
   }
 
   @Override
   public void cache(T object) {
-    IPrimaryKey key = object.getPrimaryKey();
+    cache(object, 0);
+  }
+
+  @Override
+  public void cache(T object, int expireTime) {
+    IPrimaryKey key = object == null ? null : object.getPrimaryKey();
     if (key != null && object != null) {
-      if (cache.get(key) == null) {
-        cache.put(key, object);
+      absent.remove(key);
+      CacheEntry<T> existing = cache.get(key);
+      if (existing == null
+          || (existing.expires() && existing.isExpired(System.nanoTime()))) {
+        CacheEntry<T> entry =
+          new CacheEntry<T>(object,
+                            expireTime > 0 ? expireTime : expireAfterWrite,
+                            expireAfterAccess);
+        cache.put(key, entry);
+        if (entry.expires()) {
+          expiring = true;
+        }
+        if (expiring && writes.incrementAndGet() % SWEEP_INTERVAL == 0) {
+          sweep(SWEEP_SIZE);
+        }
         logger.debug("Caching object of class " + object.getClass().getName()
                      + " with primary key "
                      + object.getPrimaryKey().getValueList());
@@ -103,11 +170,44 @@ public class DtoCache<T extends IDbDto> implements IDtoCache<T> {
     }
   }
 
+  @Override
+  public void cacheAbsent(IPrimaryKey key, int expireTime) {
+    absent.add(key, expireTime);
+  }
+
+  @Override
+  public boolean isAbsent(IPrimaryKey key) {
+    return absent.contains(key);
+  }
+
   @Override
   public T get(IPrimaryKey key) {
+    return get(key, 0);
+  }
+
+  @Override
+  public T get(IPrimaryKey key, int expireTime) {
     T dto = null;
     if (key != null) {
-      dto = cache.get(key);
+      CacheEntry<T> entry = cache.get(key);
+      if (entry != null && (entry.expires() || expireTime > 0)) {
+        long now = System.nanoTime();
+        if (entry.isExpired(now)) {
+          // Remove only this entry, not one another thread just cached.
+          cache.remove(key, entry);
+          logger.debug("Removed expired key " + key.getValueList()
+                       + " from cache " + cacheName);
+          entry = null;
+        } else {
+          entry.access(now, expireTime);
+          if (expireTime > 0) {
+            expiring = true;
+          }
+        }
+      }
+      if (entry != null) {
+        dto = entry.getDto();
+      }
     }
     return dto;
   }
@@ -122,6 +222,7 @@ public class DtoCache<T extends IDbDto> implements IDtoCache<T> {
   public void removeLocally(IPrimaryKey key) {
     if (key != null) {
       cache.remove(key);
+      absent.remove(key);
       logger.debug("Removing key " + key.getValueList() + " from cache "
                    + cacheName);
     }
@@ -130,8 +231,56 @@ public class DtoCache<T extends IDbDto> implements IDtoCache<T> {
   @Override
   public void clear() {
     cache.clear();
+    absent.clear();
     logger.debug("Cleared cache " + cacheName);
   }
+
+  /**
+   * Remove all the expired objects from the cache. The cache removes expired
+   * objects on its own as it goes; call this method to reclaim the memory of
+   * all expired objects at once, for example after a burst of writes.
+   * 
+   * @return the number of objects removed
+   */
+  public int purgeExpired() {
+    int removed = 0;
+    if (expiring) {
+      long now = System.nanoTime();
+      for (Map.Entry<IPrimaryKey, CacheEntry<T>> entry : cache.entrySet()) {
+        if (entry.getValue().isExpired(now)
+            && cache.remove(entry.getKey(), entry.getValue())) {
+          removed++;
+        }
+      }
+    }
+    return removed;
+  }
+
+  /**
+   * Check the next entries of the cache for expiration, continuing from where
+   * the last partial sweep stopped, and remove the expired ones. If another
+   * thread is already sweeping, do nothing.
+   * 
+   * @param limit the maximum number of entries to check
+   */
+  private void sweep(int limit) {
+    if (sweeping.compareAndSet(false, true)) {
+      try {
+        if (cursor == null || !cursor.hasNext()) {
+          cursor = cache.entrySet().iterator();
+        }
+        long now = System.nanoTime();
+        for (int i = 0; i < limit && cursor.hasNext(); i++) {
+          Map.Entry<IPrimaryKey, CacheEntry<T>> entry = cursor.next();
+          if (entry.getValue().isExpired(now)) {
+            cache.remove(entry.getKey(), entry.getValue());
+          }
+        }
+      } finally {
+        sweeping.set(false);
+      }
+    }
+  }
   
   /**
    * Send the primary key values in the cache to the debug log.
@@ -151,4 +300,14 @@ public class DtoCache<T extends IDbDto> implements IDtoCache<T> {
   public String getCacheName() {
     return cacheName;
   }
+
+  /**
+   * Get the current number of objects in the cache, including any expired
+   * objects not yet removed.
+   * 
+   * @return the number of objects
+   */
+  public int size() {
+    return cache.size();
+  }
 }
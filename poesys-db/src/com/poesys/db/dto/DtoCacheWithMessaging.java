@@ -18,19 +18,7 @@
 package com.poesys.db.dto;
 
 
-import javax.jms.Connection;
-import javax.jms.ConnectionFactory;
-import javax.jms.Destination;
-import javax.jms.JMSException;
-import javax.jms.MessageProducer;
-import javax.jms.ObjectMessage;
-import javax.jms.Session;
-import javax.naming.Context;
-import javax.naming.InitialContext;
-
-import org.apache.log4j.Logger;
-
-import com.poesys.db.dao.CacheMessageListener;
+import com.poesys.db.dao.CacheMessagePublisher;
 import com.poesys.db.pk.IPrimaryKey;
 
 
@@ -43,13 +31,6 @@ import com.poesys.db.pk.IPrimaryKey;
  */
 public class DtoCacheWithMessaging<T extends IDbDto> extends DtoCache<T> {
 
-  /** Log4j logger for this class */
-  private static final Logger logger =
-    Logger.getLogger(DtoCacheWithMessaging.class);
-
-  private static final String PRODUCER_MSG =
-    "com.poesys.db.dto.msg.producer_problem";
-
   /**
    * Create a DtoCacheWithMessaging object.
    * 
@@ -64,44 +45,7 @@ public class DtoCacheWithMessaging<T extends IDbDto> extends DtoCache<T> {
     // Send a message to listeners asking to remove there. This will remove
     // the object from all listening caches with the cache name of this cache,
     // including THIS one.
-    Connection connection = null;
-    try {
-      Context initial = new InitialContext();
-      ConnectionFactory cf =
-        (ConnectionFactory)initial.lookup(CacheMessageListener.CONNECTION_FACTORY);
-      Destination deleteTopic =
-        (Destination)initial.lookup(CacheMessageListener.DELETE_TOPIC);
-      connection = cf.createConnection();
-      Session session =
-        connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
-      logger.debug("Created auto-acknowledged messaging session");
-      MessageProducer producer = session.createProducer(deleteTopic);
-      connection.start();
-      ObjectMessage om = session.createObjectMessage(key.getMessageObject());
-      om.setStringProperty(CacheMessageListener.CACHE_NAME_PROPERTY,
-                           getCacheName());
-      producer.send(om);
-      logger.debug("Sent message to remove " + key.getValueList()
-                   + " from cache " + getCacheName() + " with message id "
-                   + om.getJMSMessageID());
-    } catch (Exception e) {
-      Object[] objects = { getCacheName() };
-      String message = com.poesys.db.Message.getMessage(PRODUCER_MSG, objects);
-      logger.error(message, e);
-    } finally {
-      if (connection != null) {
-        try {
-          int connectionId = connection.hashCode();
-          connection.close();
-          logger.debug("Closed connection " + connectionId);
-        } catch (JMSException e) {
-          Object[] objects = { getCacheName() };
-          String message =
-            com.poesys.db.Message.getMessage(PRODUCER_MSG, objects);
-          logger.error(message, e);
-        }
-      }
-    }
+    CacheMessagePublisher.publishRemove(getCacheName(), key);
   }
 
 }
@@ -20,7 +20,9 @@ package com.poesys.db.dto;
 
 import java.io.Serializable;
 import java.sql.PreparedStatement;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 import com.poesys.db.InvalidParametersException;
 import com.poesys.db.dao.insert.IInsert;
@@ -156,6 +158,33 @@ public interface IDbDto extends Serializable, Comparable<IDbDto>, ISubject,
    * 
    */
   void setChanged();
+
+  /**
+   * Set the status of the DTO to CHANGED as for setChanged(), recording the
+   * name of the changed field so the update DAOs can update just the changed
+   * columns. Call this version from the DTO set methods whenever the update
+   * SQL for the DTO class supports partial updates. The default
+   * implementation ignores the field and calls setChanged().
+   * 
+   * @param field the name of the changed field
+   * @see com.poesys.db.dao.update.IPartialUpdateSql
+   */
+  default void setChanged(String field) {
+    setChanged();
+  }
+
+  /**
+   * Get the names of the fields changed since the DTO was last EXISTING, in
+   * alphabetical order. The set is empty if no field changed or if some change
+   * went through setChanged() without a field name; in either case, the update
+   * DAOs update all the columns. The default implementation tracks no fields
+   * and returns an empty set.
+   * 
+   * @return a sorted set of changed field names, possibly empty
+   */
+  default Set<String> getChangedFields() {
+    return Collections.emptySortedSet();
+  }
   
   /**
    * Set the status of the DTO to DELETED_FROM_DATABASE if it is currently status
@@ -312,6 +341,20 @@ public interface IDbDto extends Serializable, Comparable<IDbDto>, ISubject,
    */
   void finalizeInsert(PreparedStatement stmt);
 
+  /**
+   * Finalize the insert of an object in a batch by updating the DTO as
+   * appropriate. A batch insert calls this method instead of finalizeInsert
+   * after executing the batch, since the generated keys of a batch statement
+   * cover all its rows. The default does nothing; a DTO that copies its
+   * generated key in finalizeInsert should do the same here.
+   * 
+   * @param key the primary key of the DTO, with its generated value set if it
+   *          is an identity key
+   */
+  default void finalizeBatchInsert(IPrimaryKey key) {
+    // No action required--default implementation
+  }
+
   /**
    * Mark the object as deleted if it is EXISTING, CHANGED, or FAILED.
    */
@@ -38,6 +38,19 @@ public interface IDtoCache<T extends IDbDto> {
    */
   void cache(T object);
 
+  /**
+   * Cache the object with an expiration time that replaces the default
+   * expire-after-write time of the cache for this object. The default
+   * implementation ignores the time and caches the object with cache(T).
+   * 
+   * @param object the object to cache
+   * @param expireTime the milliseconds until the object expires from the
+   *          cache, or 0 to use the default of the cache
+   */
+  default void cache(T object, int expireTime) {
+    cache(object);
+  }
+
   /**
    * Get a cached object using a primary key. If the object is not cached, the
    * method returns null.
@@ -47,6 +60,45 @@ public interface IDtoCache<T extends IDbDto> {
    */
   T get(IPrimaryKey key);
 
+  /**
+   * Get a cached object using a primary key and reset its expiration to a
+   * given time after this access, like a memcached touch. If the object is
+   * not cached or has expired, the method returns null. The default
+   * implementation ignores the time and gets the object with get(IPrimaryKey).
+   * 
+   * @param key the primary key for the object
+   * @param expireTime the milliseconds until the object expires from the
+   *          cache after this access, or 0 to keep the current expiration
+   * @return the object or null if the object is not cached
+   */
+  default T get(IPrimaryKey key, int expireTime) {
+    return get(key);
+  }
+
+  /**
+   * Record that no object with a primary key exists in the database, so that
+   * queries by the key can skip the database for a short time (negative
+   * caching). Caching an object with the key, removing the key, or clearing
+   * the cache removes the record.
+   * 
+   * @param key the primary key for which there is no object
+   * @param expireTime the milliseconds until the record expires
+   */
+  default void cacheAbsent(IPrimaryKey key, int expireTime) {
+    // By default, the cache doesn't record absent keys.
+  }
+
+  /**
+   * Is a primary key recorded as having no object in the database?
+   * 
+   * @param key the primary key
+   * @return true if the cache has an unexpired record that the key has no
+   *         object, false otherwise
+   */
+  default boolean isAbsent(IPrimaryKey key) {
+    return false;
+  }
+
   /**
    * Remove a cached object using a primary key. If the object is not cached,
    * the method does nothing. If messaging is enabled, the method requests that
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dto;
+
+
+import java.io.IOException;
+
+
+/**
+ * <p>
+ * A schema for the compact binary encoding of a single class of IDbDto. The
+ * codec writes the persistent fields of a DTO in a fixed order with the
+ * primitive encodings of CompactOutput and reads them back in the same order
+ * with CompactInput, so the encoded form contains no class descriptors or
+ * field names. The read method should construct the DTO with its usual
+ * constructor so that the DTO gets its setter lists, and it should restore any
+ * nested-object keys that the read-object setters use to rebuild the nested
+ * objects; the cache manager calls deserializeNestedObjects() after the read
+ * as it does after Java deserialization.
+ * </p>
+ * <p>
+ * The version identifies the layout of the encoding. Increment the version
+ * whenever the layout changes; during a rolling deployment a server that finds
+ * an encoding with a different version treats it as a cache miss and gets the
+ * object from the database.
+ * </p>
+ * 
+ * @author Robert J. Muller
+ * @param <T> the type of IDbDto that the codec encodes
+ */
+public interface IDtoCodec<T extends IDbDto> {
+  /**
+   * Get the version of the encoding layout.
+   * 
+   * @return the version, 0 or greater
+   */
+  int getVersion();
+
+  /**
+   * Write the persistent state of a DTO.
+   * 
+   * @param dto the DTO to write
+   * @param out the output to which to write
+   * @throws IOException when the DTO contains a value the encoding does not
+   *           support
+   */
+  void write(T dto, CompactOutput out) throws IOException;
+
+  /**
+   * Read a DTO written by the write method of the same version.
+   * 
+   * @param in the input from which to read
+   * @return the DTO
+   * @throws IOException when the input is not a valid encoding
+   */
+  T read(CompactInput in) throws IOException;
+}
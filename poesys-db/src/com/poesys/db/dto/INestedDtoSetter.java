@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dto;
+
+
+import java.util.Collection;
+
+
+/**
+ * An interface for a setter that writes nested DTOs and can report them
+ * without writing them. A graph flush uses the nested DTOs of the insert
+ * setters among the pre-setters of a DTO to find the objects the DTO refers
+ * to, and the nested DTOs of the insert setters and post-setters to find the
+ * objects that refer to it. Other pre-setters, such as those that delete
+ * children in cascade, write objects that refer to the DTO, so they do not
+ * order the DTO's class after their objects.
+ * 
+ * @see com.poesys.db.dao.GraphFlush
+ * 
+ * @author Robert J. Muller
+ */
+public interface INestedDtoSetter {
+  /**
+   * Get the nested DTOs that the setter writes.
+   * 
+   * @return a collection of DTOs, possibly empty
+   */
+  Collection<IDbDto> getNestedDtos();
+
+  /**
+   * Does the setter insert its nested DTOs? A pre-setter that inserts its DTOs
+   * writes objects to which the DTO refers. The default is false; override
+   * this method in a processing setter that inserts referenced objects.
+   * 
+   * @return true if the setter inserts its nested DTOs, false otherwise
+   */
+  default boolean isInsertSetter() {
+    return false;
+  }
+}
@@ -0,0 +1,724 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dto;
+
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import com.poesys.db.Message;
+import com.poesys.db.pk.IPrimaryKey;
+
+
+/**
+ * <p>
+ * A DTO cache that keeps its objects serialized in direct memory outside the
+ * Java heap, for large sets of reference data that would otherwise fill the
+ * heap with DTOs and lengthen garbage collection. The cache serializes an
+ * object when you cache it and deserializes a new copy of the object on each
+ * get, so changing a DTO after caching it does not change the cached object;
+ * cache the object again to replace it, as with memcached. As the memcached
+ * DAO manager does, a get runs the deserialization setters of the new copy to
+ * restore its transient nested objects.
+ * </p>
+ * <p>
+ * The cache allocates direct memory in slabs of fixed-size blocks up to a
+ * maximum number of bytes and stores each object in as many blocks as its
+ * serialized form needs. The only heap the cache uses per object is an entry
+ * in the key index with the list of its blocks. When an object needs more
+ * blocks than are free, the cache evicts least-recently-used objects until
+ * there are enough. Objects can expire after write or after access as in
+ * BoundedDtoCache, and the cache counts hits, misses, evictions, and
+ * expirations in the same way.
+ * </p>
+ * <p>
+ * The cache locks its index for each operation, including the copy of the
+ * bytes into or out of direct memory but not the serialization itself. The
+ * cache does not free its direct memory on clear() but reuses it; the memory
+ * goes when the cache itself is garbage collected.
+ * </p>
+ * <p>
+ * The maximum bytes of all the off-heap caches in a JVM count against the
+ * JVM's direct memory limit, -XX:MaxDirectMemorySize, which by default is
+ * about the maximum heap size and also covers NIO buffers such as those of
+ * the memcached client. When a cache grows past the limit, allocating a slab
+ * throws an OutOfMemoryError, so set the limit above the total maximum bytes
+ * of the caches plus the other direct memory the application uses.
+ * </p>
+ * 
+ * @see BoundedDtoCache
+ * 
+ * @author Robert J. Muller
+ * @param <T> the type of IDbDto object to cache
+ */
+public class OffHeapDtoCache<T extends IDbDto> implements IDtoCache<T> {
+  /** Logger for debugging */
+  private static final Logger logger = Logger.getLogger(OffHeapDtoCache.class);
+
+  /** Message when null passed for cache name */
+  private static final String NULL_CACHE_NAME =
+    "com.poesys.db.dto.null_cache_name_msg";
+  /** Message when the maximum bytes or block size are invalid */
+  private static final String INVALID_SIZE =
+    "com.poesys.db.dto.msg.invalid_off_heap_size";
+
+  /** Default size in bytes of a block of direct memory */
+  public static final int DEFAULT_BLOCK_SIZE = 512;
+  /** Size in bytes of a slab of direct memory allocated at one time */
+  private static final int SLAB_SIZE = 4 * 1024 * 1024;
+
+  /** The name of the cache (fully-qualified class name of type T) */
+  private final String cacheName;
+  /** The size in bytes of a block */
+  private final int blockSize;
+  /** The number of blocks in a full slab */
+  private final int slabBlocks;
+  /** The maximum number of blocks in the cache */
+  private final int maxBlocks;
+  /** The default milliseconds an object lives after caching, 0 for no limit */
+  private final int expireAfterWrite;
+  /** The milliseconds an object lives after each get, 0 for no limit */
+  private final int expireAfterAccess;
+
+  /** The access-ordered key index, locked for all access to the cache */
+  private final Map<IPrimaryKey, Slot> index;
+  /** The slabs of direct memory, each holding slabBlocks blocks or fewer */
+  private final List<ByteBuffer> slabs = new ArrayList<ByteBuffer>();
+  /** The stack of free block numbers */
+  private int[] free = new int[0];
+  /** The number of block numbers on the free stack */
+  private int freeCount = 0;
+  /** The number of blocks in all the allocated slabs */
+  private int allocatedBlocks = 0;
+  /** The number of serialized bytes in the cache */
+  private long usedBytes = 0L;
+
+  /** The number of gets that found an object */
+  private final AtomicLong hits = new AtomicLong();
+  /** The number of gets that found no object */
+  private final AtomicLong misses = new AtomicLong();
+  /** The number of objects evicted to make room for other objects */
+  private final AtomicLong evictions = new AtomicLong();
+  /** The number of expired objects removed */
+  private final AtomicLong expirations = new AtomicLong();
+  /** The number of objects not cached because they were too large */
+  private final AtomicLong rejections = new AtomicLong();
+  /** The keys known to have no object in the database */
+  private final AbsentKeys absent =
+    new AbsentKeys(AbsentKeys.DEFAULT_MAX_KEYS);
+
+  /**
+   * Create an OffHeapDtoCache object.
+   * 
+   * @param name the name of the cache (fully-qualified class name of type T)
+   * @param maxBytes the maximum bytes of direct memory the cache uses
+   */
+  public OffHeapDtoCache(String name, long maxBytes) {
+    this(name, maxBytes, DEFAULT_BLOCK_SIZE, 0, 0);
+  }
+
+  /**
+   * Create an OffHeapDtoCache object with expiration.
+   * 
+   * @param name the name of the cache (fully-qualified class name of type T)
+   * @param maxBytes the maximum bytes of direct memory the cache uses
+   * @param expireAfterWrite the milliseconds an object lives after caching
+   *          unless the caller supplies an expiration time, 0 for no limit
+   * @param expireAfterAccess the milliseconds an object lives after each get,
+   *          0 for no limit
+   */
+  public OffHeapDtoCache(String name,
+                         long maxBytes,
+                         int expireAfterWrite,
+                         int expireAfterAccess) {
+    this(name, maxBytes, DEFAULT_BLOCK_SIZE, expireAfterWrite,
+         expireAfterAccess);
+  }
+
+  /**
+   * Create an OffHeapDtoCache object with a block size and expiration. Small
+   * blocks waste less memory at the end of each object; large blocks mean
+   * fewer blocks per object in the index.
+   * 
+   * @param name the name of the cache (fully-qualified class name of type T)
+   * @param maxBytes the maximum bytes of direct memory the cache uses, at
+   *          least one block and within -XX:MaxDirectMemorySize
+   * @param blockSize the size in bytes of a block, at least 1
+   * @param expireAfterWrite the milliseconds an object lives after caching
+   *          unless the caller supplies an expiration time, 0 for no limit
+   * @param expireAfterAccess the milliseconds an object lives after each get,
+   *          0 for no limit
+   */
+  public OffHeapDtoCache(String name,
+                         long maxBytes,
+                         int blockSize,
+                         int expireAfterWrite,
+                         int expireAfterAccess) {
+    if (name == null) {
+      String message = Message.getMessage(NULL_CACHE_NAME, null);
+      throw new IllegalArgumentException(message);
+    }
+    if (blockSize < 1 || maxBytes < blockSize
+        || maxBytes / blockSize > Integer.MAX_VALUE) {
+      Object[] args = { name, maxBytes, blockSize };
+      String message = Message.getMessage(INVALID_SIZE, args);
+      throw new IllegalArgumentException(message);
+    }
+    cacheName = name;
+    this.blockSize = blockSize;
+    slabBlocks = Math.max(1, SLAB_SIZE / blockSize);
+    maxBlocks = (int)(maxBytes / blockSize);
+    this.expireAfterWrite = expireAfterWrite > 0 ? expireAfterWrite : 0;
+    this.expireAfterAccess = expireAfterAccess > 0 ? expireAfterAccess : 0;
+    index = new LinkedHashMap<IPrimaryKey, Slot>(16, 0.75f, true);
+  }
+
+  @Override
+  public void cache(T object) {
+    cache(object, 0);
+  }
+
+  @Override
+  public void cache(T object, int expireTime) {
+    if (object == null || object.getPrimaryKey() == null) {
+      logger.debug("Tried to cache null object or object with null key");
+      return;
+    }
+    IPrimaryKey key = object.getPrimaryKey();
+    absent.remove(key);
+    byte[] bytes = serialize(object);
+    if (bytes == null) {
+      return;
+    }
+    int blocks = (bytes.length + blockSize - 1) / blockSize;
+    if (blocks > maxBlocks) {
+      rejections.incrementAndGet();
+      logger.debug("Object of class " + object.getClass().getName()
+                   + " with primary key " + key.getValueList() + " ("
+                   + bytes.length + " bytes) too large for cache "
+                   + cacheName);
+      return;
+    }
+    Slot slot =
+      new Slot(bytes.length,
+               expireTime > 0 ? expireTime : expireAfterWrite,
+               expireAfterAccess);
+    synchronized (index) {
+      // Replace any existing copy, which is now out of date.
+      release(index.remove(key));
+      purgeEldest(DtoCache.SWEEP_SIZE);
+      evict(blocks);
+      slot.blocks = allocate(blocks);
+      write(bytes, slot.blocks);
+      index.put(key, slot);
+      usedBytes += bytes.length;
+    }
+    logger.debug("Caching object of class " + object.getClass().getName()
+                 + " with primary key " + key.getValueList() + " in "
+                 + blocks + " off-heap blocks");
+  }
+
+  @Override
+  public void cacheAbsent(IPrimaryKey key, int expireTime) {
+    absent.add(key, expireTime);
+  }
+
+  @Override
+  public boolean isAbsent(IPrimaryKey key) {
+    return absent.contains(key);
+  }
+
+  @Override
+  public T get(IPrimaryKey key) {
+    return get(key, 0);
+  }
+
+  @Override
+  public T get(IPrimaryKey key, int expireTime) {
+    T dto = null;
+    if (key != null) {
+      byte[] bytes = null;
+      synchronized (index) {
+        Slot slot = index.get(key);
+        if (slot != null && (slot.expires() || expireTime > 0)) {
+          long now = System.nanoTime();
+          if (slot.isExpired(now)) {
+            release(index.remove(key));
+            expirations.incrementAndGet();
+            slot = null;
+          } else {
+            slot.access(now, expireTime);
+          }
+        }
+        if (slot != null) {
+          bytes = read(slot);
+        }
+      }
+      if (bytes != null) {
+        dto = deserialize(key, bytes);
+        if (dto != null) {
+          dto.deserializeNestedObjects();
+        }
+      }
+      if (dto == null) {
+        misses.incrementAndGet();
+      } else {
+        hits.incrementAndGet();
+      }
+    }
+    return dto;
+  }
+
+  @Override
+  public void remove(IPrimaryKey key) {
+    // Remove locally, no messaging with this class
+    removeLocally(key);
+  }
+
+  @Override
+  public void removeLocally(IPrimaryKey key) {
+    if (key != null) {
+      synchronized (index) {
+        release(index.remove(key));
+      }
+      absent.remove(key);
+      logger.debug("Removing key " + key.getValueList() + " from cache "
+                   + cacheName);
+    }
+  }
+
+  @Override
+  public void clear() {
+    synchronized (index) {
+      index.clear();
+      // Put all the allocated blocks back on the free stack.
+      free = new int[allocatedBlocks];
+      for (int i = 0; i < allocatedBlocks; i++) {
+        free[i] = allocatedBlocks - 1 - i;
+      }
+      freeCount = allocatedBlocks;
+      usedBytes = 0L;
+    }
+    absent.clear();
+    logger.debug("Cleared cache " + cacheName);
+  }
+
+  /**
+   * Serialize an object.
+   * 
+   * @param object the object to serialize
+   * @return the serialized bytes, or null if the object cannot be serialized
+   */
+  private byte[] serialize(T object) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(blockSize);
+    try {
+      ObjectOutputStream out = new ObjectOutputStream(bytes);
+      out.writeObject(object);
+      out.close();
+    } catch (IOException e) {
+      // Don't cache the object; queries will go to the database.
+      logger.warn("Could not serialize object of class "
+                  + object.getClass().getName() + " for cache " + cacheName
+                  + ": " + e.getMessage());
+      return null;
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Deserialize an object, removing it from the cache if the bytes are no
+   * longer a valid object, for example because its class has changed.
+   * 
+   * @param key the primary key of the object
+   * @param bytes the serialized bytes
+   * @return the object, or null if the bytes are not a valid object
+   */
+  @SuppressWarnings("unchecked")
+  private T deserialize(IPrimaryKey key, byte[] bytes) {
+    T dto = null;
+    try {
+      ObjectInputStream in =
+        new ObjectInputStream(new ByteArrayInputStream(bytes));
+      dto = (T)in.readObject();
+      in.close();
+    } catch (IOException | ClassNotFoundException | ClassCastException e) {
+      // Treat as a cache miss.
+      logger.warn("Removing object with key " + key.getValueList()
+                  + " that cannot be deserialized from cache " + cacheName
+                  + ": " + e.getMessage());
+      removeLocally(key);
+    }
+    return dto;
+  }
+
+  /**
+   * Evict least-recently-used objects until there are enough blocks for an
+   * object. The caller must hold the index lock and must have checked that
+   * the number of blocks is no more than the maximum.
+   * 
+   * @param blocks the number of blocks the object needs
+   */
+  private void evict(int blocks) {
+    Iterator<Map.Entry<IPrimaryKey, Slot>> iterator =
+      index.entrySet().iterator();
+    while (freeCount + maxBlocks - allocatedBlocks < blocks
+           && iterator.hasNext()) {
+      Map.Entry<IPrimaryKey, Slot> eldest = iterator.next();
+      iterator.remove();
+      release(eldest.getValue());
+      evictions.incrementAndGet();
+      logger.debug("Evicting key " + eldest.getKey().getValueList()
+                   + " from cache " + cacheName);
+    }
+  }
+
+  /**
+   * Remove expired objects from the least-recently-used end of the cache,
+   * stopping at the first object that has not expired. The caller must hold
+   * the index lock.
+   * 
+   * @param limit the maximum number of objects to check
+   */
+  private void purgeEldest(int limit) {
+    long now = 0L;
+    Iterator<Slot> iterator = index.values().iterator();
+    for (int i = 0; i < limit && iterator.hasNext(); i++) {
+      Slot slot = iterator.next();
+      if (!slot.expires()) {
+        break;
+      }
+      if (now == 0L) {
+        now = System.nanoTime();
+      }
+      if (!slot.isExpired(now)) {
+        break;
+      }
+      iterator.remove();
+      release(slot);
+      expirations.incrementAndGet();
+    }
+  }
+
+  /**
+   * Take blocks from the free stack, allocating new slabs as required. The
+   * caller must hold the index lock and must have made sure there are enough
+   * free or unallocated blocks.
+   * 
+   * @param count the number of blocks
+   * @return the block numbers
+   */
+  private int[] allocate(int count) {
+    int[] blocks = new int[count];
+    for (int i = 0; i < count; i++) {
+      if (freeCount == 0) {
+        addSlab();
+      }
+      blocks[i] = free[--freeCount];
+    }
+    return blocks;
+  }
+
+  /**
+   * Allocate a new slab of direct memory and put its blocks on the free
+   * stack. The last slab is smaller than the others if the maximum number of
+   * blocks is not a multiple of the slab size. The caller must hold the index
+   * lock.
+   */
+  private void addSlab() {
+    int count = Math.min(slabBlocks, maxBlocks - allocatedBlocks);
+    slabs.add(ByteBuffer.allocateDirect(count * blockSize));
+    if (free.length < freeCount + count) {
+      free = Arrays.copyOf(free, freeCount + count);
+    }
+    // Push in reverse order so the blocks come off the stack in order.
+    for (int i = count - 1; i >= 0; i--) {
+      free[freeCount++] = allocatedBlocks + i;
+    }
+    allocatedBlocks += count;
+    logger.debug("Allocated off-heap slab of " + count * blockSize
+                 + " bytes for cache " + cacheName);
+  }
+
+  /**
+   * Return the blocks of a removed object to the free stack. The caller must
+   * hold the index lock.
+   * 
+   * @param slot the removed object's slot, or null to do nothing
+   */
+  private void release(Slot slot) {
+    if (slot != null) {
+      for (int block : slot.blocks) {
+        free[freeCount++] = block;
+      }
+      usedBytes -= slot.length;
+    }
+  }
+
+  /**
+   * Copy serialized bytes into blocks. The caller must hold the index lock.
+   * 
+   * @param bytes the serialized bytes
+   * @param blocks the block numbers
+   */
+  private void write(byte[] bytes, int[] blocks) {
+    int offset = 0;
+    for (int block : blocks) {
+      int length = Math.min(blockSize, bytes.length - offset);
+      ByteBuffer slab = position(block);
+      slab.put(bytes, offset, length);
+      offset += length;
+    }
+  }
+
+  /**
+   * Copy the serialized bytes of an object out of its blocks. The caller must
+   * hold the index lock.
+   * 
+   * @param slot the slot of the object
+   * @return the serialized bytes
+   */
+  private byte[] read(Slot slot) {
+    byte[] bytes = new byte[slot.length];
+    int offset = 0;
+    for (int block : slot.blocks) {
+      int length = Math.min(blockSize, bytes.length - offset);
+      ByteBuffer slab = position(block);
+      slab.get(bytes, offset, length);
+      offset += length;
+    }
+    return bytes;
+  }
+
+  /**
+   * Get the slab that contains a block, positioned at the start of the block.
+   * The caller must hold the index lock.
+   * 
+   * @param block the block number
+   * @return the slab
+   */
+  private ByteBuffer position(int block) {
+    ByteBuffer slab = slabs.get(block / slabBlocks);
+    slab.position((block % slabBlocks) * blockSize);
+    return slab;
+  }
+
+  /**
+   * Get the cacheName.
+   * 
+   * @return a cacheName
+   */
+  public String getCacheName() {
+    return cacheName;
+  }
+
+  /**
+   * Get the maximum bytes of direct memory the cache uses.
+   * 
+   * @return the maximum bytes
+   */
+  public long getMaxBytes() {
+    return (long)maxBlocks * blockSize;
+  }
+
+  /**
+   * Get the bytes of direct memory the cache has allocated so far.
+   * 
+   * @return the allocated bytes
+   */
+  public long getAllocatedBytes() {
+    synchronized (index) {
+      return (long)allocatedBlocks * blockSize;
+    }
+  }
+
+  /**
+   * Get the number of serialized bytes of the objects in the cache, not
+   * counting the unused ends of their last blocks.
+   * 
+   * @return the used bytes
+   */
+  public long getUsedBytes() {
+    synchronized (index) {
+      return usedBytes;
+    }
+  }
+
+  /**
+   * Get the current number of objects in the cache.
+   * 
+   * @return the number of objects
+   */
+  public int size() {
+    synchronized (index) {
+      return index.size();
+    }
+  }
+
+  /**
+   * Get the number of gets that found an object in the cache.
+   * 
+   * @return the hit count
+   */
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  /**
+   * Get the number of gets that found no object in the cache.
+   * 
+   * @return the miss count
+   */
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  /**
+   * Get the number of objects evicted from the cache to make room for other
+   * objects.
+   * 
+   * @return the eviction count
+   */
+  public long getEvictionCount() {
+    return evictions.get();
+  }
+
+  /**
+   * Get the number of expired objects removed from the cache.
+   * 
+   * @return the expiration count
+   */
+  public long getExpirationCount() {
+    return expirations.get();
+  }
+
+  /**
+   * Get the number of objects not cached because their serialized form was
+   * larger than the cache.
+   * 
+   * @return the rejection count
+   */
+  public long getRejectionCount() {
+    return rejections.get();
+  }
+
+  /**
+   * Get a summary of the cache statistics for logging.
+   * 
+   * @return the statistics as a string
+   */
+  public String getStatistics() {
+    return cacheName + ": size=" + size() + ", usedBytes=" + getUsedBytes()
+           + ", allocatedBytes=" + getAllocatedBytes() + ", maxBytes="
+           + getMaxBytes() + ", hits=" + hits.get() + ", misses="
+           + misses.get() + ", evictions=" + evictions.get()
+           + ", expirations=" + expirations.get() + ", rejections="
+           + rejections.get();
+  }
+
+  /**
+   * The index entry for an object in the cache: the blocks that hold its
+   * serialized bytes and its expiration times, in System.nanoTime() units as
+   * in CacheEntry.
+   */
+  private static final class Slot {
+    /** The number of serialized bytes */
+    private final int length;
+    /** The block numbers in order, set when the blocks are allocated */
+    private int[] blocks;
+    /** Whether the object expires a fixed time after the write */
+    private final boolean writeExpiry;
+    /** The time at which the object expires after the write */
+    private final long writeDeadline;
+    /** The nanoseconds the object lives after each access, 0 for no limit */
+    private long accessNanos;
+    /** The time at which the object expires after the last access */
+    private long accessDeadline;
+
+    /**
+     * Create a Slot object.
+     * 
+     * @param length the number of serialized bytes
+     * @param afterWrite the milliseconds the object lives after the write, 0
+     *          for no limit
+     * @param afterAccess the milliseconds the object lives after each
+     *          access, 0 for no limit
+     */
+    private Slot(int length, long afterWrite, long afterAccess) {
+      this.length = length;
+      writeExpiry = afterWrite > 0;
+      accessNanos =
+        afterAccess > 0 ? TimeUnit.MILLISECONDS.toNanos(afterAccess) : 0L;
+      long now = writeExpiry || accessNanos > 0 ? System.nanoTime() : 0L;
+      writeDeadline =
+        writeExpiry ? now + TimeUnit.MILLISECONDS.toNanos(afterWrite) : 0L;
+      accessDeadline = now + accessNanos;
+    }
+
+    /**
+     * Does the object expire at all?
+     * 
+     * @return true if the object has a write or access expiration
+     */
+    private boolean expires() {
+      return writeExpiry || accessNanos > 0;
+    }
+
+    /**
+     * Has the object expired at a given time?
+     * 
+     * @param now the current System.nanoTime()
+     * @return true if the object has expired
+     */
+    private boolean isExpired(long now) {
+      return (writeExpiry && now - writeDeadline >= 0)
+             || (accessNanos > 0 && now - accessDeadline >= 0);
+    }
+
+    /**
+     * Record an access to the object, extending its access expiration. An
+     * expiration time given with the access replaces the access expiration,
+     * like a memcached touch.
+     * 
+     * @param now the current System.nanoTime()
+     * @param expireTime the milliseconds the object lives after this access,
+     *          or 0 to keep the current access expiration
+     */
+    private void access(long now, int expireTime) {
+      if (expireTime > 0) {
+        accessNanos = TimeUnit.MILLISECONDS.toNanos(expireTime);
+      }
+      if (accessNanos > 0) {
+        accessDeadline = now + accessNanos;
+      }
+    }
+  }
+}
@@ -155,16 +155,36 @@ public class IdentityPrimaryKey extends AbstractSingleValuedPrimaryKey {
 
   @Override
   public void finalizeInsert(PreparedStatement stmt) {
+    try {
+      // Use the JDBC method to get the identity value just generated.
+      finalizeInsert(stmt.getGeneratedKeys());
+    } catch (SQLException e) {
+      throw new DbErrorException(Message.getMessage(SQL_ERROR, null));
+    }
+  }
+
+  /**
+   * Finalize a batched SQL INSERT by setting the key value from the next row
+   * of the generated-key result set of the executed batch. The batch DAO calls
+   * this method once for each DTO in the batch, in the order in which it added
+   * the DTOs to the batch, so each key gets the value the DBMS generated for
+   * its row. The caller must close the result set or the statement.
+   * 
+   * @param keys the generated-key result set from
+   *          PreparedStatement.getGeneratedKeys()
+   * @return true if the result set had a row from which to set the key value,
+   *         false if the result set had no more rows
+   */
+  public boolean finalizeInsert(ResultSet keys) {
     // Extract the column value to get the name.
     IColumnValue col = list.get(0);
     BigInteger value = null;
+    boolean finalized = false;
 
     try {
-      // Use the JDBC method to get the identity value just generated.
-      ResultSet rs = stmt.getGeneratedKeys();
-      if (rs.next()) {
+      if (keys.next()) {
         // Get the key value.
-        BigDecimal decimalValue = rs.getBigDecimal(1);
+        BigDecimal decimalValue = keys.getBigDecimal(1);
         // Convert the value to a big integer.
         value = decimalValue.toBigInteger();
         BigIntegerColumnValue newCol =
@@ -172,6 +192,7 @@ public class IdentityPrimaryKey extends AbstractSingleValuedPrimaryKey {
         // Clear the current column value from the list and add the new one.
         list.clear();
         list.add(newCol);
+        finalized = true;
       }
     } catch (InvalidParametersException e) {
       List<String> list = new ArrayList<>();
@@ -188,6 +209,8 @@ public class IdentityPrimaryKey extends AbstractSingleValuedPrimaryKey {
     } catch (SQLException e) {
       throw new DbErrorException(Message.getMessage(SQL_ERROR, null));
     }
+
+    return finalized;
   }
 
   @Override
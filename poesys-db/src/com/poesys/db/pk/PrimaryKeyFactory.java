@@ -193,7 +193,10 @@ public class PrimaryKeyFactory {
    * Create a primary key containing a value generated from a named Oracle
    * SEQUENCE object. You must create the sequence in the target Oracle database
    * and have it start with an appropriate value. The sequence name, if null,
-   * defaults to the key column name.
+   * defaults to the key column name. If the sequence has a block size greater
+   * than 1, the key value comes from a block of values that
+   * SequenceBlockAllocator reserves; the SEQUENCE must then have INCREMENT BY
+   * equal to the block size.
    * 
    * @param sequenceName the name of the Oracle SEQUENCE object
    * @param name the name of the single primary key column
@@ -206,6 +209,13 @@ public class PrimaryKeyFactory {
                                                            String name,
                                                            String className,
                                                            String subsystem) {
+    String finalName = sequenceName != null ? sequenceName : name;
+    if (SequenceBlockAllocator.getBlockSize(subsystem, finalName) > 1) {
+      return new SequencePrimaryKey(name,
+                                    SequenceBlockAllocator.nextOracleValue(subsystem,
+                                                                           finalName),
+                                    className);
+    }
     Runnable query =
       getRunnableOracleKeyGenerator(sequenceName, name, className);
     PoesysTrackingThread thread = new PoesysTrackingThread(query, subsystem);
@@ -335,6 +345,11 @@ public class PrimaryKeyFactory {
    *   FROM mysql_sequence
    *  WHERE name = ?;
    * </pre>
+   * <p>
+   * If the sequence has a block size greater than 1, the key value comes from
+   * a block of values that SequenceBlockAllocator reserves with a single
+   * update that adds the block size to the sequence.
+   * </p>
    * 
    * @param sequenceName the name of the MySQL sequence
    * @param name the name of the single primary key column
@@ -347,6 +362,13 @@ public class PrimaryKeyFactory {
                                                           String name,
                                                           String className,
                                                           String subsystem) {
+    String finalName = sequenceName != null ? sequenceName : name;
+    if (SequenceBlockAllocator.getBlockSize(subsystem, finalName) > 1) {
+      return new SequencePrimaryKey(name,
+                                    SequenceBlockAllocator.nextMySqlValue(subsystem,
+                                                                          finalName),
+                                    className);
+    }
     Runnable query =
       getRunnableMySqlKeyGenerator(sequenceName, name, className);
     PoesysTrackingThread thread = new PoesysTrackingThread(query, subsystem);
@@ -0,0 +1,613 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.pk;
+
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.log4j.Logger;
+
+import com.poesys.db.DatabaseProperties;
+import com.poesys.db.DbErrorException;
+import com.poesys.db.Message;
+import com.poesys.db.NoPrimaryKeyException;
+import com.poesys.db.dao.PoesysTrackingThread;
+
+
+/**
+ * <p>
+ * A hi-lo allocator for sequence primary key values. Rather than going to the
+ * database for each key, the allocator reserves a block of values for a
+ * sequence in one round trip and hands out the values from memory. When a
+ * block runs low, a background thread reserves the next block so that the
+ * current block rolls over to the next one without waiting for the database.
+ * Handing out a value from a block takes no locks; only a caller that finds
+ * both the current block and the spare block empty waits for the database.
+ * </p>
+ * <p>
+ * The allocator reserves a block differently for each kind of sequence:
+ * </p>
+ * <ul>
+ * <li>Oracle: the SEQUENCE must have INCREMENT BY equal to the block size;
+ * each NEXTVAL reserves the block starting with the returned value. Before
+ * the first block at a size, the allocator reads the increment from
+ * ALL_SEQUENCES and fails if it differs from the block size, as the blocks
+ * would otherwise overlap and produce duplicate keys. Qualify the sequence
+ * name with its owner if it belongs to another schema.</li>
+ * <li>MySQL: the allocator adds the block size to the value in the Sequence
+ * table and reserves the values up to and including the new value</li>
+ * </ul>
+ * <p>
+ * Blocks are off by default: PrimaryKeyFactory uses the allocator only for a
+ * sequence with a block size greater than 1. Set the block size for a
+ * sequence or for all the sequences of a subsystem in the com.poesys.db.database
+ * properties file or programmatically:
+ * </p>
+ * 
+ * <pre>
+ * com.poesys.test.mysql.sequence_block=1
+ * com.poesys.test.mysql.sequence_block.account_seq=500
+ * </pre>
+ * 
+ * <p>
+ * Values reserved but not used before the JVM exits are lost, so the key
+ * values have gaps, and keys from different JVMs interleave rather than
+ * increasing in insertion order.
+ * </p>
+ * 
+ * @see PrimaryKeyFactory#createOracleSequenceKey(String, String, String,
+ *      String)
+ * @see PrimaryKeyFactory#createMySqlSequenceKey(String, String, String,
+ *      String)
+ * 
+ * @author Robert J. Muller
+ */
+public final class SequenceBlockAllocator {
+  /** Logger for this class */
+  private static final Logger logger =
+    Logger.getLogger(SequenceBlockAllocator.class);
+  /** Property suffix for the block size */
+  private static final String BLOCK = ".sequence_block";
+  /** Default block size, which turns off block allocation */
+  public static final int DEFAULT_BLOCK_SIZE = 1;
+
+  /** The Oracle sequence query before the sequence name */
+  private static final String ORA_SEQ1 = "SELECT ";
+  /** The Oracle sequence query after the sequence name */
+  private static final String ORA_SEQ2 = ".NEXTVAL AS VALUE FROM DUAL";
+  /** The Oracle sequence increment query */
+  private static final String ORA_INCREMENT =
+    "SELECT increment_by FROM all_sequences WHERE sequence_name = UPPER(?) AND sequence_owner = NVL(UPPER(?), USER)";
+  /** The MySQL sequence block update */
+  private static final String MYSQL_SEQ_UPDATE =
+    "UPDATE Sequence SET sequence = sequence + ? WHERE name = ?";
+  /** The MySQL sequence query */
+  private static final String MYSQL_SEQ_QUERY =
+    "SELECT sequence FROM Sequence WHERE name = ?";
+
+  /** timeout for the query thread */
+  private static final int TIMEOUT = 1000 * 60;
+
+  /** Error message for no sequence generation */
+  private static final String NO_SEQ_MSG = "com.poesys.db.pk.msg.no_sequence";
+  /** Error message when thread is interrupted or timed out */
+  private static final String THREAD_ERROR = "com.poesys.db.dao.msg.thread";
+  /** Error message when the Oracle increment is not the block size */
+  private static final String INCREMENT_ERROR =
+    "com.poesys.db.pk.msg.sequence_increment";
+
+  /** Block sizes by subsystem and sequence name */
+  private static final Map<String, Integer> sizes =
+    new ConcurrentHashMap<String, Integer>();
+  /** Sequences by kind, subsystem, and sequence name */
+  private static final ConcurrentMap<String, Sequence> sequences =
+    new ConcurrentHashMap<String, Sequence>();
+  /** Block sizes verified against the Oracle increment by sequence key */
+  private static final ConcurrentMap<String, Integer> increments =
+    new ConcurrentHashMap<String, Integer>();
+
+  /** The background thread that reserves spare blocks */
+  private static final ExecutorService refiller =
+    Executors.newSingleThreadExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "Poesys sequence block refill");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+
+  /**
+   * Private constructor for static class
+   */
+  private SequenceBlockAllocator() {
+  }
+
+  /**
+   * Get the block size for a sequence in a subsystem.
+   * 
+   * @param subsystem the subsystem
+   * @param sequenceName the name of the sequence
+   * @return the block size; 1 means no block allocation
+   */
+  public static int getBlockSize(String subsystem, String sequenceName) {
+    String key = subsystem + BLOCK + "." + sequenceName;
+    Integer size = sizes.get(key);
+    if (size == null) {
+      int subsystemSize =
+        DatabaseProperties.getInt(subsystem + BLOCK, DEFAULT_BLOCK_SIZE, 1);
+      size = DatabaseProperties.getInt(key, subsystemSize, 1);
+      sizes.put(key, size);
+    }
+    return size;
+  }
+
+  /**
+   * Set the block size for a sequence in a subsystem, overriding any
+   * properties. The new size applies to the next block the allocator
+   * reserves. For an Oracle sequence, alter its INCREMENT BY to the new size
+   * first; the allocator checks the increment before reserving a block at
+   * the new size and fails if they differ.
+   * 
+   * @param subsystem the subsystem
+   * @param sequenceName the name of the sequence
+   * @param size the block size; 1 turns off block allocation
+   */
+  public static void setBlockSize(String subsystem, String sequenceName,
+                                  int size) {
+    sizes.put(subsystem + BLOCK + "." + sequenceName, size < 1 ? 1 : size);
+  }
+
+  /**
+   * Discard all the reserved blocks, so that the next value for each sequence
+   * comes from a new block. The discarded values are lost.
+   */
+  public static void clear() {
+    sequences.clear();
+    increments.clear();
+  }
+
+  /**
+   * Get the next value of an Oracle SEQUENCE from its current block.
+   * 
+   * @param subsystem the subsystem that owns the sequence
+   * @param sequenceName the name of the sequence
+   * @return the next value
+   */
+  static BigInteger nextOracleValue(final String subsystem,
+                                    final String sequenceName) {
+    final String key = "oracle:" + subsystem + ":" + sequenceName;
+    Sequence sequence = sequences.get(key);
+    if (sequence == null) {
+      BlockSource source = new BlockSource() {
+        @Override
+        public long reserve(int size) {
+          return reserveBlock(getRunnableOracleBlock(key, sequenceName, size),
+                              subsystem, sequenceName, size);
+        }
+      };
+      sequence = putSequence(key, new Sequence(sequenceName, source, subsystem));
+    }
+    return BigInteger.valueOf(sequence.next());
+  }
+
+  /**
+   * Get the next value of a MySQL Sequence table sequence from its current
+   * block.
+   * 
+   * @param subsystem the subsystem that owns the sequence
+   * @param sequenceName the name of the sequence
+   * @return the next value
+   */
+  static BigInteger nextMySqlValue(final String subsystem,
+                                   final String sequenceName) {
+    String key = "mysql:" + subsystem + ":" + sequenceName;
+    Sequence sequence = sequences.get(key);
+    if (sequence == null) {
+      BlockSource source = new BlockSource() {
+        @Override
+        public long reserve(int size) {
+          return reserveBlock(getRunnableMySqlBlock(sequenceName, size),
+                              subsystem, sequenceName, size);
+        }
+      };
+      sequence = putSequence(key, new Sequence(sequenceName, source, subsystem));
+    }
+    return BigInteger.valueOf(sequence.next());
+  }
+
+  /**
+   * Register a new sequence unless another thread registered one first.
+   * 
+   * @param key the sequence map key
+   * @param sequence the new sequence
+   * @return the registered sequence
+   */
+  private static Sequence putSequence(String key, Sequence sequence) {
+    Sequence existing = sequences.putIfAbsent(key, sequence);
+    return existing == null ? sequence : existing;
+  }
+
+  /**
+   * Run a block query in a new tracking thread and return the first value of
+   * the reserved block.
+   * 
+   * @param query the Runnable that reserves the block and puts its first value
+   *          into the thread's holder
+   * @param subsystem the subsystem that owns the sequence
+   * @param sequenceName the sequence name for error messages
+   * @param size the block size for error messages
+   * @return the first value in the block
+   */
+  private static long reserveBlock(BlockQuery query, String subsystem,
+                                   String sequenceName, int size) {
+    PoesysTrackingThread thread = new PoesysTrackingThread(query, subsystem);
+    thread.start();
+    try {
+      thread.join(TIMEOUT);
+      if (thread.getThrowable() != null) {
+        Object[] args =
+          { "reserve sequence block of " + size, sequenceName, subsystem };
+        String message = Message.getMessage(THREAD_ERROR, args);
+        logger.error(message, thread.getThrowable());
+        throw new DbErrorException(message, thread.getThrowable());
+      }
+    } catch (InterruptedException e) {
+      Object[] args =
+        { "reserve sequence block of " + size, sequenceName, subsystem };
+      String message = Message.getMessage(THREAD_ERROR, args);
+      logger.error(message, e);
+      throw new DbErrorException(message, e);
+    } finally {
+      thread.closeConnection();
+    }
+    if (query.first == null) {
+      Object[] args =
+        { "reserve sequence block of " + size, sequenceName, subsystem };
+      throw new DbErrorException(Message.getMessage(THREAD_ERROR, args));
+    }
+    return query.first;
+  }
+
+  /**
+   * Get a Runnable that reserves a block from an Oracle SEQUENCE, the
+   * increment of which is the block size. The first time it reserves a block
+   * of a given size, the Runnable checks the increment of the sequence.
+   * 
+   * @param key the sequence map key
+   * @param sequenceName the name of the Oracle SEQUENCE object
+   * @param size the block size
+   * @return a Runnable block query
+   */
+  private static BlockQuery getRunnableOracleBlock(final String key,
+                                                   final String sequenceName,
+                                                   final int size) {
+    return new BlockQuery() {
+      public void run() {
+        PreparedStatement stmt = null;
+        PoesysTrackingThread thread =
+          (PoesysTrackingThread)Thread.currentThread();
+        try {
+          Integer verified = increments.get(key);
+          if (verified == null || verified != size) {
+            stmt = thread.getConnection().prepareStatement(ORA_INCREMENT);
+            int dot = sequenceName.lastIndexOf('.');
+            stmt.setString(1, sequenceName.substring(dot + 1));
+            stmt.setString(2, dot < 0 ? null : sequenceName.substring(0, dot));
+            ResultSet rs = stmt.executeQuery();
+            if (!rs.next()) {
+              thread.setThrowable(noSequence(sequenceName,
+                                             "not found in ALL_SEQUENCES, cannot check INCREMENT BY",
+                                             null));
+              return;
+            }
+            checkIncrement(sequenceName, rs.getLong("increment_by"), size);
+            increments.put(key, size);
+            stmt.close();
+            stmt = null;
+          }
+          StringBuilder seq = new StringBuilder(ORA_SEQ1);
+          seq.append(sequenceName);
+          seq.append(ORA_SEQ2);
+          stmt = thread.getConnection().prepareStatement(seq.toString());
+          ResultSet rs = stmt.executeQuery();
+          if (rs.next()) {
+            BigDecimal value = rs.getBigDecimal("value");
+            first = value.longValue();
+          } else {
+            thread.setThrowable(noSequence(sequenceName, "no value found", null));
+          }
+        } catch (SQLException e) {
+          thread.setThrowable(noSequence(sequenceName, e.getMessage(), e));
+        } catch (NoPrimaryKeyException e) {
+          thread.setThrowable(e);
+        } finally {
+          close(stmt);
+        }
+      }
+    };
+  }
+
+  /**
+   * Check that the increment of an Oracle SEQUENCE is the block size. If the
+   * increment were smaller, consecutive blocks would overlap and the
+   * allocator would hand out duplicate keys.
+   * 
+   * @param sequenceName the name of the sequence
+   * @param increment the INCREMENT BY of the sequence
+   * @param size the block size
+   * @throws NoPrimaryKeyException when the increment is not the block size
+   */
+  static void checkIncrement(String sequenceName, long increment, int size) {
+    if (increment != size) {
+      Object[] args = { sequenceName, increment, size };
+      String reason = Message.getMessage(INCREMENT_ERROR, args);
+      logger.error(reason);
+      throw noSequence(sequenceName, reason, null);
+    }
+  }
+
+  /**
+   * Get a Runnable that reserves a block from the MySQL Sequence table. The
+   * update and the query run in one transaction, so the row lock keeps other
+   * connections from changing the value in between.
+   * 
+   * @param sequenceName the name of the sequence in the Sequence table
+   * @param size the block size
+   * @return a Runnable block query
+   */
+  private static BlockQuery getRunnableMySqlBlock(final String sequenceName,
+                                                  final int size) {
+    return new BlockQuery() {
+      public void run() {
+        PreparedStatement stmt = null;
+        PoesysTrackingThread thread =
+          (PoesysTrackingThread)Thread.currentThread();
+        try {
+          stmt = thread.getConnection().prepareStatement(MYSQL_SEQ_UPDATE);
+          stmt.setInt(1, size);
+          stmt.setString(2, sequenceName);
+          stmt.execute();
+          stmt.close();
+          stmt = thread.getConnection().prepareStatement(MYSQL_SEQ_QUERY);
+          stmt.setString(1, sequenceName);
+          ResultSet rs = stmt.executeQuery();
+          if (rs.next()) {
+            BigDecimal last = rs.getBigDecimal("sequence");
+            first = last.longValue() - size + 1;
+          } else {
+            thread.rollback();
+            thread.setThrowable(noSequence(sequenceName,
+                                           "No row for sequence in Sequence table",
+                                           null));
+          }
+        } catch (SQLException e) {
+          thread.rollback();
+          thread.setThrowable(noSequence(sequenceName, e.getMessage(), e));
+        } finally {
+          close(stmt);
+        }
+      }
+    };
+  }
+
+  /**
+   * Create the exception for a failed sequence reservation.
+   * 
+   * @param sequenceName the sequence name
+   * @param reason the reason for the failure
+   * @param cause the underlying exception, or null
+   * @return the exception
+   */
+  private static NoPrimaryKeyException noSequence(String sequenceName,
+                                                  String reason,
+                                                  Throwable cause) {
+    NoPrimaryKeyException e =
+      cause == null ? new NoPrimaryKeyException(NO_SEQ_MSG)
+          : new NoPrimaryKeyException(NO_SEQ_MSG, cause);
+    List<String> list = new ArrayList<String>();
+    list.add(sequenceName);
+    list.add(reason);
+    e.setParameters(list);
+    return e;
+  }
+
+  /**
+   * Close a statement, ignoring errors.
+   * 
+   * @param stmt the statement, possibly null
+   */
+  private static void close(PreparedStatement stmt) {
+    if (stmt != null) {
+      try {
+        stmt.close();
+      } catch (SQLException e) {
+        // ignore
+      }
+    }
+  }
+
+
+  /**
+   * A Runnable that reserves a block in a tracking thread and holds the first
+   * value of the block
+   */
+  private abstract static class BlockQuery implements Runnable {
+    /** the first value of the reserved block, set by the run() method */
+    protected volatile Long first = null;
+  }
+
+  /**
+   * The source of blocks for a sequence
+   */
+  interface BlockSource {
+    /**
+     * Reserve a block of values in the database.
+     * 
+     * @param size the number of values in the block
+     * @return the first value of the block
+     */
+    long reserve(int size);
+  }
+
+  /**
+   * A reserved range of sequence values
+   */
+  static class Block {
+    /** the next value to hand out */
+    private final AtomicLong next;
+    /** the last value in the block */
+    private final long last;
+    /** the number of values in the block */
+    private final int size;
+
+    /**
+     * Create a Block object.
+     * 
+     * @param first the first value in the block
+     * @param size the number of values in the block
+     */
+    Block(long first, int size) {
+      next = new AtomicLong(first);
+      last = first + size - 1;
+      this.size = size;
+    }
+  }
+
+  /**
+   * The current and spare blocks of one sequence
+   */
+  static class Sequence {
+    /** the sequence name */
+    private final String name;
+    /** the source of new blocks */
+    private final BlockSource source;
+    /** the subsystem, for the block size */
+    private final String subsystem;
+    /** the block from which to hand out values */
+    private final AtomicReference<Block> current =
+      new AtomicReference<Block>(new Block(1L, 0));
+    /** the block reserved in the background, or null */
+    private final AtomicReference<Block> spare = new AtomicReference<Block>();
+    /** whether a background reservation is running */
+    private final AtomicBoolean refilling = new AtomicBoolean(false);
+
+    /**
+     * Create a Sequence object.
+     * 
+     * @param name the sequence name
+     * @param source the source of new blocks
+     * @param subsystem the subsystem
+     */
+    Sequence(String name, BlockSource source, String subsystem) {
+      this.name = name;
+      this.source = source;
+      this.subsystem = subsystem;
+    }
+
+    /**
+     * Hand out the next value, rolling over to the spare block or reserving a
+     * new block when the current block is empty.
+     * 
+     * @return the next value
+     */
+    long next() {
+      for (;;) {
+        Block block = current.get();
+        long value = block.next.getAndIncrement();
+        if (value <= block.last) {
+          // Reserve the spare block in the background once half the current
+          // block is gone.
+          if (block.last - value <= block.size / 2 && spare.get() == null) {
+            refill();
+          }
+          return value;
+        }
+        rollOver(block);
+      }
+    }
+
+    /**
+     * Replace an empty block with the spare block, or with a new block if
+     * there is no spare. Only the first caller to find the block empty
+     * replaces it.
+     * 
+     * @param empty the empty block
+     */
+    private synchronized void rollOver(Block empty) {
+      if (current.get() == empty) {
+        Block block = spare.getAndSet(null);
+        if (block == null) {
+          int size = getSize();
+          block = new Block(source.reserve(size), size);
+        }
+        current.set(block);
+      }
+    }
+
+    /**
+     * Start reserving the spare block in the background unless a reservation
+     * is already running.
+     */
+    private void refill() {
+      if (refilling.compareAndSet(false, true)) {
+        refiller.execute(new Runnable() {
+          @Override
+          public void run() {
+            try {
+              if (spare.get() == null) {
+                int size = getSize();
+                spare.compareAndSet(null, new Block(source.reserve(size), size));
+              }
+            } catch (RuntimeException e) {
+              // The next caller to empty the current block reserves a block.
+              logger.warn("Could not reserve spare block for sequence " + name,
+                          e);
+            } finally {
+              refilling.set(false);
+            }
+          }
+        });
+      }
+    }
+
+    /**
+     * Get the current block size for the sequence.
+     * 
+     * @return the block size
+     */
+    private int getSize() {
+      return getBlockSize(subsystem, name);
+    }
+  }
+}
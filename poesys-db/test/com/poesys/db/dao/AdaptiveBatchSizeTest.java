@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+
+/**
+ * Test the AdaptiveBatchSize class with simulated batch latencies.
+ * 
+ * @author Robert J. Muller
+ */
+public class AdaptiveBatchSizeTest {
+  /** Nanoseconds per millisecond */
+  private static final long MILLIS = 1000000L;
+
+  /**
+   * Simulate a batch with a fixed round-trip overhead plus a per-row cost
+   * that rises sharply above 400 rows, so throughput peaks near 400.
+   * 
+   * @param rows the batch size
+   * @return the simulated latency in nanoseconds
+   */
+  private static long latency(int rows) {
+    long nanos = 5 * MILLIS + rows * 10000L;
+    if (rows > 400) {
+      nanos += (rows - 400) * 200000L;
+    }
+    return nanos;
+  }
+
+  /**
+   * Test that the size climbs toward the throughput peak and stays near it.
+   */
+  @Test
+  public void testConvergence() {
+    AdaptiveBatchSize tuner =
+      new AdaptiveBatchSize("TestDto", 20, 10, 5000, 10000);
+    for (int i = 0; i < 300; i++) {
+      int size = tuner.getSize();
+      tuner.record(size, latency(size));
+    }
+    int size = tuner.getSize();
+    assertTrue("Size did not converge near the peak: " + size,
+               size >= 150 && size <= 1000);
+  }
+
+  /**
+   * Test that a batch over the latency limit shrinks the size and caps it.
+   */
+  @Test
+  public void testLatencyLimit() {
+    AdaptiveBatchSize tuner = new AdaptiveBatchSize("TestDto", 300, 10, 5000, 1);
+    tuner.record(300, 2 * MILLIS);
+    assertEquals("Size not reduced", 200, tuner.getSize());
+    for (int i = 0; i < 30; i++) {
+      tuner.record(tuner.getSize(), MILLIS / 2);
+    }
+    assertTrue("Size grew past cap: " + tuner.getSize(),
+               tuner.getSize() < 300);
+  }
+
+  /**
+   * Test that a fixed size passes through, that zero and negative sizes still
+   * mean a single batch, and that ADAPTIVE uses the tuner.
+   */
+  @Test
+  public void testGetSize() {
+    assertEquals("Fixed size changed", 25,
+                 AdaptiveBatchSize.getSize(25, "com.poesys.db.test.none",
+                                           "AdaptiveDto"));
+    assertEquals("Zero size not a single batch", Integer.MAX_VALUE,
+                 AdaptiveBatchSize.getSize(0, "com.poesys.db.test.none",
+                                           "AdaptiveDto"));
+    assertEquals("Negative size not a single batch", Integer.MAX_VALUE,
+                 AdaptiveBatchSize.getSize(-1, "com.poesys.db.test.none",
+                                           "AdaptiveDto"));
+    int size =
+      AdaptiveBatchSize.getSize(AdaptiveBatchSize.ADAPTIVE,
+                                "com.poesys.db.test.none",
+                                "AdaptiveDto");
+    assertEquals("Wrong initial adaptive size", BatchThreshold.DEFAULT_SIZE,
+                 size);
+    assertEquals("Size not reported", Integer.valueOf(size),
+                 AdaptiveBatchSize.getSizes().get("AdaptiveDto"));
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+
+/**
+ * Test the BatchThreshold class.
+ * 
+ * @author Robert J. Muller
+ */
+public class BatchThresholdTest {
+  /** Subsystem with no properties */
+  private static final String DEFAULT_SUBSYSTEM = "com.poesys.db.test.none";
+  /** Subsystem with programmatic settings */
+  private static final String SET_SUBSYSTEM = "com.poesys.db.test.set";
+
+  /**
+   * Test the defaults for a subsystem with no properties.
+   */
+  @Test
+  public void testDefaults() {
+    assertEquals("Wrong default threshold",
+                 BatchThreshold.DEFAULT_THRESHOLD,
+                 BatchThreshold.getThreshold(DEFAULT_SUBSYSTEM));
+    assertEquals("Wrong default batch size",
+                 BatchThreshold.DEFAULT_SIZE,
+                 BatchThreshold.getBatchSize(DEFAULT_SUBSYSTEM));
+  }
+
+  /**
+   * Test setting the threshold and batching only above it.
+   */
+  @Test
+  public void testSet() {
+    BatchThreshold.set(SET_SUBSYSTEM, 10, 5);
+    assertEquals("Wrong threshold", 10,
+                 BatchThreshold.getThreshold(SET_SUBSYSTEM));
+    assertEquals("Wrong batch size", 5,
+                 BatchThreshold.getBatchSize(SET_SUBSYSTEM));
+    assertFalse("Batching at threshold",
+                BatchThreshold.isBatch(SET_SUBSYSTEM, 10));
+    assertTrue("Not batching above threshold",
+               BatchThreshold.isBatch(SET_SUBSYSTEM, 11));
+  }
+}
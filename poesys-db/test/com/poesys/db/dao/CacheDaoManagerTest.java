@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.log4j.Logger;
+import org.junit.Test;
+
+import com.poesys.db.dto.IDbDto;
+import com.poesys.db.dto.IDtoCache;
+import com.poesys.db.dto.TestNatural;
+import com.poesys.db.pk.IPrimaryKey;
+
+
+/**
+ * CUT: CacheDaoManager, concurrent access to the caches, including a
+ * contention benchmark that reports the cache read throughput of many
+ * threads.
+ * 
+ * @author Robert J. Muller
+ */
+public class CacheDaoManagerTest {
+  private static final Logger logger =
+    Logger.getLogger(CacheDaoManagerTest.class);
+  private static final String SUBSYSTEM = "com.poesys.db.poesystest.mysql";
+  private static final String CACHE = TestNatural.class.getName();
+  private static final BigDecimal COL1 = new BigDecimal("100.5");
+  /** Number of objects the benchmark threads read */
+  private static final int OBJECTS = 1000;
+  /** Number of reads per benchmark thread */
+  private static final int READS = 200000;
+
+  /**
+   * Test that many threads creating the same cache at once all get the same
+   * cache.
+   * 
+   * @throws InterruptedException when a thread is interrupted
+   */
+  @Test
+  public void testConcurrentCreate() throws InterruptedException {
+    final CacheDaoManager manager =
+      (CacheDaoManager)CacheDaoManager.getInstance(SUBSYSTEM);
+    final String name = CACHE + ".create";
+    final int threads = 16;
+    final CountDownLatch start = new CountDownLatch(1);
+    final List<AtomicReference<IDtoCache<IDbDto>>> caches =
+      new ArrayList<AtomicReference<IDtoCache<IDbDto>>>();
+    List<Thread> list = new ArrayList<Thread>();
+    for (int i = 0; i < threads; i++) {
+      final AtomicReference<IDtoCache<IDbDto>> ref =
+        new AtomicReference<IDtoCache<IDbDto>>();
+      caches.add(ref);
+      Thread thread = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+            ref.set(manager.createCache(name));
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+      });
+      thread.start();
+      list.add(thread);
+    }
+    start.countDown();
+    for (Thread thread : list) {
+      thread.join();
+    }
+    for (AtomicReference<IDtoCache<IDbDto>> ref : caches) {
+      assertSame("Different cache created", caches.get(0).get(), ref.get());
+    }
+    assertSame("Manager lost the cache", caches.get(0).get(),
+               manager.getCache(name));
+  }
+
+  /**
+   * Benchmark cached reads from many threads at once and check that every
+   * read finds its object. The test logs the read throughput at INFO; compare
+   * it across thread counts to see the effect of contention.
+   * 
+   * @throws InterruptedException when a thread is interrupted
+   */
+  @Test
+  public void testContention() throws InterruptedException {
+    final IDaoManager manager = CacheDaoManager.getInstance(SUBSYSTEM);
+    final List<IPrimaryKey> keys = new ArrayList<IPrimaryKey>(OBJECTS);
+    for (int i = 0; i < OBJECTS; i++) {
+      TestNatural dto = new TestNatural("key" + i, "contention", COL1);
+      manager.putObjectInCache(CACHE, 0, dto);
+      keys.add(dto.getPrimaryKey());
+    }
+
+    int processors = Runtime.getRuntime().availableProcessors();
+    int[] counts = { 1, Math.max(2, processors), Math.max(4, processors * 4) };
+    for (int threads : counts) {
+      final AtomicLong hits = new AtomicLong();
+      final CountDownLatch start = new CountDownLatch(1);
+      List<Thread> list = new ArrayList<Thread>();
+      for (int t = 0; t < threads; t++) {
+        final int offset = t * 7919;
+        Thread thread = new Thread(new Runnable() {
+          @Override
+          public void run() {
+            try {
+              start.await();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+              return;
+            }
+            long found = 0;
+            for (int i = 0; i < READS; i++) {
+              IPrimaryKey key = keys.get((offset + i) % OBJECTS);
+              if (manager.getCachedObject(key, SUBSYSTEM) != null) {
+                found++;
+              }
+            }
+            hits.addAndGet(found);
+          }
+        });
+        thread.start();
+        list.add(thread);
+      }
+      long begin = System.nanoTime();
+      start.countDown();
+      for (Thread thread : list) {
+        thread.join();
+      }
+      long nanos = System.nanoTime() - begin;
+      long reads = (long)threads * READS;
+      logger.info("CacheDaoManager contention: " + threads + " threads, "
+                  + reads + " reads in " + nanos / 1000000 + " ms, " + reads
+                  * 1000000000L / Math.max(1, nanos) + " reads/s");
+      assertEquals("Missed cached objects", reads, hits.get());
+    }
+    assertTrue("Cache not created", manager.isCached(CACHE));
+  }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.poesys.db.InvalidParametersException;
+import com.poesys.db.col.IColumnValue;
+import com.poesys.db.col.StringColumnValue;
+import com.poesys.db.dao.query.TestNaturalAllQuerySql;
+import com.poesys.db.dao.query.TestSequenceKeysFirstQuerySql;
+import com.poesys.db.dto.TestNatural;
+import com.poesys.db.dto.TestSequence;
+import com.poesys.db.pk.IPrimaryKey;
+import com.poesys.db.pk.NaturalPrimaryKey;
+import com.poesys.db.pk.PrimaryKeyFactory;
+
+
+/**
+ * CUT: CacheWarmer and its RateLimiter
+ * 
+ * @author Robert J. Muller
+ */
+public class CacheWarmerTest extends ConnectionTest {
+  private static final String SUBSYSTEM = "com.poesys.db.poesystest.mysql";
+  private static final String SEQUENCE_CLASS = "com.poesys.test.TestSequence";
+  private static final String NATURAL_CLASS = "com.poesys.test.TestNatural";
+  private static final int SEQUENCE_ROWS = 10;
+  private static final int NATURAL_ROWS = 5;
+  private static final int PARTITION_SIZE = 4;
+
+  /**
+   * Test that the rate limiter spaces out units across threads and lets a
+   * thread run ahead of the rate, making the next thread wait.
+   * 
+   * @throws InterruptedException when the test is interrupted
+   */
+  @Test
+  public void testRateLimiter() throws InterruptedException {
+    final RateLimiter limiter = new RateLimiter(1000);
+    long start = System.nanoTime();
+    Thread[] threads = new Thread[4];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread() {
+        @Override
+        public void run() {
+          try {
+            for (int j = 0; j < 5; j++) {
+              limiter.acquire(10);
+            }
+          } catch (InterruptedException e) {
+            // end the thread
+          }
+        }
+      };
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    // 200 units at 1000 per second take at least 190 ms after the first 10.
+    long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    assertTrue("Rate not limited: " + millis + " ms", millis >= 180);
+
+    // A large acquire does not wait, but the next one waits for it.
+    RateLimiter ahead = new RateLimiter(1000);
+    assertEquals("First acquire waited", 0L, ahead.acquire(100));
+    assertTrue("Next acquire did not wait", ahead.acquire(1) > 0L);
+
+    assertEquals("Unlimited acquire waited", 0L,
+                 new RateLimiter(0).acquire(1000000));
+  }
+
+  /**
+   * Test that a warm-up with no queries caches nothing.
+   */
+  @Test
+  public void testEmpty() {
+    CacheWarmer warmer = new CacheWarmer(SUBSYSTEM, 4, 1000, 60000, 1000L);
+    assertEquals("Cached objects with no queries", 0L, warmer.warm());
+    assertEquals("Failures with no queries", 0, warmer.getFailureCount());
+  }
+
+  /**
+   * Test a warm-up of a keys-first query, which runs as a partitioned scan,
+   * and of a plain query, which runs as a single partition, into the Java
+   * cache of the test subsystem.
+   * 
+   * @throws SQLException when the test rows can't be created
+   * @throws IOException when the database properties can't be read
+   */
+  @Test
+  public void testWarm() throws SQLException, IOException {
+    Connection conn = getConnection();
+    Statement stmt = null;
+    try {
+      stmt = conn.createStatement();
+      stmt.executeUpdate("DELETE FROM TestSequence");
+      stmt.executeUpdate("DELETE FROM TestNatural");
+      for (int i = 1; i <= SEQUENCE_ROWS; i++) {
+        stmt.executeUpdate("INSERT INTO TestSequence (pkey, col1) VALUES ("
+                           + i + ", 'warm')");
+      }
+      for (int i = 1; i <= NATURAL_ROWS; i++) {
+        stmt.executeUpdate("INSERT INTO TestNatural (key1, key2, col1) "
+                           + "VALUES ('warm', 'key" + i + "', 1.5)");
+      }
+      conn.commit();
+    } finally {
+      if (stmt != null) {
+        stmt.close();
+      }
+      conn.close();
+    }
+
+    IDaoManager manager = DaoManagerFactory.initCacheManager(getSubsystem());
+    manager.clearAllCaches();
+    CacheWarmer warmer = new CacheWarmer(getSubsystem(), 2, 0, 60000, 60000L);
+    warmer.setPartitionSize(PARTITION_SIZE);
+    warmer.add(new TestSequenceKeysFirstQuerySql());
+    warmer.add(new TestNaturalAllQuerySql());
+    final List<String> queries =
+      Collections.synchronizedList(new ArrayList<String>());
+    final AtomicInteger partitions = new AtomicInteger();
+    warmer.setListener(new ICacheWarmListener() {
+      @Override
+      public void partitionWarmed(String query, int done, int total,
+                                  int objects, long sum, long millis) {
+        queries.add(query);
+        partitions.set(total);
+      }
+    });
+
+    assertEquals("Wrong number of objects cached",
+                 SEQUENCE_ROWS + NATURAL_ROWS,
+                 warmer.warm());
+    assertEquals("Partitions failed", 0, warmer.getFailureCount());
+
+    // The keys-first scan splits its keys into partitions; the plain query
+    // is one partition.
+    int scanPartitions =
+      (SEQUENCE_ROWS + PARTITION_SIZE - 1) / PARTITION_SIZE;
+    assertEquals("Wrong partition count", scanPartitions + 1,
+                 partitions.get());
+    assertEquals("Wrong number of listener calls", scanPartitions + 1,
+                 queries.size());
+    assertEquals("Wrong number of scan reports", scanPartitions,
+                 Collections.frequency(queries,
+                                       TestSequenceKeysFirstQuerySql.class.getName()));
+    assertEquals("Wrong number of plain query reports", 1,
+                 Collections.frequency(queries,
+                                       TestNaturalAllQuerySql.class.getName()));
+
+    for (int i = 1; i <= SEQUENCE_ROWS; i++) {
+      IPrimaryKey key =
+        PrimaryKeyFactory.createSequenceKey("pkey",
+                                            BigInteger.valueOf(i),
+                                            SEQUENCE_CLASS);
+      TestSequence dto = manager.getCachedObject(key, getSubsystem());
+      assertNotNull("TestSequence " + i + " not cached", dto);
+    }
+    for (int i = 1; i <= NATURAL_ROWS; i++) {
+      List<IColumnValue> cols = new ArrayList<IColumnValue>(2);
+      cols.add(new StringColumnValue("key1", "warm"));
+      cols.add(new StringColumnValue("key2", "key" + i));
+      IPrimaryKey key = new NaturalPrimaryKey(cols, NATURAL_CLASS);
+      TestNatural dto = manager.getCachedObject(key, getSubsystem());
+      assertNotNull("TestNatural " + i + " not cached", dto);
+      assertEquals("Wrong TestNatural column", 0,
+                   new BigDecimal("1.5").compareTo(dto.getCol1()));
+    }
+  }
+
+  /**
+   * Test that the warmer rejects invalid settings.
+   */
+  @Test(expected = InvalidParametersException.class)
+  public void testInvalidThreads() {
+    new CacheWarmer(SUBSYSTEM, 0, 1000, 60000, 1000L);
+  }
+}
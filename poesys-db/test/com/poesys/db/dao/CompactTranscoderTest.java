@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.spy.memcached.CachedData;
+import net.spy.memcached.transcoders.SerializingTranscoder;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.poesys.db.dto.CompactInput;
+import com.poesys.db.dto.CompactOutput;
+import com.poesys.db.dto.IDtoCodec;
+import com.poesys.db.dto.TestNatural;
+import com.poesys.db.pk.IPrimaryKey;
+import com.poesys.db.pk.SequencePrimaryKey;
+
+
+/**
+ * CUT: CompactTranscoder, including a size comparison with the
+ * SerializingTranscoder
+ * 
+ * @author Robert J. Muller
+ */
+public class CompactTranscoderTest {
+  private static final BigDecimal COL1 = new BigDecimal("1234.5678");
+
+  /**
+   * The codec for TestNatural objects
+   */
+  private static class TestNaturalCodec implements IDtoCodec<TestNatural> {
+    private final int version;
+
+    /**
+     * Create a TestNaturalCodec object.
+     * 
+     * @param version the version of the codec
+     */
+    TestNaturalCodec(int version) {
+      this.version = version;
+    }
+
+    @Override
+    public int getVersion() {
+      return version;
+    }
+
+    @Override
+    public void write(TestNatural dto, CompactOutput out) throws IOException {
+      out.writeString(dto.getKey1());
+      out.writeString(dto.getKey2());
+      out.writeBigDecimal(dto.getCol1());
+    }
+
+    @Override
+    public TestNatural read(CompactInput in) throws IOException {
+      return new TestNatural(in.readString(),
+                             in.readString(),
+                             in.readBigDecimal());
+    }
+  }
+
+  /**
+   * Remove the codec after each test.
+   */
+  @After
+  public void tearDown() {
+    CompactTranscoder.unregister(TestNatural.class);
+  }
+
+  /**
+   * Test that a DTO with a codec round-trips in the compact encoding and that
+   * a DTO without a codec round-trips through serialization.
+   */
+  @Test
+  public void testRoundTrip() {
+    CompactTranscoder transcoder = new CompactTranscoder();
+    TestNatural dto = new TestNatural("a", "b", COL1);
+
+    CachedData serialized = transcoder.encode(dto);
+    assertEquals("Not serialized without codec", 0, serialized.getFlags()
+                                                    & CompactTranscoder.COMPACT);
+    TestNatural copy = (TestNatural)transcoder.decode(serialized);
+    assertEquals("Wrong serialized copy", COL1, copy.getCol1());
+
+    CompactTranscoder.register(TestNatural.class, new TestNaturalCodec(1));
+    CachedData compact = transcoder.encode(dto);
+    assertEquals("Not compact with codec", CompactTranscoder.COMPACT,
+                 compact.getFlags() & CompactTranscoder.COMPACT);
+    copy = (TestNatural)transcoder.decode(compact);
+    assertEquals("Wrong key", dto.getPrimaryKey(), copy.getPrimaryKey());
+    assertEquals("Wrong column", COL1, copy.getCol1());
+    assertEquals("Not existing", com.poesys.db.dto.IDbDto.Status.EXISTING,
+                 copy.getStatus());
+
+    // A server with the codec still reads values serialized before it.
+    copy = (TestNatural)transcoder.decode(serialized);
+    assertEquals("Wrong serialized copy with codec", COL1, copy.getCol1());
+  }
+
+  /**
+   * Test that a value written with a different codec version or by a server
+   * without the codec is a cache miss.
+   */
+  @Test
+  public void testVersionMismatch() {
+    CompactTranscoder transcoder = new CompactTranscoder();
+    CompactTranscoder.register(TestNatural.class, new TestNaturalCodec(1));
+    CachedData compact = transcoder.encode(new TestNatural("a", "b", COL1));
+
+    CompactTranscoder.register(TestNatural.class, new TestNaturalCodec(2));
+    assertNull("Decoded other codec version", transcoder.decode(compact));
+    CompactTranscoder.unregister(TestNatural.class);
+    assertNull("Decoded without codec", transcoder.decode(compact));
+
+    byte[] bytes = compact.getData().clone();
+    bytes[0] = (byte)(CompactTranscoder.FORMAT_VERSION + 1);
+    CompactTranscoder.register(TestNatural.class, new TestNaturalCodec(1));
+    assertNull("Decoded other format version",
+               transcoder.decode(new CachedData(compact.getFlags(),
+                                                bytes,
+                                                CachedData.MAX_SIZE)));
+  }
+
+  /**
+   * Test that the compact encoding is smaller than Java serialization, for a
+   * DTO and for a list of nested-object keys.
+   * 
+   * @throws IOException when the encoding fails
+   */
+  @Test
+  public void testSize() throws IOException {
+    CompactTranscoder.register(TestNatural.class, new TestNaturalCodec(1));
+    CompactTranscoder compact = new CompactTranscoder();
+    SerializingTranscoder serializing = new SerializingTranscoder();
+    TestNatural dto = new TestNatural("benchmark", "key", COL1);
+
+    int serializedSize = serializing.encode(dto).getData().length;
+    int compactSize = compact.encode(dto).getData().length;
+    assertTrue("Compact DTO " + compactSize + " bytes not under a quarter of "
+                   + serializedSize + " serialized bytes",
+               compactSize * 4 < serializedSize);
+
+    List<IPrimaryKey> keys = new ArrayList<IPrimaryKey>();
+    for (int i = 0; i < 100; i++) {
+      keys.add(new SequencePrimaryKey("id",
+                                      BigInteger.valueOf(1000000L + i),
+                                      "com.poesys.db.dto.TestSequence"));
+    }
+    int serializedKeys =
+      serializing.encode(new ArrayList<IPrimaryKey>(keys)).getData().length;
+    CompactOutput out = new CompactOutput();
+    out.writeKeyList(keys);
+    assertTrue("Compact keys " + out.size() + " bytes not under a quarter of "
+                   + serializedKeys + " serialized bytes",
+               out.size() * 4 < serializedKeys);
+    assertEquals("Wrong key count", keys.size(),
+                 new CompactInput(out.toByteArray()).readKeyList().size());
+  }
+}
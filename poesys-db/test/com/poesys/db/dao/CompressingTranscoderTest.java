@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Random;
+
+import net.spy.memcached.CachedData;
+import net.spy.memcached.transcoders.SerializingTranscoder;
+
+import org.junit.Test;
+
+import com.poesys.db.dto.TestNatural;
+
+
+/**
+ * CUT: CompressingTranscoder
+ * 
+ * @author Robert J. Muller
+ */
+public class CompressingTranscoderTest {
+  private static final int THRESHOLD = 4096;
+  private static final BigDecimal COL1 = new BigDecimal("1234.5678");
+
+  /**
+   * Create a serializing transcoder without its own compression.
+   * 
+   * @return the transcoder
+   */
+  private static SerializingTranscoder createSerializer() {
+    SerializingTranscoder serializer = new SerializingTranscoder();
+    serializer.setCompressionThreshold(Integer.MAX_VALUE);
+    return serializer;
+  }
+
+  /**
+   * Create a string of repetitive JSON-like text.
+   * 
+   * @param length the approximate length of the string
+   * @return the string
+   */
+  private static String createText(int length) {
+    StringBuilder builder = new StringBuilder("[");
+    for (int i = 0; builder.length() < length; i++) {
+      builder.append("{\"id\":" + i + ",\"name\":\"item " + i
+                     + "\",\"status\":\"active\"},");
+    }
+    builder.append("]");
+    return builder.toString();
+  }
+
+  /**
+   * Test that a value over the threshold is compressed, flagged, and
+   * round-trips, and that a value under the threshold is not compressed.
+   */
+  @Test
+  public void testThreshold() {
+    CompressingTranscoder transcoder =
+      new CompressingTranscoder(createSerializer(), THRESHOLD);
+    TestNatural large = new TestNatural(createText(100000), "b", COL1);
+    CachedData data = transcoder.encode(large);
+    assertEquals("Large value not flagged", CompressingTranscoder.DEFLATED,
+                 data.getFlags() & CompressingTranscoder.DEFLATED);
+    int original = createSerializer().encode(large).getData().length;
+    assertTrue("Large value not compressed", data.getData().length < original);
+    TestNatural copy = (TestNatural)transcoder.decode(data);
+    assertEquals("Wrong large copy", large.getKey1(), copy.getKey1());
+
+    TestNatural small = new TestNatural("a", "b", COL1);
+    assertTrue("Test value not small",
+               createSerializer().encode(small).getData().length < THRESHOLD);
+    data = transcoder.encode(small);
+    assertEquals("Small value flagged", 0, data.getFlags()
+                                           & CompressingTranscoder.DEFLATED);
+    copy = (TestNatural)transcoder.decode(data);
+    assertEquals("Wrong small copy", "a", copy.getKey1());
+
+    CompressingTranscoder off =
+      new CompressingTranscoder(createSerializer(), 0);
+    assertEquals("Compressed with threshold 0", 0, off.encode(large).getFlags()
+                                                   & CompressingTranscoder.DEFLATED);
+    // A server with compression off still reads compressed values.
+    copy = (TestNatural)off.decode(transcoder.encode(large));
+    assertEquals("Wrong copy with compression off", large.getKey1(),
+                 copy.getKey1());
+  }
+
+  /**
+   * Test that an incompressible value is stored as is, that values the
+   * serializing transcoder compressed with GZIP still decode, and that a
+   * corrupt compressed value is a cache miss.
+   */
+  @Test
+  public void testIncompressibleAndCorrupt() {
+    CompressingTranscoder transcoder =
+      new CompressingTranscoder(createSerializer(), THRESHOLD);
+    byte[] random = new byte[THRESHOLD * 4];
+    new Random(42).nextBytes(random);
+    CachedData data = transcoder.encode(random);
+    assertEquals("Incompressible value flagged", 0, data.getFlags()
+                                                    & CompressingTranscoder.DEFLATED);
+    assertEquals("Wrong incompressible copy", random.length,
+                 ((byte[])transcoder.decode(data)).length);
+
+    SerializingTranscoder gzip = new SerializingTranscoder();
+    gzip.setCompressionThreshold(THRESHOLD);
+    String text = createText(THRESHOLD * 4);
+    assertEquals("Wrong GZIP copy", text,
+                 transcoder.decode(gzip.encode(text)));
+
+    data = transcoder.encode(text);
+    byte[] corrupt = data.getData().clone();
+    for (int i = 8; i < corrupt.length; i++) {
+      corrupt[i] = (byte)0xff;
+    }
+    assertNull("Decoded corrupt value",
+               transcoder.decode(new CachedData(data.getFlags(),
+                                                corrupt,
+                                                CachedData.MAX_SIZE)));
+  }
+
+  /**
+   * Test that the transcoder reports statistics by cache name.
+   */
+  @Test
+  public void testStatistics() {
+    CompressingTranscoder transcoder =
+      new CompressingTranscoder(createSerializer(), THRESHOLD);
+    TestNatural large = new TestNatural(createText(100000), "b", COL1);
+    CachedData data = transcoder.encode(large);
+    transcoder.encode(large);
+    transcoder.decode(data);
+
+    String cacheName = large.getPrimaryKey().getCacheName();
+    CompressingTranscoder.Statistics stats = transcoder.getStatistics(large);
+    assertEquals("Wrong compressed count", 2, stats.getCompressedCount());
+    assertEquals("Wrong decompressed count", 1, stats.getDecompressedCount());
+    assertTrue("Wrong ratio", stats.getRatio() > 2.0);
+    Map<String, String> report = transcoder.getStatistics();
+    assertEquals("Wrong cache names", 1, report.size());
+    assertTrue("No statistics for " + cacheName,
+               report.containsKey(cacheName));
+    assertTrue("Wrong report " + report.get(cacheName),
+               report.get(cacheName).startsWith("2 compressed (0 skipped)"));
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao;
+
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.poesys.db.dao.insert.IInsertBatch;
+import com.poesys.db.dao.insert.InsertBatch;
+import com.poesys.db.dao.insert.InsertSqlChild;
+import com.poesys.db.dao.insert.InsertSqlParent;
+import com.poesys.db.dto.Child;
+import com.poesys.db.dto.IDbDto;
+import com.poesys.db.dto.Parent;
+import com.poesys.db.pk.CompositePrimaryKey;
+import com.poesys.db.pk.GuidPrimaryKey;
+import com.poesys.db.pk.NaturalPrimaryKey;
+import com.poesys.db.pk.PrimaryKeyFactory;
+
+
+/**
+ * CUT: GraphFlush, flushing Parent and Child graphs to the database
+ * 
+ * @author Robert J. Muller
+ */
+public class GraphFlushParentTest extends ConnectionTest {
+  private static final String PARENT_KEY_NAME = "parent_id";
+  private static final String CHILD_SUB_KEY_NAME = "child_number";
+  private static final String COL1_VALUE = "string";
+  private static final String CLASS_NAME = "com.poesys.db.test.Parent";
+  private static final int PARENT_COUNT = 2;
+  private static final int CHILD_COUNT = 3;
+  private static final int BATCH_SIZE = 100;
+
+  /** the DTO classes in the order of the batch insert calls */
+  private final List<String> calls = new ArrayList<String>();
+
+  /**
+   * Wrap a batch insert DAO so that it records each call.
+   * 
+   * @param dao the DAO to wrap
+   * @param name the name to record for each call
+   * @param <T> the type of DTO to insert
+   * @return the recording DAO
+   */
+  private <T extends IDbDto> IInsertBatch<T> record(final IInsertBatch<T> dao,
+                                                    final String name) {
+    return new IInsertBatch<T>() {
+      @Override
+      public void insert(Collection<T> dtos, int size) {
+        calls.add(name);
+        dao.insert(dtos, size);
+      }
+
+      @Override
+      public void close() {
+        dao.close();
+      }
+    };
+  }
+
+  /**
+   * Create a parent with children.
+   * 
+   * @return the parent
+   */
+  private Parent createParent() {
+    GuidPrimaryKey key =
+      PrimaryKeyFactory.createGuidKey(PARENT_KEY_NAME, CLASS_NAME);
+    Parent parent = new Parent(key, COL1_VALUE);
+    List<Child> children = new ArrayList<Child>();
+    for (int i = 1; i <= CHILD_COUNT; i++) {
+      BigInteger number = BigInteger.valueOf(i);
+      NaturalPrimaryKey subKey =
+        PrimaryKeyFactory.createSingleNumberKey(CHILD_SUB_KEY_NAME, number,
+                                                CLASS_NAME);
+      CompositePrimaryKey childKey =
+        new CompositePrimaryKey(key, subKey, CLASS_NAME);
+      children.add(new Child(childKey, number, COL1_VALUE));
+    }
+    parent.setChildren(children);
+    return parent;
+  }
+
+  /**
+   * Count the rows in a table.
+   * 
+   * @param conn the connection
+   * @param table the table name
+   * @return the number of rows
+   * @throws SQLException when the query fails
+   */
+  private int count(Connection conn, String table) throws SQLException {
+    Statement stmt = conn.createStatement();
+    try {
+      ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table);
+      rs.next();
+      return rs.getInt(1);
+    } finally {
+      stmt.close();
+    }
+  }
+
+  /**
+   * Test that flushing parents with NEW children inserts all the parents in
+   * one batch call, then all the children in one batch call. The Parent
+   * pre-setters also report the children for cascading deletes; if they
+   * ordered Child before Parent, the resulting cycle would break at Child,
+   * the class discovered first, and the children would go first.
+   * 
+   * @throws IOException when can't get a property
+   * @throws SQLException when can't get a connection
+   */
+  @Test
+  public void testFlushParentChild() throws IOException, SQLException {
+    Connection conn = getConnection();
+    try {
+      Statement stmt = conn.createStatement();
+      stmt.executeUpdate("DELETE FROM Child");
+      stmt.executeUpdate("DELETE FROM Parent");
+      stmt.close();
+      conn.commit();
+
+      List<Parent> parents = new ArrayList<Parent>();
+      for (int i = 0; i < PARENT_COUNT; i++) {
+        parents.add(createParent());
+      }
+      // Discover a child before the parents.
+      List<IDbDto> roots = new ArrayList<IDbDto>();
+      roots.add(parents.get(0).getChildren().get(0));
+      roots.addAll(parents);
+
+      GraphFlush cut = new GraphFlush(getSubsystem());
+      cut.register(Parent.class,
+                   record(new InsertBatch<Parent>(new InsertSqlParent(),
+                                                  getSubsystem()),
+                          "Parent"),
+                   null, null);
+      cut.register(Child.class,
+                   record(new InsertBatch<Child>(new InsertSqlChild(),
+                                                 getSubsystem()),
+                          "Child"),
+                   null, null);
+      cut.flush(roots, BATCH_SIZE);
+
+      assertEquals("Wrong batch insert calls", Arrays.asList("Parent", "Child"),
+                   calls);
+      assertEquals("Wrong number of parents", PARENT_COUNT,
+                   count(conn, "Parent"));
+      assertEquals("Wrong number of children", PARENT_COUNT * CHILD_COUNT,
+                   count(conn, "Child"));
+      conn.commit();
+    } finally {
+      conn.close();
+    }
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.poesys.db.dto.Child;
+import com.poesys.db.dto.Parent;
+import com.poesys.db.pk.CompositePrimaryKey;
+import com.poesys.db.pk.GuidPrimaryKey;
+import com.poesys.db.pk.PrimaryKeyFactory;
+
+
+/**
+ * Test the dependency ordering of the GraphFlush class.
+ * 
+ * @author Robert J. Muller
+ */
+public class GraphFlushTest {
+  /**
+   * Add an edge to a map of edges.
+   * 
+   * @param edges the edges
+   * @param from the node that must come first
+   * @param to the node that must come after
+   */
+  private static void edge(Map<String, Set<String>> edges, String from,
+                           String to) {
+    Set<String> targets = edges.get(from);
+    if (targets == null) {
+      targets = new LinkedHashSet<String>();
+      edges.put(from, targets);
+    }
+    targets.add(to);
+  }
+
+  /**
+   * Test sorting a parent, child, and grandchild discovered out of order, with
+   * an independent node and a self edge.
+   */
+  @Test
+  public void testSort() {
+    Map<String, Set<String>> edges = new HashMap<String, Set<String>>();
+    edge(edges, "Parent", "Child");
+    edge(edges, "Child", "GrandChild");
+    edge(edges, "Lookup", "GrandChild");
+    edge(edges, "Child", "Child");
+    List<String> sorted =
+      GraphFlush.sort(Arrays.asList("GrandChild", "Child", "Parent", "Lookup"),
+                      edges);
+    assertEquals("Wrong order",
+                 Arrays.asList("Parent", "Child", "Lookup", "GrandChild"),
+                 sorted);
+  }
+
+  /**
+   * Test that a cycle is broken at the first node discovered.
+   */
+  @Test
+  public void testCycle() {
+    Map<String, Set<String>> edges = new HashMap<String, Set<String>>();
+    edge(edges, "A", "B");
+    edge(edges, "B", "A");
+    edge(edges, "B", "C");
+    List<String> sorted =
+      GraphFlush.sort(Arrays.asList("A", "B", "C"), edges);
+    assertEquals("Wrong order", Arrays.asList("A", "B", "C"), sorted);
+  }
+
+  /**
+   * Test that the children of a Parent, which its pre-setters delete in
+   * cascade and its insert setters insert, are dependents of the parent and
+   * not objects to which it refers.
+   */
+  @Test
+  public void testParentChildEdges() {
+    String className = "com.poesys.db.test.Parent";
+    GuidPrimaryKey key = PrimaryKeyFactory.createGuidKey("parent_id", className);
+    Parent parent = new Parent(key, "string");
+    CompositePrimaryKey childKey =
+      new CompositePrimaryKey(key,
+                              PrimaryKeyFactory.createSingleNumberKey("child_number",
+                                                                      BigInteger.ONE,
+                                                                      className),
+                              className);
+    Child child = new Child(childKey, BigInteger.ONE, "string");
+    List<Child> children = new ArrayList<Child>();
+    children.add(child);
+    parent.setChildren(children);
+    assertTrue("Child reported as referenced by parent",
+               parent.getReferencedDtos().isEmpty());
+    assertTrue("Child not reported as dependent on parent",
+               parent.getDependentDtos().contains(child));
+    assertTrue("Child not reported as pre-processed by parent",
+               parent.getPreprocessedDtos().contains(child));
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.internal.OperationFuture;
+import net.spy.memcached.ops.OperationStatus;
+
+import org.junit.Test;
+
+import com.poesys.db.DbErrorException;
+
+
+/**
+ * CUT: MemcachedWriter, using completed operation futures in place of a
+ * memcached client
+ * 
+ * @author Robert J. Muller
+ */
+public class MemcachedWriterTest {
+  private static final String KEY = "key";
+
+  /**
+   * Create a completed operation future.
+   * 
+   * @param success whether the operation succeeded
+   * @param executor the executor for the listeners
+   * @return the future
+   */
+  private OperationFuture<Boolean> complete(boolean success,
+                                            ExecutorService executor) {
+    CountDownLatch latch = new CountDownLatch(1);
+    OperationFuture<Boolean> future =
+      new OperationFuture<Boolean>(KEY, latch, 1000L, executor);
+    future.set(success, new OperationStatus(success, success ? "OK"
+        : "SERVER_ERROR"));
+    latch.countDown();
+    future.signalComplete();
+    return future;
+  }
+
+  /**
+   * Test that the asynchronous writer bounds the operations in flight,
+   * releases a permit when an operation completes, and counts failures
+   * without throwing.
+   * 
+   * @throws InterruptedException when the wait is interrupted
+   */
+  @Test
+  public void testAsyncBound() throws InterruptedException {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    MemcachedWriter writer = new MemcachedWriter(true, 2);
+    assertTrue("Writer not asynchronous", writer.isAsync());
+    assertTrue("No first permit", writer.acquire(false));
+    assertTrue("No second permit", writer.acquire(false));
+    assertFalse("Permit beyond bound", writer.acquire(false));
+    assertEquals("Dropped set not counted", 1L, writer.getDroppedCount());
+    assertEquals("Wrong number in flight", 2, writer.getInFlight());
+
+    writer.complete(complete(true, executor), "set", KEY);
+    writer.complete(complete(false, executor), "set", KEY);
+    executor.shutdown();
+    executor.awaitTermination(5, TimeUnit.SECONDS);
+    assertEquals("Permits not released", 0, writer.getInFlight());
+    assertEquals("Failure not counted", 1L, writer.getFailureCount());
+  }
+
+  /**
+   * Test that the synchronous writer throws an exception when an operation
+   * fails and that it releases the permit.
+   */
+  @Test
+  public void testSyncFailure() {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    MemcachedWriter writer = new MemcachedWriter(false, 1);
+    assertTrue("No permit", writer.acquire(false));
+    try {
+      writer.complete(complete(false, executor), "set", KEY);
+      throw new AssertionError("Failed set did not throw exception");
+    } catch (DbErrorException e) {
+      // success
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals("Permit not released", 0, writer.getInFlight());
+    assertEquals("Failure not counted", 1L, writer.getFailureCount());
+  }
+
+  /**
+   * Test that a failed delete, which memcached reports for a key not in the
+   * cache, is not a failure.
+   */
+  @Test
+  public void testDeleteNotFound() {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    MemcachedWriter writer = new MemcachedWriter(false, 1);
+    writer.acquire(true);
+    writer.complete(complete(false, executor), "delete", KEY);
+    executor.shutdown();
+    assertEquals("Delete of missing key counted as failure", 0L,
+                 writer.getFailureCount());
+  }
+
+  /**
+   * Test that the writer rejects a bound that is not positive.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidBound() {
+    new MemcachedWriter(true, 0);
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.poesys.db.dto.IDbDto;
+import com.poesys.db.dto.IDtoCache;
+import com.poesys.db.dto.TestNatural;
+import com.poesys.db.pk.IPrimaryKey;
+
+
+/**
+ * CUT: NearCacheDaoManager, using the in-memory CacheDaoManager as the far
+ * cache in place of memcached
+ * 
+ * @author Robert J. Muller
+ */
+public class NearCacheDaoManagerTest {
+  private static final String SUBSYSTEM = "com.poesys.db.poesystest.mysql";
+  private static final String CACHE = TestNatural.class.getName();
+  private static final BigDecimal COL1 = new BigDecimal("100.5");
+
+  /**
+   * Test that a get fills the near cache from the far cache and that a remove
+   * removes the object from both caches.
+   */
+  @Test
+  public void testGetAndRemove() {
+    IDaoManager far = CacheDaoManager.getInstance(SUBSYSTEM);
+    NearCacheDaoManager manager =
+      new NearCacheDaoManager(SUBSYSTEM, far, false);
+    TestNatural dto = new TestNatural("near", "1", COL1);
+    far.putObjectInCache(CACHE, 0, dto);
+
+    assertNull("Near cache filled before get",
+               manager.createCache(CACHE).get(dto.getPrimaryKey()));
+    TestNatural found = manager.getCachedObject(dto.getPrimaryKey(), SUBSYSTEM);
+    assertSame("Wrong object from far cache", dto, found);
+    IDtoCache<? extends IDbDto> near = manager.getCache(CACHE);
+    assertNotNull("Get did not fill near cache", near.get(dto.getPrimaryKey()));
+
+    manager.removeObjectFromCache(CACHE, dto.getPrimaryKey());
+    assertNull("Object still in near cache", near.get(dto.getPrimaryKey()));
+    assertNull("Object still in far cache",
+               far.getCachedObject(dto.getPrimaryKey(), SUBSYSTEM));
+    assertNull("Object still found",
+               manager.getCachedObject(dto.getPrimaryKey(), SUBSYSTEM));
+  }
+
+  /**
+   * Test that a put replaces the object in the near cache as well as in the
+   * far cache, and that the near cache expires its objects.
+   * 
+   * @throws InterruptedException when the sleep is interrupted
+   */
+  @Test
+  public void testPutAndExpire() throws InterruptedException {
+    CacheSettings.setNearCache(SUBSYSTEM, CACHE, 10, 50);
+    IDaoManager far = CacheDaoManager.getInstance(SUBSYSTEM);
+    NearCacheDaoManager manager =
+      new NearCacheDaoManager(SUBSYSTEM, far, false);
+    TestNatural first = new TestNatural("put", "1", COL1);
+    TestNatural second = new TestNatural("put", "1", new BigDecimal("2"));
+    manager.putObjectInCache(CACHE, 0, first);
+    manager.putObjectInCache(CACHE, 0, second);
+    IDtoCache<? extends IDbDto> near = manager.getCache(CACHE);
+    assertSame("Put did not replace near object", second,
+               near.get(second.getPrimaryKey()));
+
+    Thread.sleep(100);
+    assertNull("Near object not expired", near.get(second.getPrimaryKey()));
+    assertTrue("Manager does not cache class", manager.isCached(CACHE));
+    CacheSettings.clear();
+  }
+
+  /**
+   * Test the multiple-key get, put, and remove operations: a bulk get returns
+   * the objects from both tiers in key order and omits missing objects, and a
+   * bulk remove removes the objects from both tiers.
+   */
+  @Test
+  public void testBulkOperations() {
+    IDaoManager far = CacheDaoManager.getInstance(SUBSYSTEM);
+    NearCacheDaoManager manager =
+      new NearCacheDaoManager(SUBSYSTEM, far, false);
+    List<TestNatural> dtos = new ArrayList<TestNatural>();
+    List<IPrimaryKey> keys = new ArrayList<IPrimaryKey>();
+    for (int i = 0; i < 5; i++) {
+      TestNatural dto = new TestNatural("bulk", Integer.toString(i), COL1);
+      dtos.add(dto);
+      keys.add(dto.getPrimaryKey());
+    }
+    // Put the first three in both tiers and the fourth only in the far tier.
+    manager.putObjectsInCache(0, dtos.subList(0, 3));
+    far.putObjectInCache(CACHE, 0, dtos.get(3));
+
+    Map<IPrimaryKey, TestNatural> found =
+      manager.getCachedObjects(keys, SUBSYSTEM);
+    assertEquals("Wrong number of objects found", 4, found.size());
+    int i = 0;
+    for (Map.Entry<IPrimaryKey, TestNatural> entry : found.entrySet()) {
+      assertSame("Wrong object or order", dtos.get(i), entry.getValue());
+      i++;
+    }
+    assertNotNull("Bulk get did not fill near cache",
+                  manager.getCache(CACHE).get(keys.get(3)));
+
+    manager.removeObjectsFromCache(keys);
+    assertEquals("Objects still found", 0,
+                 manager.getCachedObjects(keys, SUBSYSTEM).size());
+    assertEquals("Objects still in far cache", 0,
+                 far.getCachedObjects(keys, SUBSYSTEM).size());
+  }
+}
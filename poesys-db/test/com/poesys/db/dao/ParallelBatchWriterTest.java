@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+
+/**
+ * Test the ParallelBatchWriter partitioning and the ParallelBatchReport class.
+ * 
+ * @author Robert J. Muller
+ */
+public class ParallelBatchWriterTest {
+  /**
+   * Test splitting a collection into nearly equal contiguous partitions.
+   */
+  @Test
+  public void testPartition() {
+    List<Integer> list = new ArrayList<Integer>();
+    for (int i = 0; i < 10; i++) {
+      list.add(i);
+    }
+    List<List<Integer>> partitions = ParallelBatchWriter.partition(list, 3);
+    assertEquals("Wrong number of partitions", 3, partitions.size());
+    assertEquals("Wrong first partition", Arrays.asList(0, 1, 2, 3),
+                 partitions.get(0));
+    assertEquals("Wrong second partition", Arrays.asList(4, 5, 6),
+                 partitions.get(1));
+    assertEquals("Wrong third partition", Arrays.asList(7, 8, 9),
+                 partitions.get(2));
+
+    // More connections than elements
+    partitions = ParallelBatchWriter.partition(list.subList(0, 2), 4);
+    assertEquals("Wrong number of small partitions", 2, partitions.size());
+    assertTrue("Partitioned an empty collection",
+               ParallelBatchWriter.partition(new ArrayList<Integer>(), 4).isEmpty());
+  }
+
+  /**
+   * Test recording partition outcomes in a report.
+   */
+  @Test
+  public void testReport() {
+    ParallelBatchReport report = new ParallelBatchReport(2);
+    report.setOutcome(0, 5, true, null, Arrays.asList("key1"), 10L);
+    report.setTimedOut(1, new RuntimeException("timeout"));
+    assertTrue("Partition 0 not committed", report.isCommitted(0));
+    assertEquals("Wrong timed-out outcome",
+                 ParallelBatchReport.Outcome.TIMED_OUT,
+                 report.getOutcome(1));
+    assertFalse("All committed", report.isAllCommitted());
+    assertEquals("Wrong batch errors", Arrays.asList("key1"),
+                 report.getBatchErrors());
+
+    // A timed-out partition can't commit, and its late outcome is ignored.
+    assertFalse("Timed-out partition allowed to commit",
+                report.startCommit(1));
+    report.setOutcome(1, 5, false, null, new ArrayList<String>(), 10L);
+    assertEquals("Late outcome replaced the timeout",
+                 ParallelBatchReport.Outcome.TIMED_OUT,
+                 report.getOutcome(1));
+    assertEquals("Wrong committed count", 1, report.getCommittedCount());
+  }
+
+  /**
+   * Test that a partition that has started to commit does not time out.
+   */
+  @Test
+  public void testCommitBeforeTimeout() {
+    ParallelBatchReport report = new ParallelBatchReport(1);
+    assertTrue("Pending partition not allowed to commit",
+               report.startCommit(0));
+    assertFalse("Committing partition timed out",
+                report.setTimedOut(0, new RuntimeException("timeout")));
+    report.setOutcome(0, 5, true, null, new ArrayList<String>(), 10L);
+    assertTrue("Committing partition not committed", report.isCommitted(0));
+  }
+}
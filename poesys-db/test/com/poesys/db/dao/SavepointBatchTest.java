@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao;
+
+
+import static org.junit.Assert.assertEquals;
+
+import java.sql.PreparedStatement;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+
+/**
+ * Test the SavepointBatch identification of failed rows from the update counts
+ * of a BatchUpdateException.
+ * 
+ * @author Robert J. Muller
+ */
+public class SavepointBatchTest {
+  private static final int FAILED = PreparedStatement.EXECUTE_FAILED;
+
+  /**
+   * Test a driver that stops at the first failure, returning a short array of
+   * update counts; the row after the last count is the failed row.
+   */
+  @Test
+  public void testStopAtFailure() {
+    boolean[] bad = SavepointBatch.getFailedRows(new int[] { 1, 1 }, 4);
+    assertEquals(Arrays.toString(new boolean[] { false, false, true, false }),
+                 Arrays.toString(bad));
+    bad = SavepointBatch.getFailedRows(null, 3);
+    assertEquals(Arrays.toString(new boolean[] { true, false, false }),
+                 Arrays.toString(bad));
+  }
+
+  /**
+   * Test a driver that continues after failures, marking each failed row with
+   * EXECUTE_FAILED.
+   */
+  @Test
+  public void testContinueAfterFailure() {
+    int[] codes = { 1, FAILED, 1, FAILED };
+    boolean[] bad = SavepointBatch.getFailedRows(codes, 4);
+    assertEquals(Arrays.toString(new boolean[] { false, true, false, true }),
+                 Arrays.toString(bad));
+  }
+
+  /**
+   * Test a full array of update counts with no failed row, which gives no way
+   * to identify the failure, so all rows fail.
+   */
+  @Test
+  public void testNoIdentifiedFailure() {
+    int[] codes = { 1, 1, 1 };
+    boolean[] bad = SavepointBatch.getFailedRows(codes, 3);
+    assertEquals(Arrays.toString(new boolean[] { true, true, true }),
+                 Arrays.toString(bad));
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.poesys.db.DbErrorException;
+
+
+/**
+ * CUT: SingleFlight
+ * 
+ * @author Robert J. Muller
+ */
+public class SingleFlightTest {
+  private static final String KEY = "com.poesys.db.dto.TestNatural:key1";
+  private static final int THREADS = 10;
+
+  /**
+   * A loader that counts its loads and copies and sleeps to keep the flight
+   * open
+   */
+  private static class CountingLoader extends SingleFlight.Loader<StringBuilder> {
+    private final AtomicInteger loads = new AtomicInteger();
+    private final AtomicInteger copies = new AtomicInteger();
+    private final long sleep;
+    private final boolean fail;
+
+    /**
+     * Create a CountingLoader object.
+     * 
+     * @param sleep the milliseconds each load takes
+     * @param fail true to fail the first load
+     */
+    CountingLoader(long sleep, boolean fail) {
+      this.sleep = sleep;
+      this.fail = fail;
+    }
+
+    @Override
+    public StringBuilder load() {
+      int count = loads.incrementAndGet();
+      try {
+        Thread.sleep(sleep);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      if (fail && count == 1) {
+        throw new DbErrorException("load failed");
+      }
+      return new StringBuilder("value");
+    }
+
+    @Override
+    protected Object share(StringBuilder value) {
+      return value.toString();
+    }
+
+    @Override
+    protected StringBuilder copy(Object shared) {
+      copies.incrementAndGet();
+      return new StringBuilder((String)shared);
+    }
+  }
+
+  /**
+   * Load the key in several threads at once.
+   * 
+   * @param flight the single flight
+   * @param loader the loader
+   * @param threads the number of threads
+   * @return the results of the threads that did not fail
+   * @throws InterruptedException when the test is interrupted
+   */
+  private List<SingleFlight.Result<StringBuilder>> loadConcurrently(final SingleFlight<StringBuilder> flight,
+                                                                    final CountingLoader loader,
+                                                                    int threads)
+      throws InterruptedException {
+    final List<SingleFlight.Result<StringBuilder>> results =
+      new ArrayList<SingleFlight.Result<StringBuilder>>();
+    final CountDownLatch start = new CountDownLatch(1);
+    List<Thread> list = new ArrayList<Thread>();
+    for (int i = 0; i < threads; i++) {
+      Thread thread = new Thread() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+            SingleFlight.Result<StringBuilder> result =
+              flight.load(KEY, loader);
+            synchronized (results) {
+              results.add(result);
+            }
+          } catch (InterruptedException e) {
+            // end the thread
+          } catch (DbErrorException e) {
+            // the failing leader
+          }
+        }
+      };
+      thread.start();
+      list.add(thread);
+    }
+    start.countDown();
+    for (Thread thread : list) {
+      thread.join();
+    }
+    return results;
+  }
+
+  /**
+   * Test that concurrent loads of a key run the loader once and give each
+   * follower its own copy.
+   * 
+   * @throws InterruptedException when the test is interrupted
+   */
+  @Test
+  public void testCoalesce() throws InterruptedException {
+    SingleFlight<StringBuilder> flight = new SingleFlight<StringBuilder>();
+    CountingLoader loader = new CountingLoader(300, false);
+    List<SingleFlight.Result<StringBuilder>> results =
+      loadConcurrently(flight, loader, THREADS);
+    assertEquals("Wrong number of results", THREADS, results.size());
+    assertEquals("Wrong number of loads", 1, loader.loads.get());
+    assertEquals("Wrong number of copies", THREADS - 1, loader.copies.get());
+    assertEquals("Wrong coalesced count", THREADS - 1,
+                 flight.getCoalescedCount());
+    int shared = 0;
+    for (SingleFlight.Result<StringBuilder> result : results) {
+      assertEquals("Wrong value", "value", result.getValue().toString());
+      if (result.isShared()) {
+        shared++;
+      }
+    }
+    assertEquals("Wrong number of shared results", THREADS - 1, shared);
+    assertEquals("Flight not removed", 0, flight.getInFlight());
+
+    // A later load runs the loader again.
+    flight.load(KEY, loader);
+    assertEquals("Later load not run", 2, loader.loads.get());
+  }
+
+  /**
+   * Test that followers load the object themselves when the leader takes
+   * longer than the timeout or fails.
+   * 
+   * @throws InterruptedException when the test is interrupted
+   */
+  @Test
+  public void testFallback() throws InterruptedException {
+    SingleFlight<StringBuilder> flight = new SingleFlight<StringBuilder>(50L);
+    CountingLoader slow = new CountingLoader(500, false);
+    List<SingleFlight.Result<StringBuilder>> results =
+      loadConcurrently(flight, slow, 2);
+    assertEquals("Wrong number of results", 2, results.size());
+    assertEquals("Follower did not load after timeout", 2, slow.loads.get());
+    assertEquals("Wrong fallback count", 1, flight.getFallbackCount());
+
+    flight = new SingleFlight<StringBuilder>();
+    CountingLoader failing = new CountingLoader(300, true);
+    results = loadConcurrently(flight, failing, 2);
+    assertEquals("Follower failed with leader", 1, results.size());
+    assertTrue("Follower got shared result", !results.get(0).isShared());
+    assertEquals("Follower did not load after failure", 2,
+                 failing.loads.get());
+  }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao;
+
+
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.poesys.db.DbErrorException;
+import com.poesys.db.InvalidParametersException;
+import com.poesys.db.dao.insert.IInsertBatch;
+import com.poesys.db.dao.update.IUpdateBatch;
+import com.poesys.db.dto.TestNatural;
+
+
+/**
+ * CUT: WriteBehindQueue, using batch DAOs that record the DTOs they get rather
+ * than writing them to the database
+ * 
+ * @author Robert J. Muller
+ */
+public class WriteBehindQueueTest {
+  private static final BigDecimal COL1 = new BigDecimal("1234.5678");
+  /** long interval so only explicit or size-triggered flushes happen */
+  private static final long INTERVAL = 1000 * 60;
+
+  /** DTOs passed to the inserter */
+  private final List<TestNatural> inserted = new ArrayList<>();
+  /** DTOs passed to the updater */
+  private final List<TestNatural> updated = new ArrayList<>();
+
+  /** recording inserter */
+  private final IInsertBatch<TestNatural> inserter =
+    new IInsertBatch<TestNatural>() {
+      @Override
+      public void insert(Collection<TestNatural> dtos, int size) {
+        synchronized (inserted) {
+          inserted.addAll(dtos);
+        }
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+
+  /** recording updater */
+  private final IUpdateBatch<TestNatural> updater =
+    new IUpdateBatch<TestNatural>() {
+      @Override
+      public void update(Collection<TestNatural> dtos, int size) {
+        synchronized (updated) {
+          updated.addAll(dtos);
+        }
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+
+  /**
+   * Create a CHANGED DTO.
+   * 
+   * @param key the key value
+   * @return the DTO
+   */
+  private TestNatural createChangedDto(String key) {
+    TestNatural dto = new TestNatural(key, key, COL1);
+    dto.setExisting();
+    dto.setCol1(COL1);
+    return dto;
+  }
+
+  /**
+   * Test that repeated updates of the same object merge into one update.
+   */
+  @Test
+  public void testAddMerge() {
+    IWriteBehindQueue<TestNatural> cut =
+      new WriteBehindQueue<>(inserter, updater, 100, 50, INTERVAL);
+    TestNatural dto = createChangedDto("1");
+    cut.add(dto);
+    cut.add(dto);
+    cut.add(createChangedDto("1"));
+    assertTrue("Updates not merged", cut.size() == 1);
+    cut.flush();
+    assertTrue("Wrong number of updates: " + updated.size(),
+               updated.size() == 1);
+    assertTrue("Queue not empty after flush", cut.size() == 0);
+    cut.close();
+  }
+
+  /**
+   * Test that a CHANGED DTO with the key of a queued insert but a different
+   * instance takes room in the queue, blocking on a full queue until a flush.
+   * 
+   * @throws InterruptedException when interrupted waiting for the adding
+   *           thread
+   */
+  @Test
+  public void testMergeCapacity() throws InterruptedException {
+    final IWriteBehindQueue<TestNatural> cut =
+      new WriteBehindQueue<>(inserter, updater, 2, 10, INTERVAL);
+    cut.add(new TestNatural("1", "1", COL1));
+    cut.add(new TestNatural("2", "2", COL1));
+    Thread adder = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        cut.add(createChangedDto("1"));
+      }
+    });
+    adder.start();
+    adder.join(200);
+    assertTrue("Add did not block on full queue", adder.isAlive());
+    assertTrue("Queue over capacity: " + cut.size(), cut.size() == 2);
+    cut.flush();
+    adder.join(5000);
+    assertTrue("Add still blocked after flush", !adder.isAlive());
+    assertTrue("Update not queued after flush", cut.size() == 1);
+    cut.close();
+    assertTrue("Wrong number of inserts: " + inserted.size(),
+               inserted.size() == 2);
+    assertTrue("Wrong number of updates: " + updated.size(),
+               updated.size() == 1);
+  }
+
+  /**
+   * Test that a failed flush keeps the unwritten DTOs in the queue and that
+   * the next flush writes them. The update fails, so the written insert must
+   * not go back into the queue.
+   */
+  @Test
+  public void testFailedFlush() {
+    final List<Integer> attempts = new ArrayList<>();
+    IUpdateBatch<TestNatural> failingUpdater =
+      new IUpdateBatch<TestNatural>() {
+        @Override
+        public void update(Collection<TestNatural> dtos, int size) {
+          attempts.add(dtos.size());
+          if (attempts.size() == 1) {
+            throw new DbErrorException("Update failed");
+          }
+          updated.addAll(dtos);
+        }
+
+        @Override
+        public void close() {
+        }
+      };
+    IWriteBehindQueue<TestNatural> cut =
+      new WriteBehindQueue<>(inserter, failingUpdater, 100, 50, INTERVAL);
+    cut.add(new TestNatural("1", "1", COL1));
+    cut.add(createChangedDto("2"));
+    cut.add(createChangedDto("3"));
+    try {
+      cut.flush();
+      assertTrue("Failed update did not throw", false);
+    } catch (DbErrorException e) {
+      // success
+    }
+    assertTrue("Insert not written", inserted.size() == 1);
+    assertTrue("Unwritten updates not kept: " + cut.size(), cut.size() == 2);
+    // A later change to a returned object replaces it.
+    cut.add(createChangedDto("3"));
+    assertTrue("Later update not merged: " + cut.size(), cut.size() == 2);
+    cut.flush();
+    assertTrue("Updates not retried: " + updated.size(), updated.size() == 2);
+    assertTrue("Queue not empty after retry", cut.size() == 0);
+    cut.close();
+    assertTrue("Insert written twice", inserted.size() == 1);
+  }
+
+  /**
+   * Test that a capacity of less than 1 is rejected.
+   */
+  @Test(expected = InvalidParametersException.class)
+  public void testInvalidCapacity() {
+    new WriteBehindQueue<TestNatural>(inserter, updater, 0, 10, INTERVAL);
+  }
+
+  /**
+   * Test that inserts get written before updates and that close() flushes the
+   * queue.
+   */
+  @Test
+  public void testClose() {
+    IWriteBehindQueue<TestNatural> cut =
+      new WriteBehindQueue<>(inserter, updater, 100, 50, INTERVAL);
+    cut.add(createChangedDto("1"));
+    cut.add(new TestNatural("2", "2", COL1));
+    cut.close();
+    assertTrue("Insert not flushed on close", inserted.size() == 1);
+    assertTrue("Update not flushed on close", updated.size() == 1);
+    try {
+      cut.add(createChangedDto("3"));
+      assertTrue("Added DTO to closed queue", false);
+    } catch (com.poesys.db.DbErrorException e) {
+      // success
+    }
+  }
+
+  /**
+   * Test that a full batch triggers a flush and that a full queue blocks until
+   * the flush makes room.
+   * 
+   * @throws InterruptedException when interrupted waiting for the flush
+   */
+  @Test
+  public void testSizeFlush() throws InterruptedException {
+    IWriteBehindQueue<TestNatural> cut =
+      new WriteBehindQueue<>(inserter, updater, 10, 10, INTERVAL);
+    for (int i = 0; i < 25; i++) {
+      cut.add(createChangedDto(Integer.toString(i)));
+    }
+    cut.close();
+    assertTrue("Wrong number of updates: " + updated.size(),
+               updated.size() == 25);
+  }
+}
@@ -21,6 +21,7 @@ import com.poesys.db.DbErrorException;
 import com.poesys.db.dao.ConnectionTest;
 import com.poesys.db.dao.insert.InsertBatch;
 import com.poesys.db.dao.insert.InsertSqlTestNatural;
+import com.poesys.db.dto.IDbDto;
 import com.poesys.db.dto.TestNatural;
 import org.junit.Test;
 
@@ -30,6 +31,7 @@ import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 /**
@@ -120,6 +122,87 @@ public class DeleteBatchTestNaturalTest extends ConnectionTest {
     }
   }
 
+  /**
+   * Test a successful delete of a batch in IN-list chunks; the two-column key
+   * deletes with OR-ed key expressions.
+   *
+   * @throws IOException  when can't get property
+   * @throws SQLException when can't get connection
+   */
+  @Test
+  public void testDeleteInList() throws IOException, SQLException {
+    Connection conn;
+    try {
+      conn = getConnection();
+    } catch (SQLException e) {
+      throw new DbErrorException("Connect failed: " + e.getMessage(), e);
+    }
+    InsertBatch<TestNatural> inserter =
+      new InsertBatch<>(new InsertSqlTestNatural(), getSubsystem());
+    List<TestNatural> dtos = new ArrayList<>();
+    BigDecimal col1 = new BigDecimal("1234.5678");
+
+    for (int i = 0; i < OBJECT_COUNT; i++) {
+      // Create the primary key.
+      Integer keyValue = i;
+
+      // Create the DTO.
+      dtos.add(new TestNatural(keyValue.toString(), keyValue.toString(), col1));
+    }
+
+    Statement stmt = null;
+    PreparedStatement query;
+    try {
+      // Delete any rows in the TestNatural table.
+      stmt = conn.createStatement();
+      stmt.executeUpdate("DELETE FROM TestNatural");
+      stmt.close();
+
+      conn.commit();
+
+      // Insert the test batch.
+      stmt = conn.createStatement();
+      inserter.insert(dtos, BATCH_SIZE);
+
+      // Delete the TestNatural objects.
+      for (TestNatural dto : dtos) {
+        dto.delete();
+      }
+
+      DeleteBatchByKey<TestNatural> deleter =
+        new DeleteBatchByKey<>(new DeleteSqlTestNatural(), getSubsystem(), true);
+      deleter.delete(dtos, BATCH_SIZE);
+
+      query = conn.prepareStatement(QUERY);
+
+      // Loop through the DTOs to query and test them.
+      for (TestNatural dto : dtos) {
+        // Set the key values into the query as arguments.
+        dto.getPrimaryKey().setParams(query, 1);
+
+        // Query the row.
+        ResultSet rs = query.executeQuery();
+        if (rs.next()) {
+          fail("Found supposedly deleted object from chunk");
+        }
+        assertTrue("DTO not deleted from database",
+                   dto.getStatus() == IDbDto.Status.DELETED_FROM_DATABASE);
+      }
+      conn.commit();
+    } catch (SQLException e) {
+      e.printStackTrace();
+      fail("delete batch process failed: " + e.getMessage());
+    }
+    finally {
+      if (stmt != null) {
+        stmt.close();
+      }
+      if (conn != null) {
+        conn.close();
+      }
+    }
+  }
+
   /**
    * Test a batch delete with a null input.
    */
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao.delete;
+
+import com.poesys.db.DbErrorException;
+import com.poesys.db.dao.AdaptiveBatchSize;
+import com.poesys.db.dao.ConnectionTest;
+import com.poesys.db.dao.insert.InsertBatch;
+import com.poesys.db.dao.insert.InsertSqlTestSequence;
+import com.poesys.db.dto.IDbDto;
+import com.poesys.db.dto.TestSequence;
+import com.poesys.db.pk.IPrimaryKey;
+import com.poesys.db.pk.PrimaryKeyFactory;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test the deletion of a collection of objects with a single-column key in
+ * IN-list chunks.
+ *
+ * @author Robert J. Muller
+ */
+public class DeleteBatchTestSequenceTest extends ConnectionTest {
+  private static final String QUERY = "SELECT col1 FROM TestSequence WHERE pKey = ?";
+  private static final String CLASS_NAME = "com.poesys.db.test.TestSequence";
+
+  /**
+   * Test a successful adaptive delete in IN-list chunks with a single-column
+   * key, which must report the chunk latency to the adaptive batch size.
+   *
+   * @throws IOException  when can't get property
+   * @throws SQLException when can't get connection
+   */
+  @Test
+  public void testDeleteInListAdaptive() throws IOException, SQLException {
+    Connection conn;
+    try {
+      conn = getConnection();
+    } catch (SQLException e) {
+      throw new DbErrorException("Connect failed: " + e.getMessage(), e);
+    }
+
+    AdaptiveBatchSize.clear();
+    AdaptiveBatchSize tuner =
+      AdaptiveBatchSize.getInstance(getSubsystem(), TestSequence.class.getName());
+    // Enough objects for the tuner to measure three full chunks
+    int count = 3 * Math.min(tuner.getSize(), 1000);
+
+    Statement stmt = null;
+    PreparedStatement query;
+    try {
+      // Delete any rows in the TestSequence table and reset the sequence.
+      stmt = conn.createStatement();
+      stmt.executeUpdate("DELETE FROM TestSequence");
+      stmt.execute("UPDATE mysql_sequence set value = 0 where name = 'test'");
+      stmt.close();
+      stmt = null;
+      conn.commit();
+
+      List<TestSequence> dtos = new ArrayList<>();
+      for (int i = 0; i < count; i++) {
+        IPrimaryKey key =
+          PrimaryKeyFactory.createMySqlSequenceKey("test", "pKey", CLASS_NAME,
+                                                   getSubsystem());
+        dtos.add(new TestSequence(key, "test" + i));
+      }
+
+      // Insert the test batch.
+      InsertBatch<TestSequence> inserter =
+        new InsertBatch<>(new InsertSqlTestSequence(), getSubsystem());
+      inserter.insert(dtos, 100);
+
+      // Delete the TestSequence objects.
+      for (TestSequence dto : dtos) {
+        dto.delete();
+      }
+
+      DeleteBatchByKey<TestSequence> deleter =
+        new DeleteBatchByKey<>(new DeleteSqlTestSequence(), getSubsystem(), true);
+      deleter.delete(dtos, AdaptiveBatchSize.ADAPTIVE);
+
+      query = conn.prepareStatement(QUERY);
+
+      // Loop through the DTOs to query and test them.
+      for (TestSequence dto : dtos) {
+        dto.getPrimaryKey().setParams(query, 1);
+        ResultSet rs = query.executeQuery();
+        if (rs.next()) {
+          fail("Found supposedly deleted object from chunk");
+        }
+        assertTrue("DTO not deleted from database",
+                   dto.getStatus() == IDbDto.Status.DELETED_FROM_DATABASE);
+      }
+      query.close();
+      conn.commit();
+
+      assertTrue("Chunk latency not recorded for adaptive batch size",
+                 tuner.getRowsPerSecond() > 0.0);
+    } catch (SQLException e) {
+      e.printStackTrace();
+      fail("delete batch process failed: " + e.getMessage());
+    }
+    finally {
+      if (stmt != null) {
+        stmt.close();
+      }
+      if (conn != null) {
+        conn.close();
+      }
+    }
+  }
+}
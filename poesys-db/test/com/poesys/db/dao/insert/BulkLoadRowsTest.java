@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao.insert;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+
+import org.junit.Test;
+
+import com.poesys.db.dto.TestNatural;
+import com.poesys.db.pk.IPrimaryKey;
+
+
+/**
+ * Test the BulkLoadRows class, which encodes DTOs as LOAD DATA rows.
+ * 
+ * @author Robert J. Muller
+ */
+public class BulkLoadRowsTest {
+
+  /**
+   * Read the contents of a row buffer as a string.
+   * 
+   * @param rows the row buffer
+   * @return the string
+   * @throws IOException when the stream can't be read
+   */
+  private String read(BulkLoadRows<TestNatural> rows) throws IOException {
+    InputStream stream = rows.getStream();
+    byte[] bytes = new byte[stream.available()];
+    stream.read(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Test encoding rows with key and non-key values in INSERT column order.
+   * 
+   * @throws IOException when the stream can't be read
+   */
+  @Test
+  public void testAdd() throws IOException {
+    TestNatural dto1 = new TestNatural("a", "b", new BigDecimal("1.50"));
+    TestNatural dto2 = new TestNatural("c\td", "e\\f", null);
+    BulkLoadRows<TestNatural> rows =
+      BulkLoadRows.create(new InsertSqlTestNatural(), dto1.getPrimaryKey());
+    assertNotNull("No rows for simple INSERT", rows);
+    assertEquals("Wrong table", "TestNatural", rows.getTable());
+    rows.add(dto1);
+    rows.add(dto2);
+    assertEquals("Wrong row count", 2, rows.size());
+    assertEquals("Wrong rows", "a\tb\t1.50\nc\\td\te\\\\f\t\\N\n", read(rows));
+    assertEquals("Wrong load SQL",
+                 "LOAD DATA LOCAL INFILE 'poesys.tsv' INTO TABLE TestNatural CHARACTER SET utf8mb4 FIELDS TERMINATED BY '\\t' ESCAPED BY '\\\\' LINES TERMINATED BY '\\n' (key1, key2, col1)",
+                 rows.getLoadSql());
+    rows.clear();
+    assertEquals("Rows not cleared", 0, rows.size());
+    assertEquals("Buffer not cleared", "", read(rows));
+  }
+
+  /**
+   * Test that an INSERT statement that isn't a simple column and value list
+   * yields no row buffer.
+   */
+  @Test
+  public void testCreateNotSimple() {
+    IInsertSql<TestNatural> sql = new IInsertSql<TestNatural>() {
+      @Override
+      public String getSql(IPrimaryKey key) {
+        return "INSERT INTO TestNatural SELECT key1, key2, col1 FROM Other";
+      }
+
+      @Override
+      public void setParams(PreparedStatement stmt, int next, TestNatural dto) {
+      }
+
+      @Override
+      public String getParamString(TestNatural dto) {
+        return null;
+      }
+    };
+    TestNatural dto = new TestNatural("a", "b", new BigDecimal("1.50"));
+    assertNull("Rows for complex INSERT",
+               BulkLoadRows.create(sql, dto.getPrimaryKey()));
+  }
+
+  /**
+   * Test that an INSERT statement with a value that isn't a parameter marker
+   * yields no row buffer, as the parameters would map to the wrong columns.
+   */
+  @Test
+  public void testCreateNonParameterValue() {
+    IInsertSql<TestNatural> sql = new IInsertSql<TestNatural>() {
+      @Override
+      public String getSql(IPrimaryKey key) {
+        return "INSERT INTO TestNatural (key1, created, key2, col1) VALUES (?, NOW(), ?, ?)";
+      }
+
+      @Override
+      public void setParams(PreparedStatement stmt, int next, TestNatural dto) {
+      }
+
+      @Override
+      public String getParamString(TestNatural dto) {
+        return null;
+      }
+    };
+    TestNatural dto = new TestNatural("a", "b", new BigDecimal("1.50"));
+    assertNull("Rows for INSERT with non-parameter value",
+               BulkLoadRows.create(sql, dto.getPrimaryKey()));
+  }
+}
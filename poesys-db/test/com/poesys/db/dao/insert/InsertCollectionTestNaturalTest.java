@@ -18,7 +18,9 @@
 package com.poesys.db.dao.insert;
 
 import com.poesys.db.DbErrorException;
+import com.poesys.db.dao.BatchThreshold;
 import com.poesys.db.dao.ConnectionTest;
+import com.poesys.db.dao.PoesysTrackingThread;
 import com.poesys.db.dto.TestNatural;
 import org.junit.Test;
 
@@ -39,6 +41,7 @@ import static org.junit.Assert.fail;
 public class InsertCollectionTestNaturalTest extends ConnectionTest {
   private static final String QUERY = "SELECT col1 FROM TestNatural WHERE key1 = ? and key2 = ?";
   private static final int OBJECT_COUNT = 50;
+  private static final int TIMEOUT = 10000 * 60;
 
   /**
    * Test the insert() method.
@@ -110,4 +113,94 @@ public class InsertCollectionTestNaturalTest extends ConnectionTest {
       }
     }
   }
+
+  /**
+   * Test that a collection large enough to go through InsertBatch inserts
+   * DTOs that the tracking thread tracks but has not processed, as Insert
+   * does.
+   *
+   * @throws IOException  when can't get a property
+   * @throws SQLException when can't get a connection
+   * @throws InterruptedException when the insert thread is interrupted
+   */
+  @Test
+  public void testInsertTrackedBatch() throws IOException, SQLException,
+      InterruptedException {
+    Connection conn;
+    try {
+      conn = getConnection();
+    } catch (SQLException e) {
+      throw new DbErrorException("Connect failed: " + e.getMessage(), e);
+    }
+    final InsertCollection<TestNatural> cut =
+      new InsertCollection<>(new InsertSqlTestNatural(), getSubsystem());
+    final Collection<TestNatural> dtos = new ArrayList<>();
+    BigDecimal col1 = new BigDecimal("1234.5678");
+
+    for (int i = 0; i < OBJECT_COUNT; i++) {
+      Integer keyValue = i;
+      dtos.add(new TestNatural(keyValue.toString(), keyValue.toString(), col1));
+    }
+
+    Statement stmt = null;
+    PreparedStatement query;
+    // Use a batch for any collection of more than one DTO.
+    BatchThreshold.set(getSubsystem(), 1, OBJECT_COUNT / 3);
+    try {
+      // Delete any rows in the TestNatural table.
+      stmt = conn.createStatement();
+      stmt.executeUpdate("DELETE FROM TestNatural");
+      stmt.close();
+      stmt = null;
+      conn.commit();
+
+      // Track the DTOs without processing them, then insert the collection.
+      Runnable process = new Runnable() {
+        public void run() {
+          PoesysTrackingThread thread =
+            (PoesysTrackingThread)Thread.currentThread();
+          try {
+            for (TestNatural dto : dtos) {
+              thread.addDto(dto);
+            }
+            cut.insert(dtos);
+          } catch (Throwable e) {
+            thread.setThrowable(e);
+          } finally {
+            thread.closeConnection();
+          }
+        }
+      };
+      PoesysTrackingThread thread =
+        new PoesysTrackingThread(process, getSubsystem());
+      thread.start();
+      thread.join(TIMEOUT);
+      if (thread.getThrowable() != null) {
+        throw new DbErrorException("Exception inserting tracked DTOs",
+                                   thread.getThrowable());
+      }
+
+      query = conn.prepareStatement(QUERY);
+      for (TestNatural dto : dtos) {
+        dto.getPrimaryKey().setParams(query, 1);
+        ResultSet rs = query.executeQuery();
+        assertTrue("Tracked, unprocessed DTO not inserted: "
+                       + dto.getPrimaryKey().getValueList(),
+                   rs.next());
+      }
+      query.close();
+      conn.commit();
+    } catch (SQLException e) {
+      fail("insert collection method failed: " + e.getMessage());
+    } finally {
+      BatchThreshold.set(getSubsystem(), BatchThreshold.DEFAULT_THRESHOLD,
+                         BatchThreshold.DEFAULT_SIZE);
+      if (stmt != null) {
+        stmt.close();
+      }
+      if (conn != null) {
+        conn.close();
+      }
+    }
+  }
 }
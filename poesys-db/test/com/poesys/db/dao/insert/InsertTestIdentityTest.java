@@ -18,6 +18,7 @@
 package com.poesys.db.dao.insert;
 
 import com.poesys.db.DbErrorException;
+import com.poesys.db.col.BigIntegerColumnValue;
 import com.poesys.db.dao.ConnectionTest;
 import com.poesys.db.dto.TestIdentity;
 import com.poesys.db.pk.IdentityPrimaryKey;
@@ -26,6 +27,8 @@ import org.junit.Test;
 
 import java.io.IOException;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
 
 import static junit.framework.TestCase.assertTrue;
 import static org.junit.Assert.fail;
@@ -38,6 +41,8 @@ import static org.junit.Assert.fail;
 public class InsertTestIdentityTest extends ConnectionTest {
   private static final String QUERY = "SELECT col1 FROM TestIdentity WHERE pKey = ?";
   private static final String CLASS_NAME = "com.poesys.db.test.TestIdentity";
+  private static final int OBJECT_COUNT = 50;
+  private static final int BATCH_SIZE = OBJECT_COUNT / 3;
 
   /**
    * Test the insert method using the Insert DAO.
@@ -151,4 +156,72 @@ public class InsertTestIdentityTest extends ConnectionTest {
       }
     }
   }
+
+  /**
+   * Test the insert method using the InsertBatch DAO, which must set the
+   * generated key of each identity-key DTO in the batch.
+   *
+   * @throws IOException when can't get a property
+   * @throws SQLException when can't get a connection
+   */
+  @Test
+  public void testInsertBatch() throws IOException, SQLException {
+    Connection conn;
+    try {
+      conn = getConnection();
+    } catch (SQLException e) {
+      throw new DbErrorException("Connect failed: " + e.getMessage(), e);
+    }
+
+    InsertBatch<TestIdentity> cut = new InsertBatch<>(new InsertSqlTestIdentity(), getSubsystem());
+    List<TestIdentity> dtos = new ArrayList<>();
+
+    for (int i = 0; i < OBJECT_COUNT; i++) {
+      // Create the primary key and the DTO.
+      IdentityPrimaryKey key = PrimaryKeyFactory.createIdentityKey("pKey", CLASS_NAME);
+      dtos.add(new TestIdentity(key, null, "test" + i));
+    }
+
+    PreparedStatement query = null;
+
+    try {
+      // Insert the test batch.
+      cut.insert(dtos, BATCH_SIZE);
+
+      query = conn.prepareStatement(QUERY);
+
+      // Loop through the DTOs to query them by generated key and test.
+      for (TestIdentity dto : dtos) {
+        assertTrue("No generated key for DTO " + dto.getCol1(),
+                   dto.getPrimaryKey().iterator().next().hasValue());
+        // The DTO finalizeBatchInsert must have copied its own generated key.
+        BigIntegerColumnValue keyValue =
+          (BigIntegerColumnValue)dto.getPrimaryKey().iterator().next();
+        assertTrue("DTO finalizeBatchInsert not called with its key for DTO "
+                       + dto.getCol1(),
+                   keyValue.getValue().equals(dto.getId()));
+        dto.getPrimaryKey().setParams(query, 1);
+
+        // Query the row.
+        ResultSet rs = query.executeQuery();
+        String queriedCol1 = null;
+        if (rs.next()) {
+          queriedCol1 = rs.getString("col1");
+        }
+        assertTrue("Test row not found", queriedCol1 != null);
+        assertTrue("Queried test row does not match insert", dto.getCol1().equals(queriedCol1));
+      }
+      conn.commit();
+    } catch (SQLException e) {
+      fail("insert batch method failed: " + e.getMessage());
+    }
+    finally {
+      if (query != null) {
+        query.close();
+      }
+      if (conn != null) {
+        conn.close();
+      }
+    }
+  }
 }
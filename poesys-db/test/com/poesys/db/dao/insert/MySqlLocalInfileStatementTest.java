@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao.insert;
+
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.Test;
+
+
+/**
+ * CUT: MySqlLocalInfileStatement, using proxy statements rather than a
+ * database connection
+ * 
+ * @author Robert J. Muller
+ */
+public class MySqlLocalInfileStatementTest {
+  /** The stream most recently set on the driver statement */
+  private InputStream stream = null;
+  /** Whether the statement was closed */
+  private boolean closed = false;
+
+  /**
+   * Create a connection whose statements implement an interface.
+   * 
+   * @param type the statement interface
+   * @return the connection
+   */
+  private Connection createConnection(final Class<?> type) {
+    final InvocationHandler stmtHandler = new InvocationHandler() {
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        Object result = null;
+        String name = method.getName();
+        if (name.equals("isWrapperFor")) {
+          result = ((Class<?>)args[0]).isInstance(proxy);
+        } else if (name.equals("unwrap")) {
+          result = proxy;
+        } else if (name.equals("setLocalInfileInputStream")) {
+          stream = (InputStream)args[0];
+        } else if (name.equals("close")) {
+          closed = true;
+        }
+        return result;
+      }
+    };
+    InvocationHandler connHandler = new InvocationHandler() {
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        Object result = null;
+        if (method.getName().equals("createStatement")) {
+          result =
+            Proxy.newProxyInstance(getClass().getClassLoader(),
+                                   new Class<?>[] { type }, stmtHandler);
+        }
+        return result;
+      }
+    };
+    return (Connection)Proxy.newProxyInstance(getClass().getClassLoader(),
+                                              new Class<?>[] { Connection.class },
+                                              connHandler);
+  }
+
+  /**
+   * Test that a Connector/J statement gets its LOCAL INFILE stream set through
+   * the driver interface.
+   * 
+   * @throws SQLException when setting the stream fails
+   */
+  @Test
+  public void testConnectorJStatement() throws SQLException {
+    MySqlLocalInfileStatement cut =
+      MySqlLocalInfileStatement.create(createConnection(com.mysql.jdbc.Statement.class));
+    assertNotNull("No statement for Connector/J", cut);
+    InputStream input = new ByteArrayInputStream(new byte[0]);
+    cut.setLocalInfileInputStream(input);
+    assertSame("Stream not set", input, stream);
+    cut.setLocalInfileInputStream(null);
+    assertNull("Stream not cleared", stream);
+    cut.close();
+    assertTrue("Statement not closed", closed);
+  }
+
+  /**
+   * Test that a statement from another driver gets closed and yields no
+   * statement, so the insert falls back to batching.
+   */
+  @Test
+  public void testOtherStatement() {
+    MySqlLocalInfileStatement cut =
+      MySqlLocalInfileStatement.create(createConnection(Statement.class));
+    assertNull("Statement for a non-MySQL driver", cut);
+    assertTrue("Statement not closed", closed);
+  }
+}
@@ -20,6 +20,7 @@ package com.poesys.db.dao.query;
 import com.poesys.db.DbErrorException;
 import com.poesys.db.dao.ConnectionTest;
 import com.poesys.db.dao.DaoManagerFactory;
+import com.poesys.db.dao.MemcachedDaoManager;
 import com.poesys.db.dao.insert.Insert;
 import com.poesys.db.dao.insert.InsertMemcached;
 import com.poesys.db.dao.insert.InsertSqlParent;
@@ -34,6 +35,7 @@ import org.junit.Test;
 import java.io.IOException;
 import java.math.BigInteger;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
@@ -169,4 +171,53 @@ public class QueryByKeyMemcachedTest extends ConnectionTest {
     assertTrue("queried dto set to NEW", queriedDto.getStatus() != IDbDto.Status.NEW);
     assertTrue("queried dto set to CHANGED", queriedDto.getStatus() != IDbDto.Status.CHANGED);
   }
+
+  /**
+   * Test that a second query by key of an object gets it from the near cache
+   * of a two-level DAO manager without going to memcached: after the first
+   * query the test removes the object from memcached and from the database, so
+   * only the near cache can supply it.
+   *
+   * @throws IOException  when can't get a property
+   * @throws SQLException when can't get a connection
+   */
+  @Test
+  public void testQueryByKeyNearCache() throws IOException, SQLException {
+    DaoManagerFactory.clearManager(SUBSYSTEM);
+    DaoManagerFactory.initNearCacheManager(SUBSYSTEM, false);
+    try {
+      Insert<TestSequence> inserter =
+        new InsertMemcached<>(new InsertSqlTestSequence(), SUBSYSTEM, EXPIRE_TIME);
+      SequencePrimaryKey key =
+        PrimaryKeyFactory.createMySqlSequenceKey("test", "pKey", CLASS_NAME, getSubsystem());
+      TestSequence dto = new TestSequence(key, "near");
+      inserter.insert(dto);
+
+      IKeyQuerySql<TestSequence> sql = new TestSequenceKeyQuerySql();
+      QueryByKey<TestSequence> query = new QueryMemcachedByKey<>(sql, SUBSYSTEM, EXPIRE_TIME);
+      assertTrue("first query found nothing", query.queryByKey(key) != null);
+
+      // Remove the object from memcached and the database.
+      MemcachedDaoManager.getInstance().removeObjectFromCache(key.getCacheName(), key);
+      Connection conn = getConnection();
+      PreparedStatement stmt = null;
+      try {
+        stmt = conn.prepareStatement("DELETE FROM TestSequence WHERE pKey = ?");
+        key.setParams(stmt, 1);
+        stmt.executeUpdate();
+        conn.commit();
+      } finally {
+        if (stmt != null) {
+          stmt.close();
+        }
+        conn.close();
+      }
+
+      IDbDto queriedDto = query.queryByKey(key);
+      assertTrue("second query did not use the near cache", queriedDto != null);
+      assertTrue("data not equal", dto.compareTo(queriedDto) == 0);
+    } finally {
+      DaoManagerFactory.clearManager(SUBSYSTEM);
+    }
+  }
 }
@@ -19,6 +19,8 @@ package com.poesys.db.dao.query;
 
 import com.poesys.db.DbErrorException;
 import com.poesys.db.dao.ConnectionTest;
+import com.poesys.db.dao.DaoManagerFactory;
+import com.poesys.db.dao.IDaoManager;
 import com.poesys.db.dao.insert.Insert;
 import com.poesys.db.dao.insert.InsertMemcached;
 import com.poesys.db.dao.insert.InsertSqlTestSequence;
@@ -35,6 +37,8 @@ import java.sql.Statement;
 import java.util.List;
 
 import static junit.framework.TestCase.assertTrue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.fail;
 
 /**
@@ -46,6 +50,7 @@ public class QueryListMemcachedTest extends ConnectionTest {
   private static final String CLASS_NAME = "com.poesys.test.TestSequence";
 
   private static final int EXPIRE_TIME = 100;
+  private static final int KEYS_FIRST_EXPIRE_TIME = 60000;
   private static final String SUBSYSTEM = "com.poesys.db.poesystest.mysql";
 
   /**
@@ -123,4 +128,65 @@ public class QueryListMemcachedTest extends ConnectionTest {
                  dto.getStatus() != IDbDto.Status.CHANGED);
     }
   }
+
+  /**
+   * Test the keys-first strategy of QueryMemcachedList: the query gets the
+   * cached objects in bulk, queries only the objects missing from memcached,
+   * and returns the objects in the order of the key query.
+   *
+   * @throws IOException  when can't get a property
+   * @throws SQLException when can't get a connection
+   */
+  @Test
+  public void testKeysFirstQuery() throws IOException, SQLException {
+    Connection conn = getConnection();
+    Statement stmt = null;
+    try {
+      stmt = conn.createStatement();
+      stmt.execute("DELETE FROM TestSequence");
+      conn.commit();
+    } finally {
+      if (stmt != null) {
+        stmt.close();
+      }
+      conn.close();
+    }
+
+    // Insert and cache the objects.
+    Insert<TestSequence> inserter =
+      new InsertMemcached<>(new InsertSqlTestSequence(), SUBSYSTEM, KEYS_FIRST_EXPIRE_TIME);
+    AbstractSingleValuedPrimaryKey[] keys = new AbstractSingleValuedPrimaryKey[3];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = PrimaryKeyFactory.createMySqlSequenceKey("test", "pKey", CLASS_NAME, getSubsystem());
+      inserter.insert(new TestSequence(keys[i], "keys" + i));
+    }
+
+    // Remove the second object from memcached so the query must query it.
+    IDaoManager manager = DaoManagerFactory.getManager(SUBSYSTEM);
+    manager.removeObjectFromCache(CLASS_NAME, keys[1]);
+
+    QueryList<TestSequence> dao =
+      new QueryMemcachedList<>(new TestSequenceKeysFirstQuerySql(), SUBSYSTEM, KEYS_FIRST_EXPIRE_TIME, 2);
+    List<TestSequence> queriedDtos = dao.query();
+    assertEquals("wrong number of DTOs", keys.length, queriedDtos.size());
+    for (int i = 0; i < keys.length; i++) {
+      TestSequence dto = queriedDtos.get(i);
+      assertEquals("wrong order at " + i, keys[i], dto.getPrimaryKey());
+      assertEquals("wrong data at " + i, "keys" + i, dto.getCol1());
+      assertTrue("queried dto set to new, pk:" + dto.getPrimaryKey().getValueList(),
+                 dto.getStatus() != IDbDto.Status.NEW);
+    }
+    assertFalse("cached object queried", queriedDtos.get(0).isQueried());
+    assertTrue("missing object not queried", queriedDtos.get(1).isQueried());
+    assertFalse("cached object queried", queriedDtos.get(2).isQueried());
+
+    // The query cached the missing object, so a second query queries none.
+    dao = new QueryMemcachedList<>(new TestSequenceKeysFirstQuerySql(), SUBSYSTEM, KEYS_FIRST_EXPIRE_TIME, 2);
+    queriedDtos = dao.query();
+    assertEquals("wrong number of DTOs on second query", keys.length, queriedDtos.size());
+    for (TestSequence dto : queriedDtos) {
+      assertFalse("object queried on second query: " + dto.getPrimaryKey().getValueList(),
+                  dto.isQueried());
+    }
+  }
 }
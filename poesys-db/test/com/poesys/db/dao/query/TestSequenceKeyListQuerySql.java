@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao.query;
+
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.poesys.db.dto.TestSequence;
+import com.poesys.db.pk.IPrimaryKey;
+
+
+/**
+ * SQL query class for querying the TestSequence objects of a list of primary
+ * keys
+ * 
+ * @author Robert J. Muller
+ */
+public class TestSequenceKeyListQuerySql implements
+    IKeyListQuerySql<TestSequence> {
+  /** SQL query for TestSequence up to the IN list */
+  private static final String SQL =
+    "SELECT pkey, col1 FROM TestSequence WHERE pkey IN (";
+  /** The query that reads the rows */
+  private final TestSequenceQuerySql rowSql = new TestSequenceQuerySql();
+  /** The primary keys to query */
+  private List<IPrimaryKey> keys = new ArrayList<IPrimaryKey>();
+
+  @Override
+  public String getSql() {
+    StringBuilder sql = new StringBuilder(SQL);
+    for (int i = 0; i < keys.size(); i++) {
+      sql.append(i == 0 ? "?" : ", ?");
+    }
+    sql.append(") ORDER BY pkey");
+    return sql.toString();
+  }
+
+  @Override
+  public List<IPrimaryKey> getKeys() {
+    return keys;
+  }
+
+  @Override
+  public void setKeys(List<IPrimaryKey> keys) {
+    this.keys = keys;
+  }
+
+  @Override
+  public void bindKeys(PreparedStatement stmt) {
+    int index = 1;
+    for (IPrimaryKey key : keys) {
+      index = key.setParams(stmt, index);
+    }
+  }
+
+  @Override
+  public IPrimaryKey getPrimaryKey(ResultSet rs) {
+    return rowSql.getPrimaryKey(rs);
+  }
+
+  @Override
+  public String getKeyValues() {
+    StringBuilder values = new StringBuilder();
+    for (IPrimaryKey key : keys) {
+      if (values.length() > 0) {
+        values.append(", ");
+      }
+      values.append(key.getValueList());
+    }
+    return values.toString();
+  }
+
+  @Override
+  public TestSequence getData(ResultSet rs) {
+    return rowSql.getData(rs);
+  }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao.query;
+
+
+import com.poesys.db.dto.TestSequence;
+
+
+/**
+ * SQL query class for querying all TestSequence objects with the keys-first
+ * strategy
+ * 
+ * @author Robert J. Muller
+ */
+public class TestSequenceKeysFirstQuerySql extends TestSequenceQuerySql
+    implements IKeysFirstQuerySql<TestSequence> {
+  /** SQL query for the TestSequence primary keys */
+  private static final String KEY_SQL =
+    "SELECT pkey FROM TestSequence ORDER BY pkey";
+
+  @Override
+  public String getKeySql() {
+    return KEY_SQL;
+  }
+
+  @Override
+  public IKeyListQuerySql<TestSequence> getKeyListSql() {
+    return new TestSequenceKeyListQuerySql();
+  }
+}
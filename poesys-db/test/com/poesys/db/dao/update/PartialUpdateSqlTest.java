@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao.update;
+
+
+import java.math.BigDecimal;
+
+import org.junit.Test;
+
+import com.poesys.db.dto.TestNatural;
+
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * CUT: PartialUpdateSql
+ * 
+ * @author Robert J. Muller
+ */
+public class PartialUpdateSqlTest {
+  private static final BigDecimal COL1 = new BigDecimal("1234.5678");
+
+  /**
+   * Create an EXISTING TestNatural object.
+   * 
+   * @return the DTO
+   */
+  private TestNatural createDto() {
+    TestNatural dto = new TestNatural("key1", "key2", COL1);
+    dto.setExisting();
+    return dto;
+  }
+
+  /**
+   * Test getting the partial SQL for a DTO with a changed field.
+   */
+  @Test
+  public void testGetSqlPartial() {
+    PartialUpdateSql<TestNatural> cut =
+      new PartialUpdateSql<>(new UpdateSqlTestNaturalPartial());
+    TestNatural dto = createDto();
+    dto.setChanged(UpdateSqlTestNaturalPartial.COL1);
+    String sql = cut.getSql(dto);
+    assertTrue("Wrong partial SQL: " + sql,
+               sql.startsWith("UPDATE TestNatural SET col1 = ? WHERE "));
+    assertTrue("No key in partial SQL: " + sql, sql.contains("key1"));
+    assertTrue("Partial SQL not cached", sql == cut.getSql(dto));
+  }
+
+  /**
+   * Test getting the full SQL for a DTO changed without a field name.
+   */
+  @Test
+  public void testGetSqlUntracked() {
+    UpdateSqlTestNaturalPartial sql = new UpdateSqlTestNaturalPartial();
+    PartialUpdateSql<TestNatural> cut = new PartialUpdateSql<>(sql);
+    TestNatural dto = createDto();
+    dto.setChanged(UpdateSqlTestNaturalPartial.COL1);
+    dto.setChanged();
+    assertTrue("Changed fields with untracked change",
+               dto.getChangedFields().isEmpty());
+    assertTrue("Not full SQL",
+               cut.getSql(dto).equals(sql.getSql(dto.getPrimaryKey())));
+  }
+
+  /**
+   * Test getting the full SQL for a SQL object that does not support partial
+   * updates.
+   */
+  @Test
+  public void testGetSqlNotPartial() {
+    UpdateSqlTestNatural sql = new UpdateSqlTestNatural();
+    PartialUpdateSql<TestNatural> cut = new PartialUpdateSql<>(sql);
+    TestNatural dto = createDto();
+    dto.setChanged(UpdateSqlTestNaturalPartial.COL1);
+    assertTrue("Not full SQL",
+               cut.getSql(dto).equals(sql.getSql(dto.getPrimaryKey())));
+  }
+
+  /**
+   * Test that the changed fields disappear when the DTO becomes EXISTING.
+   */
+  @Test
+  public void testChangedFieldsCleared() {
+    TestNatural dto = createDto();
+    dto.setChanged(UpdateSqlTestNaturalPartial.COL1);
+    assertTrue("No changed field",
+               dto.getChangedFields().contains(UpdateSqlTestNaturalPartial.COL1));
+    dto.setExisting();
+    assertTrue("Changed fields not cleared", dto.getChangedFields().isEmpty());
+  }
+}
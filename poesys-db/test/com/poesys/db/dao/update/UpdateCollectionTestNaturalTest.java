@@ -1,138 +1,217 @@
-/*
- * Copyright (c) 2008 Poesys Associates. All rights reserved.
- *
- * This file is part of Poesys-DB.
- *
- * Poesys-DB is free software: you can redistribute it and/or modify it under
- * the terms of the GNU General Public License as published by the Free Software
- * Foundation, either version 3 of the License, or (at your option) any later
- * version.
- *
- * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
- * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
- * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
- *
- * You should have received a copy of the GNU General Public License along with
- * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
- */
-package com.poesys.db.dao.update;
-
-import com.poesys.db.DbErrorException;
-import com.poesys.db.dao.ConnectionTest;
-import com.poesys.db.dao.insert.InsertBatch;
-import com.poesys.db.dao.insert.InsertSqlTestNatural;
-import com.poesys.db.dto.TestNatural;
-import org.junit.Test;
-
-import java.io.IOException;
-import java.math.BigDecimal;
-import java.sql.*;
-import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
-
-import static junit.framework.TestCase.assertTrue;
-import static org.junit.Assert.fail;
-
-/**
- * Test the update process for a collection of natural-primary-key objects.
- *
- * @author Robert J. Muller
- */
-public class UpdateCollectionTestNaturalTest extends ConnectionTest {
-  private static final String QUERY = "SELECT col1 FROM TestNatural WHERE key1 = ? and key2 = ?";
-  private static final int OBJECT_COUNT = 50;
-  private static final int BATCH_SIZE = OBJECT_COUNT / 3;
-
-  /**
-   * Test a successful update of a batch.
-   *
-   * @throws IOException  when can't get a property
-   * @throws SQLException when can't get a connection
-   */
-  @Test
-  public void testUpdate() throws IOException, SQLException {
-    Connection conn;
-    try {
-      conn = getConnection();
-    } catch (SQLException e) {
-      throw new DbErrorException("Connect failed: " + e.getMessage(), e);
-    }
-    InsertBatch<TestNatural> inserter =
-      new InsertBatch<>(new InsertSqlTestNatural(), getSubsystem());
-    List<TestNatural> dtos = new CopyOnWriteArrayList<>();
-    BigDecimal col1 = new BigDecimal("1234.5678");
-    BigDecimal col1New = new BigDecimal("5678.5678");
-
-    for (int i = 0; i < OBJECT_COUNT; i++) {
-      Integer keyValue = i;
-
-      // Create the DTO.
-      dtos.add(new TestNatural(keyValue.toString(), keyValue.toString(), col1));
-    }
-
-    Statement stmt = null;
-    PreparedStatement query;
-    try {
-      // Delete any rows in the TestNatural table.
-      stmt = conn.createStatement();
-      stmt.executeUpdate("DELETE FROM TestNatural");
-      stmt.close();
-
-      conn.commit();
-
-      // Insert the test batch.
-      inserter.insert(dtos, BATCH_SIZE);
-
-      // Update the col1 values and batch the update.
-      for (TestNatural dto : dtos) {
-        dto.setCol1(col1New);
-      }
-
-      UpdateCollectionByKey<TestNatural> updater =
-        new UpdateCollectionByKey<>(new UpdateSqlTestNatural(), getSubsystem());
-      updater.update(dtos);
-
-      query = conn.prepareStatement(QUERY);
-
-      // Loop through the DTOs to query and test them.
-      for (TestNatural dto : dtos) {
-        // Set the key values into the query as arguments.
-        dto.getPrimaryKey().setParams(query, 1);
-
-        // Query the row.
-        ResultSet rs = query.executeQuery();
-        BigDecimal queriedCol1 = null;
-        if (rs.next()) {
-          queriedCol1 = rs.getBigDecimal("col1");
-        }
-        assertTrue(queriedCol1 != null);
-        // Must use compareTo here, not equals, because of precision difference
-        assertTrue(col1New + " is not " + queriedCol1, col1New.compareTo(queriedCol1) == 0);
-      }
-      conn.commit();
-    } catch (SQLException e) {
-      e.printStackTrace();
-      fail("update batch process failed: " + e.getMessage());
-    }
-    finally {
-      if (stmt != null) {
-        stmt.close();
-      }
-      if (conn != null) {
-        conn.close();
-      }
-    }
-  }
-
-  /**
-   * Test a batch update with a null input.
-   */
-  @Test
-  public void testInsertNull() {
-    UpdateCollectionByKey<TestNatural> cut =
-      new UpdateCollectionByKey<>(new UpdateSqlTestNatural(), getSubsystem());
-
-    // Insert the test batch, which is null.
-    cut.update(null);
-  }
-}
+/*
+ * Copyright (c) 2008 Poesys Associates. All rights reserved.
+ *
+ * This file is part of Poesys-DB.
+ *
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao.update;
+
+import com.poesys.db.DbErrorException;
+import com.poesys.db.dao.BatchThreshold;
+import com.poesys.db.dao.ConnectionTest;
+import com.poesys.db.dao.insert.InsertBatch;
+import com.poesys.db.dao.insert.InsertSqlTestNatural;
+import com.poesys.db.dto.TestNatural;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static junit.framework.TestCase.assertTrue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Test the update process for a collection of natural-primary-key objects.
+ *
+ * @author Robert J. Muller
+ */
+public class UpdateCollectionTestNaturalTest extends ConnectionTest {
+  private static final String QUERY = "SELECT col1 FROM TestNatural WHERE key1 = ? and key2 = ?";
+  private static final int OBJECT_COUNT = 50;
+  private static final int BATCH_SIZE = OBJECT_COUNT / 3;
+
+  /**
+   * Test a successful update of a batch.
+   *
+   * @throws IOException  when can't get a property
+   * @throws SQLException when can't get a connection
+   */
+  @Test
+  public void testUpdate() throws IOException, SQLException {
+    Connection conn;
+    try {
+      conn = getConnection();
+    } catch (SQLException e) {
+      throw new DbErrorException("Connect failed: " + e.getMessage(), e);
+    }
+    InsertBatch<TestNatural> inserter =
+      new InsertBatch<>(new InsertSqlTestNatural(), getSubsystem());
+    List<TestNatural> dtos = new CopyOnWriteArrayList<>();
+    BigDecimal col1 = new BigDecimal("1234.5678");
+    BigDecimal col1New = new BigDecimal("5678.5678");
+
+    for (int i = 0; i < OBJECT_COUNT; i++) {
+      Integer keyValue = i;
+
+      // Create the DTO.
+      dtos.add(new TestNatural(keyValue.toString(), keyValue.toString(), col1));
+    }
+
+    Statement stmt = null;
+    PreparedStatement query;
+    try {
+      // Delete any rows in the TestNatural table.
+      stmt = conn.createStatement();
+      stmt.executeUpdate("DELETE FROM TestNatural");
+      stmt.close();
+
+      conn.commit();
+
+      // Insert the test batch.
+      inserter.insert(dtos, BATCH_SIZE);
+
+      // Update the col1 values and batch the update.
+      for (TestNatural dto : dtos) {
+        dto.setCol1(col1New);
+      }
+
+      UpdateCollectionByKey<TestNatural> updater =
+        new UpdateCollectionByKey<>(new UpdateSqlTestNatural(), getSubsystem());
+      updater.update(dtos);
+
+      query = conn.prepareStatement(QUERY);
+
+      // Loop through the DTOs to query and test them.
+      for (TestNatural dto : dtos) {
+        // Set the key values into the query as arguments.
+        dto.getPrimaryKey().setParams(query, 1);
+
+        // Query the row.
+        ResultSet rs = query.executeQuery();
+        BigDecimal queriedCol1 = null;
+        if (rs.next()) {
+          queriedCol1 = rs.getBigDecimal("col1");
+        }
+        assertTrue(queriedCol1 != null);
+        // Must use compareTo here, not equals, because of precision difference
+        assertTrue(col1New + " is not " + queriedCol1, col1New.compareTo(queriedCol1) == 0);
+      }
+      conn.commit();
+    } catch (SQLException e) {
+      e.printStackTrace();
+      fail("update batch process failed: " + e.getMessage());
+    }
+    finally {
+      if (stmt != null) {
+        stmt.close();
+      }
+      if (conn != null) {
+        conn.close();
+      }
+    }
+  }
+
+  /**
+   * Test that a collection above the batch threshold pre-processes the nested
+   * objects of the same DTOs as a collection below it, the CHANGED DTOs.
+   *
+   * @throws IOException  when can't get a property
+   * @throws SQLException when can't get a connection
+   */
+  @Test
+  public void testPreprocessAboveThreshold() throws IOException, SQLException {
+    int changed = OBJECT_COUNT / 2;
+    assertEquals("Wrong DTOs pre-processed below the threshold", changed,
+                 updateHalfChanged(OBJECT_COUNT + 1));
+    assertEquals("Wrong DTOs pre-processed above the threshold", changed,
+                 updateHalfChanged(1));
+  }
+
+  /**
+   * Insert a collection of DTOs, change half of them, and update the whole
+   * collection with a specified batch threshold.
+   *
+   * @param threshold the batch threshold for the update
+   * @return the number of DTOs whose nested objects the update pre-processed
+   * @throws IOException  when can't get a property
+   * @throws SQLException when can't get a connection
+   */
+  private int updateHalfChanged(int threshold) throws IOException,
+      SQLException {
+    final AtomicInteger preprocessed = new AtomicInteger();
+    List<TestNatural> dtos = new ArrayList<>();
+    BigDecimal col1 = new BigDecimal("1234.5678");
+    for (int i = 0; i < OBJECT_COUNT; i++) {
+      String keyValue = Integer.toString(i);
+      dtos.add(new TestNatural(keyValue, keyValue, col1) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public void preprocessNestedObjects() {
+          preprocessed.incrementAndGet();
+          super.preprocessNestedObjects();
+        }
+      });
+    }
+
+    Connection conn = getConnection();
+    try {
+      Statement stmt = conn.createStatement();
+      stmt.executeUpdate("DELETE FROM TestNatural");
+      stmt.close();
+      conn.commit();
+    } finally {
+      conn.close();
+    }
+
+    new InsertBatch<>(new InsertSqlTestNatural(), getSubsystem()).insert(dtos,
+                                                                         BATCH_SIZE);
+    BigDecimal col1New = new BigDecimal("5678.5678");
+    for (int i = 0; i < OBJECT_COUNT; i++) {
+      dtos.get(i).setExisting();
+      if (i % 2 == 0) {
+        dtos.get(i).setCol1(col1New);
+      }
+    }
+    preprocessed.set(0);
+
+    BatchThreshold.set(getSubsystem(), threshold, BATCH_SIZE);
+    try {
+      new UpdateCollectionByKey<>(new UpdateSqlTestNatural(),
+                                  getSubsystem()).update(dtos);
+    } finally {
+      BatchThreshold.set(getSubsystem(), BatchThreshold.DEFAULT_THRESHOLD,
+                         BatchThreshold.DEFAULT_SIZE);
+    }
+    return preprocessed.get();
+  }
+
+  /**
+   * Test a batch update with a null input.
+   */
+  @Test
+  public void testInsertNull() {
+    UpdateCollectionByKey<TestNatural> cut =
+      new UpdateCollectionByKey<>(new UpdateSqlTestNatural(), getSubsystem());
+
+    // Insert the test batch, which is null.
+    cut.update(null);
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao.update;
+
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import com.poesys.db.DbErrorException;
+import com.poesys.db.dto.TestNatural;
+
+
+/**
+ * Implementation of the IPartialUpdateSql interface for the TestNatural class,
+ * which supports updating just the changed columns
+ * 
+ * @author Robert J. Muller
+ */
+public class UpdateSqlTestNaturalPartial extends UpdateSqlTestNatural implements
+    IPartialUpdateSql<TestNatural> {
+  /** the name of the col1 field */
+  public static final String COL1 = "col1";
+
+  @Override
+  public String getTableName() {
+    return "TestNatural";
+  }
+
+  @Override
+  public String getColumnName(String field) {
+    return COL1.equals(field) ? "col1" : null;
+  }
+
+  @Override
+  public int setParam(PreparedStatement stmt, int next, TestNatural dto,
+                      String field) {
+    try {
+      stmt.setBigDecimal(next, dto.getCol1());
+      next++;
+    } catch (SQLException e) {
+      throw new DbErrorException("SQL error", e);
+    }
+    return next;
+  }
+}
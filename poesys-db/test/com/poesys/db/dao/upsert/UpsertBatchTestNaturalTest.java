@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao.upsert;
+
+
+import com.poesys.db.DbErrorException;
+import com.poesys.db.dao.ConnectionTest;
+import com.poesys.db.dao.insert.InsertBatch;
+import com.poesys.db.dao.insert.InsertSqlTestNatural;
+import com.poesys.db.dao.update.UpdateSqlTestNatural;
+import com.poesys.db.dto.TestNatural;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import static junit.framework.TestCase.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test the upsert process for a collection using batching.
+ * 
+ * @author Robert J. Muller
+ */
+public class UpsertBatchTestNaturalTest extends ConnectionTest {
+  private static final String QUERY =
+    "SELECT col1 FROM TestNatural WHERE key1 = ? and key2 = ?";
+  private static final int OBJECT_COUNT = 50;
+  private static final int BATCH_SIZE = OBJECT_COUNT / 3;
+
+  /**
+   * Test a successful upsert of a batch in which half the objects already
+   * exist in the database and half do not.
+   * 
+   * @throws IOException when can't get a property
+   * @throws SQLException when can't get a connection
+   */
+  @Test
+  public void testUpsert() throws IOException, SQLException {
+    Connection conn;
+    try {
+      conn = getConnection();
+    } catch (SQLException e) {
+      throw new DbErrorException("Connect failed: " + e.getMessage(), e);
+    }
+    InsertBatch<TestNatural> inserter =
+      new InsertBatch<>(new InsertSqlTestNatural(), getSubsystem());
+    UpsertBatch<TestNatural> cut =
+      new UpsertBatch<>(new InsertSqlTestNatural(),
+                        new UpdateSqlTestNatural(),
+                        getSubsystem());
+    List<TestNatural> existing = new ArrayList<>();
+    List<TestNatural> dtos = new ArrayList<>();
+    BigDecimal col1 = new BigDecimal("1234.5678");
+    BigDecimal newCol1 = new BigDecimal("8765.4321");
+
+    for (int i = 0; i < OBJECT_COUNT; i++) {
+      String keyValue = Integer.toString(i);
+      if (i % 2 == 0) {
+        existing.add(new TestNatural(keyValue, keyValue, col1));
+      }
+      dtos.add(new TestNatural(keyValue, keyValue, newCol1));
+    }
+
+    Statement stmt = null;
+    PreparedStatement query = null;
+    try {
+      // Delete any rows in the TestNatural table.
+      stmt = conn.createStatement();
+      stmt.executeUpdate("DELETE FROM TestNatural");
+      stmt.close();
+      stmt = null;
+      conn.commit();
+
+      // Insert the existing rows, then upsert all the rows.
+      inserter.insert(existing, BATCH_SIZE);
+      cut.upsert(dtos, BATCH_SIZE);
+
+      query = conn.prepareStatement(QUERY);
+
+      // Loop through the DTOs to query them and test.
+      for (TestNatural dto : dtos) {
+        dto.getPrimaryKey().setParams(query, 1);
+        ResultSet rs = query.executeQuery();
+        BigDecimal queriedCol1 = null;
+        if (rs.next()) {
+          queriedCol1 = rs.getBigDecimal("col1");
+        }
+        assertTrue("Couldn't query object", queriedCol1 != null);
+        // Must use compareTo here, not equals, because of precision difference
+        assertTrue("Object not upserted", newCol1.compareTo(queriedCol1) == 0);
+      }
+      conn.commit();
+    } catch (SQLException e) {
+      fail("upsert batch method failed: " + e.getMessage());
+    } finally {
+      if (stmt != null) {
+        stmt.close();
+      }
+      if (query != null) {
+        query.close();
+      }
+      if (conn != null) {
+        conn.close();
+      }
+    }
+  }
+}
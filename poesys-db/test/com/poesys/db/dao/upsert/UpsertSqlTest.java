@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dao.upsert;
+
+
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.poesys.db.connection.IConnectionFactory.DBMS;
+import com.poesys.db.dao.ParameterRecorder;
+import com.poesys.db.dao.insert.InsertSqlTestNatural;
+import com.poesys.db.dao.update.UpdateSqlTestNatural;
+import com.poesys.db.dto.TestNatural;
+
+
+/**
+ * Test the UpsertSql class, which builds upsert statements from insert and
+ * update specifications.
+ * 
+ * @author Robert J. Muller
+ */
+public class UpsertSqlTest {
+  /** DTO to upsert */
+  private final TestNatural dto =
+    new TestNatural("a", "b", new BigDecimal("1.5"));
+
+  /**
+   * Test the MySQL INSERT ... ON DUPLICATE KEY UPDATE statement.
+   */
+  @Test
+  public void testGetSqlMySql() {
+    UpsertSql<TestNatural> sql =
+      new UpsertSql<TestNatural>(new InsertSqlTestNatural(),
+                                 new UpdateSqlTestNatural(),
+                                 DBMS.MYSQL);
+    assertEquals("Wrong MySQL upsert",
+                 "INSERT INTO TestNatural (key1, key2, col1) VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE col1 = ?",
+                 sql.getSql(dto.getPrimaryKey()));
+  }
+
+  /**
+   * Test the Oracle MERGE statement.
+   */
+  @Test
+  public void testGetSqlOracle() {
+    UpsertSql<TestNatural> sql =
+      new UpsertSql<TestNatural>(new InsertSqlTestNatural(),
+                                 new UpdateSqlTestNatural(),
+                                 DBMS.ORACLE);
+    assertEquals("Wrong Oracle upsert",
+                 "MERGE INTO TestNatural t USING (SELECT ? AS key1, ? AS key2, ? AS col1 FROM dual) s ON (t.key1 = s.key1 AND t.key2 = s.key2) WHEN MATCHED THEN UPDATE SET col1 = ? WHEN NOT MATCHED THEN INSERT (key1, key2, col1) VALUES (s.key1, s.key2, s.col1)",
+                 sql.getSql(dto.getPrimaryKey()));
+  }
+
+  /**
+   * Test the Sybase MERGE statement.
+   */
+  @Test
+  public void testGetSqlSybase() {
+    UpsertSql<TestNatural> sql =
+      new UpsertSql<TestNatural>(new InsertSqlTestNatural(),
+                                 new UpdateSqlTestNatural(),
+                                 DBMS.SYBASE);
+    assertEquals("Wrong Sybase upsert",
+                 "MERGE INTO TestNatural AS t USING (SELECT ? AS key1, ? AS key2, ? AS col1) AS s ON (t.key1 = s.key1 AND t.key2 = s.key2) WHEN MATCHED THEN UPDATE SET col1 = ? WHEN NOT MATCHED THEN INSERT (key1, key2, col1) VALUES (s.key1, s.key2, s.col1)",
+                 sql.getSql(dto.getPrimaryKey()));
+  }
+
+  /**
+   * Test setting the insert parameters followed by the SET clause parameters,
+   * without the WHERE clause key parameters.
+   * 
+   * @throws SQLException when a parameter can't be set
+   */
+  @Test
+  public void testSetParams() throws SQLException {
+    UpsertSql<TestNatural> sql =
+      new UpsertSql<TestNatural>(new InsertSqlTestNatural(),
+                                 new UpdateSqlTestNatural(),
+                                 DBMS.MYSQL);
+    ParameterRecorder recorder = new ParameterRecorder();
+    sql.setParams(recorder.getStatement(), dto);
+    Map<Integer, Object> values = recorder.getValues();
+    assertEquals("Wrong parameter count", 4, values.size());
+    assertEquals("Wrong key1", "a", values.get(1));
+    assertEquals("Wrong key2", "b", values.get(2));
+    assertEquals("Wrong insert col1", new BigDecimal("1.5"), values.get(3));
+    assertEquals("Wrong update col1", new BigDecimal("1.5"), values.get(4));
+  }
+
+  /**
+   * Test that counting parameter markers skips question marks in quoted
+   * strings, quoted identifiers, and comments.
+   */
+  @Test
+  public void testCountParameters() {
+    assertEquals("Wrong plain count", 2,
+                 UpsertSql.countParameters("col1 = ?, col2 = ?"));
+    assertEquals("Counted marker in string", 1,
+                 UpsertSql.countParameters("col1 = ?, col2 = 'why?'"));
+    assertEquals("Counted marker in doubled-quote string", 1,
+                 UpsertSql.countParameters("col1 = 'it''s?', col2 = ?"));
+    assertEquals("Counted marker in identifier", 1,
+                 UpsertSql.countParameters("`odd?` = ?, \"also?\" = 'x'"));
+    assertEquals("Counted marker in comments", 2,
+                 UpsertSql.countParameters("col1 = ? -- really?\n, col2 = /* ? */ ?"));
+  }
+}
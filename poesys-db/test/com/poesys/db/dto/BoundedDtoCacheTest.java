@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dto;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.math.BigDecimal;
+
+import org.junit.Test;
+
+
+/**
+ * CUT: BoundedDtoCache
+ * 
+ * @author Robert J. Muller
+ */
+public class BoundedDtoCacheTest {
+  private static final BigDecimal COL1 = new BigDecimal("100.5");
+
+  /**
+   * Test eviction of the least-recently-used object when the cache goes over
+   * its maximum size, and the hit, miss, and eviction counts.
+   */
+  @Test
+  public void testEviction() {
+    BoundedDtoCache<TestNatural> cache =
+      new BoundedDtoCache<>(TestNatural.class.getName(), 2);
+    TestNatural a = new TestNatural("a", "1", COL1);
+    TestNatural b = new TestNatural("b", "1", COL1);
+    TestNatural c = new TestNatural("c", "1", COL1);
+    cache.cache(a);
+    cache.cache(b);
+    // Touch a so that b is the least recently used.
+    assertNotNull("a not cached", cache.get(a.getPrimaryKey()));
+    cache.cache(c);
+    assertEquals("Wrong size", 2, cache.size());
+    assertNull("b not evicted", cache.get(b.getPrimaryKey()));
+    assertNotNull("a evicted", cache.get(a.getPrimaryKey()));
+    assertNotNull("c evicted", cache.get(c.getPrimaryKey()));
+    assertEquals("Wrong hit count", 3, cache.getHitCount());
+    assertEquals("Wrong miss count", 1, cache.getMissCount());
+    assertEquals("Wrong eviction count", 1, cache.getEvictionCount());
+  }
+
+  /**
+   * Test that gets past the size of the read buffer still count toward
+   * recency: the gets that overflow the buffer drain it or drop their keys, and
+   * the next write evicts the object that was not read.
+   */
+  @Test
+  public void testBufferedReads() {
+    BoundedDtoCache<TestNatural> cache =
+      new BoundedDtoCache<>(TestNatural.class.getName(), 2);
+    TestNatural a = new TestNatural("a", "1", COL1);
+    TestNatural b = new TestNatural("b", "1", COL1);
+    TestNatural c = new TestNatural("c", "1", COL1);
+    cache.cache(a);
+    cache.cache(b);
+    int reads = BoundedDtoCache.READ_BUFFER_MAX + 10;
+    for (int i = 0; i < reads; i++) {
+      assertNotNull("a not cached", cache.get(a.getPrimaryKey()));
+    }
+    cache.cache(c);
+    assertEquals("Wrong size", 2, cache.size());
+    assertNull("b not evicted", cache.get(b.getPrimaryKey()));
+    assertNotNull("a evicted", cache.get(a.getPrimaryKey()));
+    assertEquals("Wrong hit count", reads + 1, cache.getHitCount());
+    assertEquals("Wrong eviction count", 1, cache.getEvictionCount());
+  }
+
+  /**
+   * Test that an expired object is not returned and counts as an expiration
+   * rather than an eviction.
+   * 
+   * @throws InterruptedException when the sleep is interrupted
+   */
+  @Test
+  public void testExpiration() throws InterruptedException {
+    BoundedDtoCache<TestNatural> cache =
+      new BoundedDtoCache<>(TestNatural.class.getName(), 10, 50, 0);
+    TestNatural a = new TestNatural("a", "1", COL1);
+    cache.cache(a);
+    Thread.sleep(100);
+    assertNull("a not expired", cache.get(a.getPrimaryKey()));
+    assertEquals("Wrong expiration count", 1, cache.getExpirationCount());
+    assertEquals("Wrong eviction count", 0, cache.getEvictionCount());
+  }
+
+  /**
+   * Test that a non-positive maximum size is rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidMax() {
+    new BoundedDtoCache<TestNatural>(TestNatural.class.getName(), 0);
+  }
+}
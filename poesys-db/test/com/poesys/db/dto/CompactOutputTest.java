@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dto;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import com.poesys.db.col.DateColumnValue;
+import com.poesys.db.col.IColumnValue;
+import com.poesys.db.col.IntegerColumnValue;
+import com.poesys.db.col.LongColumnValue;
+import com.poesys.db.col.NullColumnValue;
+import com.poesys.db.col.StringColumnValue;
+import com.poesys.db.col.TimestampColumnValue;
+import com.poesys.db.pk.AssociationPrimaryKey;
+import com.poesys.db.pk.CompositePrimaryKey;
+import com.poesys.db.pk.GuidPrimaryKey;
+import com.poesys.db.pk.IPrimaryKey;
+import com.poesys.db.pk.IdentityPrimaryKey;
+import com.poesys.db.pk.NaturalPrimaryKey;
+import com.poesys.db.pk.SequencePrimaryKey;
+
+
+/**
+ * CUT: CompactOutput and CompactInput
+ * 
+ * @author Robert J. Muller
+ */
+public class CompactOutputTest {
+  private static final String CLASS_NAME = "com.poesys.db.dto.TestNatural";
+
+  /**
+   * Test that the primitive encodings read back the values written, including
+   * nulls and the extremes of the integer ranges.
+   * 
+   * @throws IOException when the encoding fails
+   */
+  @Test
+  public void testPrimitives() throws IOException {
+    CompactOutput out = new CompactOutput();
+    out.writeInt(0);
+    out.writeInt(-1);
+    out.writeInt(Integer.MAX_VALUE);
+    out.writeInt(Integer.MIN_VALUE);
+    out.writeLong(Long.MIN_VALUE);
+    out.writeInteger(null);
+    out.writeString("caf\u00e9");
+    out.writeString(null);
+    out.writeBigDecimal(new BigDecimal("-12345.678"));
+    out.writeBigDecimal(null);
+    Timestamp timestamp = new Timestamp(1234567890123L);
+    timestamp.setNanos(123456789);
+    out.writeTimestamp(timestamp);
+    UUID uuid = UUID.randomUUID();
+    out.writeUuid(uuid);
+    out.writeSymbol("name");
+    out.writeSymbol("name");
+
+    CompactInput in = new CompactInput(out.toByteArray());
+    assertEquals(0, in.readInt());
+    assertEquals(-1, in.readInt());
+    assertEquals(Integer.MAX_VALUE, in.readInt());
+    assertEquals(Integer.MIN_VALUE, in.readInt());
+    assertEquals(Long.MIN_VALUE, in.readLong());
+    assertNull(in.readInteger());
+    assertEquals("caf\u00e9", in.readString());
+    assertNull(in.readString());
+    assertEquals(new BigDecimal("-12345.678"), in.readBigDecimal());
+    assertNull(in.readBigDecimal());
+    assertEquals(timestamp, in.readTimestamp());
+    assertEquals(uuid, in.readUuid());
+    assertEquals("name", in.readSymbol());
+    assertEquals("name", in.readSymbol());
+    assertFalse("Unread input", in.hasMore());
+  }
+
+  /**
+   * Test that each type of primary key reads back equal to the key written
+   * and that repeated class names take a single byte.
+   * 
+   * @throws IOException when the encoding fails
+   */
+  @Test
+  public void testKeys() throws IOException {
+    List<IColumnValue> natural = new ArrayList<IColumnValue>();
+    natural.add(new StringColumnValue("key1", "a"));
+    natural.add(new IntegerColumnValue("key2", -5));
+    natural.add(new LongColumnValue("key3", 1L << 40));
+    natural.add(new DateColumnValue("key4", new java.sql.Date(86400000L)));
+    natural.add(new TimestampColumnValue("key5", new Timestamp(1000L)));
+    IPrimaryKey naturalKey = new NaturalPrimaryKey(natural, CLASS_NAME);
+    IPrimaryKey sequenceKey =
+      new SequencePrimaryKey("id", new BigInteger("42"), CLASS_NAME);
+    IPrimaryKey identityKey =
+      new IdentityPrimaryKey("id", new BigInteger("7"), CLASS_NAME);
+    IPrimaryKey guidKey =
+      new GuidPrimaryKey("guid", UUID.randomUUID(), CLASS_NAME);
+    List<IColumnValue> sub = new ArrayList<IColumnValue>();
+    sub.add(new StringColumnValue("sub", "s"));
+    IPrimaryKey compositeKey =
+      new CompositePrimaryKey(sequenceKey,
+                              new NaturalPrimaryKey(sub, CLASS_NAME),
+                              CLASS_NAME);
+    List<IPrimaryKey> associated = new ArrayList<IPrimaryKey>();
+    associated.add(sequenceKey);
+    associated.add(guidKey);
+    IPrimaryKey associationKey =
+      new AssociationPrimaryKey(associated, CLASS_NAME);
+
+    List<IPrimaryKey> keys = new ArrayList<IPrimaryKey>();
+    keys.add(naturalKey);
+    keys.add(sequenceKey);
+    keys.add(identityKey);
+    keys.add(guidKey);
+    keys.add(compositeKey);
+    keys.add(associationKey);
+    keys.add(null);
+
+    CompactOutput out = new CompactOutput();
+    out.writeKeyList(keys);
+    out.writeColumnValue(new NullColumnValue("missing", java.sql.Types.VARCHAR));
+    CompactInput in = new CompactInput(out.toByteArray());
+    List<IPrimaryKey> read = in.readKeyList();
+    assertEquals("Wrong number of keys", keys.size(), read.size());
+    for (int i = 0; i < keys.size() - 1; i++) {
+      assertEquals("Wrong key class", keys.get(i).getClass(),
+                   read.get(i).getClass());
+      assertTrue("Key not equal: " + keys.get(i).getStringKey(),
+                 keys.get(i).equals(read.get(i)));
+      assertEquals("Wrong cache name", CLASS_NAME,
+                   read.get(i).getCacheName());
+    }
+    assertNull("Null key not null", read.get(keys.size() - 1));
+    NullColumnValue nullValue = (NullColumnValue)in.readColumnValue();
+    assertEquals("Wrong JDBC type", java.sql.Types.VARCHAR,
+                 nullValue.getJdbcType());
+
+    // A second sequence key costs one byte for the class name reference.
+    CompactOutput one = new CompactOutput();
+    one.writeKey(sequenceKey);
+    CompactOutput two = new CompactOutput();
+    two.writeKey(sequenceKey);
+    int first = two.size();
+    two.writeKey(sequenceKey);
+    assertEquals("Repeated names not shared", one.size(), first);
+    assertTrue("Repeated key too large: " + (two.size() - first),
+               two.size() - first <= 6);
+  }
+
+  /**
+   * Test that reading a truncated encoding throws an IOException rather than
+   * an unchecked exception.
+   * 
+   * @throws IOException when the encoding fails
+   */
+  @Test(expected = IOException.class)
+  public void testTruncated() throws IOException {
+    CompactOutput out = new CompactOutput();
+    out.writeKey(new SequencePrimaryKey("id", new BigInteger("42"), CLASS_NAME));
+    byte[] bytes = out.toByteArray();
+    new CompactInput(bytes, 0, bytes.length - 2).readKey();
+  }
+
+  /**
+   * Test that reading a length prefix below -1, which only a corrupt encoding
+   * can contain, throws an IOException.
+   * 
+   * @throws IOException when the encoding fails
+   */
+  @Test(expected = IOException.class)
+  public void testNegativeLength() throws IOException {
+    // Nine bytes of 0x7F with continuation bits and a final 0x01 make the
+    // unsigned value 2^64 - 1, a length of -2.
+    byte[] bytes = new byte[10];
+    for (int i = 0; i < 9; i++) {
+      bytes[i] = (byte)0xFF;
+    }
+    bytes[9] = 0x01;
+    new CompactInput(bytes).readString();
+  }
+}
@@ -117,4 +117,98 @@ public class DtoCacheTest {
     assertTrue("Cached object not removed", test2 == null);
   }
 
+  /**
+   * Test expire-after-write, both the cache default and an expiration time
+   * supplied with the object.
+   * 
+   * @throws InterruptedException when the sleep is interrupted
+   */
+  @Test
+  public void testExpireAfterWrite() throws InterruptedException {
+    IDtoCache<TestNatural> cache =
+      new DtoCache<>(TestNatural.class.getName(), 50, 0);
+    TestNatural test = new TestNatural(KEY1, KEY2, COL1);
+    TestNatural other = new TestNatural(KEY2, KEY1, COL1);
+    cache.cache(test);
+    cache.cache(other, 60000);
+    assertTrue("Object expired early", cache.get(test.getPrimaryKey()) != null);
+    Thread.sleep(100);
+    assertTrue("Object not expired", cache.get(test.getPrimaryKey()) == null);
+    assertTrue("Object with explicit time expired",
+               cache.get(other.getPrimaryKey()) != null);
+  }
+
+  /**
+   * Test expire-after-access: an object that is read keeps living, and an
+   * object that is not read expires.
+   * 
+   * @throws InterruptedException when the sleep is interrupted
+   */
+  @Test
+  public void testExpireAfterAccess() throws InterruptedException {
+    IDtoCache<TestNatural> cache =
+      new DtoCache<>(TestNatural.class.getName(), 0, 200);
+    TestNatural test = new TestNatural(KEY1, KEY2, COL1);
+    TestNatural other = new TestNatural(KEY2, KEY1, COL1);
+    cache.cache(test);
+    cache.cache(other);
+    for (int i = 0; i < 4; i++) {
+      Thread.sleep(80);
+      assertTrue("Accessed object expired",
+                 cache.get(test.getPrimaryKey()) != null);
+    }
+    assertTrue("Unaccessed object not expired",
+               cache.get(other.getPrimaryKey()) == null);
+  }
+
+  /**
+   * Test that writes remove expired objects that nobody reads.
+   * 
+   * @throws InterruptedException when the sleep is interrupted
+   */
+  @Test
+  public void testSweep() throws InterruptedException {
+    DtoCache<TestNatural> cache =
+      new DtoCache<>(TestNatural.class.getName(), 10, 0);
+    for (int i = 0; i < DtoCache.SWEEP_SIZE; i++) {
+      cache.cache(new TestNatural("old" + i, KEY2, COL1));
+    }
+    Thread.sleep(50);
+    for (int i = 0; i < DtoCache.SWEEP_INTERVAL * 2; i++) {
+      cache.cache(new TestNatural("new" + i, KEY2, COL1), 60000);
+    }
+    assertTrue("Sweep removed no expired objects: " + cache.size(),
+               cache.size() < DtoCache.SWEEP_SIZE + DtoCache.SWEEP_INTERVAL * 2);
+    cache.purgeExpired();
+    assertTrue("Purge left expired objects: " + cache.size(),
+               cache.size() == DtoCache.SWEEP_INTERVAL * 2);
+  }
+
+  /**
+   * Test absent keys: a key recorded as absent stays absent until the record
+   * expires, and caching an object with the key or clearing the cache removes
+   * the record.
+   * 
+   * @throws InterruptedException when the sleep is interrupted
+   */
+  @Test
+  public void testAbsent() throws InterruptedException {
+    IDtoCache<TestNatural> cache = new DtoCache<>(TestNatural.class.getName());
+    TestNatural test = new TestNatural(KEY1, KEY2, COL1);
+    IPrimaryKey key = test.getPrimaryKey();
+    assertTrue("Key absent before recording", !cache.isAbsent(key));
+    cache.cacheAbsent(key, 60000);
+    assertTrue("Key not absent", cache.isAbsent(key));
+    cache.cache(test);
+    assertTrue("Key absent after caching object", !cache.isAbsent(key));
+
+    cache.remove(key);
+    cache.cacheAbsent(key, 60000);
+    cache.clear();
+    assertTrue("Key absent after clear", !cache.isAbsent(key));
+
+    cache.cacheAbsent(key, 20);
+    Thread.sleep(50);
+    assertTrue("Absent key not expired", !cache.isAbsent(key));
+  }
 }
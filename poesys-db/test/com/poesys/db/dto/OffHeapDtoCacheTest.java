@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.dto;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.poesys.db.pk.CompositePrimaryKey;
+import com.poesys.db.pk.GuidPrimaryKey;
+import com.poesys.db.pk.IPrimaryKey;
+import com.poesys.db.pk.PrimaryKeyFactory;
+
+
+/**
+ * CUT: OffHeapDtoCache
+ * 
+ * @author Robert J. Muller
+ */
+public class OffHeapDtoCacheTest {
+  private static final BigDecimal COL1 = new BigDecimal("100.5");
+  /** Small block size so that objects span several blocks */
+  private static final int BLOCK_SIZE = 64;
+
+  /**
+   * Test that a get returns a new copy of the cached object with the same
+   * key and data, and that remove and clear empty the cache.
+   */
+  @Test
+  public void testRoundTrip() {
+    OffHeapDtoCache<TestNatural> cache =
+      new OffHeapDtoCache<>(TestNatural.class.getName(), 64 * 1024,
+                            BLOCK_SIZE, 0, 0);
+    TestNatural a = new TestNatural("a", "1", COL1);
+    TestNatural b = new TestNatural("b", "1", COL1);
+    cache.cache(a);
+    cache.cache(b);
+    TestNatural copy = cache.get(a.getPrimaryKey());
+    assertNotNull("a not cached", copy);
+    assertNotSame("cache returned the cached object", a, copy);
+    assertEquals("Wrong key", a.getPrimaryKey(), copy.getPrimaryKey());
+    assertEquals("Wrong col1", COL1, copy.getCol1());
+    assertEquals("Wrong size", 2, cache.size());
+    assertTrue("No used bytes", cache.getUsedBytes() > BLOCK_SIZE);
+    cache.remove(a.getPrimaryKey());
+    assertNull("a not removed", cache.get(a.getPrimaryKey()));
+    assertNotNull("b removed", cache.get(b.getPrimaryKey()));
+    cache.clear();
+    assertNull("b not cleared", cache.get(b.getPrimaryKey()));
+    assertEquals("Wrong size after clear", 0, cache.size());
+    assertEquals("Wrong used bytes after clear", 0L, cache.getUsedBytes());
+    cache.cache(a);
+    assertNotNull("a not cached after clear", cache.get(a.getPrimaryKey()));
+  }
+
+  /**
+   * Test eviction of the least-recently-used object when there are not enough
+   * free blocks for a new object.
+   */
+  @Test
+  public void testEviction() {
+    // Measure one object, then size the cache to hold exactly two.
+    OffHeapDtoCache<TestNatural> sizer =
+      new OffHeapDtoCache<>(TestNatural.class.getName(), 64 * 1024,
+                            BLOCK_SIZE, 0, 0);
+    TestNatural a = new TestNatural("a", "1", COL1);
+    sizer.cache(a);
+    long blocks = (sizer.getUsedBytes() + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    OffHeapDtoCache<TestNatural> cache =
+      new OffHeapDtoCache<>(TestNatural.class.getName(),
+                            2 * blocks * BLOCK_SIZE, BLOCK_SIZE, 0, 0);
+    TestNatural b = new TestNatural("b", "1", COL1);
+    TestNatural c = new TestNatural("c", "1", COL1);
+    cache.cache(a);
+    cache.cache(b);
+    // Touch a so that b is the least recently used.
+    assertNotNull("a not cached", cache.get(a.getPrimaryKey()));
+    cache.cache(c);
+    assertEquals("Wrong size", 2, cache.size());
+    assertNull("b not evicted", cache.get(b.getPrimaryKey()));
+    assertNotNull("a evicted", cache.get(a.getPrimaryKey()));
+    assertNotNull("c evicted", cache.get(c.getPrimaryKey()));
+    assertEquals("Wrong eviction count", 1, cache.getEvictionCount());
+    assertEquals("Wrong hit count", 3, cache.getHitCount());
+    assertEquals("Wrong miss count", 1, cache.getMissCount());
+  }
+
+  /**
+   * Test that an object larger than the cache is not cached, and that an
+   * absent key is recorded until the key's object is cached.
+   */
+  @Test
+  public void testRejectionAndAbsent() {
+    OffHeapDtoCache<TestNatural> cache =
+      new OffHeapDtoCache<>(TestNatural.class.getName(), BLOCK_SIZE,
+                            BLOCK_SIZE, 0, 0);
+    TestNatural a = new TestNatural("a", "1", COL1);
+    cache.cacheAbsent(a.getPrimaryKey(), 10000);
+    assertTrue("a not absent", cache.isAbsent(a.getPrimaryKey()));
+    cache.cache(a);
+    assertFalse("a still absent", cache.isAbsent(a.getPrimaryKey()));
+    assertNull("Oversized a cached", cache.get(a.getPrimaryKey()));
+    assertEquals("Wrong rejection count", 1, cache.getRejectionCount());
+  }
+
+  /**
+   * Test that an expired object is not returned.
+   * 
+   * @throws InterruptedException when the sleep is interrupted
+   */
+  @Test
+  public void testExpiration() throws InterruptedException {
+    OffHeapDtoCache<TestNatural> cache =
+      new OffHeapDtoCache<>(TestNatural.class.getName(), 64 * 1024, 50, 0);
+    TestNatural a = new TestNatural("a", "1", COL1);
+    cache.cache(a);
+    Thread.sleep(100);
+    assertNull("a not expired", cache.get(a.getPrimaryKey()));
+    assertEquals("Wrong expiration count", 1, cache.getExpirationCount());
+    assertEquals("Wrong used bytes", 0L, cache.getUsedBytes());
+  }
+
+  /**
+   * Test a cache that fills more than one slab of direct memory, with a
+   * smaller last slab, so that objects span blocks in different slabs.
+   */
+  @Test
+  public void testSlabs() {
+    // The cache allocates 4 MB slabs; 6 MB is one full slab and a half slab.
+    int slabBytes = 4 * 1024 * 1024;
+    long maxBytes = 6L * 1024 * 1024;
+    OffHeapDtoCache<TestNatural> cache =
+      new OffHeapDtoCache<>(TestNatural.class.getName(), maxBytes,
+                            BLOCK_SIZE, 0, 0);
+    int count = 0;
+    while (cache.getAllocatedBytes() <= slabBytes) {
+      cache.cache(new TestNatural("slab", Integer.toString(count), COL1));
+      count++;
+    }
+    assertEquals("Wrong allocated bytes", maxBytes, cache.getAllocatedBytes());
+    assertEquals("Objects evicted", count, cache.size());
+    for (int i = 0; i < count; i++) {
+      TestNatural key = new TestNatural("slab", Integer.toString(i), COL1);
+      TestNatural copy = cache.get(key.getPrimaryKey());
+      assertNotNull("Object " + i + " not cached", copy);
+      assertEquals("Wrong key for " + i, key.getPrimaryKey(),
+                   copy.getPrimaryKey());
+      assertEquals("Wrong col1 for " + i, COL1, copy.getCol1());
+    }
+  }
+
+  /**
+   * Test that a get of a parent returns a copy with copies of its children
+   * and runs the deserialization setters of the copy.
+   */
+  @Test
+  public void testParentChild() {
+    OffHeapDtoCache<Parent> cache =
+      new OffHeapDtoCache<>(Parent.class.getName(), 64 * 1024, BLOCK_SIZE, 0,
+                            0);
+    GuidPrimaryKey key =
+      PrimaryKeyFactory.createGuidKey("parent_id", Parent.class.getName());
+    DeserializedParent parent = new DeserializedParent(key, "parent");
+    List<Child> children = new ArrayList<Child>();
+    for (int i = 1; i <= 2; i++) {
+      BigInteger number = BigInteger.valueOf(i);
+      IPrimaryKey subKey =
+        PrimaryKeyFactory.createSingleNumberKey("child_number", number,
+                                                Child.class.getName());
+      CompositePrimaryKey childKey =
+        new CompositePrimaryKey(key, subKey, Child.class.getName());
+      children.add(new Child(childKey, number, "child"));
+    }
+    parent.setChildren(children);
+    cache.cache(parent);
+
+    DeserializedParent copy = (DeserializedParent)cache.get(key);
+    assertNotNull("parent not cached", copy);
+    assertNotSame("cache returned the cached object", parent, copy);
+    assertEquals("Wrong number of children", 2, copy.getChildren().size());
+    for (int i = 0; i < 2; i++) {
+      Child child = copy.getChildren().get(i);
+      assertNotSame("child not copied", children.get(i), child);
+      assertEquals("Wrong child key", children.get(i).getPrimaryKey(),
+                   child.getPrimaryKey());
+    }
+    assertEquals("Deserialization setters not run", 2, copy.restored);
+  }
+
+  /**
+   * Test that a maximum size smaller than one block is rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidSize() {
+    new OffHeapDtoCache<TestNatural>(TestNatural.class.getName(), 10,
+                                     BLOCK_SIZE, 0, 0);
+  }
+
+  /**
+   * A parent with a deserialization setter that records the number of
+   * children in a transient field, which is set only if the setter runs on
+   * the deserialized copy.
+   */
+  private static class DeserializedParent extends Parent {
+    private static final long serialVersionUID = 1L;
+    /** The number of children the deserialization setter found */
+    private transient int restored = 0;
+
+    /**
+     * Create a DeserializedParent object.
+     * 
+     * @param key the primary key
+     * @param col1 the column value
+     */
+    DeserializedParent(IPrimaryKey key, String col1) {
+      super(key, col1);
+      if (readObjectSetters == null) {
+        readObjectSetters = new ArrayList<ISet>();
+      }
+      readObjectSetters.add(new RestoreChildrenSetter());
+    }
+
+    /**
+     * Deserialization setter that counts the children of the parent
+     */
+    private class RestoreChildrenSetter implements ISet {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      public void set() {
+        restored = getChildren().size();
+      }
+
+      @Override
+      public boolean isSet() {
+        return restored > 0;
+      }
+    }
+  }
+}
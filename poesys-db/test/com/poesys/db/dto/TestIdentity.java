@@ -26,6 +26,7 @@ import java.sql.SQLException;
 
 import com.poesys.db.DbErrorException;
 import com.poesys.db.Message;
+import com.poesys.db.col.BigIntegerColumnValue;
 import com.poesys.db.pk.IPrimaryKey;
 import com.poesys.db.pk.IdentityPrimaryKey;
 
@@ -157,4 +158,14 @@ public class TestIdentity extends AbstractTestDto {
       throw new DbErrorException(Message.getMessage(SQL_ERROR, null));
     }
   }
+
+  @Override
+  public void finalizeBatchInsert(IPrimaryKey key) {
+    // Set the key attribute from the finalized identity key.
+    BigIntegerColumnValue value =
+      (BigIntegerColumnValue)key.iterator().next();
+    if (value.hasValue()) {
+      id = value.getValue();
+    }
+  }
 }
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2026 Poesys Associates. All rights reserved.
+ * 
+ * This file is part of Poesys-DB.
+ * 
+ * Poesys-DB is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ * 
+ * Poesys-DB is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * Poesys-DB. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.poesys.db.pk;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.poesys.db.NoPrimaryKeyException;
+
+
+/**
+ * Test the SequenceBlockAllocator class without a database, using a block
+ * source that simulates a MySQL Sequence table.
+ * 
+ * @author Robert J. Muller
+ */
+public class SequenceBlockAllocatorTest {
+  /** Subsystem for the tests */
+  private static final String SUBSYSTEM = "com.poesys.db.test.block";
+  /** Sequence name for the tests */
+  private static final String SEQUENCE = "test_seq";
+
+  /**
+   * A block source that adds the block size to an in-memory sequence value
+   */
+  private static class TestSource implements SequenceBlockAllocator.BlockSource {
+    /** the simulated sequence value */
+    private final AtomicLong value = new AtomicLong(0L);
+    /** the number of blocks reserved */
+    private final AtomicInteger reservations = new AtomicInteger(0);
+
+    @Override
+    public long reserve(int size) {
+      reservations.incrementAndGet();
+      return value.addAndGet(size) - size + 1;
+    }
+  }
+
+  /**
+   * Test that an Oracle increment equal to the block size passes the check.
+   */
+  @Test
+  public void testCheckIncrement() {
+    SequenceBlockAllocator.checkIncrement(SEQUENCE, 500L, 500);
+  }
+
+  /**
+   * Test that an Oracle increment different from the block size, which would
+   * produce overlapping blocks, fails the check.
+   */
+  @Test(expected = NoPrimaryKeyException.class)
+  public void testCheckIncrementMismatch() {
+    SequenceBlockAllocator.checkIncrement(SEQUENCE, 1L, 500);
+  }
+
+  /**
+   * Test the default block size for a subsystem with no properties.
+   */
+  @Test
+  public void testDefaultBlockSize() {
+    assertEquals("Wrong default block size",
+                 SequenceBlockAllocator.DEFAULT_BLOCK_SIZE,
+                 SequenceBlockAllocator.getBlockSize("com.poesys.db.test.none",
+                                                     SEQUENCE));
+  }
+
+  /**
+   * Test that a single thread gets increasing values with about one
+   * reservation per block. A spare block reserved in the background can lose
+   * the race with the rollover, leaving a gap.
+   */
+  @Test
+  public void testSequentialValues() {
+    SequenceBlockAllocator.setBlockSize(SUBSYSTEM, SEQUENCE, 10);
+    TestSource source = new TestSource();
+    SequenceBlockAllocator.Sequence sequence =
+      new SequenceBlockAllocator.Sequence(SEQUENCE, source, SUBSYSTEM);
+    assertEquals("Wrong first value", 1L, sequence.next());
+    long last = 1L;
+    for (int i = 1; i < 35; i++) {
+      long value = sequence.next();
+      assertTrue("Value " + value + " not after " + last, value > last);
+      last = value;
+    }
+    assertTrue("Too many reservations: " + source.reservations.get(),
+               source.reservations.get() <= 8);
+  }
+
+  /**
+   * Test that concurrent threads get unique values.
+   * 
+   * @throws InterruptedException when a thread is interrupted
+   */
+  @Test
+  public void testConcurrentValues() throws InterruptedException {
+    SequenceBlockAllocator.setBlockSize(SUBSYSTEM, SEQUENCE, 7);
+    final SequenceBlockAllocator.Sequence sequence =
+      new SequenceBlockAllocator.Sequence(SEQUENCE, new TestSource(), SUBSYSTEM);
+    final Set<Long> values = Collections.synchronizedSet(new HashSet<Long>());
+    Thread[] threads = new Thread[4];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          for (int j = 0; j < 1000; j++) {
+            values.add(sequence.next());
+          }
+        }
+      });
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals("Duplicate sequence values", 4000, values.size());
+  }
+}